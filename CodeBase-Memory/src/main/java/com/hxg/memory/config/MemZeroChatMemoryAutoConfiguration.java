@@ -3,9 +3,11 @@ package com.hxg.memory.config;
 import com.alibaba.cloud.ai.autoconfigure.memory.ChatMemoryAutoConfiguration;
 import com.hxg.memory.mem0.MemZeroMemoryStore;
 import com.hxg.memory.mem0.MemZeroServiceClient;
+import com.hxg.quota.QuotaClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -29,8 +31,9 @@ public class MemZeroChatMemoryAutoConfiguration {
 
     @Bean
     @ConditionalOnBean(MemZeroChatMemoryProperties.class)
-    public MemZeroServiceClient elasticsearchRestClient(MemZeroChatMemoryProperties properties, ResourceLoader resourceLoader) {
-        MemZeroServiceClient memZeroServiceClient = new MemZeroServiceClient(properties, resourceLoader);
+    public MemZeroServiceClient elasticsearchRestClient(MemZeroChatMemoryProperties properties, ResourceLoader resourceLoader,
+                                                        ObjectProvider<QuotaClient> quotaClient) {
+        MemZeroServiceClient memZeroServiceClient = new MemZeroServiceClient(properties, resourceLoader, quotaClient.getIfAvailable());
         logger.info("Initialized MemZeroService Client.success!");
         // 将client配置项交给Server初始化Mem0实例
         memZeroServiceClient.configure(properties.getServer());
@@ -0,0 +1,44 @@
+package com.hxg.memory.config;
+
+import com.hxg.quota.FileLockQuotaStore;
+import com.hxg.quota.QuotaClient;
+import com.hxg.quota.QuotaStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * DashScope 共享配额配置
+ *
+ * Mem0 服务写入和检索记忆时会调用 DashScope 的模型与向量接口，与 Wiki、Review 服务共用同一账号的 QPM/TPM；
+ * 状态文件依赖操作系统文件锁，只在同一主机的进程之间共享
+ */
+@Configuration
+@ConditionalOnProperty(name = "project.memory.llm.quota.enabled", havingValue = "true", matchIfMissing = true)
+public class QuotaConfig {
+
+    /**
+     * 共享配额状态文件，目录须与 Wiki、Review 服务配置为同一目录
+     */
+    @Bean(destroyMethod = "close")
+    public FileLockQuotaStore dashScopeQuotaStore(@Value("${project.memory.llm.quota.file.dir:./data/quota}") String dir,
+                                                  @Value("${project.memory.llm.quota.file.lock-timeout-ms:200}") long lockTimeoutMs) {
+        return new FileLockQuotaStore(dir, lockTimeoutMs);
+    }
+
+    /**
+     * 共享配额客户端，配额名称须与 Wiki 服务的 project.wiki.llm.quota.name 一致；
+     * 等待配额超过上限后放行，避免记忆读写无限挂起
+     */
+    @Bean
+    public QuotaClient dashScopeQuotaClient(FileLockQuotaStore dashScopeQuotaStore,
+                                            @Value("${project.memory.llm.quota.name:dashscope}") String quota,
+                                            @Value("${project.memory.llm.quota.requests-per-minute:60}") double requestsPerMinute,
+                                            @Value("${project.memory.llm.quota.tokens-per-minute:1000000}") double tokensPerMinute,
+                                            @Value("${project.memory.llm.quota.burst-seconds:5}") double burstSeconds,
+                                            @Value("${project.memory.llm.quota.max-wait-ms:60000}") long maxWaitMs) {
+        return new QuotaClient(dashScopeQuotaStore, quota,
+                new QuotaStore.QuotaLimits(requestsPerMinute, tokensPerMinute, burstSeconds), maxWaitMs);
+    }
+}
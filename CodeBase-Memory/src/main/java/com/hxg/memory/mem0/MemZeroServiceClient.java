@@ -1,6 +1,7 @@
 package com.hxg.memory.mem0;
 
 import com.hxg.memory.config.MemZeroChatMemoryProperties;
+import com.hxg.quota.QuotaClient;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -18,6 +19,7 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * Mem0 API 客户端实现
@@ -33,6 +35,7 @@ public class MemZeroServiceClient {
     private final ObjectMapper objectMapper;
     private final MemZeroChatMemoryProperties config;
     private final ResourceLoader resourceLoader;
+    private final QuotaClient quotaClient;
     
     // Mem0 API 端点
     private static final String CONFIGURE_ENDPOINT = "/configure";
@@ -40,12 +43,27 @@ public class MemZeroServiceClient {
     private static final String SEARCH_ENDPOINT = "/search";
     private static final String RESET_ENDPOINT = "/reset";
 
+    /**
+     * Mem0 服务转发DashScope的429后，同一主机上所有进程暂停的时间
+     */
+    private static final long THROTTLE_PAUSE_MS = 5000;
+
     /**
      * 构造函数
      */
     public MemZeroServiceClient(MemZeroChatMemoryProperties config, ResourceLoader resourceLoader) {
+        this(config, resourceLoader, null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param quotaClient DashScope 共享配额，为null时不限流
+     */
+    public MemZeroServiceClient(MemZeroChatMemoryProperties config, ResourceLoader resourceLoader, QuotaClient quotaClient) {
         this.config = config;
         this.resourceLoader = resourceLoader;
+        this.quotaClient = quotaClient;
         this.objectMapper = new ObjectMapper();
         // json key序列化为_风格
         this.objectMapper.setPropertyNamingStrategy(com.fasterxml.jackson.databind.PropertyNamingStrategies.SNAKE_CASE);
@@ -103,15 +121,20 @@ public class MemZeroServiceClient {
             // 添加调试信息
             String requestJson = objectMapper.writeValueAsString(memoryCreate);
 
-            String response = webClient.post()
+            StringBuilder contents = new StringBuilder();
+            for (MemZeroServerRequest.Message message : memoryCreate.getMessages()) {
+                if (message.getContent() != null) {
+                    contents.append(message.getContent());
+                }
+            }
+            String response = withQuota(contents, () -> webClient.post()
                 .uri(MEMORIES_ENDPOINT)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(requestJson))
                 .retrieve()
                 .bodyToMono(String.class)
                 .timeout(Duration.ofSeconds(config.getClient().getTimeoutSeconds()))
-                .retry(config.getClient().getMaxRetryAttempts())
-                .block();
+                .block());
             
             if (response != null) {
                 Map<String, Object> result = objectMapper.readValue(response, new TypeReference<Map<String, Object>>() {});
@@ -201,15 +224,14 @@ public class MemZeroServiceClient {
             String requestJson = objectMapper.writeValueAsString(searchRequest);
             logger.info("Sending search request to Mem0: {}", requestJson);
             
-            String response = webClient.post()
+            String response = withQuota(searchRequest.getQuery(), () -> webClient.post()
                 .uri(SEARCH_ENDPOINT)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(requestJson))
                 .retrieve()
                 .bodyToMono(String.class)
                 .timeout(Duration.ofSeconds(config.getClient().getTimeoutSeconds()))
-                .retry(config.getClient().getMaxRetryAttempts())
-                .block();
+                .block());
             
             if (response != null) {
                 logger.info("Received response from Mem0: " + response);
@@ -344,6 +366,44 @@ public class MemZeroServiceClient {
         }
     }
 
+    /**
+     * Mem0 写入记忆时调用模型抽取事实并生成向量，检索时生成查询向量，都消耗 DashScope 配额；
+     * 每次请求（包括重试）发出前都从共享配额预留，token 数按文本字符数粗略估算（约2字符/token）。
+     * 重试在此处而不在 WebClient 链上进行，被限流暂停后的重试会等待共享配额恢复
+     */
+    private String withQuota(CharSequence text, Supplier<String> request) {
+        long estimatedTokens = text == null ? 0 : text.length() / 2;
+        int maxRetryAttempts = Math.max(config.getClient().getMaxRetryAttempts(), 0);
+        for (int attempt = 0; ; attempt++) {
+            long reserved = quotaClient == null ? 0 : quotaClient.reserve(estimatedTokens);
+            try {
+                return request.get();
+            } catch (RuntimeException e) {
+                if (quotaClient != null) {
+                    quotaClient.release(reserved);
+                    if (isThrottled(e)) {
+                        quotaClient.pause(THROTTLE_PAUSE_MS);
+                    }
+                }
+                if (attempt >= maxRetryAttempts) {
+                    throw e;
+                }
+                logger.warn("Mem0 request failed, retrying ({}/{}): {}", attempt + 1, maxRetryAttempts, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isThrottled(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException responseException
+                    && (responseException.getStatusCode().value() == 429
+                    || responseException.getResponseBodyAsString().contains("Throttling"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 重置所有记忆
      */
@@ -0,0 +1,154 @@
+package com.hxg.quota;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @author hxg
+ * @description: 基于文件锁的配额存储，同一主机上的多个进程共享配额：每个配额一个32字节的状态文件，
+ * 读改写在操作系统文件锁内完成；文件锁按进程持有，进程内再以对象锁串行。
+ * 仅适用于单主机部署：NFS等网络文件系统上的文件锁不可靠，跨主机的实例需要实现基于Redis等的QuotaStore。
+ * 获取文件锁有超时上限，超时后预留返回短暂等待，修正与暂停抛出异常由协调器降级处理
+ * @date 2025/8/25
+ */
+public class FileLockQuotaStore implements QuotaStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileLockQuotaStore.class);
+
+    private static final long LOCK_POLL_MILLIS = 5;
+
+    private final Map<String, FileChannel> channels = new HashMap<>();
+
+    /**
+     * 状态文件目录，同一主机上共享配额的进程应配置为同一目录
+     */
+    private final String dir;
+
+    /**
+     * 获取文件锁的最长等待时间
+     */
+    private final long lockTimeoutMs;
+
+    public FileLockQuotaStore(String dir, long lockTimeoutMs) {
+        this.dir = dir;
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    @Override
+    public long reserve(String quota, QuotaLimits limits, double requests, double tokens, long nowMillis) {
+        Long waitMs = update(quota, limits, nowMillis, bucket -> bucket.reserve(limits, requests, tokens, nowMillis));
+        // 其他进程长时间持有文件锁，稍后重试预留
+        return waitMs == null ? Math.max(lockTimeoutMs, 1) : waitMs;
+    }
+
+    @Override
+    public void adjust(String quota, QuotaLimits limits, double tokens, long nowMillis) {
+        requireLocked(quota, update(quota, limits, nowMillis, bucket -> {
+            bucket.adjust(limits, tokens, nowMillis);
+            return Boolean.TRUE;
+        }));
+    }
+
+    @Override
+    public void pause(String quota, QuotaLimits limits, long untilMillis, long nowMillis) {
+        requireLocked(quota, update(quota, limits, nowMillis, bucket -> {
+            bucket.pause(limits, untilMillis, nowMillis);
+            return Boolean.TRUE;
+        }));
+    }
+
+    public synchronized void close() {
+        for (FileChannel channel : channels.values()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("关闭配额状态文件失败: {}", e.getMessage());
+            }
+        }
+        channels.clear();
+    }
+
+    /**
+     * 在文件锁内读改写桶状态
+     *
+     * @return 操作结果，在超时时间内未获得文件锁时返回null
+     */
+    private synchronized <T> T update(String quota, QuotaLimits limits, long nowMillis, Function<QuotaBucket, T> operation) {
+        try {
+            FileChannel channel = channel(quota);
+            try (FileLock lock = tryLock(channel)) {
+                if (lock == null) {
+                    return null;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(QuotaBucket.BYTES);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, buffer.position()) <= 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                QuotaBucket bucket = QuotaBucket.read(buffer, limits, nowMillis);
+                T result = operation.apply(bucket);
+                buffer.clear();
+                bucket.write(buffer);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, buffer.position());
+                }
+                return result;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读写配额状态文件失败: " + quota, e);
+        }
+    }
+
+    /**
+     * 轮询获取文件锁，不在channel.lock()上无限阻塞
+     */
+    private FileLock tryLock(FileChannel channel) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockTimeoutMs);
+        while (true) {
+            FileLock lock = channel.tryLock();
+            if (lock != null || System.nanoTime() >= deadline) {
+                return lock;
+            }
+            try {
+                Thread.sleep(LOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待配额文件锁时被中断");
+            }
+        }
+    }
+
+    private void requireLocked(String quota, Object result) {
+        if (result == null) {
+            throw new IllegalStateException("获取配额状态文件锁超时: " + quota);
+        }
+    }
+
+    private FileChannel channel(String quota) throws IOException {
+        FileChannel channel = channels.get(quota);
+        if (channel == null || !channel.isOpen()) {
+            Path path = Path.of(dir).resolve(quota.replaceAll("[^A-Za-z0-9_.-]", "_") + ".quota");
+            Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channels.put(quota, channel);
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,33 @@
+package com.hxg.quota;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author hxg
+ * @description: 进程内的配额存储，只协调同一进程内的调用方，用于单实例部署与测试
+ * @date 2025/8/25
+ */
+public class InMemoryQuotaStore implements QuotaStore {
+
+    private final Map<String, QuotaBucket> buckets = new HashMap<>();
+
+    @Override
+    public synchronized long reserve(String quota, QuotaLimits limits, double requests, double tokens, long nowMillis) {
+        return bucket(quota, limits, nowMillis).reserve(limits, requests, tokens, nowMillis);
+    }
+
+    @Override
+    public synchronized void adjust(String quota, QuotaLimits limits, double tokens, long nowMillis) {
+        bucket(quota, limits, nowMillis).adjust(limits, tokens, nowMillis);
+    }
+
+    @Override
+    public synchronized void pause(String quota, QuotaLimits limits, long untilMillis, long nowMillis) {
+        bucket(quota, limits, nowMillis).pause(limits, untilMillis, nowMillis);
+    }
+
+    private QuotaBucket bucket(String quota, QuotaLimits limits, long nowMillis) {
+        return buckets.computeIfAbsent(quota, key -> QuotaBucket.full(limits, nowMillis));
+    }
+}
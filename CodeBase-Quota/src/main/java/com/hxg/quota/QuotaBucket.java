@@ -0,0 +1,94 @@
+package com.hxg.quota;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author hxg
+ * @description: 配额令牌桶的状态与补充、扣减计算，各存储实现在锁内读出状态、计算后写回
+ * @date 2025/8/25
+ */
+final class QuotaBucket {
+
+    static final int BYTES = 32;
+
+    double requests;
+    double tokens;
+    long refilledAt;
+    long pausedUntil;
+
+    /**
+     * 新建的配额桶是满的
+     */
+    static QuotaBucket full(QuotaStore.QuotaLimits limits, long nowMillis) {
+        QuotaBucket bucket = new QuotaBucket();
+        bucket.requests = limits.requestCapacity();
+        bucket.tokens = limits.tokenCapacity();
+        bucket.refilledAt = nowMillis;
+        return bucket;
+    }
+
+    /**
+     * 从[请求数][token数][补充时间][暂停截止时间]的二进制形式读取，未初始化（全零）时返回满桶
+     */
+    static QuotaBucket read(ByteBuffer buffer, QuotaStore.QuotaLimits limits, long nowMillis) {
+        if (buffer.remaining() < BYTES) {
+            return full(limits, nowMillis);
+        }
+        QuotaBucket bucket = new QuotaBucket();
+        bucket.requests = buffer.getDouble();
+        bucket.tokens = buffer.getDouble();
+        bucket.refilledAt = buffer.getLong();
+        bucket.pausedUntil = buffer.getLong();
+        return bucket.refilledAt == 0 ? full(limits, nowMillis) : bucket;
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.putDouble(requests).putDouble(tokens).putLong(refilledAt).putLong(pausedUntil);
+    }
+
+    long reserve(QuotaStore.QuotaLimits limits, double requestsNeeded, double tokensNeeded, long nowMillis) {
+        refill(limits, nowMillis);
+        if (nowMillis < pausedUntil) {
+            return pausedUntil - nowMillis;
+        }
+        double tokensWanted = Math.min(Math.max(tokensNeeded, 0), limits.tokenCapacity());
+        if (requests >= requestsNeeded && tokens >= tokensWanted) {
+            requests -= requestsNeeded;
+            tokens -= tokensWanted;
+            return 0;
+        }
+        long waitMillis = Math.max(millisUntil(requestsNeeded - requests, limits.requestsPerMinute()),
+                millisUntil(tokensWanted - tokens, limits.tokensPerMinute()));
+        return Math.max(waitMillis, 1);
+    }
+
+    void adjust(QuotaStore.QuotaLimits limits, double tokensDelta, long nowMillis) {
+        refill(limits, nowMillis);
+        tokens = Math.min(limits.tokenCapacity(), tokens + tokensDelta);
+    }
+
+    void pause(QuotaStore.QuotaLimits limits, long untilMillis, long nowMillis) {
+        refill(limits, nowMillis);
+        pausedUntil = Math.max(pausedUntil, untilMillis);
+        // 清空突发余量，恢复后按配额速率平滑发放
+        requests = Math.min(requests, 0);
+    }
+
+    private void refill(QuotaStore.QuotaLimits limits, long nowMillis) {
+        long elapsed = nowMillis - refilledAt;
+        if (elapsed <= 0) {
+            return;
+        }
+        double seconds = elapsed / 1000.0;
+        requests = Math.min(limits.requestCapacity(), requests + seconds * limits.requestsPerMinute() / 60);
+        tokens = Math.min(limits.tokenCapacity(), tokens + seconds * limits.tokensPerMinute() / 60);
+        refilledAt = nowMillis;
+    }
+
+    private static long millisUntil(double deficit, double perMinute) {
+        if (deficit <= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(deficit / (perMinute / 60) * 1000);
+    }
+}
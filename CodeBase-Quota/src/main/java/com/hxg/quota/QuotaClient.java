@@ -0,0 +1,124 @@
+package com.hxg.quota;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author hxg
+ * @description: 没有进程内限流器的服务（Review、Memory）使用的共享配额客户端：调用模型前从共享存储预留一次调用的
+ * 请求数与token数，不足时等待补充，调用后按真实消耗修正，收到429时通知所有进程暂停。
+ * 等待超过上限或存储不可用时放行，不阻塞业务流程；Wiki由ClusterQuotaCoordinator在限流器内协调同一存储
+ * @date 2025/8/25
+ */
+public class QuotaClient {
+
+    private static final Logger log = LoggerFactory.getLogger(QuotaClient.class);
+
+    private final QuotaStore store;
+
+    /**
+     * 配额名称，使用同一账号的服务配置相同的名称
+     */
+    private final String quota;
+
+    private final QuotaStore.QuotaLimits limits;
+
+    /**
+     * 单次调用等待配额的上限，超过后放行
+     */
+    private final long maxWaitMs;
+
+    private volatile long lastFailureLogMillis;
+
+    public QuotaClient(QuotaStore store, String quota, QuotaStore.QuotaLimits limits, long maxWaitMs) {
+        this.store = store;
+        this.quota = quota;
+        this.limits = limits;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * 预留一次调用的配额，不足时等待补充
+     *
+     * @param estimatedTokens 预计消耗的token数
+     * @return 实际预留的token数，用于调用后修正或退还；等待超时或存储不可用而放行时返回0
+     */
+    public long reserve(long estimatedTokens) {
+        double tokens = Math.min(Math.max(estimatedTokens, 0), limits.tokenCapacity());
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                long waitMs = store.reserve(quota, limits, 1, tokens, now);
+                if (waitMs == 0) {
+                    return (long) tokens;
+                }
+                if (now + waitMs > deadline) {
+                    log.warn("等待共享配额超过{}ms，直接放行: quota={}", maxWaitMs, quota);
+                    return 0;
+                }
+                Thread.sleep(Math.max(waitMs, 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待共享配额时被中断", e);
+        } catch (RuntimeException e) {
+            logFailure(e);
+            return 0;
+        }
+    }
+
+    /**
+     * 用真实消耗修正预留的token
+     */
+    public void reconcile(long reservedTokens, long actualTokens) {
+        if (actualTokens <= 0) {
+            return;
+        }
+        adjust(reservedTokens - actualTokens);
+    }
+
+    /**
+     * 调用失败且未消耗token时退还预留，请求数不退还
+     */
+    public void release(long reservedTokens) {
+        if (reservedTokens <= 0) {
+            return;
+        }
+        adjust(reservedTokens);
+    }
+
+    /**
+     * 收到429后通知所有进程暂停发放配额
+     */
+    public void pause(long pauseMs) {
+        if (pauseMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            store.pause(quota, limits, now + pauseMs, now);
+        } catch (RuntimeException e) {
+            logFailure(e);
+        }
+    }
+
+    private void adjust(double tokensDelta) {
+        try {
+            store.adjust(quota, limits, tokensDelta, System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logFailure(e);
+        }
+    }
+
+    /**
+     * 存储故障时每分钟最多记录一次
+     */
+    private void logFailure(RuntimeException e) {
+        long now = System.currentTimeMillis();
+        if (now - lastFailureLogMillis > 60_000) {
+            lastFailureLogMillis = now;
+            log.warn("共享配额存储不可用，暂不限流: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.hxg.quota;
+
+/**
+ * @author hxg
+ * @description: 集群共享的LLM配额存储，每个配额是一组请求数与token数令牌桶，以及暂停发放的截止时间；
+ * 所有操作对同一配额原子执行，Wiki、Review、Memory各进程共用同一存储即共享账号级的QPM/TPM。
+ * 目前提供的file后端只在同一主机的进程间共享，跨主机部署需另行实现：
+ * 实现Redis等存储时，把QuotaBucket的补充与扣减逻辑放入脚本在服务端原子执行，桶状态保存为一个hash
+ * @date 2025/8/25
+ */
+public interface QuotaStore {
+
+    String BACKEND_FILE = "file";
+    String BACKEND_MEMORY = "memory";
+
+    /**
+     * 按经过的时间补充后尝试预留配额，足够时扣减并返回0，否则不扣减并返回建议的等待毫秒数
+     *
+     * @param tokens 预计消耗的token数，超过桶容量时只要求桶满
+     */
+    long reserve(String quota, QuotaLimits limits, double requests, double tokens, long nowMillis);
+
+    /**
+     * 修正token桶：正数退还多预留的token，负数补扣超出预留的消耗
+     */
+    void adjust(String quota, QuotaLimits limits, double tokens, long nowMillis);
+
+    /**
+     * 收到429后所有进程暂停发放配额至untilMillis
+     */
+    void pause(String quota, QuotaLimits limits, long untilMillis, long nowMillis);
+
+    /**
+     * 账号级配额
+     *
+     * @param burstSeconds 桶容量对应的秒数，决定集群允许的突发量
+     */
+    record QuotaLimits(double requestsPerMinute, double tokensPerMinute, double burstSeconds) {
+
+        public double requestCapacity() {
+            return Math.max(1, requestsPerMinute * burstSeconds / 60);
+        }
+
+        public double tokenCapacity() {
+            return Math.max(1, tokensPerMinute * burstSeconds / 60);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.hxg.quota;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FileLockQuotaStore 与 QuotaClient 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("FileLockQuotaStore 单元测试")
+class FileLockQuotaStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<FileLockQuotaStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(FileLockQuotaStore::close);
+    }
+
+    @Test
+    @DisplayName("文件锁存储重新打开后保留配额状态")
+    void testFileStorePersistsAcrossProcesses() {
+        QuotaStore.QuotaLimits limits = new QuotaStore.QuotaLimits(60, 1_000_000, 2);
+        FileLockQuotaStore first = fileStore();
+        long now = System.currentTimeMillis();
+        assertEquals(0, first.reserve("dashscope", limits, 1, 100, now));
+        assertEquals(0, first.reserve("dashscope", limits, 1, 100, now));
+        assertTrue(first.reserve("dashscope", limits, 1, 100, now) > 0);
+        first.close();
+
+        FileLockQuotaStore second = fileStore();
+        long waitMs = second.reserve("dashscope", limits, 1, 100, now + 100);
+        assertTrue(waitMs > 0 && waitMs <= 1000, "waitMs=" + waitMs);
+        assertEquals(0, second.reserve("dashscope", limits, 1, 100, now + 1000));
+    }
+
+    @Test
+    @DisplayName("Review、Memory通过客户端预留的配额对Wiki的文件锁存储可见")
+    void testClientReservationVisibleToStore() {
+        // 突发10秒：桶容量1次请求、1000个token
+        QuotaStore.QuotaLimits limits = new QuotaStore.QuotaLimits(6, 6000, 10);
+        QuotaClient client = new QuotaClient(fileStore(), "dashscope", limits, 0);
+        FileLockQuotaStore wiki = fileStore();
+
+        assertEquals(600, client.reserve(600));
+        // token已被客户端预留，Wiki需要等待补充
+        assertTrue(wiki.reserve("dashscope", limits, 0, 500, System.currentTimeMillis()) > 0);
+        // 客户端退还的token对Wiki可见
+        client.release(600);
+        assertEquals(0, wiki.reserve("dashscope", limits, 0, 900, System.currentTimeMillis()));
+    }
+
+    @Test
+    @DisplayName("客户端收到429后的暂停对Wiki的文件锁存储可见，等待超过上限时放行")
+    void testClientPauseVisibleToStore() {
+        QuotaStore.QuotaLimits limits = new QuotaStore.QuotaLimits(600, 1_000_000, 5);
+        QuotaClient client = new QuotaClient(fileStore(), "dashscope", limits, 100);
+        FileLockQuotaStore wiki = fileStore();
+
+        client.pause(5000);
+
+        long waitMs = wiki.reserve("dashscope", limits, 1, 100, System.currentTimeMillis());
+        assertTrue(waitMs > 4000 && waitMs <= 5000, "waitMs=" + waitMs);
+        long start = System.currentTimeMillis();
+        assertEquals(0, client.reserve(100));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    private FileLockQuotaStore fileStore() {
+        FileLockQuotaStore store = new FileLockQuotaStore(dir.toString(), 200);
+        stores.add(store);
+        return store;
+    }
+}
@@ -0,0 +1,76 @@
+package com.hxg.crApp.adapter.llm;
+
+import com.hxg.quota.QuotaClient;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.core.Ordered;
+
+/**
+ * DashScope 共享配额 Advisor
+ *
+ * 挂在所有 ChatClient 上，模型调用前从共享配额预留，调用后按响应中的真实用量修正，
+ * 被限流时通知其他进程暂停。token 数按提示词字符数粗略估算（约2字符/token）
+ */
+public class DashScopeQuotaAdvisor implements CallAdvisor {
+
+    /**
+     * 未给出Retry-After时，429后所有进程暂停的时间
+     */
+    private static final long THROTTLE_PAUSE_MS = 5000;
+
+    private final QuotaClient quotaClient;
+
+    public DashScopeQuotaAdvisor(QuotaClient quotaClient) {
+        this.quotaClient = quotaClient;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String contents = request.prompt().getContents();
+        long reserved = quotaClient.reserve(contents == null ? 0 : contents.length() / 2);
+        ChatClientResponse response;
+        try {
+            response = chain.nextCall(request);
+        } catch (RuntimeException e) {
+            quotaClient.release(reserved);
+            if (isThrottled(e)) {
+                quotaClient.pause(THROTTLE_PAUSE_MS);
+            }
+            throw e;
+        }
+        if (response.chatResponse() != null && response.chatResponse().getMetadata() != null) {
+            Usage usage = response.chatResponse().getMetadata().getUsage();
+            if (usage != null && usage.getTotalTokens() != null) {
+                quotaClient.reconcile(reserved, usage.getTotalTokens());
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public String getName() {
+        return DashScopeQuotaAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        // 最外层执行，重试等内层Advisor发出的每次调用都在同一次预留内
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * DashScope 限流时返回 429 或 Throttling 错误码
+     */
+    private static boolean isThrottled(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && (message.contains("429") || message.contains("Throttling"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
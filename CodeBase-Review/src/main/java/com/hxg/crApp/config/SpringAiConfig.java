@@ -1,8 +1,16 @@
 package com.hxg.crApp.config;
 
+import com.hxg.crApp.adapter.llm.DashScopeQuotaAdvisor;
+import com.hxg.quota.FileLockQuotaStore;
+import com.hxg.quota.QuotaClient;
+import com.hxg.quota.QuotaStore;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,6 +23,40 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class SpringAiConfig {
 
+    /**
+     * DashScope 共享配额状态文件，目录须与 Wiki、Memory 服务配置为同一目录
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.llm.quota.enabled", havingValue = "true", matchIfMissing = true)
+    public FileLockQuotaStore dashScopeQuotaStore(@Value("${app.llm.quota.file.dir:./data/quota}") String dir,
+                                                  @Value("${app.llm.quota.file.lock-timeout-ms:200}") long lockTimeoutMs) {
+        return new FileLockQuotaStore(dir, lockTimeoutMs);
+    }
+
+    /**
+     * DashScope 共享配额客户端，配额名称须与 Wiki 服务的 project.wiki.llm.quota.name 一致
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.llm.quota.enabled", havingValue = "true", matchIfMissing = true)
+    public QuotaClient dashScopeQuotaClient(FileLockQuotaStore dashScopeQuotaStore,
+                                            @Value("${app.llm.quota.name:dashscope}") String quota,
+                                            @Value("${app.llm.quota.requests-per-minute:60}") double requestsPerMinute,
+                                            @Value("${app.llm.quota.tokens-per-minute:1000000}") double tokensPerMinute,
+                                            @Value("${app.llm.quota.burst-seconds:5}") double burstSeconds,
+                                            @Value("${app.llm.quota.max-wait-ms:60000}") long maxWaitMs) {
+        return new QuotaClient(dashScopeQuotaStore, quota,
+                new QuotaStore.QuotaLimits(requestsPerMinute, tokensPerMinute, burstSeconds), maxWaitMs);
+    }
+
+    /**
+     * 所有由 ChatClient.Builder 构建的 ChatClient（包括各Agent与LlmAdapter）都从共享配额预留，
+     * 与 Wiki、Memory 服务共用同一账号的 QPM/TPM；未启用共享配额时不挂载
+     */
+    @Bean
+    public ChatClientCustomizer dashScopeQuotaCustomizer(ObjectProvider<QuotaClient> quotaClient) {
+        return builder -> quotaClient.ifAvailable(client -> builder.defaultAdvisors(new DashScopeQuotaAdvisor(client)));
+    }
+
     /**
      * 配置 ChatClient Bean
      * 用于与大语言模型进行对话
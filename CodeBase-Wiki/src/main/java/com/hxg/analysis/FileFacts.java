@@ -0,0 +1,64 @@
+package com.hxg.analysis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author hxg
+ * @description: 单个源码文件的静态分析结果
+ * @date 2025/8/18
+ */
+@Data
+public class FileFacts {
+    /**
+     * 相对仓库根目录的路径，分隔符统一为/
+     */
+    private String path;
+
+    private String language;
+
+    /**
+     * Java包名、Go包名，其他语言为空
+     */
+    private String packageName;
+
+    /**
+     * 声明的类型，如"class LlmService"
+     */
+    private List<String> types = new ArrayList<>();
+
+    /**
+     * 作为入口的原因，如"main方法"、"@RestController /api/task"
+     */
+    private List<String> entryReasons = new ArrayList<>();
+
+    /**
+     * 依赖的仓库内文件
+     */
+    private Set<String> dependsOn = new LinkedHashSet<>();
+
+    /**
+     * 依赖本文件的仓库内文件
+     */
+    private Set<String> dependents = new LinkedHashSet<>();
+
+    public FileFacts(String path, String language) {
+        this.path = path;
+        this.language = language;
+    }
+
+    /**
+     * 主类型名，没有声明类型时为文件名
+     */
+    public String getPrimaryName() {
+        if (!types.isEmpty()) {
+            String type = types.get(0);
+            return type.substring(type.indexOf(' ') + 1);
+        }
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
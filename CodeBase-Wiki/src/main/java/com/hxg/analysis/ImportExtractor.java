@@ -0,0 +1,112 @@
+package com.hxg.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author hxg
+ * @description: TS/JS、Python、Go的轻量导入提取，基于正则匹配导入语句，不构建语法树
+ * @date 2025/8/18
+ */
+class ImportExtractor {
+
+    private static final Pattern TS_IMPORT = Pattern.compile(
+            "(?:import|export)\\s[^'\";]*?from\\s*['\"]([^'\"]+)['\"]"
+                    + "|import\\s*\\(?\\s*['\"]([^'\"]+)['\"]"
+                    + "|require\\(\\s*['\"]([^'\"]+)['\"]\\s*\\)");
+
+    private static final Pattern PY_FROM_IMPORT = Pattern.compile("(?m)^\\s*from\\s+(\\.*[\\w.]*)\\s+import\\s+([\\w*, ]+)");
+
+    private static final Pattern PY_IMPORT = Pattern.compile("(?m)^\\s*import\\s+([\\w.]+(?:\\s*,\\s*[\\w.]+)*)");
+
+    private static final Pattern PY_MAIN = Pattern.compile("(?m)^if\\s+__name__\\s*==\\s*['\"]__main__['\"]");
+
+    private static final Pattern GO_IMPORT_BLOCK = Pattern.compile("(?s)import\\s*\\((.*?)\\)");
+
+    private static final Pattern GO_IMPORT_LINE = Pattern.compile("(?m)^import\\s+(?:\\w+\\s+)?\"([^\"]+)\"");
+
+    private static final Pattern GO_QUOTED = Pattern.compile("\"([^\"]+)\"");
+
+    private static final Pattern GO_PACKAGE = Pattern.compile("(?m)^package\\s+(\\w+)");
+
+    private static final Pattern GO_MAIN = Pattern.compile("(?m)^func\\s+main\\s*\\(");
+
+    private ImportExtractor() {
+    }
+
+    /**
+     * TS/JS导入的模块说明符，如"./service"、"react"
+     */
+    static List<String> typescriptImports(String source) {
+        List<String> imports = new ArrayList<>();
+        Matcher matcher = TS_IMPORT.matcher(source);
+        while (matcher.find()) {
+            for (int group = 1; group <= 3; group++) {
+                if (matcher.group(group) != null) {
+                    imports.add(matcher.group(group));
+                    break;
+                }
+            }
+        }
+        return imports;
+    }
+
+    /**
+     * Python导入的模块，相对导入保留前导点；from x import a, b 同时给出x.a、x.b以覆盖导入子模块的写法
+     */
+    static List<String> pythonImports(String source) {
+        List<String> imports = new ArrayList<>();
+        Matcher fromMatcher = PY_FROM_IMPORT.matcher(source);
+        while (fromMatcher.find()) {
+            String module = fromMatcher.group(1);
+            imports.add(module);
+            for (String name : fromMatcher.group(2).split(",")) {
+                String trimmed = name.trim();
+                if (!trimmed.isEmpty() && !"*".equals(trimmed)) {
+                    imports.add(module.endsWith(".") ? module + trimmed : module + "." + trimmed);
+                }
+            }
+        }
+        Matcher importMatcher = PY_IMPORT.matcher(source);
+        while (importMatcher.find()) {
+            for (String module : importMatcher.group(1).split(",")) {
+                imports.add(module.trim());
+            }
+        }
+        return imports;
+    }
+
+    static boolean isPythonMain(String source) {
+        return PY_MAIN.matcher(source).find();
+    }
+
+    /**
+     * Go导入路径
+     */
+    static List<String> goImports(String source) {
+        List<String> imports = new ArrayList<>();
+        Matcher blockMatcher = GO_IMPORT_BLOCK.matcher(source);
+        while (blockMatcher.find()) {
+            Matcher quoted = GO_QUOTED.matcher(blockMatcher.group(1));
+            while (quoted.find()) {
+                imports.add(quoted.group(1));
+            }
+        }
+        Matcher lineMatcher = GO_IMPORT_LINE.matcher(source);
+        while (lineMatcher.find()) {
+            imports.add(lineMatcher.group(1));
+        }
+        return imports;
+    }
+
+    static String goPackage(String source) {
+        Matcher matcher = GO_PACKAGE.matcher(source);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    static boolean isGoMain(String source) {
+        return "main".equals(goPackage(source)) && GO_MAIN.matcher(source).find();
+    }
+}
@@ -0,0 +1,136 @@
+package com.hxg.analysis;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author hxg
+ * @description: 基于JavaParser的单文件解析，提取声明的类型、导入、引用的类型名和入口特征
+ * 只做语法层面的分析，引用关系按导入和同包简单类名解析，不做完整的符号求解
+ * @date 2025/8/18
+ */
+class JavaSourceParser {
+
+    /**
+     * 标注在类型上即视为入口的注解
+     */
+    private static final Set<String> ENTRY_TYPE_ANNOTATIONS = Set.of(
+            "SpringBootApplication", "RestController", "Controller", "FeignClient");
+
+    /**
+     * 标注在方法上即视为入口的注解
+     */
+    private static final Set<String> ENTRY_METHOD_ANNOTATIONS = Set.of(
+            "KafkaListener", "Scheduled", "EventListener", "RabbitListener");
+
+    @Data
+    static class JavaFile {
+        private String packageName = "";
+        private List<String> typeNames = new ArrayList<>();
+        private List<String> typeDescriptions = new ArrayList<>();
+        private List<String> imports = new ArrayList<>();
+        private List<String> wildcardPackages = new ArrayList<>();
+        private Set<String> referencedNames = new HashSet<>();
+        private List<String> entryReasons = new ArrayList<>();
+    }
+
+    private final JavaParser javaParser = new JavaParser(new ParserConfiguration()
+            .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21)
+            .setAttributeComments(false));
+
+    /**
+     * 解析Java源码，语法错误时返回null
+     */
+    JavaFile parse(String source) {
+        ParseResult<CompilationUnit> result = javaParser.parse(source);
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            return null;
+        }
+        CompilationUnit unit = result.getResult().get();
+        JavaFile file = new JavaFile();
+        unit.getPackageDeclaration().ifPresent(pkg -> file.setPackageName(pkg.getNameAsString()));
+
+        for (ImportDeclaration importDeclaration : unit.getImports()) {
+            String name = importDeclaration.getNameAsString();
+            if (importDeclaration.isAsterisk()) {
+                if (!importDeclaration.isStatic()) {
+                    file.getWildcardPackages().add(name);
+                }
+            } else if (importDeclaration.isStatic()) {
+                // 静态导入的是成员，取其所属类型
+                file.getImports().add(name.substring(0, Math.max(name.lastIndexOf('.'), 0)));
+            } else {
+                file.getImports().add(name);
+            }
+        }
+
+        for (TypeDeclaration<?> type : unit.getTypes()) {
+            file.getTypeNames().add(type.getNameAsString());
+            file.getTypeDescriptions().add(kindOf(type) + " " + type.getNameAsString());
+            for (AnnotationExpr annotation : type.getAnnotations()) {
+                String annotationName = annotation.getNameAsString();
+                if (ENTRY_TYPE_ANNOTATIONS.contains(annotationName)) {
+                    file.getEntryReasons().add("@" + annotationName + requestMapping(type));
+                }
+            }
+        }
+
+        for (MethodDeclaration method : unit.findAll(MethodDeclaration.class)) {
+            if (method.isStatic() && "main".equals(method.getNameAsString()) && method.getParameters().size() == 1) {
+                file.getEntryReasons().add("main方法");
+            }
+            method.getAnnotations().stream()
+                    .map(AnnotationExpr::getNameAsString)
+                    .filter(ENTRY_METHOD_ANNOTATIONS::contains)
+                    .distinct()
+                    .forEach(name -> file.getEntryReasons().add("@" + name + " " + method.getNameAsString()));
+        }
+
+        unit.findAll(ClassOrInterfaceType.class).forEach(type -> file.getReferencedNames().add(type.getNameAsString()));
+        // 静态方法调用、常量访问等以类名开头的表达式
+        unit.findAll(NameExpr.class).stream()
+                .map(NameExpr::getNameAsString)
+                .filter(name -> !name.isEmpty() && Character.isUpperCase(name.charAt(0)))
+                .forEach(file.getReferencedNames()::add);
+        unit.findAll(AnnotationExpr.class).forEach(annotation -> file.getReferencedNames().add(annotation.getNameAsString()));
+        return file;
+    }
+
+    private String kindOf(TypeDeclaration<?> type) {
+        if (type instanceof ClassOrInterfaceDeclaration declaration) {
+            return declaration.isInterface() ? "interface" : (declaration.isAbstract() ? "abstract class" : "class");
+        }
+        if (type instanceof EnumDeclaration) {
+            return "enum";
+        }
+        if (type instanceof RecordDeclaration) {
+            return "record";
+        }
+        return "@interface";
+    }
+
+    private String requestMapping(TypeDeclaration<?> type) {
+        return type.getAnnotationByName("RequestMapping")
+                .filter(annotation -> annotation instanceof SingleMemberAnnotationExpr)
+                .map(annotation -> " " + ((SingleMemberAnnotationExpr) annotation).getMemberValue().toString().replace("\"", ""))
+                .orElse("");
+    }
+}
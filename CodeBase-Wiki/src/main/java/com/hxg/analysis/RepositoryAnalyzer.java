@@ -0,0 +1,470 @@
+package com.hxg.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * @author hxg
+ * @description: 仓库静态分析
+ * 每个任务分析一次：Java使用JavaParser解析导入与类型引用，TS/JS、Python、Go按导入语句提取依赖，
+ * 得到模块边界、入口、文件依赖图和被依赖排名，以精简摘要的形式注入目录与文档生成prompt，
+ * 减少模型用于探索仓库结构的工具调用
+ * @date 2025/8/18
+ */
+@Slf4j
+@Component
+public class RepositoryAnalyzer {
+
+    /**
+     * 构建产物与依赖目录，遍历仓库时跳过
+     */
+    public static final Set<String> SKIPPED_DIRS = Set.of(
+            "node_modules", "target", "build", "dist", "out", "vendor", "__pycache__", "venv", "env", "bin", "obj");
+
+    /**
+     * 构建清单文件与构建工具
+     */
+    private static final Map<String, String> MANIFESTS = Map.of(
+            "pom.xml", "maven",
+            "build.gradle", "gradle",
+            "build.gradle.kts", "gradle",
+            "package.json", "npm",
+            "go.mod", "go",
+            "pyproject.toml", "python",
+            "setup.py", "python");
+
+    private static final Map<String, String> LANGUAGES = Map.of(
+            "java", "Java",
+            "ts", "TypeScript", "tsx", "TypeScript",
+            "js", "JavaScript", "jsx", "JavaScript", "mjs", "JavaScript",
+            "py", "Python",
+            "go", "Go");
+
+    private static final List<String> TS_RESOLVE_SUFFIXES = List.of(
+            "", ".ts", ".tsx", ".js", ".jsx", ".mjs", "/index.ts", "/index.tsx", "/index.js");
+
+    @Value("${project.wiki.analysis.enabled:true}")
+    private boolean enabled;
+
+    @Value("${project.wiki.analysis.max-files:20000}")
+    private int maxFiles;
+
+    @Value("${project.wiki.analysis.max-file-bytes:524288}")
+    private long maxFileBytes;
+
+    /**
+     * 目录生成prompt中仓库摘要的最大字符数
+     */
+    @Value("${project.wiki.analysis.summary-chars:4000}")
+    private int summaryChars;
+
+    /**
+     * 文档生成prompt中依赖文件关系的最大字符数
+     */
+    @Value("${project.wiki.analysis.file-facts-chars:1500}")
+    private int fileFactsChars;
+
+    /**
+     * 缓存分析结果的任务数，文档生成阶段按任务复用；
+     * 应不小于同时有待生成文档的任务数，否则各任务的文档交替消费时会反复重新分析仓库
+     */
+    @Value("${project.wiki.analysis.cache-tasks:32}")
+    private int cacheTasks = 32;
+
+    /**
+     * 按访问顺序淘汰的分析结果，值为进行中或已完成的分析；锁只保护映射本身，分析在锁外进行
+     */
+    private final Map<String, CompletableFuture<RepositoryFacts>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<RepositoryFacts>> eldest) {
+            return size() > Math.max(cacheTasks, 1);
+        }
+    };
+
+    /**
+     * 获取任务的分析结果，未分析过时（如服务重启后）重新分析
+     *
+     * @return 分析结果，未启用时返回null
+     */
+    public RepositoryFacts getFacts(String taskId, String localPath) {
+        if (!enabled || taskId == null || localPath == null) {
+            return null;
+        }
+        CompletableFuture<RepositoryFacts> future;
+        boolean owner = false;
+        synchronized (cache) {
+            future = cache.get(taskId);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                cache.put(taskId, future);
+                owner = true;
+            }
+        }
+        if (owner) {
+            // 同一任务只由首个线程分析，其他线程等待该结果；不同任务的分析互不阻塞
+            try {
+                future.complete(analyze(localPath));
+            } catch (RuntimeException | Error e) {
+                synchronized (cache) {
+                    cache.remove(taskId, future);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 目录生成使用的仓库摘要
+     */
+    public String summaryFor(String taskId, String localPath) {
+        RepositoryFacts facts = getFacts(taskId, localPath);
+        return facts == null ? "" : facts.summary(summaryChars);
+    }
+
+    /**
+     * 单篇文档使用的依赖文件关系
+     */
+    public String describeFilesFor(String taskId, String localPath, List<String> files) {
+        RepositoryFacts facts = getFacts(taskId, localPath);
+        return facts == null || files.isEmpty() ? "" : facts.describeFiles(files, fileFactsChars);
+    }
+
+    /**
+     * 分析仓库，失败时返回空结果
+     */
+    public RepositoryFacts analyze(String localPath) {
+        long startTime = System.currentTimeMillis();
+        RepositoryFacts facts = new RepositoryFacts();
+        Path root = Paths.get(localPath).toAbsolutePath().normalize();
+        try {
+            Map<String, String> moduleDirs = new TreeMap<>();
+            List<Path> sources = collectSources(root, moduleDirs);
+            Map<String, JavaSourceParser.JavaFile> javaFiles = new HashMap<>();
+            Map<String, List<String>> rawImports = new HashMap<>();
+            Map<String, String> goModules = new HashMap<>();
+            moduleDirs.forEach((dir, tool) -> {
+                if ("go".equals(tool)) {
+                    readGoModule(root.resolve(dir).resolve("go.mod")).ifPresent(module -> goModules.put(module, dir));
+                }
+            });
+
+            JavaSourceParser javaSourceParser = new JavaSourceParser();
+            for (Path source : sources) {
+                String path = relativize(root, source);
+                String language = LANGUAGES.get(extensionOf(path));
+                String content = Files.readString(source, StandardCharsets.UTF_8);
+                FileFacts file = new FileFacts(path, language);
+                switch (language) {
+                    case "Java" -> {
+                        JavaSourceParser.JavaFile javaFile = javaSourceParser.parse(content);
+                        if (javaFile == null) {
+                            continue;
+                        }
+                        javaFiles.put(path, javaFile);
+                        file.setPackageName(javaFile.getPackageName().isEmpty() ? null : javaFile.getPackageName());
+                        file.getTypes().addAll(javaFile.getTypeDescriptions());
+                        file.getEntryReasons().addAll(javaFile.getEntryReasons());
+                    }
+                    case "Python" -> {
+                        rawImports.put(path, ImportExtractor.pythonImports(content));
+                        if (ImportExtractor.isPythonMain(content)) {
+                            file.getEntryReasons().add("__main__");
+                        }
+                    }
+                    case "Go" -> {
+                        rawImports.put(path, ImportExtractor.goImports(content));
+                        file.setPackageName(ImportExtractor.goPackage(content));
+                        if (ImportExtractor.isGoMain(content)) {
+                            file.getEntryReasons().add("main函数");
+                        }
+                    }
+                    default -> rawImports.put(path, ImportExtractor.typescriptImports(content));
+                }
+                facts.getFiles().put(path, file);
+            }
+
+            resolveJava(facts, javaFiles);
+            resolveImports(facts, rawImports, goModules, moduleDirs);
+            facts.getFiles().values().forEach(file -> file.getDependsOn().forEach(target ->
+                    facts.getFiles().get(target).getDependents().add(file.getPath())));
+            facts.setModules(describeModules(facts, moduleDirs));
+        } catch (IOException | RuntimeException e) {
+            log.warn("仓库静态分析失败，跳过: localPath={}, error={}", localPath, e.getMessage());
+        }
+        facts.setDurationMs(System.currentTimeMillis() - startTime);
+        log.info("仓库静态分析完成: localPath={}, files={}, modules={}, durationMs={}",
+                localPath, facts.getFiles().size(), facts.getModules().size(), facts.getDurationMs());
+        return facts;
+    }
+
+    /**
+     * 遍历仓库，收集可分析的源码文件和构建清单所在目录
+     */
+    private List<Path> collectSources(Path root, Map<String, String> moduleDirs) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                if (!dir.equals(root) && (name.startsWith(".") || SKIPPED_DIRS.contains(name))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                String tool = MANIFESTS.get(name);
+                if (tool != null) {
+                    moduleDirs.putIfAbsent(relativize(root, file.getParent()), tool);
+                }
+                if (LANGUAGES.containsKey(extensionOf(name)) && attrs.size() <= maxFileBytes && !name.endsWith(".d.ts")) {
+                    sources.add(file);
+                }
+                return sources.size() >= maxFiles ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return sources;
+    }
+
+    /**
+     * Java依赖：显式导入的仓库内类型，以及同包、通配导入包中被引用到的类型
+     */
+    private void resolveJava(RepositoryFacts facts, Map<String, JavaSourceParser.JavaFile> javaFiles) {
+        Map<String, String> typeIndex = new HashMap<>();
+        Map<String, Map<String, String>> packageIndex = new HashMap<>();
+        javaFiles.forEach((path, javaFile) -> javaFile.getTypeNames().forEach(typeName -> {
+            String pkg = javaFile.getPackageName();
+            typeIndex.put(pkg.isEmpty() ? typeName : pkg + "." + typeName, path);
+            packageIndex.computeIfAbsent(pkg, key -> new HashMap<>()).put(typeName, path);
+        }));
+
+        javaFiles.forEach((path, javaFile) -> {
+            Set<String> dependsOn = facts.getFiles().get(path).getDependsOn();
+            for (String imported : javaFile.getImports()) {
+                String target = typeIndex.get(imported);
+                if (target == null && imported.contains(".")) {
+                    // 导入的是内部类
+                    target = typeIndex.get(imported.substring(0, imported.lastIndexOf('.')));
+                }
+                if (target != null) {
+                    dependsOn.add(target);
+                }
+            }
+            List<Map<String, String>> visiblePackages = new ArrayList<>();
+            visiblePackages.add(packageIndex.getOrDefault(javaFile.getPackageName(), Map.of()));
+            javaFile.getWildcardPackages().forEach(pkg -> visiblePackages.add(packageIndex.getOrDefault(pkg, Map.of())));
+            for (String name : javaFile.getReferencedNames()) {
+                for (Map<String, String> visibleTypes : visiblePackages) {
+                    String target = visibleTypes.get(name);
+                    if (target != null) {
+                        dependsOn.add(target);
+                        break;
+                    }
+                }
+            }
+            dependsOn.remove(path);
+        });
+    }
+
+    /**
+     * TS/JS、Python、Go的导入解析为仓库内文件，第三方依赖忽略
+     */
+    private void resolveImports(RepositoryFacts facts, Map<String, List<String>> rawImports,
+                                Map<String, String> goModules, Map<String, String> moduleDirs) {
+        Map<String, String> pythonIndex = new HashMap<>();
+        Map<String, List<String>> goDirIndex = new HashMap<>();
+        for (FileFacts file : facts.getFiles().values()) {
+            if ("Python".equals(file.getLanguage())) {
+                String modulePath = file.getPath().substring(0, file.getPath().length() - 3);
+                if (modulePath.endsWith("/__init__")) {
+                    modulePath = modulePath.substring(0, modulePath.length() - "/__init__".length());
+                }
+                // 源码根目录未知，注册路径的所有后缀，同名后缀以先遍历到的文件为准
+                String[] segments = modulePath.split("/");
+                for (int i = 0; i < segments.length; i++) {
+                    pythonIndex.putIfAbsent(String.join(".", List.of(segments).subList(i, segments.length)), file.getPath());
+                }
+            } else if ("Go".equals(file.getLanguage()) && !file.getPath().endsWith("_test.go")) {
+                goDirIndex.computeIfAbsent(parentOf(file.getPath()), key -> new ArrayList<>()).add(file.getPath());
+            }
+        }
+
+        rawImports.forEach((path, imports) -> {
+            FileFacts file = facts.getFiles().get(path);
+            for (String imported : imports) {
+                List<String> targets = switch (file.getLanguage()) {
+                    case "Python" -> optional(resolvePython(path, imported, pythonIndex, facts));
+                    case "Go" -> resolveGo(imported, goModules, goDirIndex);
+                    default -> optional(resolveTypescript(path, imported, facts, moduleDirs));
+                };
+                targets.stream().filter(target -> !target.equals(path)).forEach(file.getDependsOn()::add);
+            }
+        });
+    }
+
+    private String resolvePython(String path, String imported, Map<String, String> pythonIndex, RepositoryFacts facts) {
+        if (!imported.startsWith(".")) {
+            return pythonIndex.get(imported);
+        }
+        int dots = 0;
+        while (dots < imported.length() && imported.charAt(dots) == '.') {
+            dots++;
+        }
+        String base = parentOf(path);
+        for (int i = 1; i < dots; i++) {
+            base = parentOf(base);
+        }
+        String rest = imported.substring(dots).replace('.', '/');
+        String modulePath = rest.isEmpty() ? base : join(base, rest);
+        for (String candidate : List.of(modulePath + ".py", join(modulePath, "__init__.py"))) {
+            if (facts.getFiles().containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private List<String> resolveGo(String imported, Map<String, String> goModules, Map<String, List<String>> goDirIndex) {
+        for (Map.Entry<String, String> module : goModules.entrySet()) {
+            if (imported.equals(module.getKey()) || imported.startsWith(module.getKey() + "/")) {
+                String dir = join(module.getValue(), imported.substring(module.getKey().length()).replaceFirst("^/", ""));
+                return goDirIndex.getOrDefault(dir, List.of());
+            }
+        }
+        return List.of();
+    }
+
+    private String resolveTypescript(String path, String imported, RepositoryFacts facts, Map<String, String> moduleDirs) {
+        String base;
+        if (imported.startsWith(".")) {
+            base = normalizePath(join(parentOf(path), imported));
+        } else if (imported.startsWith("@/")) {
+            // 常见的@指向src的别名，按最近的package.json所在目录解析
+            base = join(join(nearestModuleDir(path, moduleDirs), "src"), imported.substring(2));
+        } else {
+            return null;
+        }
+        for (String suffix : TS_RESOLVE_SUFFIXES) {
+            if (facts.getFiles().containsKey(base + suffix)) {
+                return base + suffix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 每个模块的构建工具及其下各语言源码文件数，源码文件归属到最近的模块目录
+     */
+    private List<String> describeModules(RepositoryFacts facts, Map<String, String> moduleDirs) {
+        Map<String, Map<String, Integer>> counts = new TreeMap<>();
+        for (FileFacts file : facts.getFiles().values()) {
+            counts.computeIfAbsent(nearestModuleDir(file.getPath(), moduleDirs), key -> new TreeMap<>())
+                    .merge(file.getLanguage(), 1, Integer::sum);
+        }
+        List<String> modules = new ArrayList<>();
+        counts.forEach((dir, languages) -> modules.add((dir.isEmpty() ? "./" : dir + "/")
+                + (moduleDirs.containsKey(dir) ? " (" + moduleDirs.get(dir) + ")" : "") + ": "
+                + languages.entrySet().stream().map(entry -> entry.getKey() + " " + entry.getValue())
+                        .collect(Collectors.joining(", "))));
+        return modules;
+    }
+
+    private String nearestModuleDir(String path, Map<String, String> moduleDirs) {
+        for (String dir = parentOf(path); ; dir = parentOf(dir)) {
+            if (moduleDirs.containsKey(dir) || dir.isEmpty()) {
+                return dir;
+            }
+        }
+    }
+
+    private Optional<String> readGoModule(Path goMod) {
+        try {
+            return Files.readAllLines(goMod, StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(line -> line.startsWith("module "))
+                    .map(line -> line.substring("module ".length()).trim())
+                    .findFirst();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static List<String> optional(String target) {
+        return target == null ? List.of() : List.of(target);
+    }
+
+    private static String relativize(Path root, Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static String extensionOf(String name) {
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(index + 1);
+    }
+
+    private static String parentOf(String path) {
+        int index = path.lastIndexOf('/');
+        return index < 0 ? "" : path.substring(0, index);
+    }
+
+    private static String join(String dir, String name) {
+        return dir.isEmpty() ? name : dir + "/" + name;
+    }
+
+    /**
+     * 处理路径中的.和..
+     */
+    private static String normalizePath(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+            } else {
+                segments.add(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+}
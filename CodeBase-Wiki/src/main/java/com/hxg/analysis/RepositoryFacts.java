@@ -0,0 +1,158 @@
+package com.hxg.analysis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @author hxg
+ * @description: 仓库静态分析结果：模块、入口、文件依赖图，以及供prompt使用的精简摘要
+ * @date 2025/8/18
+ */
+@Data
+public class RepositoryFacts {
+
+    private static final int MAX_KEY_TYPES = 15;
+    private static final int MAX_ENTRY_POINTS = 15;
+    private static final int MAX_PACKAGE_EDGES = 12;
+    private static final int MAX_LINKED_FILES = 5;
+
+    /**
+     * 模块描述，如"CodeBase-Wiki/ (maven): Java 152"
+     */
+    private List<String> modules = new ArrayList<>();
+
+    /**
+     * 按相对路径索引的文件分析结果
+     */
+    private Map<String, FileFacts> files = new LinkedHashMap<>();
+
+    private long durationMs;
+
+    /**
+     * 仓库级摘要：模块、入口、核心类型（按被依赖文件数排序）、包依赖
+     *
+     * @param maxChars 摘要最大字符数，超出时按行截断
+     * @return 摘要，没有可分析的源码文件时返回空字符串
+     */
+    public String summary(int maxChars) {
+        if (files.isEmpty()) {
+            return "";
+        }
+        List<String> lines = new ArrayList<>();
+        if (!modules.isEmpty()) {
+            lines.add("### 模块");
+            modules.forEach(module -> lines.add("- " + module));
+        }
+
+        List<FileFacts> entries = files.values().stream()
+                .filter(file -> !file.getEntryReasons().isEmpty())
+                .limit(MAX_ENTRY_POINTS)
+                .toList();
+        if (!entries.isEmpty()) {
+            lines.add("### 入口");
+            entries.forEach(file -> lines.add("- " + file.getPath() + ": " + String.join(", ", file.getEntryReasons())));
+        }
+
+        List<FileFacts> keyTypes = files.values().stream()
+                .filter(file -> !file.getDependents().isEmpty())
+                .sorted(Comparator.comparingInt((FileFacts file) -> file.getDependents().size()).reversed())
+                .limit(MAX_KEY_TYPES)
+                .toList();
+        if (!keyTypes.isEmpty()) {
+            lines.add("### 核心类型（按被依赖文件数排序）");
+            keyTypes.forEach(file -> lines.add("- " + file.getPrimaryName() + " (" + file.getPath() + "): 被"
+                    + file.getDependents().size() + "个文件依赖"));
+        }
+
+        List<String> packageEdges = packageEdges();
+        if (!packageEdges.isEmpty()) {
+            lines.add("### 包依赖（依赖文件数）");
+            packageEdges.forEach(edge -> lines.add("- " + edge));
+        }
+        return truncate(lines, maxChars);
+    }
+
+    /**
+     * 指定文件的类型、依赖和被依赖关系，供单篇文档prompt使用
+     *
+     * @param paths 目录的依赖文件
+     * @param maxChars 最大字符数，超出时按行截断
+     * @return 描述，文件均未被分析时返回空字符串
+     */
+    public String describeFiles(List<String> paths, int maxChars) {
+        List<String> lines = new ArrayList<>();
+        for (String path : paths) {
+            FileFacts file = files.get(normalize(path));
+            if (file == null) {
+                continue;
+            }
+            StringBuilder line = new StringBuilder("- ").append(file.getPath());
+            if (!file.getTypes().isEmpty()) {
+                line.append(": ").append(String.join(", ", file.getTypes()));
+            }
+            if (!file.getEntryReasons().isEmpty()) {
+                line.append("；入口: ").append(String.join(", ", file.getEntryReasons()));
+            }
+            appendLinked(line, "；依赖: ", file.getDependsOn().stream().toList());
+            appendLinked(line, "；被依赖: ", file.getDependents().stream().toList());
+            lines.add(line.toString());
+        }
+        return truncate(lines, maxChars);
+    }
+
+    private void appendLinked(StringBuilder line, String label, List<String> linked) {
+        if (linked.isEmpty()) {
+            return;
+        }
+        line.append(label).append(linked.stream().limit(MAX_LINKED_FILES).collect(Collectors.joining(", ")));
+        if (linked.size() > MAX_LINKED_FILES) {
+            line.append(" 等").append(linked.size()).append("个");
+        }
+    }
+
+    /**
+     * 按包聚合文件依赖，只统计跨包依赖
+     */
+    private List<String> packageEdges() {
+        Map<String, Integer> edges = new LinkedHashMap<>();
+        for (FileFacts file : files.values()) {
+            if (file.getPackageName() == null) {
+                continue;
+            }
+            file.getDependsOn().stream()
+                    .map(files::get)
+                    .filter(target -> target != null && target.getPackageName() != null
+                            && !target.getPackageName().equals(file.getPackageName()))
+                    .map(target -> file.getPackageName() + " -> " + target.getPackageName())
+                    .distinct()
+                    .forEach(edge -> edges.merge(edge, 1, Integer::sum));
+        }
+        return edges.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(MAX_PACKAGE_EDGES)
+                .map(entry -> entry.getKey() + " (" + entry.getValue() + ")")
+                .toList();
+    }
+
+    private static String normalize(String path) {
+        String normalized = path.replace('\\', '/');
+        return normalized.startsWith("./") ? normalized.substring(2) : normalized;
+    }
+
+    private static String truncate(List<String> lines, int maxChars) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            if (text.length() + line.length() + 1 > maxChars) {
+                break;
+            }
+            text.append(line).append('\n');
+        }
+        return text.toString().trim();
+    }
+}
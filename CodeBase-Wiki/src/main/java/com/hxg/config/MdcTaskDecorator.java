@@ -1,6 +1,7 @@
 package com.hxg.config;
 
 import cn.hutool.core.lang.UUID;
+import io.micrometer.context.ContextSnapshotFactory;
 import org.slf4j.MDC;
 import org.springframework.core.task.TaskDecorator;
 import org.springframework.stereotype.Component;
@@ -9,12 +10,13 @@ import java.util.Map;
 
 /**
  * @author hxg
- * @description: MDC线程装饰器
+ * @description: MDC线程装饰器，同时把提交线程的当前Observation（链路上下文）传递到执行线程
  * @date 2025/7/20 15:35
  */
 @Component
 public class MdcTaskDecorator implements TaskDecorator {
 
+    private static final ContextSnapshotFactory CONTEXT_SNAPSHOT_FACTORY = ContextSnapshotFactory.builder().build();
 
     @Override
     public Runnable decorate(Runnable runnable) {
@@ -26,6 +28,7 @@ public class MdcTaskDecorator implements TaskDecorator {
             return null;
         }
         final Map<String, String> previous = MDC.getCopyOfContextMap();
+        final Runnable withContext = CONTEXT_SNAPSHOT_FACTORY.captureAll().wrap(runnable);
         return () -> {
             try {
                 if(previous!=null&&previous.containsKey("traceId")){
@@ -33,7 +36,7 @@ public class MdcTaskDecorator implements TaskDecorator {
                 }else {
                     MDC.put("traceId", UUID.fastUUID().toString(true));
                 }
-                runnable.run();
+                withContext.run();
             } finally {
                 MDC.remove("traceId");
             }
@@ -1,26 +1,51 @@
 package com.hxg.config;
 
 import com.alibaba.cloud.ai.memory.jdbc.SQLiteChatMemoryRepository;
+import com.hxg.llm.memory.TtlChatMemoryRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
+import java.time.Duration;
+
 /**
  * @author hxg
- * @description: TODO
+ * @description: 会话记忆持久化配置，仅用于真实的多轮对话
  * @date 2025/7/20 12:23
  */
 @Configuration
 public class SQLiteConfig {
+
+    @Value("${project.wiki.chat-memory.ttl-hours:72}")
+    private long ttlHours;
+
+    @Value("${project.wiki.chat-memory.vacuum-pages:1000}")
+    private int vacuumPages;
+
     @Bean
     public SQLiteChatMemoryRepository sqliteChatMemoryRepository(){
-        DriverManagerDataSource dataSource=new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.sqlite.JDBC");
-        dataSource.setUrl("jdbc:sqlite:data/chat-memory.db");
-        JdbcTemplate jdbcTemplate=new JdbcTemplate(dataSource);
         return SQLiteChatMemoryRepository.sqliteBuilder()
-                .jdbcTemplate(jdbcTemplate)
+                .jdbcTemplate(chatMemoryJdbcTemplate())
                 .build();
     }
+
+    @Bean
+    @Primary
+    public TtlChatMemoryRepository ttlChatMemoryRepository(SQLiteChatMemoryRepository sqliteChatMemoryRepository) {
+        return new TtlChatMemoryRepository(sqliteChatMemoryRepository, chatMemoryJdbcTemplate(),
+                Duration.ofHours(ttlHours), vacuumPages);
+    }
+
+    /**
+     * 会话记忆库独立于业务库，不注册为Bean，避免顶替业务数据源的JdbcTemplate自动配置
+     */
+    private JdbcTemplate chatMemoryJdbcTemplate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:data/chat-memory.db");
+        return new JdbcTemplate(dataSource);
+    }
 }
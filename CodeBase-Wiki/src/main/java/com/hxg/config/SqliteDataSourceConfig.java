@@ -0,0 +1,119 @@
+package com.hxg.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.File;
+
+/**
+ * @author hxg
+ * @description: 业务库数据源配置：WAL日志模式下读写互不阻塞，synchronous=NORMAL在WAL下只在检查点刷盘；
+ * 写连接池固定一个连接，所有写入串行执行，读连接池只读，按配置的大小与写入并发
+ * @date 2025/8/25
+ */
+@Slf4j
+@Configuration
+public class SqliteDataSourceConfig {
+
+    /**
+     * 读连接池大小，写连接池固定为1
+     */
+    @Value("${project.wiki.sqlite.read-pool-size:8}")
+    private int readPoolSize = 8;
+
+    /**
+     * 数据库被锁时的等待时间(ms)，超时后抛出SQLITE_BUSY
+     */
+    @Value("${project.wiki.sqlite.busy-timeout-ms:5000}")
+    private int busyTimeoutMs = 5000;
+
+    @Value("${project.wiki.sqlite.synchronous:NORMAL}")
+    private String synchronous = "NORMAL";
+
+    /**
+     * 每个连接的页缓存大小(KB)
+     */
+    @Value("${project.wiki.sqlite.cache-size-kb:65536}")
+    private int cacheSizeKb = 65536;
+
+    /**
+     * 内存映射读取的最大字节数，0表示关闭
+     */
+    @Value("${project.wiki.sqlite.mmap-size:268435456}")
+    private long mmapSize = 268435456L;
+
+    /**
+     * 从连接池获取连接的超时时间(ms)，写连接只有一个，需大于最长写事务的耗时
+     */
+    @Value("${project.wiki.sqlite.connection-timeout-ms:30000}")
+    private long connectionTimeoutMs = 30000;
+
+    @Bean
+    @Primary
+    public SqliteRoutingDataSource dataSource(DataSourceProperties properties) {
+        return createDataSource(properties.determineUrl());
+    }
+
+    SqliteRoutingDataSource createDataSource(String url) {
+        createParentDirectory(url);
+        // 先创建写连接池，由写连接把数据库切换为WAL模式（模式记录在数据库文件中），读连接随后打开
+        HikariDataSource writer = pool("sqlite-writer", url, 1, sqliteConfig(true), null);
+        HikariDataSource reader = pool("sqlite-reader", url, readPoolSize, sqliteConfig(false), "PRAGMA query_only = 1");
+        log.info("业务库数据源已创建: url={}, readPoolSize={}, synchronous={}, cacheSizeKb={}, mmapSize={}",
+                url, readPoolSize, synchronous, cacheSizeKb, mmapSize);
+        return new SqliteRoutingDataSource(writer, reader);
+    }
+
+    private org.sqlite.SQLiteConfig sqliteConfig(boolean writer) {
+        org.sqlite.SQLiteConfig config = new org.sqlite.SQLiteConfig();
+        if (writer) {
+            config.setJournalMode(org.sqlite.SQLiteConfig.JournalMode.WAL);
+            // 事务开始即获取写锁，避免读后升级写锁时与其他进程（如sqlite3命令行）冲突
+            config.setTransactionMode(org.sqlite.SQLiteConfig.TransactionMode.IMMEDIATE);
+        }
+        config.setSynchronous(org.sqlite.SQLiteConfig.SynchronousMode.valueOf(synchronous.toUpperCase()));
+        // 负数表示按KB计算
+        config.setCacheSize(-cacheSizeKb);
+        config.setPragma(org.sqlite.SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(mmapSize));
+        config.setBusyTimeout(busyTimeoutMs);
+        config.setTempStore(org.sqlite.SQLiteConfig.TempStore.MEMORY);
+        return config;
+    }
+
+    private HikariDataSource pool(String name, String url, int size, org.sqlite.SQLiteConfig config, String initSql) {
+        SQLiteDataSource sqliteDataSource = new SQLiteDataSource(config);
+        sqliteDataSource.setUrl(url);
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName(name);
+        hikari.setDataSource(sqliteDataSource);
+        hikari.setMaximumPoolSize(Math.max(size, 1));
+        hikari.setMinimumIdle(1);
+        hikari.setConnectionTimeout(connectionTimeoutMs);
+        if (initSql != null) {
+            hikari.setConnectionInitSql(initSql);
+        }
+        return new HikariDataSource(hikari);
+    }
+
+    private static void createParentDirectory(String url) {
+        String path = url.substring(url.indexOf("sqlite:") + "sqlite:".length());
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.isEmpty() || path.startsWith(":memory:") || path.startsWith("file:")) {
+            return;
+        }
+        File parent = new File(path).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            log.warn("创建业务库目录失败: {}", parent);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.hxg.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.util.Map;
+
+/**
+ * @author hxg
+ * @description: 业务库读写分离数据源：写连接池只有一个连接，所有写入串行执行，避免多个写连接争抢数据库锁导致SQLITE_BUSY；
+ * WAL模式下读连接池与写入并发。事务内（非只读）使用写连接，事务外由MyBatis查询拦截器标记的查询使用读连接，
+ * 其他访问（建表脚本、未经MyBatis的JDBC访问）默认使用写连接；外层延迟获取连接，保证事务开始后才按上述规则选择连接池
+ * @date 2025/8/25
+ */
+public class SqliteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    static final String WRITER = "writer";
+    static final String READER = "reader";
+
+    private static final ThreadLocal<Boolean> READ_HINT = new ThreadLocal<>();
+
+    private final HikariDataSource writer;
+    private final HikariDataSource reader;
+
+    public SqliteRoutingDataSource(HikariDataSource writer, HikariDataSource reader) {
+        this.writer = writer;
+        this.reader = reader;
+        Router router = new Router();
+        router.setTargetDataSources(Map.of(WRITER, writer, READER, reader));
+        router.setDefaultTargetDataSource(writer);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        afterPropertiesSet();
+    }
+
+    /**
+     * 标记当前线程接下来获取的连接用于只读查询
+     *
+     * @return 标记前的状态，用于嵌套查询后恢复
+     */
+    public static boolean markRead() {
+        boolean previous = Boolean.TRUE.equals(READ_HINT.get());
+        READ_HINT.set(Boolean.TRUE);
+        return previous;
+    }
+
+    public static void restoreRead(boolean previous) {
+        if (previous) {
+            READ_HINT.set(Boolean.TRUE);
+        } else {
+            READ_HINT.remove();
+        }
+    }
+
+    public HikariDataSource getWriter() {
+        return writer;
+    }
+
+    public HikariDataSource getReader() {
+        return reader;
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+        writer.close();
+    }
+
+    private static class Router extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? READER : WRITER;
+            }
+            return Boolean.TRUE.equals(READ_HINT.get()) ? READER : WRITER;
+        }
+    }
+}
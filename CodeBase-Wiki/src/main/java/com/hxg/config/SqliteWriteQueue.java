@@ -0,0 +1,220 @@
+package com.hxg.config;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @author hxg
+ * @description: 业务库写入队列：高频的小写入（目录状态、token消耗）由单个写线程批量取出，
+ * 一批写入在同一个事务中提交（组提交），把每次写入一次提交的刷盘开销分摊到整批；
+ * 每个写入在独立的保存点内执行，单个写入失败只回滚自身，调用方在事务提交后拿到结果
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+public class SqliteWriteQueue {
+
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<WriteRequest<?>> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final Object lifecycleLock = new Object();
+    private volatile Thread worker;
+    private volatile boolean closed;
+
+    @Value("${project.wiki.sqlite.write-queue.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 每批最多合并的写入数
+     */
+    @Value("${project.wiki.sqlite.write-queue.max-batch:64}")
+    private int maxBatch = 64;
+
+    /**
+     * 取到第一个写入后等待更多写入加入本批的时间(ms)，0表示只合并已在排队的写入
+     */
+    @Value("${project.wiki.sqlite.write-queue.linger-ms:2}")
+    private long lingerMs = 2;
+
+    public SqliteWriteQueue(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 提交写入并等待所在批次提交
+     *
+     * @return 写入操作的返回值
+     * @throws RuntimeException 写入操作抛出的异常，或批次提交失败的异常
+     */
+    public <T> T execute(Supplier<T> operation) {
+        if (!enabled || closed || Thread.currentThread() == worker
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            // 已在事务中时直接执行：写连接只有一个，排队等待写线程会与当前事务互相等待
+            return operation.get();
+        }
+        WriteRequest<T> request = new WriteRequest<>(operation, new CompletableFuture<>());
+        ensureWorker();
+        queue.add(request);
+        try {
+            return request.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public void execute(Runnable operation) {
+        execute(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * 已提交的批次数
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * 已通过队列提交的写入数
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 关闭后仍在排队的写入直接执行
+        WriteRequest<?> request;
+        while ((request = queue.poll()) != null) {
+            runInline(request);
+        }
+    }
+
+    private void ensureWorker() {
+        if (worker != null) {
+            return;
+        }
+        synchronized (lifecycleLock) {
+            if (worker == null) {
+                Thread thread = new Thread(this::drain, "sqlite-write-queue");
+                thread.setDaemon(true);
+                thread.start();
+                worker = thread;
+            }
+        }
+    }
+
+    private void drain() {
+        List<WriteRequest<?>> batch = new ArrayList<>(maxBatch);
+        while (!closed) {
+            try {
+                WriteRequest<?> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    WriteRequest<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (closed) {
+                    break;
+                }
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        batch.forEach(this::runInline);
+    }
+
+    private void commit(List<WriteRequest<?>> batch) {
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (WriteRequest<?> request : batch) {
+                    completions.add(apply(request, status));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("业务库批量写入提交失败: size={}, error={}", batch.size(), e.getMessage(), e);
+            batch.forEach(request -> request.result().completeExceptionally(e));
+            return;
+        }
+        batchCount.incrementAndGet();
+        writeCount.addAndGet(batch.size());
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * 在保存点内执行单个写入，失败时回滚到保存点，不影响同批的其他写入
+     *
+     * @return 事务提交后完成调用方等待的回调
+     */
+    private <T> Runnable apply(WriteRequest<T> request, TransactionStatus status) {
+        Object savepoint = status.createSavepoint();
+        try {
+            T value = request.operation().get();
+            status.releaseSavepoint(savepoint);
+            return () -> request.result().complete(value);
+        } catch (RuntimeException | Error e) {
+            status.rollbackToSavepoint(savepoint);
+            status.releaseSavepoint(savepoint);
+            return () -> request.result().completeExceptionally(e);
+        }
+    }
+
+    private <T> void runInline(WriteRequest<T> request) {
+        try {
+            request.result().complete(request.operation().get());
+        } catch (RuntimeException | Error e) {
+            request.result().completeExceptionally(e);
+        }
+    }
+
+    private record WriteRequest<T>(Supplier<T> operation, CompletableFuture<T> result) {
+    }
+}
@@ -51,4 +51,20 @@ public class ThreadPoolConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * 死信重放线程池，单线程按配置的速率逐条投递
+     */
+    @Bean(name = "DeadLetterReplayExecutor")
+    public ThreadPoolTaskExecutor deadLetterReplayExecutor(MdcTaskDecorator mdcTaskDecorator) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("DeadLetterReplayExecutor-");
+        executor.setTaskDecorator(mdcTaskDecorator);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
 }
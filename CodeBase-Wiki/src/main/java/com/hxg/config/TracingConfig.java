@@ -0,0 +1,28 @@
+package com.hxg.config;
+
+import com.hxg.utils.monitor.FileSpanExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * @author hxg
+ * @description: 链路追踪配置：span由OpenTelemetry桥接自动配置导出，
+ * 配置management.otlp.tracing.endpoint时经OTLP导出，开启文件导出时同时写入本地文件
+ * @date 2025/8/25
+ */
+@Configuration
+@Slf4j
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "project.wiki.tracing.file.enabled", havingValue = "true")
+    public FileSpanExporter fileSpanExporter(@Value("${project.wiki.tracing.file.path:./logs/traces.jsonl}") String path) {
+        log.info("span本地文件导出已开启: path={}", path);
+        return new FileSpanExporter(Path.of(path));
+    }
+}
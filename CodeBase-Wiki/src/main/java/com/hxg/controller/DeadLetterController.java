@@ -0,0 +1,47 @@
+package com.hxg.controller;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.hxg.model.entity.DeadLetter;
+import com.hxg.model.param.DeadLetterParams;
+import com.hxg.model.vo.DeadLetterGroupVo;
+import com.hxg.model.vo.ResponseVo;
+import com.hxg.service.IDeadLetterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 文档生成死信查看、重放与清理接口
+ * @date 2025/8/24
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/dlq")
+public class DeadLetterController {
+
+    @Autowired
+    private IDeadLetterService deadLetterService;
+
+    @GetMapping("/summary")
+    public ResponseVo<List<DeadLetterGroupVo>> getSummary(@RequestParam(value = "taskId", required = false) String taskId) {
+        return ResponseVo.success(deadLetterService.summary(taskId));
+    }
+
+    @PostMapping("/listPage")
+    public ResponseVo<Page<DeadLetter>> getDeadLettersByPage(@RequestBody DeadLetterParams params) {
+        return ResponseVo.success(deadLetterService.getPageList(params));
+    }
+
+    @PostMapping("/replay")
+    public ResponseVo<Integer> replay(@RequestBody DeadLetterParams params) {
+        return ResponseVo.success(deadLetterService.replay(params));
+    }
+
+    @PostMapping("/purge")
+    public ResponseVo<Integer> purge(@RequestBody DeadLetterParams params) {
+        return ResponseVo.success(deadLetterService.purge(params));
+    }
+}
@@ -4,10 +4,14 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hxg.model.entity.Catalogue;
 import com.hxg.model.entity.Task;
 import com.hxg.model.param.CreateTaskParams;
+import com.hxg.model.param.CursorPageParams;
 import com.hxg.model.param.ListPageParams;
+import com.hxg.model.param.RegenerateCatalogueParams;
 import com.hxg.model.vo.CatalogueListVo;
+import com.hxg.model.vo.CursorPageVo;
 import com.hxg.model.vo.ResponseVo;
 import com.hxg.model.vo.ResultVo;
+import com.hxg.model.vo.TaskEstimateVo;
 import com.hxg.model.vo.TaskVo;
 import com.hxg.service.ICatalogueService;
 import com.hxg.service.ITaskService;
@@ -60,12 +64,25 @@ public class GenWikiTaskController {
         
     }
 
+    @PostMapping("/estimate/git")
+    public ResponseVo<TaskEstimateVo> estimateFromGit(@RequestBody CreateTaskParams params) {
+        return ResponseVo.success(taskService.estimateFromGit(params));
+    }
+
     @PostMapping("/listPage")
     public ResponseVo<Page<Task>> getTasksByPage(@RequestBody ListPageParams params) {
         Page<Task> page = taskService.getPageList(params);
         return ResponseVo.success(page);
     }
 
+    /**
+     * 游标分页查询任务，翻页耗时与页码无关
+     */
+    @PostMapping("/listCursor")
+    public ResponseVo<CursorPageVo<Task>> getTasksByCursor(@RequestBody CursorPageParams params) {
+        return ResponseVo.success(taskService.listByCursor(params));
+    }
+
     @GetMapping("/detail")
     public ResponseVo<Task> getTaskByTaskId(@RequestParam("taskId") String taskId) {
         return ResponseVo.success(taskService.getTaskByTaskId(taskId));
@@ -91,4 +108,20 @@ public class GenWikiTaskController {
     public ResponseVo<List<CatalogueListVo>> getCatalogueTree(@RequestParam("taskId") String taskId) {
         return ResponseVo.success(catalogueService.getCatalogueTreeByTaskId(taskId));
     }
+
+    /**
+     * 游标分页查询任务的目录，不含文档内容
+     */
+    @GetMapping("/catalogue/page")
+    public ResponseVo<CursorPageVo<Catalogue>> getCataloguePage(@RequestParam("taskId") String taskId,
+                                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                                               @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                               @RequestParam(value = "withCount", defaultValue = "false") boolean withCount) {
+        return ResponseVo.success(catalogueService.listByCursor(taskId, cursor, pageSize, withCount));
+    }
+
+    @PostMapping("/catalogue/regenerate")
+    public ResponseVo<Integer> regenerateCatalogue(@RequestBody RegenerateCatalogueParams params) {
+        return ResponseVo.success(taskService.regenerateCatalogue(params));
+    }
 }
@@ -0,0 +1,29 @@
+package com.hxg.controller;
+
+import com.hxg.model.vo.QueueStatsVo;
+import com.hxg.model.vo.ResponseVo;
+import com.hxg.queue.service.QueueMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author hxg
+ * @description: 文档生成队列监控接口
+ * @date 2025/8/25
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/queue")
+public class QueueController {
+
+    @Autowired
+    private QueueMetricsService queueMetricsService;
+
+    @GetMapping("/stats")
+    public ResponseVo<QueueStatsVo> getQueueStats() {
+        return ResponseVo.success(queueMetricsService.snapshot());
+    }
+}
@@ -0,0 +1,67 @@
+package com.hxg.controller;
+
+import com.hxg.model.vo.ResponseVo;
+import com.hxg.model.vo.TaskGenerationReportVo;
+import com.hxg.model.vo.TaskTokenUsageVo;
+import com.hxg.model.vo.TokenUsageStatVo;
+import com.hxg.service.IGenerationTraceService;
+import com.hxg.service.ITokenUsageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: Token消耗统计接口
+ * @date 2025/8/12
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/usage")
+public class TokenUsageController {
+
+    @Autowired
+    private ITokenUsageService tokenUsageService;
+
+    @Autowired
+    private IGenerationTraceService generationTraceService;
+
+    @GetMapping("/task")
+    public ResponseVo<TaskTokenUsageVo> getTaskUsage(@RequestParam("taskId") String taskId) {
+        return ResponseVo.success(tokenUsageService.getTaskUsage(taskId));
+    }
+
+    @GetMapping("/task/report")
+    public ResponseVo<TaskGenerationReportVo> getTaskReport(@RequestParam("taskId") String taskId) {
+        return ResponseVo.success(generationTraceService.getTaskReport(taskId));
+    }
+
+    @GetMapping("/model")
+    public ResponseVo<List<TokenUsageStatVo>> getUsageByModel(
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        LocalDate start = startDate != null ? startDate : end.minusDays(6);
+        return ResponseVo.success(tokenUsageService.getUsageByModel(start, end));
+    }
+
+    @GetMapping("/daily")
+    public ResponseVo<List<TokenUsageStatVo>> getDailyUsage(@RequestParam(value = "days", defaultValue = "7") int days) {
+        return ResponseVo.success(tokenUsageService.getDailyUsage(days));
+    }
+
+    @GetMapping("/tier")
+    public ResponseVo<List<TokenUsageStatVo>> getUsageByRouteTier(@RequestParam(value = "days", defaultValue = "7") int days) {
+        return ResponseVo.success(tokenUsageService.getUsageByRouteTier(days));
+    }
+
+    @PostMapping("/estimate")
+    public ResponseVo<Long> estimateTokens(@RequestBody String text,
+                                           @RequestParam(value = "model", required = false) String model) {
+        return ResponseVo.success(tokenUsageService.estimateTokens(text, model));
+    }
+}
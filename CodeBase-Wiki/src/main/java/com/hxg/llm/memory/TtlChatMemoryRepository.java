@@ -0,0 +1,161 @@
+package com.hxg.llm.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 带过期清理的会话记忆仓库
+ * 包装持久化的会话记忆，在同库的chat_memory_access表中记录每个会话的最近访问时间，
+ * 定时删除超过TTL未访问的会话，并通过SQLite增量vacuum归还空闲页，防止chat-memory.db无限增长
+ * @date 2025/8/13
+ */
+@Slf4j
+public class TtlChatMemoryRepository implements ChatMemoryRepository {
+
+    private static final String CREATE_ACCESS_TABLE = """
+            CREATE TABLE IF NOT EXISTS chat_memory_access (
+                conversation_id TEXT PRIMARY KEY,
+                last_access_time INTEGER NOT NULL
+            )""";
+
+    /**
+     * auto_vacuum取值：0=NONE, 1=FULL, 2=INCREMENTAL
+     */
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final ChatMemoryRepository delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final int vacuumPages;
+
+    public TtlChatMemoryRepository(ChatMemoryRepository delegate, JdbcTemplate jdbcTemplate, Duration ttl, int vacuumPages) {
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.vacuumPages = vacuumPages;
+        jdbcTemplate.execute(CREATE_ACCESS_TABLE);
+        enableIncrementalVacuum();
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return delegate.findConversationIds();
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        touch(conversationId);
+        return delegate.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        delegate.saveAll(conversationId, messages);
+        touch(conversationId);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        delegate.deleteByConversationId(conversationId);
+        jdbcTemplate.update("DELETE FROM chat_memory_access WHERE conversation_id = ?", conversationId);
+    }
+
+    /**
+     * 清理过期会话并归还空闲页
+     */
+    @Scheduled(initialDelayString = "${project.wiki.chat-memory.cleanup-initial-delay-ms:60000}",
+            fixedDelayString = "${project.wiki.chat-memory.cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        try {
+            int removed = removeExpired(System.currentTimeMillis());
+            long freedPages = incrementalVacuum();
+            if (removed > 0 || freedPages > 0) {
+                log.info("会话记忆清理完成: 删除过期会话{}个, 释放空闲页{}个", removed, freedPages);
+            }
+        } catch (Exception e) {
+            log.error("会话记忆清理失败", e);
+        }
+    }
+
+    /**
+     * 删除在指定时刻已过期的会话
+     * 没有访问记录的会话（如历史遗留的一次性生成会话）先登记为当前时刻，在一个TTL后过期
+     *
+     * @return 删除的会话数
+     */
+    int removeExpired(long now) {
+        List<String> conversationIds = delegate.findConversationIds();
+        if (!conversationIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT OR IGNORE INTO chat_memory_access (conversation_id, last_access_time) VALUES (?, ?)",
+                    conversationIds.stream().map(id -> new Object[]{id, now}).toList());
+        }
+        List<String> expiredIds = jdbcTemplate.queryForList(
+                "SELECT conversation_id FROM chat_memory_access WHERE last_access_time < ?",
+                String.class, now - ttl.toMillis());
+        for (String conversationId : expiredIds) {
+            deleteByConversationId(conversationId);
+        }
+        return expiredIds.size();
+    }
+
+    private void touch(String conversationId) {
+        jdbcTemplate.update(
+                "INSERT INTO chat_memory_access (conversation_id, last_access_time) VALUES (?, ?) "
+                        + "ON CONFLICT(conversation_id) DO UPDATE SET last_access_time = excluded.last_access_time",
+                conversationId, System.currentTimeMillis());
+    }
+
+    /**
+     * 已有数据库需要执行一次VACUUM后auto_vacuum设置才会生效，两者必须在同一连接上执行
+     */
+    private void enableIncrementalVacuum() {
+        Integer mode = jdbcTemplate.queryForObject("PRAGMA auto_vacuum", Integer.class);
+        if (mode != null && mode == AUTO_VACUUM_INCREMENTAL) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                statement.execute("VACUUM");
+            }
+            return null;
+        });
+        log.info("会话记忆库已切换为增量vacuum模式");
+    }
+
+    /**
+     * incremental_vacuum每步只释放一页，需用executeUpdate执行到结束才会释放全部页
+     *
+     * @return 释放的页数
+     */
+    long incrementalVacuum() {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                long before = freelistCount(statement);
+                if (before == 0) {
+                    return 0L;
+                }
+                statement.executeUpdate("PRAGMA incremental_vacuum(" + vacuumPages + ")");
+                return before - freelistCount(statement);
+            }
+        });
+    }
+
+    private long freelistCount(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("PRAGMA freelist_count")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.hxg.llm.parser;
+
+import com.alibaba.fastjson2.JSON;
+import com.hxg.model.dto.CatalogueStruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * @author hxg
+ * @description: 目录结构的增量JSON解析器
+ * 按文本增量逐字符扫描模型输出，items/children数组中的目录节点一闭合即回调，
+ * 子节点总是先于父节点闭合，回调顺序天然是叶子优先；
+ * 节点开始时即分配目录ID，子节点回调时已能拿到父目录ID。
+ * 第一个'{'之前的内容（如```json、&lt;documentation_structure&gt;）和根对象闭合之后的内容都会被忽略
+ * @date 2025/8/17
+ */
+public class StreamingCatalogueParser {
+
+    private static final Set<String> ITEM_ARRAY_KEYS = Set.of("items", "children");
+
+    @Data
+    @AllArgsConstructor
+    public static class CatalogueNode {
+        private String catalogueId;
+
+        /**
+         * 顶层目录为空
+         */
+        private String parentCatalogueId;
+
+        /**
+         * 节点内容，children中包含已回调过的子节点
+         */
+        private CatalogueStruct.Item item;
+
+        private boolean leaf;
+    }
+
+    /**
+     * 解析栈中的容器，对象为'{'，数组为'['
+     */
+    private static class Frame {
+        private final char type;
+        private final int start;
+        /**
+         * 数组所属的key；对象最近解析到的key
+         */
+        private String key;
+        /**
+         * 目录节点对象的ID，非目录节点为空
+         */
+        private String catalogueId;
+
+        private Frame(char type, int start, String key) {
+            this.type = type;
+            this.start = start;
+            this.key = key;
+        }
+    }
+
+    private final Consumer<CatalogueNode> nodeListener;
+    private final StringBuilder buffer = new StringBuilder();
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final List<CatalogueStruct.Item> rootItems = new ArrayList<>();
+    private int position;
+    private boolean started;
+    private boolean finished;
+    private boolean inString;
+    private boolean escaped;
+    private int stringStart;
+    private String lastString;
+    private int nodeCount;
+
+    public StreamingCatalogueParser(Consumer<CatalogueNode> nodeListener) {
+        this.nodeListener = nodeListener;
+    }
+
+    /**
+     * 追加一段模型输出并解析其中已完整的部分
+     */
+    public void feed(String chunk) {
+        if (finished || chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        buffer.append(chunk);
+        for (; position < buffer.length() && !finished; position++) {
+            char c = buffer.charAt(position);
+            if (!started) {
+                if (c != '{') {
+                    continue;
+                }
+                started = true;
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    lastString = buffer.substring(stringStart, position);
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    stringStart = position + 1;
+                }
+                case ':' -> {
+                    Frame frame = stack.peek();
+                    if (frame != null && frame.type == '{') {
+                        frame.key = lastString;
+                    }
+                }
+                case '[' -> {
+                    Frame frame = stack.peek();
+                    stack.push(new Frame('[', position, frame != null && frame.type == '{' ? frame.key : null));
+                }
+                case '{' -> openObject();
+                case ']' -> stack.poll();
+                case '}' -> closeObject();
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * 丢弃已接收的输出与解析状态，从下一段输出重新开始解析；已回调的节点由调用方自行作废
+     */
+    public void reset() {
+        buffer.setLength(0);
+        stack.clear();
+        rootItems.clear();
+        position = 0;
+        started = false;
+        finished = false;
+        inString = false;
+        escaped = false;
+        stringStart = 0;
+        lastString = null;
+        nodeCount = 0;
+    }
+
+    /**
+     * 已回调的目录节点数
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * 已闭合的顶层目录项
+     */
+    public List<CatalogueStruct.Item> getRootItems() {
+        return rootItems;
+    }
+
+    private void openObject() {
+        Frame parent = stack.peek();
+        Frame frame = new Frame('{', position, null);
+        if (parent != null && parent.type == '[' && ITEM_ARRAY_KEYS.contains(parent.key)) {
+            frame.catalogueId = UUID.randomUUID().toString();
+        }
+        stack.push(frame);
+    }
+
+    private void closeObject() {
+        Frame frame = stack.poll();
+        if (frame == null) {
+            return;
+        }
+        if (stack.isEmpty()) {
+            finished = true;
+        }
+        if (frame.catalogueId == null) {
+            return;
+        }
+        CatalogueStruct.Item item = JSON.parseObject(buffer.substring(frame.start, position + 1), CatalogueStruct.Item.class);
+        String parentCatalogueId = findParentCatalogueId();
+        if (parentCatalogueId == null) {
+            rootItems.add(item);
+        }
+        nodeCount++;
+        nodeListener.accept(new CatalogueNode(frame.catalogueId, parentCatalogueId, item,
+                item.getChildren() == null || item.getChildren().isEmpty()));
+    }
+
+    private String findParentCatalogueId() {
+        for (Frame frame : stack) {
+            if (frame.catalogueId != null) {
+                return frame.catalogueId;
+            }
+        }
+        return null;
+    }
+}
@@ -570,4 +570,98 @@ public class AnalyzeCataloguePrompt {
             ]
         }
         """;
+
+    /**
+     * 分片模式：为单个模块分片生成目录
+     */
+    public static String shardPrompt = """
+        You are a technical documentation architect. The repository is too large to outline in one pass, so it has been
+        split into module shards. Create the documentation structure for ONE shard only; other shards are handled separately
+        and will be merged afterwards.
+
+        <shard_path>
+        {{$shard_path}}
+        </shard_path>
+
+        <code_files>
+        {{$code_files}}
+        </code_files>
+
+        <repository_location>
+        {{$repository_location}}
+        </repository_location>
+
+        <important>
+        1. Only cover files listed in <code_files>; do not document the rest of the repository or write a project overview
+        2. Generate 1-4 top-level items for this shard, consolidating simple classes, DTOs and utilities
+        3. Only create children when a topic requires 1500+ words of content
+        4. `dependent_file` paths must be relative to the repository root, including the ancestor directories shown above
+        5. The `name` field must be in Chinese ("中文")
+        6. Return ONLY valid JSON without additional text
+        </important>
+
+        {
+            "items": [
+                {
+                    "title": "section-identifier",
+                    "name": "Section Name (in Chinese)",
+                    "dependent_file": ["path/to/file1.ext", "path/to/file2.ext"],
+                    "prompt": "Create consolidated documentation covering [GROUPED COMPONENTS].",
+                    "children": []
+                }
+            ]
+        }
+        """;
+
+    /**
+     * 分片模式：合并各分片目录，只提供各分片顶层章节的标题
+     */
+    public static String reducePrompt = """
+        You are a technical documentation architect. A large repository was split into module shards and a documentation
+        outline was generated for each shard independently. Merge the shard sections below into one coherent top-level structure.
+
+        <repository_location>
+        {{$repository_location}}
+        </repository_location>
+
+        <shard_sections>
+        {{$shard_sections}}
+        </shard_sections>
+
+        <important>
+        1. Reference every section id from <shard_sections> exactly once in `refs`
+        2. Start with one "项目概述" item with empty `refs`, describing overall architecture and how the modules relate
+        3. Group sections from different shards under a common parent only when they belong to the same business domain;
+           a parent with a single ref is replaced by that section
+        4. Keep 4-10 top-level items, ordered from overview to core modules to infrastructure
+        5. The `name` field must be in Chinese ("中文")
+        6. Return ONLY valid JSON without additional text
+        </important>
+
+        {
+            "items": [
+                {
+                    "title": "section-identifier",
+                    "name": "Section Name (in Chinese)",
+                    "prompt": "Describe what this section should document.",
+                    "refs": ["S1-1", "S2-1"]
+                }
+            ]
+        }
+        """;
+
+    /**
+     * 仓库静态分析摘要，追加在目录生成prompt之后
+     */
+    public static final String repositoryFactsSection = """
+
+        ## REPOSITORY FACTS (static analysis)
+        The following facts were computed by parsing the source code. Use them to identify module boundaries, entry points
+        and core types instead of exploring the repository with tools; prefer heavily depended-on files and entry points
+        when choosing `dependent_file`. Only read files when these facts are insufficient.
+
+        <repository_facts>
+        {{$repository_facts}}
+        </repository_facts>
+        """;
 }
@@ -695,4 +695,40 @@ public class GenDocPrompt {
 
     直接输出markdown文档，无其他说明。
     """;
+
+    /**
+     * 父级概览页的子章节摘要段落，追加在文档生成prompt之后
+     */
+    public static final String childrenDigestSection = """
+
+    ## 子章节摘要
+    以下子章节已单独生成详细文档。本页作为概览，请基于这些摘要归纳各部分的职责与相互关系，
+    不要重复展开子章节中的实现细节，需要时以"详见《子章节标题》"的方式引用；
+    仅在子章节未覆盖的内容上使用readFile工具读取相关文件。
+
+    {{children_digest}}
+    """;
+
+    /**
+     * 依赖文件的静态分析关系，追加在文档生成prompt之后
+     */
+    public static final String fileFactsSection = """
+
+    ## 依赖文件静态分析
+    以下是解析源码得到的依赖文件类型、入口及依赖关系，可据此直接组织文档结构，
+    无需再通过工具探索这些文件之间的调用关系；被依赖文件中与本章节相关的内容可按需读取。
+
+    {{file_facts}}
+    """;
+
+    /**
+     * 用户重新生成单个目录时的补充要求，追加在文档生成prompt之后
+     */
+    public static final String regenerationHintSection = """
+
+    ## 重新生成要求
+    该章节此前生成的文档不符合要求，用户要求重新生成，请重点满足以下补充要求：
+
+    {{hint}}
+    """;
 }
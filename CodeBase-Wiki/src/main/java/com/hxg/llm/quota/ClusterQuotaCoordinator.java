@@ -0,0 +1,126 @@
+package com.hxg.llm.quota;
+
+import com.hxg.quota.QuotaStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author hxg
+ * @description: 集群LLM配额协调：各进程在发起模型调用前从共享存储预留请求数与token数，
+ * 调用后按真实消耗修正，收到429时通知所有进程暂停；进程内的限流器负责优先级排队与AIMD，
+ * 共享配额保证所有实例的总吞吐不超过账号级QPM/TPM。存储不可用时放行，仅由进程内限流器约束
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+public class ClusterQuotaCoordinator {
+
+    private final QuotaStore store;
+
+    @Value("${project.wiki.llm.quota.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 配额名称，使用同一账号的实例配置相同的名称
+     */
+    @Value("${project.wiki.llm.quota.name:dashscope}")
+    private String quota = "dashscope";
+
+    @Value("${project.wiki.llm.quota.requests-per-minute:${project.wiki.llm.rate-limit.requests-per-minute:60}}")
+    private double requestsPerMinute = 60;
+
+    @Value("${project.wiki.llm.quota.tokens-per-minute:${project.wiki.llm.rate-limit.tokens-per-minute:1000000}}")
+    private double tokensPerMinute = 1_000_000;
+
+    @Value("${project.wiki.llm.quota.burst-seconds:5}")
+    private double burstSeconds = 5;
+
+    private volatile long lastFailureLogMillis;
+
+    public ClusterQuotaCoordinator(QuotaStore store) {
+        this.store = store;
+    }
+
+    /**
+     * 尝试预留一次调用的配额
+     *
+     * @return 0表示已预留，否则为需要等待的毫秒数
+     */
+    public long tryReserve(long estimatedTokens) {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            return store.reserve(quota, limits(), 1, estimatedTokens, System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logFailure(e);
+            return 0;
+        }
+    }
+
+    /**
+     * 用真实消耗修正预留的token
+     */
+    public void reconcile(long estimatedTokens, long actualTokens) {
+        if (!enabled || actualTokens <= 0) {
+            return;
+        }
+        QuotaStore.QuotaLimits limits = limits();
+        double reserved = Math.min(Math.max(estimatedTokens, 0), limits.tokenCapacity());
+        try {
+            store.adjust(quota, limits, reserved - actualTokens, System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logFailure(e);
+        }
+    }
+
+    /**
+     * 退还已预留但未发出调用的token，请求数不退还
+     */
+    public void release(long estimatedTokens) {
+        if (!enabled || estimatedTokens <= 0) {
+            return;
+        }
+        QuotaStore.QuotaLimits limits = limits();
+        try {
+            store.adjust(quota, limits, Math.min(estimatedTokens, limits.tokenCapacity()), System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logFailure(e);
+        }
+    }
+
+    /**
+     * 收到429后通知所有进程暂停发放配额
+     */
+    public void pause(long pauseMs) {
+        if (!enabled || pauseMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            store.pause(quota, limits(), now + pauseMs, now);
+        } catch (RuntimeException e) {
+            logFailure(e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private QuotaStore.QuotaLimits limits() {
+        return new QuotaStore.QuotaLimits(requestsPerMinute, tokensPerMinute, burstSeconds);
+    }
+
+    /**
+     * 存储故障时每分钟最多记录一次
+     */
+    private void logFailure(RuntimeException e) {
+        long now = System.currentTimeMillis();
+        if (now - lastFailureLogMillis > 60_000) {
+            lastFailureLogMillis = now;
+            log.warn("集群LLM配额存储不可用，暂由进程内限流器约束: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.hxg.llm.quota;
+
+import com.hxg.quota.FileLockQuotaStore;
+import com.hxg.quota.InMemoryQuotaStore;
+import com.hxg.quota.QuotaStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author hxg
+ * @description: 集群LLM配额存储配置，存储实现来自与Review、Memory服务共用的CodeBase-Quota模块
+ * @date 2025/8/25
+ */
+@Configuration
+public class QuotaStoreConfig {
+
+    /**
+     * 文件锁存储：状态文件目录与Review、Memory服务配置为同一目录时共享账号配额
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "project.wiki.llm.quota.backend", havingValue = QuotaStore.BACKEND_FILE, matchIfMissing = true)
+    public FileLockQuotaStore fileLockQuotaStore(@Value("${project.wiki.llm.quota.file.dir:./data/quota}") String dir,
+                                                 @Value("${project.wiki.llm.quota.file.lock-timeout-ms:200}") long lockTimeoutMs) {
+        return new FileLockQuotaStore(dir, lockTimeoutMs);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "project.wiki.llm.quota.backend", havingValue = QuotaStore.BACKEND_MEMORY)
+    public InMemoryQuotaStore inMemoryQuotaStore() {
+        return new InMemoryQuotaStore();
+    }
+}
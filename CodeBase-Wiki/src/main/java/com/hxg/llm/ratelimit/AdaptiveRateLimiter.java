@@ -0,0 +1,356 @@
+package com.hxg.llm.ratelimit;
+
+import com.hxg.llm.quota.ClusterQuotaCoordinator;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * @author hxg
+ * @description: LLM调用自适应限流器
+ * 同时维护请求数(RPM)与token数(TPM)两个令牌桶，所有模型调用在发出前按优先级排队获取配额；
+ * 收到429时按乘性减小速率并暂停至Retry-After，之后每次成功调用按加性逐步恢复(AIMD)；
+ * 配置了集群配额时，队首的调用还需从共享配额预留后才放行，429的暂停同步给所有进程
+ * @date 2025/8/13
+ */
+@Slf4j
+@Component
+public class AdaptiveRateLimiter {
+
+    /**
+     * 两次乘性减速之间的最小间隔，避免同一波并发请求的429把速率连续减半
+     */
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * 非队首等待者的最长单次等待，防止错过唤醒
+     */
+    private static final long MAX_AWAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Value("${project.wiki.llm.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${project.wiki.llm.rate-limit.requests-per-minute:60}")
+    private double requestsPerMinute;
+
+    @Value("${project.wiki.llm.rate-limit.tokens-per-minute:1000000}")
+    private double tokensPerMinute;
+
+    /**
+     * 令牌桶容量对应的秒数，决定允许的突发量
+     */
+    @Value("${project.wiki.llm.rate-limit.burst-seconds:10}")
+    private double burstSeconds;
+
+    @Value("${project.wiki.llm.rate-limit.min-rate-factor:0.1}")
+    private double minRateFactor;
+
+    @Value("${project.wiki.llm.rate-limit.recovery-step:0.05}")
+    private double recoveryStep;
+
+    @Value("${project.wiki.llm.rate-limit.max-retries:5}")
+    private int maxRetries;
+
+    /**
+     * 服务端未返回Retry-After时的初始退避时间，按重试次数指数增长
+     */
+    @Value("${project.wiki.llm.rate-limit.backoff-ms:2000}")
+    private long backoffMs;
+
+    @Value("${project.wiki.llm.rate-limit.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparingInt((Waiter w) -> w.priority().getOrder()).thenComparingLong(Waiter::sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final ClusterQuotaCoordinator quotaCoordinator;
+
+    private double rateFactor = 1.0;
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private long lastDecreaseNanos;
+
+    public AdaptiveRateLimiter() {
+        this(null);
+    }
+
+    @Autowired
+    public AdaptiveRateLimiter(ClusterQuotaCoordinator quotaCoordinator) {
+        this.quotaCoordinator = quotaCoordinator;
+    }
+
+    @PostConstruct
+    public void init() {
+        lock.lock();
+        try {
+            rateFactor = 1.0;
+            availableRequests = requestCapacity();
+            availableTokens = tokenCapacity();
+            lastRefillNanos = System.nanoTime();
+            pausedUntilNanos = lastRefillNanos;
+            lastDecreaseNanos = lastRefillNanos - DECREASE_COOLDOWN_NANOS;
+        } finally {
+            lock.unlock();
+        }
+        log.info("LLM限流器初始化: enabled={}, rpm={}, tpm={}, burstSeconds={}",
+                enabled, requestsPerMinute, tokensPerMinute, burstSeconds);
+    }
+
+    /**
+     * 获取配额后执行模型调用，遇到限流时按退避策略重试
+     *
+     * @param estimatedTokens 本次调用预计消耗的token数
+     * @param priority 排队优先级
+     * @param call 模型调用
+     * @return 调用结果
+     */
+    public <T> T execute(long estimatedTokens, LlmPriority priority, Supplier<T> call) {
+        for (int attempt = 0; ; attempt++) {
+            acquire(estimatedTokens, priority);
+            try {
+                T result = call.get();
+                onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (!enabled || !ThrottleDetector.isThrottled(e)) {
+                    throw e;
+                }
+                long retryAfterMs = ThrottleDetector.retryAfterMillis(e);
+                long pauseMs = onThrottled(retryAfterMs, attempt);
+                if (attempt >= maxRetries) {
+                    log.error("LLM调用持续被限流，已重试{}次，放弃: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                log.warn("LLM调用被限流，{}ms后第{}次重试: priority={}, error={}", pauseMs, attempt + 1, priority, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按优先级排队，直到请求桶和token桶都有足够配额
+     * 单次预估超过token桶容量时只要求桶满，避免大请求永远无法获得配额
+     */
+    public void acquire(long estimatedTokens, LlmPriority priority) {
+        if (!enabled) {
+            return;
+        }
+        Waiter waiter = new Waiter(priority, sequence.incrementAndGet());
+        long startTime = System.nanoTime();
+        boolean clusterReserved = quotaCoordinator == null;
+        boolean acquired = false;
+        lock.lock();
+        try {
+            waiters.add(waiter);
+            while (true) {
+                long now = System.nanoTime();
+                refill(now);
+                long waitNanos;
+                if (now < pausedUntilNanos) {
+                    waitNanos = pausedUntilNanos - now;
+                } else if (waiters.peek() != waiter) {
+                    waitNanos = MAX_AWAIT_NANOS;
+                } else {
+                    double tokensNeeded = Math.min(Math.max(estimatedTokens, 0), tokenCapacity());
+                    long clusterWaitMs = 0;
+                    if (availableRequests >= 1 && availableTokens >= tokensNeeded) {
+                        if (clusterReserved) {
+                            availableRequests -= 1;
+                            availableTokens -= tokensNeeded;
+                            waiters.poll();
+                            stateChanged.signalAll();
+                            acquired = true;
+                            long waitedMs = TimeUnit.NANOSECONDS.toMillis(now - startTime);
+                            if (waitedMs > 1000) {
+                                log.info("LLM调用等待限流配额{}ms: priority={}, estimatedTokens={}, rateFactor={}",
+                                        waitedMs, priority, estimatedTokens, String.format("%.2f", rateFactor));
+                            }
+                            return;
+                        }
+                        // 集群预留涉及文件锁等阻塞I/O，释放本地锁后进行；等待者仍在队列中，同优先级的后来者不会越过，重新加锁后再核对本地配额
+                        lock.unlock();
+                        try {
+                            clusterWaitMs = quotaCoordinator.tryReserve(estimatedTokens);
+                        } finally {
+                            lock.lock();
+                        }
+                        if (clusterWaitMs == 0) {
+                            clusterReserved = true;
+                            continue;
+                        }
+                    }
+                    waitNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(clusterWaitMs), Math.max(
+                            nanosUntil(1 - availableRequests, requestsPerMinute),
+                            nanosUntil(tokensNeeded - availableTokens, tokensPerMinute)));
+                }
+                stateChanged.awaitNanos(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待LLM限流配额时被中断", e);
+        } finally {
+            if (waiters.remove(waiter)) {
+                stateChanged.signalAll();
+            }
+            lock.unlock();
+            if (!acquired && clusterReserved && quotaCoordinator != null) {
+                // 已从集群预留但未发出调用，退还预留的token
+                quotaCoordinator.release(estimatedTokens);
+            }
+        }
+    }
+
+    /**
+     * 用真实消耗修正token桶：实际超出预估的部分记为欠额，由后续补充抵扣
+     */
+    public void reconcile(long estimatedTokens, long actualTokens) {
+        if (!enabled || actualTokens <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            double consumed = Math.min(Math.max(estimatedTokens, 0), tokenCapacity());
+            availableTokens = Math.min(tokenCapacity(), availableTokens + consumed - actualTokens);
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (quotaCoordinator != null) {
+            quotaCoordinator.reconcile(estimatedTokens, actualTokens);
+        }
+    }
+
+    /**
+     * 成功调用后加性恢复速率
+     */
+    public void onSuccess() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (rateFactor < 1.0) {
+                rateFactor = Math.min(1.0, rateFactor + recoveryStep);
+                if (rateFactor == 1.0) {
+                    log.info("LLM限流速率已恢复至配置上限");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 收到429后乘性减速并暂停发放配额
+     *
+     * @param retryAfterMs 服务端给出的Retry-After，0表示未给出
+     * @param attempt 当前请求已重试次数，用于计算指数退避
+     * @return 实际暂停的毫秒数
+     */
+    public long onThrottled(long retryAfterMs, int attempt) {
+        if (!enabled) {
+            return 0;
+        }
+        long pauseMs = retryAfterMs > 0 ? retryAfterMs : backoff(attempt);
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+            if (now - lastDecreaseNanos >= DECREASE_COOLDOWN_NANOS) {
+                rateFactor = Math.max(minRateFactor, rateFactor / 2);
+                lastDecreaseNanos = now;
+                log.warn("LLM调用触发限流，速率降至配置的{}%，暂停{}ms", Math.round(rateFactor * 100), pauseMs);
+            }
+            // 清空突发余量，恢复后按降低后的速率平滑发放
+            availableRequests = Math.min(availableRequests, 0);
+            availableTokens = Math.min(availableTokens, tokenCapacity());
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(pauseMs));
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (quotaCoordinator != null) {
+            quotaCoordinator.pause(pauseMs);
+        }
+        return pauseMs;
+    }
+
+    public double getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public double getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    public double getRateFactor() {
+        lock.lock();
+        try {
+            return rateFactor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        double seconds = elapsed / 1_000_000_000.0;
+        availableRequests = Math.min(requestCapacity(), availableRequests + seconds * requestsPerMinute * rateFactor / 60);
+        availableTokens = Math.min(tokenCapacity(), availableTokens + seconds * tokensPerMinute * rateFactor / 60);
+        lastRefillNanos = now;
+    }
+
+    /**
+     * 按当前速率补足缺口所需的时间
+     */
+    private long nanosUntil(double deficit, double perMinute) {
+        if (deficit <= 0) {
+            return 0;
+        }
+        double perSecond = perMinute * rateFactor / 60;
+        return (long) Math.ceil(deficit / perSecond * 1_000_000_000L);
+    }
+
+    private double requestCapacity() {
+        return Math.max(1, requestsPerMinute * rateFactor * burstSeconds / 60);
+    }
+
+    private double tokenCapacity() {
+        return Math.max(1, tokensPerMinute * rateFactor * burstSeconds / 60);
+    }
+
+    private long backoff(int attempt) {
+        long base = Math.min(maxBackoffMs, backoffMs * (1L << Math.min(attempt, 16)));
+        // 加入抖动，避免多个线程在同一时刻集中重试
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private record Waiter(LlmPriority priority, long sequence) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.hxg.llm.ratelimit;
+
+import com.hxg.model.context.LlmCallContext;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author hxg
+ * @description: LLM调用排队优先级，数值越小越先获得配额
+ * @date 2025/8/13
+ */
+@Getter
+@RequiredArgsConstructor
+public enum LlmPriority {
+    /**
+     * 交互式对话，用户在等待结果
+     */
+    HIGH(0),
+    /**
+     * 目录生成，阻塞整个任务的后续文档生成
+     */
+    NORMAL(1),
+    /**
+     * 单篇文档生成等后台批量调用
+     */
+    LOW(2);
+
+    private final int order;
+
+    public static LlmPriority of(String callType) {
+        if (LlmCallContext.TYPE_CHAT.equals(callType)) {
+            return HIGH;
+        }
+        if (LlmCallContext.TYPE_CATALOGUE.equals(callType)) {
+            return NORMAL;
+        }
+        return LOW;
+    }
+}
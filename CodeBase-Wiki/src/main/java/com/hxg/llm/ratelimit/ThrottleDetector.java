@@ -0,0 +1,96 @@
+package com.hxg.llm.ratelimit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * @author hxg
+ * @description: 从模型调用异常中识别限流(429)信号并解析Retry-After
+ * DashScope同步调用的4xx会被Spring AI包装为NonTransientAiException，消息形如"429 - {...Throttling...}"，
+ * 流式调用则直接抛出WebClientResponseException，因此需要沿cause链同时检查状态码与消息
+ * @date 2025/8/13
+ */
+public final class ThrottleDetector {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private ThrottleDetector() {
+    }
+
+    /**
+     * 异常链中是否包含限流信号
+     */
+    public static boolean isThrottled(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof RestClientResponseException e && e.getStatusCode().value() == TOO_MANY_REQUESTS) {
+                return true;
+            }
+            if (t instanceof WebClientResponseException e && e.getStatusCode().value() == TOO_MANY_REQUESTS) {
+                return true;
+            }
+            if (isThrottleMessage(t.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析服务端返回的Retry-After（毫秒），没有时返回0
+     */
+    public static long retryAfterMillis(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            HttpHeaders headers = null;
+            if (t instanceof RestClientResponseException e) {
+                headers = e.getResponseHeaders();
+            } else if (t instanceof WebClientResponseException e) {
+                headers = e.getHeaders();
+            }
+            if (headers != null) {
+                long retryAfter = parseRetryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER));
+                if (retryAfter > 0) {
+                    return retryAfter;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Retry-After支持秒数和HTTP日期两种格式
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Math.round(Double.parseDouble(trimmed) * 1000));
+        } catch (NumberFormatException ignored) {
+            // 非数字时按HTTP日期解析
+        }
+        try {
+            ZonedDateTime retryAt = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt).toMillis());
+        } catch (Exception ignored) {
+            return 0;
+        }
+    }
+
+    private static boolean isThrottleMessage(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase(Locale.ROOT);
+        return lower.startsWith("429")
+                || lower.contains("too many requests")
+                || lower.contains("throttling")
+                || lower.contains("rate limit");
+    }
+}
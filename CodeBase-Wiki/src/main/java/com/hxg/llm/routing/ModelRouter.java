@@ -0,0 +1,108 @@
+package com.hxg.llm.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * @author hxg
+ * @description: 基于复杂度的模型路由
+ * 按依赖文件数量与体积、目录层级和prompt长度为每个目录打分，
+ * 简单页面交给快速低价的模型，核心页面和超出快速模型上下文的页面交给强模型
+ * @date 2025/8/14
+ */
+@Slf4j
+@Component
+public class ModelRouter {
+
+    @Value("${project.wiki.llm.routing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${project.wiki.llm.routing.fast-model:}")
+    private String fastModel;
+
+    /**
+     * 强模型，未配置时使用spring.ai.dashscope.chat.options.model
+     */
+    @Value("${project.wiki.llm.routing.strong-model:${spring.ai.dashscope.chat.options.model:}}")
+    private String strongModel;
+
+    /**
+     * 得分达到该阈值即使用强模型
+     */
+    @Value("${project.wiki.llm.routing.strong-threshold:1.5}")
+    private double strongThreshold;
+
+    /**
+     * 以下基准值各自贡献1分
+     */
+    @Value("${project.wiki.llm.routing.file-count-ref:8}")
+    private int fileCountRef;
+
+    @Value("${project.wiki.llm.routing.file-bytes-ref:204800}")
+    private long fileBytesRef;
+
+    @Value("${project.wiki.llm.routing.prompt-tokens-ref:4000}")
+    private long promptTokensRef;
+
+    /**
+     * 顶层目录通常是概览类的门面页面，额外加分
+     */
+    @Value("${project.wiki.llm.routing.top-level-bonus:0.5}")
+    private double topLevelBonus;
+
+    /**
+     * 快速模型可用的上下文上限，预计上下文超过时直接使用强模型
+     */
+    @Value("${project.wiki.llm.routing.fast-context-tokens:100000}")
+    private long fastContextTokens;
+
+    /**
+     * 为目录文档选择模型
+     *
+     * @param fileCount 依赖文件数量
+     * @param fileBytes 依赖文件总字节数
+     * @param depth 目录层级，顶层为1
+     * @param promptTokens prompt估算token数
+     * @param retryCount 已重试次数
+     * @return 路由结果
+     */
+    public RoutingDecision route(int fileCount, long fileBytes, int depth, long promptTokens, int retryCount) {
+        double score = (double) fileCount / Math.max(fileCountRef, 1)
+                + (double) fileBytes / Math.max(fileBytesRef, 1)
+                + (double) promptTokens / Math.max(promptTokensRef, 1)
+                + (depth <= 1 ? topLevelBonus : 0);
+        score = Math.round(score * 100) / 100.0;
+
+        if (!enabled || !StringUtils.hasText(fastModel)) {
+            return strong(score, "未启用模型路由");
+        }
+        // 依赖文件会被工具完整读入上下文，按约4字节1token粗估
+        long contextTokens = promptTokens + fileBytes / 4;
+        if (contextTokens > fastContextTokens) {
+            return strong(score, "预计上下文" + contextTokens + "超出快速模型上限");
+        }
+        if (retryCount > 0) {
+            return strong(score, "重试升级");
+        }
+        if (score >= strongThreshold) {
+            return strong(score, "复杂度得分达到阈值" + strongThreshold);
+        }
+        return RoutingDecision.builder()
+                .tier(RoutingDecision.TIER_FAST)
+                .model(fastModel)
+                .score(score)
+                .reason("复杂度得分低于阈值" + strongThreshold)
+                .build();
+    }
+
+    private RoutingDecision strong(double score, String reason) {
+        return RoutingDecision.builder()
+                .tier(RoutingDecision.TIER_STRONG)
+                .model(StringUtils.hasText(strongModel) ? strongModel : null)
+                .score(score)
+                .reason(reason)
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.hxg.llm.routing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author hxg
+ * @description: 单个目录文档的模型路由结果
+ * @date 2025/8/14
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoutingDecision {
+    public static final String TIER_FAST = "FAST";
+    public static final String TIER_STRONG = "STRONG";
+
+    /**
+     * 模型档位：FAST / STRONG
+     */
+    private String tier;
+
+    /**
+     * 路由到的模型名，为空表示使用默认配置的模型
+     */
+    private String model;
+
+    /**
+     * 复杂度得分
+     */
+    private double score;
+
+    /**
+     * 判定依据，便于排查路由是否合理
+     */
+    private String reason;
+
+    public boolean isFast() {
+        return TIER_FAST.equals(tier);
+    }
+}
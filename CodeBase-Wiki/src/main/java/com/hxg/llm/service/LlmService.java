@@ -1,17 +1,47 @@
 package com.hxg.llm.service;
 
-import com.alibaba.cloud.ai.memory.jdbc.SQLiteChatMemoryRepository;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.hxg.llm.memory.TtlChatMemoryRepository;
+import com.hxg.llm.ratelimit.AdaptiveRateLimiter;
+import com.hxg.llm.ratelimit.LlmPriority;
+import com.hxg.llm.ratelimit.ThrottleDetector;
+import com.hxg.llm.usage.TokenEstimator;
+import com.hxg.model.context.LlmCallContext;
+import com.hxg.service.ITokenUsageService;
+import com.hxg.utils.monitor.WikiObservations;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
 import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
-import java.util.UUID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
 import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
 
 /**
@@ -22,55 +52,195 @@ import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
 @Service
 @Slf4j
 public class LlmService {
+    private static final int MAX_HISTORY_MESSAGES = 20;
+
+    private static final String FORCE_ANSWER_INSTRUCTION =
+            "本次生成的工具调用预算已用尽，请不要再调用任何工具，直接基于以上已获取的信息输出最终的完整结果。";
+
+    /**
+     * 多轮对话客户端，会话记忆持久化到chat-memory.db
+     */
     private final ChatClient chatClient;
+    /**
+     * 一次性生成客户端，会话记忆只在单次请求内有效
+     */
+    private final ChatClient oneShotChatClient;
+    private final ChatModel chatModel;
+    private final ToolCallingManager toolCallingManager;
     private final MessageWindowChatMemory chatMemory;
+    private final MessageWindowChatMemory ephemeralChatMemory;
     private final ToolCallback[] allTools;
+    private final TokenEstimator tokenEstimator;
+    /**
+     * 工具定义的未校准token数，带工具的请求每轮都随prompt发送
+     */
+    private final long toolSchemaTokens;
+    private final ITokenUsageService tokenUsageService;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final ObservationRegistry observationRegistry;
 
-    public LlmService(ChatClient.Builder chatClientBuilder, SQLiteChatMemoryRepository sqliteChatMemoryRepository, ToolCallback[] allTools) {
-        int maxHistoryMessages = 20;
+    @Value("${spring.ai.dashscope.chat.options.model:}")
+    private String defaultModel;
+
+    public LlmService(ChatClient.Builder chatClientBuilder,
+                      ChatModel chatModel,
+                      ToolCallingManager toolCallingManager,
+                      TtlChatMemoryRepository chatMemoryRepository,
+                      ToolCallback[] allTools,
+                      TokenEstimator tokenEstimator,
+                      ITokenUsageService tokenUsageService,
+                      AdaptiveRateLimiter rateLimiter,
+                      ObservationRegistry observationRegistry) {
         this.chatMemory = MessageWindowChatMemory.builder()
-                .chatMemoryRepository(sqliteChatMemoryRepository)
-                .maxMessages(maxHistoryMessages)
+                .chatMemoryRepository(chatMemoryRepository)
+                .maxMessages(MAX_HISTORY_MESSAGES)
+                .build();
+        this.ephemeralChatMemory = MessageWindowChatMemory.builder()
+                .chatMemoryRepository(new InMemoryChatMemoryRepository())
+                .maxMessages(MAX_HISTORY_MESSAGES)
+                .build();
+        this.oneShotChatClient = chatClientBuilder.clone()
+                .defaultAdvisors(MessageChatMemoryAdvisor.builder(ephemeralChatMemory).build())
                 .build();
         this.chatClient = chatClientBuilder
                 .defaultAdvisors(MessageChatMemoryAdvisor.builder(chatMemory).build())
                 .build();
+        this.chatModel = chatModel;
+        this.toolCallingManager = toolCallingManager;
         this.allTools = allTools;
+        this.tokenEstimator = tokenEstimator;
+        this.toolSchemaTokens = tokenEstimator.countToolTokens(allTools);
+        this.tokenUsageService = tokenUsageService;
+        this.rateLimiter = rateLimiter;
+        this.observationRegistry = observationRegistry;
     }
 
     public String callWithTools(String query){
-        return chatClient
-                .prompt(query)
-                .advisors(
-                    a->a.param(CONVERSATION_ID, UUID.randomUUID().toString())
-                )
-                .options(ToolCallingChatOptions.builder().toolCallbacks(allTools).build())
-                .call()
-                .content();
+        return callWithTools(query, LlmCallContext.chat());
+    }
+
+    /**
+     * 带工具调用的单次生成
+     * 由本方法自行驱动tool calling循环，以便拿到每一轮模型响应的真实token消耗；
+     * 对话历史由循环自身携带，不写入会话记忆。
+     * 上下文中设置了预算时，每轮执行工具前检查工具调用次数、累计token和耗时，
+     * 超出后不再执行工具，要求模型基于已获取的信息直接给出最终结果
+     *
+     * @param query 完整prompt
+     * @param context 调用上下文，可指定模型，调用结束后其中累计了全部轮次的token消耗
+     * @return 模型最终输出
+     */
+    public String callWithTools(String query, LlmCallContext context) {
+        return callWithTools(query, context, null);
+    }
+
+    /**
+     * 带工具调用的单次生成，每轮以流式请求模型，文本增量随到随交给监听器，
+     * 调用方可以边生成边处理已完整输出的部分
+     *
+     * @param textListener 文本增量监听器，在调用线程上按顺序回调；为空时不使用流式请求
+     */
+    public String callWithTools(String query, LlmCallContext context, StreamListener textListener) {
+        ToolCallingChatOptions.Builder optionsBuilder = ToolCallingChatOptions.builder()
+                .toolCallbacks(allTools)
+                .internalToolExecutionEnabled(false);
+        if (StringUtils.isNotBlank(context.getModel())) {
+            optionsBuilder.model(context.getModel());
+        }
+        ToolCallingChatOptions options = optionsBuilder.build();
+        Prompt prompt = new Prompt(query, options);
+        LlmPriority priority = context.getPriority() != null ? context.getPriority() : LlmPriority.of(context.getCallType());
+        // 首轮真实prompt token数包含工具定义，估算值须覆盖同样的内容，否则校准系数会被持续推高
+        context.setEstimatedTokens(tokenEstimator.estimate(query, toolSchemaTokens,
+                StringUtils.isNotBlank(context.getModel()) ? context.getModel() : defaultModel));
+        long startTime = System.currentTimeMillis();
+        Observation observation = startObservation(context, true);
+        try (Observation.Scope scope = observation.openScope()) {
+            ChatResponse response = callTurn(prompt, context.getEstimatedTokens(), priority, textListener);
+            accumulateUsage(context, response);
+
+            while (response != null && response.hasToolCalls()) {
+                int pendingToolCalls = countToolCalls(response);
+                String breach = context.getBudget() == null ? null : context.getBudget().check(
+                        context.getToolCalls() + pendingToolCalls, context.getTotalTokens(),
+                        System.currentTimeMillis() - startTime);
+                if (breach != null) {
+                    context.setBudgetBreach(breach);
+                    log.warn("LLM调用超出预算，强制输出最终结果: taskId={}, catalogueId={}, breach={}, turns={}, toolCalls={}",
+                            context.getTaskId(), context.getCatalogueId(), breach, context.getTurns(), context.getToolCalls());
+                    response = forceFinalAnswer(prompt, context, priority, textListener);
+                    accumulateUsage(context, response);
+                    break;
+                }
+                context.setToolCalls(context.getToolCalls() + pendingToolCalls);
+                ToolExecutionResult toolExecutionResult = toolCallingManager.executeToolCalls(prompt, response);
+                if (toolExecutionResult.returnDirect()) {
+                    return extractToolResponse(toolExecutionResult.conversationHistory());
+                }
+                prompt = new Prompt(toolExecutionResult.conversationHistory(), options);
+                // 下一轮prompt包含上一轮的完整输入输出，以其真实消耗作为本轮预估
+                response = callTurn(prompt, totalTokensOf(response), priority, textListener);
+                accumulateUsage(context, response);
+            }
+            return extractText(response);
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            context.setDurationMs(System.currentTimeMillis() - startTime);
+            tokenUsageService.record(context);
+            stopObservation(observation, context);
+        }
     }
 
     public String callWithoutTools(String query) {
-        return chatClient
-                .prompt(query)
-                .advisors(
-                        a -> a.param(CONVERSATION_ID, cn.hutool.core.lang.UUID.randomUUID().toString())
-                )
-                .call()
-                .content();
+        return callWithoutTools(query, LlmCallContext.chat());
+    }
+
+    /**
+     * 不带工具的单次生成，会话记忆仅在本次请求内存中保存，调用结束即丢弃
+     */
+    public String callWithoutTools(String query, LlmCallContext context) {
+        context.setEstimatedTokens(tokenEstimator.estimate(query, defaultModel));
+        String conversationId = cn.hutool.core.lang.UUID.randomUUID().toString();
+        long startTime = System.currentTimeMillis();
+        Observation observation = startObservation(context, false);
+        try (Observation.Scope scope = observation.openScope()) {
+            ChatResponse response = rateLimiter.execute(context.getEstimatedTokens(), LlmPriority.of(context.getCallType()),
+                    () -> oneShotChatClient
+                            .prompt(query)
+                            .advisors(
+                                    a -> a.param(CONVERSATION_ID, conversationId)
+                            )
+                            .call()
+                            .chatResponse());
+            rateLimiter.reconcile(context.getEstimatedTokens(), totalTokensOf(response));
+            accumulateUsage(context, response);
+            return extractText(response);
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            ephemeralChatMemory.clear(conversationId);
+            context.setDurationMs(System.currentTimeMillis() - startTime);
+            tokenUsageService.record(context);
+            stopObservation(observation, context);
+        }
     }
+
     public Flux<String> chatWithTools(String query, String conversationId) {
-        return chatClient
+        return recordStreamUsage(chatClient
                 .prompt(query)
                 .advisors(a -> a.param(CONVERSATION_ID, StringUtils.isEmpty(conversationId) ? MDC.get("traceId") : conversationId))
                 .options(
                         ToolCallingChatOptions.builder().toolCallbacks(allTools).build())
                 .stream()
-                .content();
+                .chatResponse(), query);
     }
 
     /**
      * 与模型和工具交互的对话方法，支持流式响应
-     * 
+     *
      * @param query 用户输入的查询内容
      * @param model 使用的模型名称
      * @param conversationId 会话标识，为空时使用traceId替代
@@ -81,7 +251,7 @@ public class LlmService {
      * 3. 返回流式响应内容
      */
     public Flux<String> chatWithModelAndTools(String query, String model, String conversationId) {
-        return chatClient
+        return recordStreamUsage(chatClient
                 .prompt(query)
                 // 配置会话参数：优先使用传入的conversationId，否则使用traceId
                 .advisors(a -> a.param(CONVERSATION_ID,
@@ -94,7 +264,223 @@ public class LlmService {
                                 .build()
                 )
                 .stream()
-                .content();
+                .chatResponse(), query);
+    }
+
+    /**
+     * 流式响应的限流与token统计：订阅前获取配额，usage随最后的响应块返回，在流结束时记录
+     * 流式输出可能已部分返回给用户，因此限流时只反馈给限流器而不自动重试
+     */
+    private Flux<String> recordStreamUsage(Flux<ChatResponse> responses, String query) {
+        LlmCallContext context = LlmCallContext.chat();
+        context.setEstimatedTokens(tokenEstimator.estimate(query, toolSchemaTokens, defaultModel));
+        AtomicReference<ChatResponse> lastResponse = new AtomicReference<>();
+        long startTime = System.currentTimeMillis();
+        return Flux.defer(() -> {
+                    rateLimiter.acquire(context.getEstimatedTokens(), LlmPriority.HIGH);
+                    return responses;
+                })
+                .doOnComplete(rateLimiter::onSuccess)
+                .doOnError(e -> {
+                    if (ThrottleDetector.isThrottled(e)) {
+                        rateLimiter.onThrottled(ThrottleDetector.retryAfterMillis(e), 0);
+                    }
+                })
+                .doOnNext(response -> {
+                    if (response.getMetadata() != null && response.getMetadata().getUsage() != null
+                            && response.getMetadata().getUsage().getTotalTokens() != null
+                            && response.getMetadata().getUsage().getTotalTokens() > 0) {
+                        lastResponse.set(response);
+                    }
+                })
+                .doFinally(signal -> {
+                    rateLimiter.reconcile(context.getEstimatedTokens(), totalTokensOf(lastResponse.get()));
+                    accumulateUsage(context, lastResponse.get());
+                    // 多轮对话的prompt还包含会话记忆中的历史消息，不作为估算器的校准样本
+                    context.setFirstTurnPromptTokens(0);
+                    context.setDurationMs(System.currentTimeMillis() - startTime);
+                    tokenUsageService.record(context);
+                })
+                .mapNotNull(this::extractText);
     }
 
+    /**
+     * 一次生成的LLM调用span，包含限流等待与全部轮次，每轮模型请求与工具调用的span为其子span
+     */
+    private Observation startObservation(LlmCallContext context, boolean withTools) {
+        Observation observation = Observation.createNotStarted(WikiObservations.LLM_CALL, observationRegistry)
+                .lowCardinalityKeyValue("wiki.llm.call.type", String.valueOf(context.getCallType()))
+                .lowCardinalityKeyValue("wiki.llm.tools", String.valueOf(withTools));
+        WikiObservations.tag(observation, "wiki.llm.model", StringUtils.isNotBlank(context.getModel()) ? context.getModel() : defaultModel);
+        WikiObservations.tag(observation, WikiObservations.TASK_ID, context.getTaskId());
+        WikiObservations.tag(observation, WikiObservations.CATALOGUE_ID, context.getCatalogueId());
+        return observation.start();
+    }
+
+    private void stopObservation(Observation observation, LlmCallContext context) {
+        observation.highCardinalityKeyValue("wiki.llm.turns", String.valueOf(context.getTurns()))
+                .highCardinalityKeyValue("wiki.llm.tool.calls", String.valueOf(context.getToolCalls()))
+                .highCardinalityKeyValue("wiki.llm.total.tokens", String.valueOf(context.getTotalTokens()));
+        WikiObservations.tag(observation, "wiki.llm.budget.breach", context.getBudgetBreach());
+        observation.stop();
+    }
+
+    /**
+     * 经限流器发起单轮模型调用，并用真实消耗修正token桶
+     */
+    private ChatResponse callModel(Prompt prompt, long estimatedTokens, LlmPriority priority) {
+        ChatResponse response = rateLimiter.execute(estimatedTokens, priority, () -> chatModel.call(prompt));
+        rateLimiter.reconcile(estimatedTokens, totalTokensOf(response));
+        return response;
+    }
+
+    private ChatResponse callTurn(Prompt prompt, long estimatedTokens, LlmPriority priority, StreamListener textListener) {
+        if (textListener == null) {
+            return callModel(prompt, estimatedTokens, priority);
+        }
+        textListener.onTurnStart();
+        return streamModel(prompt, estimatedTokens, priority, textListener);
+    }
+
+    /**
+     * 经限流器发起单轮流式调用，流结束后聚合为与非流式调用一致的完整响应
+     * 首个文本块转发前被限流时按限流器策略重试；已转发部分输出后不再重试，避免监听器收到重复内容
+     */
+    private ChatResponse streamModel(Prompt prompt, long estimatedTokens, LlmPriority priority, StreamListener textListener) {
+        AtomicBoolean forwarded = new AtomicBoolean(false);
+        ChatResponse response = rateLimiter.execute(estimatedTokens, priority, () -> {
+            try {
+                return aggregateStream(chatModel.stream(prompt), textListener, forwarded);
+            } catch (RuntimeException e) {
+                if (forwarded.get() && ThrottleDetector.isThrottled(e)) {
+                    rateLimiter.onThrottled(ThrottleDetector.retryAfterMillis(e), 0);
+                    throw new IllegalStateException("流式输出中途被限流，不再重试: " + e.getMessage());
+                }
+                throw e;
+            }
+        });
+        rateLimiter.reconcile(estimatedTokens, totalTokensOf(response));
+        return response;
+    }
+
+    /**
+     * 在调用线程上消费响应流：文本增量转发给监听器，工具调用和usage随流累积
+     */
+    private ChatResponse aggregateStream(Flux<ChatResponse> chunks, StreamListener textListener, AtomicBoolean forwarded) {
+        StringBuilder text = new StringBuilder();
+        List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+        ChatResponseMetadata metadata = null;
+        for (ChatResponse chunk : chunks.toIterable()) {
+            if (chunk.getResult() != null && chunk.getResult().getOutput() != null) {
+                AssistantMessage output = chunk.getResult().getOutput();
+                if (StringUtils.isNotEmpty(output.getText())) {
+                    text.append(output.getText());
+                    forwarded.set(true);
+                    textListener.onText(output.getText());
+                }
+                if (output.hasToolCalls()) {
+                    toolCalls.addAll(output.getToolCalls());
+                }
+            }
+            if (chunk.getMetadata() != null && (metadata == null || totalTokensOf(chunk) > 0)) {
+                metadata = chunk.getMetadata();
+            }
+        }
+        List<Generation> generations = List.of(new Generation(new AssistantMessage(text.toString(), Map.of(), toolCalls)));
+        return metadata == null ? new ChatResponse(generations) : new ChatResponse(generations, metadata);
+    }
+
+    /**
+     * 丢弃模型最后一轮的工具调用请求，追加指令后以不带工具的方式再请求一次
+     */
+    private ChatResponse forceFinalAnswer(Prompt prompt, LlmCallContext context, LlmPriority priority,
+                                          StreamListener textListener) {
+        List<Message> messages = new ArrayList<>(prompt.getInstructions());
+        messages.add(new UserMessage(FORCE_ANSWER_INSTRUCTION));
+        ToolCallingChatOptions.Builder optionsBuilder = ToolCallingChatOptions.builder()
+                .internalToolExecutionEnabled(false);
+        if (StringUtils.isNotBlank(context.getModel())) {
+            optionsBuilder.model(context.getModel());
+        }
+        return callTurn(new Prompt(messages, optionsBuilder.build()), context.getTotalTokens(), priority, textListener);
+    }
+
+    private int countToolCalls(ChatResponse response) {
+        return response.getResults().stream()
+                .mapToInt(generation -> generation.getOutput().getToolCalls().size())
+                .sum();
+    }
+
+    private long totalTokensOf(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null
+                || response.getMetadata().getUsage().getTotalTokens() == null) {
+            return 0;
+        }
+        return response.getMetadata().getUsage().getTotalTokens();
+    }
+
+    /**
+     * 累计单轮模型响应中的token消耗
+     */
+    private void accumulateUsage(LlmCallContext context, ChatResponse response) {
+        if (response == null) {
+            return;
+        }
+        context.setTurns(context.getTurns() + 1);
+        if (response.getMetadata() == null) {
+            return;
+        }
+        String model = response.getMetadata().getModel();
+        context.setModel(StringUtils.isNotBlank(model) ? model
+                : (context.getModel() != null ? context.getModel() : defaultModel));
+
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        long promptTokens = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        long completionTokens = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+        long totalTokens = usage.getTotalTokens() != null ? usage.getTotalTokens() : promptTokens + completionTokens;
+        if (context.getTurns() == 1) {
+            context.setFirstTurnPromptTokens(promptTokens);
+        }
+        context.setPromptTokens(context.getPromptTokens() + promptTokens);
+        context.setCompletionTokens(context.getCompletionTokens() + completionTokens);
+        context.setTotalTokens(context.getTotalTokens() + totalTokens);
+    }
+
+    private String extractText(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getText();
+    }
+
+    /**
+     * returnDirect的工具直接以工具结果作为最终输出
+     */
+    private String extractToolResponse(List<Message> conversationHistory) {
+        Message lastMessage = conversationHistory.get(conversationHistory.size() - 1);
+        if (lastMessage instanceof ToolResponseMessage toolResponseMessage) {
+            return toolResponseMessage.getResponses().stream()
+                    .map(ToolResponseMessage.ToolResponse::responseData)
+                    .collect(Collectors.joining("\n"));
+        }
+        return lastMessage.getText();
+    }
+
+    /**
+     * 流式生成的文本监听器。带工具的生成包含多轮模型输出，只有最后一轮是最终结果：
+     * 调用工具前的轮次可能已输出部分文本，预算超出后的强制收尾也会重新输出完整结果
+     */
+    public interface StreamListener {
+
+        /**
+         * 新一轮模型输出开始，此前各轮转发的文本都不属于最终结果
+         */
+        default void onTurnStart() {
+        }
+
+        void onText(String text);
+    }
 }
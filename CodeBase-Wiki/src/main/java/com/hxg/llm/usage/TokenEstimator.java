@@ -0,0 +1,137 @@
+package com.hxg.llm.usage;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author hxg
+ * @description: 本地Token估算器
+ * 使用jtokkit的o200k_base词表分词，该词表与Qwen的BPE词表规模相近；
+ * 并使用LLM响应中真实的prompt token数按模型持续校准，供任务提交前的容量规划使用。
+ * 校准样本为首轮实际发送的完整prompt（含工具定义），估算值必须覆盖同样的内容
+ * @date 2025/8/12
+ */
+@Component
+@Slf4j
+public class TokenEstimator {
+
+    /**
+     * 校准系数的平滑因子，越大越信任最新的观测值
+     */
+    private static final double CALIBRATION_ALPHA = 0.2;
+
+    /**
+     * 校准系数的上下限，防止异常样本把估算带偏
+     */
+    private static final double MIN_RATIO = 0.3;
+    private static final double MAX_RATIO = 3.0;
+
+    private static final String DEFAULT_MODEL_KEY = "_default";
+
+    private final Map<String, Double> calibrationRatios = new ConcurrentHashMap<>();
+
+    private final Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.O200K_BASE);
+
+    /**
+     * 使用默认校准系数估算token数
+     */
+    public long estimate(String text) {
+        return estimate(text, null);
+    }
+
+    /**
+     * 估算指定模型下文本的token数
+     */
+    public long estimate(String text, String model) {
+        return estimate(text, 0, model);
+    }
+
+    /**
+     * 估算实际发送的prompt的token数
+     * @param extraRawTokens 随prompt发送的其他内容（如工具定义）的未校准token数
+     */
+    public long estimate(String text, long extraRawTokens, String model) {
+        long raw = countRawTokens(text) + extraRawTokens;
+        return Math.round(raw * getRatio(model));
+    }
+
+    /**
+     * 使用真实消耗校准估算器
+     * @param model 模型名称
+     * @param estimatedTokens 调用前对首轮完整prompt的估算值（已应用校准）
+     * @param actualTokens 响应元数据中首轮的真实prompt token数
+     */
+    public void calibrate(String model, long estimatedTokens, long actualTokens) {
+        if (estimatedTokens <= 0 || actualTokens <= 0) {
+            return;
+        }
+        double currentRatio = getRatio(model);
+        // 还原未校准的原始估算值，得到本次样本的真实比例
+        double rawEstimate = estimatedTokens / currentRatio;
+        double observed = clamp(actualTokens / rawEstimate);
+        double updated = clamp(currentRatio * (1 - CALIBRATION_ALPHA) + observed * CALIBRATION_ALPHA);
+        calibrationRatios.put(modelKey(model), updated);
+        // 默认系数同样跟随观测更新，供未指定模型的估算使用
+        if (model != null) {
+            double defaultRatio = calibrationRatios.getOrDefault(DEFAULT_MODEL_KEY, 1.0);
+            calibrationRatios.put(DEFAULT_MODEL_KEY,
+                    clamp(defaultRatio * (1 - CALIBRATION_ALPHA) + observed * CALIBRATION_ALPHA));
+        }
+        log.debug("Token估算器校准: model={}, estimated={}, actual={}, ratio={}", model, estimatedTokens, actualTokens, updated);
+    }
+
+    /**
+     * 获取模型当前的校准系数
+     */
+    public double getRatio(String model) {
+        Double ratio = calibrationRatios.get(modelKey(model));
+        if (ratio == null && model != null) {
+            ratio = calibrationRatios.get(DEFAULT_MODEL_KEY);
+        }
+        return ratio != null ? ratio : 1.0;
+    }
+
+    /**
+     * 统计工具定义（名称、描述与参数JSON Schema）的token数，带工具的请求每一轮都会把它们随prompt发送
+     */
+    public long countToolTokens(ToolCallback[] tools) {
+        if (tools == null) {
+            return 0;
+        }
+        long tokens = 0;
+        for (ToolCallback tool : tools) {
+            ToolDefinition definition = tool == null ? null : tool.getToolDefinition();
+            if (definition != null) {
+                tokens += countRawTokens(definition.name()) + countRawTokens(definition.description())
+                        + countRawTokens(definition.inputSchema());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 未经校准的分词计数
+     */
+    public long countRawTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return encoding.countTokensOrdinary(text);
+    }
+
+    private String modelKey(String model) {
+        return model != null ? model : DEFAULT_MODEL_KEY;
+    }
+
+    private double clamp(double ratio) {
+        return Math.max(MIN_RATIO, Math.min(MAX_RATIO, ratio));
+    }
+}
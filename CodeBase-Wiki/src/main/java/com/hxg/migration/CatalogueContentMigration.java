@@ -0,0 +1,71 @@
+package com.hxg.migration;
+
+import com.hxg.utils.ContentCodecUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 迁移V3：把目录表中内联的文档内容压缩后移到catalogue_content表（V2创建），再删除目录表的content列，
+ * 目录表的每行只剩元数据，按任务、父目录扫描目录时不再读取文档内容的溢出页
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+public class CatalogueContentMigration implements SchemaMigration {
+
+    private static final int BATCH_SIZE = 200;
+
+    @Override
+    public int version() {
+        return 3;
+    }
+
+    @Override
+    public String description() {
+        return "move catalogue content to compressed store";
+    }
+
+    @Override
+    public void migrate(JdbcTemplate jdbcTemplate) {
+        if (!SchemaMigrator.hasColumn(jdbcTemplate, "catalogue", "content")) {
+            return;
+        }
+        long lastId = 0;
+        int moved = 0;
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, catalogue_id, content FROM catalogue WHERE id > ? AND content IS NOT NULL"
+                            + " ORDER BY id LIMIT ?",
+                    (row, index) -> new Object[]{row.getLong("id"), row.getString("catalogue_id"), row.getString("content")},
+                    lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                String catalogueId = (String) row[1];
+                String content = (String) row[2];
+                if (catalogueId == null) {
+                    continue;
+                }
+                byte[] compressed = ContentCodecUtil.compress(content);
+                int rawSize = content.getBytes(StandardCharsets.UTF_8).length;
+                jdbcTemplate.update("INSERT INTO catalogue_content (catalogue_id, codec, content, raw_size, update_time)"
+                                + " VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP) ON CONFLICT(catalogue_id) DO NOTHING",
+                        catalogueId, ContentCodecUtil.CODEC_DEFLATE, compressed, rawSize);
+                moved++;
+                rawBytes += rawSize;
+                compressedBytes += compressed.length;
+            }
+        }
+        jdbcTemplate.execute("ALTER TABLE catalogue DROP COLUMN content");
+        log.info("目录文档内容已迁移到压缩存储: count={}, rawBytes={}, compressedBytes={}", moved, rawBytes, compressedBytes);
+    }
+}
@@ -0,0 +1,179 @@
+package com.hxg.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 迁移V0：引入版本化迁移之前追加的表、列与索引。schema.sql只保留基线的task与catalogue表，
+ * 这些变更在此按加入顺序执行，列只在缺失时添加，表与索引使用IF NOT EXISTS，
+ * 已通过旧版schema.sql建好这些结构的数据库执行时不做任何修改；版本号为0以保证在V1的索引之前建表
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+public class LegacySchemaMigration implements SchemaMigration {
+
+    /**
+     * token消耗记录
+     */
+    private static final String TOKEN_USAGE_TABLE = """
+            CREATE TABLE IF NOT EXISTS token_usage (
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              task_id TEXT,
+              catalogue_id TEXT,
+              call_type TEXT,
+              model TEXT,
+              turns INTEGER,
+              prompt_tokens INTEGER,
+              completion_tokens INTEGER,
+              total_tokens INTEGER,
+              estimated_tokens INTEGER,
+              duration_ms INTEGER,
+              create_time DATETIME DEFAULT CURRENT_TIMESTAMP
+            )""";
+
+    /**
+     * 生成过程追踪：每次文档生成尝试与任务各阶段的耗时、调用轮次、工具调用与token
+     */
+    private static final String GENERATION_TRACE_TABLE = """
+            CREATE TABLE IF NOT EXISTS generation_trace (
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              task_id TEXT,
+              catalogue_id TEXT,
+              catalogue_name TEXT,
+              stage TEXT,
+              attempt INTEGER,
+              status TEXT,
+              queue_wait_ms INTEGER,
+              duration_ms INTEGER,
+              llm_ms INTEGER,
+              turns INTEGER,
+              tool_calls INTEGER,
+              tool_ms INTEGER,
+              tool_bytes INTEGER,
+              tool_detail TEXT,
+              prompt_tokens INTEGER,
+              completion_tokens INTEGER,
+              total_tokens INTEGER,
+              model TEXT,
+              fail_reason TEXT,
+              create_time DATETIME DEFAULT CURRENT_TIMESTAMP
+            )""";
+
+    /**
+     * 文档处理幂等台账：每次投递开启目录的新处理代次，重复消息在调用LLM前跳过
+     */
+    private static final String DOCUMENT_LEDGER_TABLE = """
+            CREATE TABLE IF NOT EXISTS document_ledger (
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              task_id TEXT,
+              catalogue_id TEXT NOT NULL,
+              generation INTEGER NOT NULL,
+              attempt INTEGER NOT NULL DEFAULT 0,
+              status TEXT NOT NULL,
+              owner TEXT,
+              duplicates INTEGER NOT NULL DEFAULT 0,
+              create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+              update_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+              UNIQUE (catalogue_id, generation)
+            )""";
+
+    /**
+     * 死信记录：死信队列中的文档生成消息落库，用于查看、限速重放和清理
+     */
+    private static final String DEAD_LETTER_TABLE = """
+            CREATE TABLE IF NOT EXISTS dead_letter (
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              task_id TEXT,
+              catalogue_id TEXT,
+              catalogue_name TEXT,
+              error_class TEXT,
+              error_message TEXT,
+              regeneration INTEGER DEFAULT 0,
+              payload TEXT,
+              dlq_partition INTEGER,
+              dlq_offset INTEGER,
+              status TEXT NOT NULL,
+              replay_count INTEGER NOT NULL DEFAULT 0,
+              note TEXT,
+              create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+              update_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+              UNIQUE (dlq_partition, dlq_offset)
+            )""";
+
+    /**
+     * 按加入顺序执行的步骤
+     */
+    private static final List<Step> STEPS = List.of(
+            Step.ddl(TOKEN_USAGE_TABLE),
+            // 模型路由：记录目录文档使用的模型与复杂度得分
+            Step.column("catalogue", "model", "TEXT"),
+            Step.column("catalogue", "complexity_score", "REAL"),
+            Step.column("token_usage", "route_tier", "TEXT"),
+            Step.column("token_usage", "complexity_score", "REAL"),
+            // 单篇文档调用预算：记录超出的预算项
+            Step.column("catalogue", "budget_breach", "TEXT"),
+            // 任务准入：记录任务预估token数
+            Step.column("task", "estimated_tokens", "INTEGER"),
+            // 结果复用：按内容键查找相同仓库提交的已有结果
+            Step.column("task", "content_key", "TEXT"),
+            Step.column("task", "source_task_id", "TEXT"),
+            Step.ddl("CREATE INDEX IF NOT EXISTS idx_task_content_key ON task(content_key)"),
+            Step.ddl(GENERATION_TRACE_TABLE),
+            Step.ddl("CREATE INDEX IF NOT EXISTS idx_generation_trace_task ON generation_trace(task_id)"),
+            // 故障恢复：任务来源与分支用于重新拉取仓库，目录租约与心跳用于识别中断的文档生成
+            Step.column("task", "source_type", "TEXT"),
+            Step.column("task", "branch", "TEXT"),
+            Step.column("catalogue", "lease_owner", "TEXT"),
+            Step.column("catalogue", "heartbeat_time", "DATETIME"),
+            Step.ddl(DOCUMENT_LEDGER_TABLE),
+            Step.ddl("CREATE INDEX IF NOT EXISTS idx_document_ledger_task ON document_ledger(task_id)"),
+            Step.ddl(DEAD_LETTER_TABLE),
+            Step.ddl("CREATE INDEX IF NOT EXISTS idx_dead_letter_task ON dead_letter(task_id)"),
+            // 任务容量准入：排队任务的预计开始时间
+            Step.column("task", "estimated_start_time", "DATETIME"),
+            // 仓库快照：文档生成消费者按快照键拉取仓库内容
+            Step.column("task", "snapshot_key", "VARCHAR(64)"));
+
+    @Override
+    public int version() {
+        return 0;
+    }
+
+    @Override
+    public String description() {
+        return "tables and columns added before versioned migrations";
+    }
+
+    @Override
+    public void migrate(JdbcTemplate jdbcTemplate) {
+        int added = 0;
+        for (Step step : STEPS) {
+            if (step.column() == null) {
+                jdbcTemplate.execute(step.sql());
+            } else if (!SchemaMigrator.hasColumn(jdbcTemplate, step.table(), step.column())) {
+                jdbcTemplate.execute(step.sql());
+                added++;
+            }
+        }
+        log.info("基线之后的表结构已补齐: 新增列数={}", added);
+    }
+
+    /**
+     * 建表、建索引语句，或只在列缺失时执行的加列语句
+     */
+    private record Step(String table, String column, String sql) {
+
+        static Step ddl(String ddl) {
+            return new Step(null, null, ddl);
+        }
+
+        static Step column(String table, String column, String type) {
+            return new Step(table, column, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hxg.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * @author hxg
+ * @description: 版本化的表结构迁移，版本号递增且已执行的版本不会再执行；
+ * SQL迁移为classpath:db/migration下的V{版本号}__{描述}.sql，需要程序处理数据的迁移实现该接口并注册为Bean
+ * @date 2025/8/25
+ */
+public interface SchemaMigration {
+
+    int version();
+
+    String description();
+
+    /**
+     * 执行迁移，与迁移记录在同一事务中提交
+     */
+    void migrate(JdbcTemplate jdbcTemplate) throws Exception;
+
+    /**
+     * 迁移内容的校验和，已执行的迁移内容被修改时告警，程序迁移返回null
+     */
+    default Long checksum() {
+        return null;
+    }
+}
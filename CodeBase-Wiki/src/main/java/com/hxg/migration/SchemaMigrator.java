@@ -0,0 +1,148 @@
+package com.hxg.migration;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @author hxg
+ * @description: 表结构迁移执行器：schema.sql建立基线后，按版本号依次执行未执行过的迁移，
+ * 每个迁移与其执行记录在同一事务中提交，失败时回滚并中止启动；多个实例同时启动时由数据库写锁串行，
+ * 事务内重新检查执行记录，同一迁移只执行一次
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+public class SchemaMigrator {
+
+    static final String HISTORY_TABLE = "schema_migration";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<SchemaMigration> migrations;
+
+    @Value("${project.wiki.migration.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${project.wiki.migration.locations:classpath*:db/migration/V*__*.sql}")
+    private String locations = "classpath*:db/migration/V*__*.sql";
+
+    public SchemaMigrator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          List<SchemaMigration> javaMigrations) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.migrations = new ArrayList<>(javaMigrations);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!enabled) {
+            log.info("表结构迁移已关闭");
+            return;
+        }
+        List<SchemaMigration> pending = resolveMigrations();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                + "version INTEGER PRIMARY KEY, description TEXT, checksum INTEGER,"
+                + " duration_ms INTEGER, installed_time DATETIME DEFAULT CURRENT_TIMESTAMP)");
+        Map<Integer, Long> applied = appliedChecksums();
+        int executed = 0;
+        for (SchemaMigration migration : pending) {
+            if (applied.containsKey(migration.version())) {
+                Long checksum = migration.checksum();
+                if (checksum != null && applied.get(migration.version()) != null
+                        && !checksum.equals(applied.get(migration.version()))) {
+                    log.warn("已执行的迁移V{}({})内容已被修改，修改不会生效，请新增迁移版本",
+                            migration.version(), migration.description());
+                }
+                continue;
+            }
+            if (apply(migration)) {
+                executed++;
+            }
+        }
+        log.info("表结构迁移完成: 共{}个迁移，本次执行{}个", pending.size(), executed);
+    }
+
+    /**
+     * 收集SQL脚本与程序迁移，按版本号排序，版本号重复时中止启动
+     */
+    List<SchemaMigration> resolveMigrations() {
+        List<SchemaMigration> all = new ArrayList<>(migrations);
+        try {
+            for (Resource script : new PathMatchingResourcePatternResolver().getResources(locations)) {
+                SqlScriptMigration migration = SqlScriptMigration.of(script);
+                if (migration == null) {
+                    log.warn("忽略不符合命名规则的迁移脚本: {}", script.getFilename());
+                    continue;
+                }
+                all.add(migration);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取迁移脚本失败: " + locations, e);
+        }
+        all.sort(Comparator.comparingInt(SchemaMigration::version));
+        for (int i = 1; i < all.size(); i++) {
+            if (all.get(i).version() == all.get(i - 1).version()) {
+                throw new IllegalStateException("迁移版本号重复: V" + all.get(i).version());
+            }
+        }
+        return all;
+    }
+
+    private boolean apply(SchemaMigration migration) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // 其他实例可能已抢先执行
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM " + HISTORY_TABLE + " WHERE version = ?", Integer.class, migration.version());
+            if (count != null && count > 0) {
+                return false;
+            }
+            long startTime = System.currentTimeMillis();
+            try {
+                migration.migrate(jdbcTemplate);
+            } catch (Exception e) {
+                throw new IllegalStateException("表结构迁移V" + migration.version() + "失败: " + e.getMessage(), e);
+            }
+            long duration = System.currentTimeMillis() - startTime;
+            jdbcTemplate.update("INSERT INTO " + HISTORY_TABLE
+                            + " (version, description, checksum, duration_ms) VALUES (?, ?, ?, ?)",
+                    migration.version(), migration.description(), migration.checksum(), duration);
+            log.info("已执行表结构迁移V{}: {}, 耗时={}ms", migration.version(), migration.description(), duration);
+            return true;
+        }));
+    }
+
+    private Map<Integer, Long> appliedChecksums() {
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbcTemplate.query("SELECT version, checksum FROM " + HISTORY_TABLE, row -> {
+            long checksum = row.getLong("checksum");
+            applied.put(row.getInt("version"), row.wasNull() ? null : checksum);
+        });
+        return applied;
+    }
+
+    /**
+     * 表是否存在指定列
+     */
+    static boolean hasColumn(JdbcTemplate jdbcTemplate, String table, String column) {
+        return jdbcTemplate.queryForList("SELECT name FROM pragma_table_info(?)", String.class, table).stream()
+                .anyMatch(name -> Objects.equals(name, column));
+    }
+}
@@ -0,0 +1,73 @@
+package com.hxg.migration;
+
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * @author hxg
+ * @description: 由V{版本号}__{描述}.sql脚本构成的迁移
+ * @date 2025/8/25
+ */
+class SqlScriptMigration implements SchemaMigration {
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private final Resource script;
+    private final int version;
+    private final String description;
+
+    private SqlScriptMigration(Resource script, int version, String description) {
+        this.script = script;
+        this.version = version;
+        this.description = description;
+    }
+
+    /**
+     * @return 文件名不符合命名规则时返回null
+     */
+    static SqlScriptMigration of(Resource script) {
+        String fileName = script.getFilename();
+        Matcher matcher = fileName == null ? null : FILE_NAME.matcher(fileName);
+        if (matcher == null || !matcher.matches()) {
+            return null;
+        }
+        return new SqlScriptMigration(script, Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '));
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    @Override
+    public String description() {
+        return description;
+    }
+
+    @Override
+    public void migrate(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, script);
+            return null;
+        });
+    }
+
+    @Override
+    public Long checksum() {
+        CRC32 crc = new CRC32();
+        try (InputStream input = script.getInputStream()) {
+            crc.update(input.readAllBytes());
+        } catch (IOException e) {
+            return null;
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,91 @@
+package com.hxg.model.context;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author hxg
+ * @description: 单次文档生成的追踪上下文，由消费者绑定到处理线程，
+ * 工具调用监控与文档处理服务在同一线程上向其累计工具耗时与LLM调用信息
+ * @date 2025/8/21
+ */
+@Data
+public class GenerationTraceContext {
+
+    private static final ThreadLocal<GenerationTraceContext> CURRENT = new ThreadLocal<>();
+
+    private String taskId;
+
+    private String catalogueId;
+
+    private String catalogueName;
+
+    private int attempt;
+
+    private long queueWaitMs;
+
+    private long startTime;
+
+    /**
+     * 文档生成的LLM调用上下文，调用过程中原地累计轮次与token
+     */
+    private LlmCallContext llmContext;
+
+    /**
+     * 按工具名汇总的调用统计
+     */
+    private Map<String, ToolCallStat> toolStats = new LinkedHashMap<>();
+
+    /**
+     * 创建追踪上下文并绑定到当前线程
+     */
+    public static GenerationTraceContext begin(String taskId, String catalogueId, String catalogueName,
+                                               int attempt, long queueWaitMs) {
+        GenerationTraceContext context = new GenerationTraceContext();
+        context.setTaskId(taskId);
+        context.setCatalogueId(catalogueId);
+        context.setCatalogueName(catalogueName);
+        context.setAttempt(attempt);
+        context.setQueueWaitMs(queueWaitMs);
+        context.setStartTime(System.currentTimeMillis());
+        CURRENT.set(context);
+        return context;
+    }
+
+    public static GenerationTraceContext current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 向当前线程绑定的追踪上下文记录一次工具调用，未绑定时（如对话）忽略
+     */
+    public static void recordToolCall(String toolName, long durationMs, long bytes, boolean success) {
+        GenerationTraceContext context = CURRENT.get();
+        if (context == null) {
+            return;
+        }
+        ToolCallStat stat = context.getToolStats().computeIfAbsent(toolName, name -> new ToolCallStat());
+        stat.setCalls(stat.getCalls() + 1);
+        if (!success) {
+            stat.setFailures(stat.getFailures() + 1);
+        }
+        stat.setDurationMs(stat.getDurationMs() + durationMs);
+        stat.setMaxMs(Math.max(stat.getMaxMs(), durationMs));
+        stat.setBytes(stat.getBytes() + bytes);
+    }
+
+    @Data
+    public static class ToolCallStat {
+        private int calls;
+        private int failures;
+        private long durationMs;
+        private long maxMs;
+        private long bytes;
+    }
+}
@@ -0,0 +1,57 @@
+package com.hxg.model.context;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author hxg
+ * @description: 单次带工具LLM调用的预算，任一项小于等于0表示不限制
+ * @date 2025/8/14
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LlmCallBudget {
+    public static final String BREACH_TOOL_CALLS = "TOOL_CALLS";
+    public static final String BREACH_TOKENS = "TOKENS";
+    public static final String BREACH_WALL_TIME = "WALL_TIME";
+
+    /**
+     * 最大工具调用次数
+     */
+    private int maxToolCalls;
+
+    /**
+     * 最大累计token数（全部轮次的total tokens之和）
+     */
+    private long maxTokens;
+
+    /**
+     * 最大耗时(ms)
+     */
+    private long maxWallMs;
+
+    /**
+     * 检查调用进度是否超出预算
+     *
+     * @param toolCalls 已执行加上即将执行的工具调用次数
+     * @param totalTokens 已累计的token数
+     * @param elapsedMs 已耗时
+     * @return 超出的预算项描述，未超出时返回null
+     */
+    public String check(int toolCalls, long totalTokens, long elapsedMs) {
+        if (maxToolCalls > 0 && toolCalls > maxToolCalls) {
+            return BREACH_TOOL_CALLS + " " + toolCalls + "/" + maxToolCalls;
+        }
+        if (maxTokens > 0 && totalTokens >= maxTokens) {
+            return BREACH_TOKENS + " " + totalTokens + "/" + maxTokens;
+        }
+        if (maxWallMs > 0 && elapsedMs >= maxWallMs) {
+            return BREACH_WALL_TIME + " " + elapsedMs + "ms/" + maxWallMs + "ms";
+        }
+        return null;
+    }
+}
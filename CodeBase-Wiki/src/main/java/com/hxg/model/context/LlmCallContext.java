@@ -0,0 +1,89 @@
+package com.hxg.model.context;
+
+import com.hxg.llm.ratelimit.LlmPriority;
+import lombok.Data;
+
+/**
+ * @author hxg
+ * @description: 单次LLM调用上下文，携带归属信息并在调用过程中累计各轮次的token消耗
+ * @date 2025/8/12
+ */
+@Data
+public class LlmCallContext {
+    public static final String TYPE_CATALOGUE = "CATALOGUE";
+    public static final String TYPE_DOCUMENT = "DOCUMENT";
+    public static final String TYPE_CHAT = "CHAT";
+
+    private String taskId;
+
+    private String catalogueId;
+
+    private String callType;
+
+    /**
+     * 调用前指定时按该模型请求，实际使用的模型由LlmService根据响应元数据回填
+     */
+    private String model;
+
+    /**
+     * 模型路由档位：FAST / STRONG，未经路由时为空
+     */
+    private String routeTier;
+
+    /**
+     * 路由时的复杂度得分
+     */
+    private Double complexityScore;
+
+    /**
+     * 限流排队优先级，为空时按调用类型确定
+     */
+    private LlmPriority priority;
+
+    private int turns;
+
+    private long promptTokens;
+
+    private long completionTokens;
+
+    private long totalTokens;
+
+    /**
+     * 首轮prompt的本地估算token数
+     */
+    private long estimatedTokens;
+
+    /**
+     * 首轮请求实际消耗的prompt token数，用于校准估算器
+     */
+    private long firstTurnPromptTokens;
+
+    private long durationMs;
+
+    /**
+     * 调用预算，为空时不限制
+     */
+    private LlmCallBudget budget;
+
+    /**
+     * 已执行的工具调用次数
+     */
+    private int toolCalls;
+
+    /**
+     * 超出的预算项，未超出时为空
+     */
+    private String budgetBreach;
+
+    public static LlmCallContext of(String taskId, String catalogueId, String callType) {
+        LlmCallContext context = new LlmCallContext();
+        context.setTaskId(taskId);
+        context.setCatalogueId(catalogueId);
+        context.setCallType(callType);
+        return context;
+    }
+
+    public static LlmCallContext chat() {
+        return of(null, null, TYPE_CHAT);
+    }
+}
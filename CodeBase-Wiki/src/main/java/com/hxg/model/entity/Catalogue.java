@@ -1,6 +1,7 @@
 package com.hxg.model.entity;
 
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.AllArgsConstructor;
@@ -40,12 +41,41 @@ public class Catalogue {
 
     private String children;
 
+    /**
+     * 文档内容，存于catalogue_content表，查询目录时不加载，需要时由ICatalogueContentService读写
+     */
+    @TableField(exist = false)
     private String content;
 
     private Integer status;
 
     private String failReason;
 
+    /**
+     * 生成文档使用的模型
+     */
+    private String model;
+
+    /**
+     * 模型路由时的复杂度得分
+     */
+    private Double complexityScore;
+
+    /**
+     * 生成时超出的调用预算项，未超出时为空
+     */
+    private String budgetBreach;
+
+    /**
+     * 正在生成该目录文档的节点，未在处理时为空
+     */
+    private String leaseOwner;
+
+    /**
+     * 处理节点最近一次续约时间，超时未续约视为处理中断
+     */
+    private LocalDateTime heartbeatTime;
+
     private LocalDateTime createTime;
 
     private LocalDateTime updateTime;
@@ -0,0 +1,41 @@
+package com.hxg.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: 目录文档内容，与目录表分开存储并压缩，目录树与列表查询不读取文档内容所在的页
+ * @date 2025/8/25
+ */
+@Data
+@TableName("catalogue_content")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogueContent {
+
+    @TableId(type = IdType.INPUT)
+    private String catalogueId;
+
+    /**
+     * 内容编码，见ContentCodecUtil
+     */
+    private String codec;
+
+    private byte[] content;
+
+    /**
+     * 原文UTF-8字节数
+     */
+    private Integer rawSize;
+
+    private LocalDateTime updateTime;
+}
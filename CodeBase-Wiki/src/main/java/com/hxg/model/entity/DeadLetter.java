@@ -0,0 +1,89 @@
+package com.hxg.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: 死信记录，死信队列中的每条文档生成消息一条
+ * @date 2025/8/24
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@TableName("dead_letter")
+public class DeadLetter {
+    /**
+     * 待处理
+     */
+    public static final String STATUS_DEAD = "DEAD";
+    /**
+     * 已加入重放队列，等待限速投递
+     */
+    public static final String STATUS_REPLAYING = "REPLAYING";
+    /**
+     * 已重新投递到主队列
+     */
+    public static final String STATUS_REPLAYED = "REPLAYED";
+    /**
+     * 无需重放：目录已删除或已通过其他方式生成成功
+     */
+    public static final String STATUS_RESOLVED = "RESOLVED";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String taskId;
+
+    private String catalogueId;
+
+    private String catalogueName;
+
+    /**
+     * 最终失败的异常类型（根因的类名），用于按错误分组
+     */
+    private String errorClass;
+
+    private String errorMessage;
+
+    /**
+     * 是否为单个目录的重新生成任务
+     */
+    private Boolean regeneration;
+
+    /**
+     * 原始消息（JSON）
+     */
+    private String payload;
+
+    private Integer dlqPartition;
+
+    private Long dlqOffset;
+
+    /**
+     * 状态：DEAD / REPLAYING / REPLAYED / RESOLVED
+     */
+    private String status;
+
+    private Integer replayCount;
+
+    /**
+     * 最近一次重放的结果说明
+     */
+    private String note;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updateTime;
+}
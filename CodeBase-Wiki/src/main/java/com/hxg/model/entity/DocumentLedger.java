@@ -0,0 +1,72 @@
+package com.hxg.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: 文档处理幂等台账，每个目录的每次投递（处理代次）一条，
+ * 消费者按代次与尝试次数条件更新状态，同一代次的重复消息不会再次调用LLM
+ * @date 2025/8/23
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@TableName("document_ledger")
+public class DocumentLedger {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    /**
+     * 目录已开启更新的代次，旧代次的消息全部作废
+     */
+    public static final String STATUS_SUPERSEDED = "SUPERSEDED";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String taskId;
+
+    private String catalogueId;
+
+    /**
+     * 处理代次，目录每次被投递（首次生成、重新生成、故障恢复）时加一
+     */
+    private Integer generation;
+
+    /**
+     * 当前代次允许处理的尝试次数，与消息的重试次数一致
+     */
+    private Integer attempt;
+
+    /**
+     * 状态：PENDING / IN_PROGRESS / COMPLETED / FAILED / SUPERSEDED
+     */
+    private String status;
+
+    /**
+     * 正在处理的节点ID
+     */
+    private String owner;
+
+    /**
+     * 被跳过的重复消息数
+     */
+    private Integer duplicates;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,103 @@
+package com.hxg.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: 生成过程追踪记录，每次文档生成尝试一条，任务的拉取、扫描、目录生成阶段各一条
+ * @date 2025/8/21
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@TableName("generation_trace")
+public class GenerationTrace {
+    public static final String STAGE_CLONE = "CLONE";
+    public static final String STAGE_SCAN = "SCAN";
+    public static final String STAGE_CATALOGUE = "CATALOGUE";
+    public static final String STAGE_DOCUMENT = "DOCUMENT";
+
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String taskId;
+
+    /**
+     * 文档生成阶段的目录ID，任务级阶段为空
+     */
+    private String catalogueId;
+
+    private String catalogueName;
+
+    /**
+     * 阶段：CLONE / SCAN / CATALOGUE / DOCUMENT
+     */
+    private String stage;
+
+    /**
+     * 第几次尝试，首次为0
+     */
+    private Integer attempt;
+
+    /**
+     * 结果：COMPLETED / FAILED
+     */
+    private String status;
+
+    /**
+     * 入队到开始处理的等待时间
+     */
+    private Long queueWaitMs;
+
+    /**
+     * 阶段总耗时
+     */
+    private Long durationMs;
+
+    /**
+     * 模型调用耗时（含工具执行）
+     */
+    private Long llmMs;
+
+    private Integer turns;
+
+    private Integer toolCalls;
+
+    private Long toolMs;
+
+    /**
+     * 工具返回结果的总字节数
+     */
+    private Long toolBytes;
+
+    /**
+     * 按工具汇总的调用次数、耗时与字节数(JSON)
+     */
+    private String toolDetail;
+
+    private Long promptTokens;
+
+    private Long completionTokens;
+
+    private Long totalTokens;
+
+    private String model;
+
+    private String failReason;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private LocalDateTime createTime;
+}
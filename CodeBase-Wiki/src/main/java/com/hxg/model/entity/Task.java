@@ -34,10 +34,43 @@ public class Task {
 
     private String userName;
 
+    /**
+     * 项目来源：git / zip，用于故障恢复时重新拉取仓库
+     */
+    private String sourceType;
+
+    private String branch;
+
     private TaskStatusEnum status;
 
     private String failReason;
 
+    /**
+     * 提交时预估的token消耗，用于准入控制
+     */
+    private Long estimatedTokens;
+
+    /**
+     * 生成结果的内容键：规范化仓库地址、提交SHA、prompt版本与模型的摘要，相同键的任务结果可复用
+     */
+    private String contentKey;
+
+    /**
+     * 复用结果的来源任务ID
+     */
+    private String sourceTaskId;
+
+    /**
+     * 仓库快照键，文档生成消费者按键从对象存储拉取仓库内容
+     */
+    private String snapshotKey;
+
+    /**
+     * 排队任务的预计开始时间，由准入控制按队列积压估算
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private LocalDateTime estimatedStartTime;
+
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
     private LocalDateTime createTime;
 
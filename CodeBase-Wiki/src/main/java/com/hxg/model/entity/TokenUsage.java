@@ -0,0 +1,66 @@
+package com.hxg.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: LLM调用Token消耗记录，每次调用（含全部tool轮次）一条
+ * @date 2025/8/12
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@TableName("token_usage")
+public class TokenUsage {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String taskId;
+
+    private String catalogueId;
+
+    /**
+     * 调用类型：CATALOGUE / DOCUMENT / CHAT
+     */
+    private String callType;
+
+    private String model;
+
+    /**
+     * 模型路由档位：FAST / STRONG
+     */
+    private String routeTier;
+
+    private Double complexityScore;
+
+    /**
+     * 模型调用轮次（tool calling每一轮算一次）
+     */
+    private Integer turns;
+
+    private Long promptTokens;
+
+    private Long completionTokens;
+
+    private Long totalTokens;
+
+    /**
+     * 调用前本地估算的prompt token数，用于校准估算器
+     */
+    private Long estimatedTokens;
+
+    private Long durationMs;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private LocalDateTime createTime;
+}
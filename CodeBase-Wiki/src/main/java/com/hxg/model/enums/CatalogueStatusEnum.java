@@ -15,7 +15,8 @@ import lombok.RequiredArgsConstructor;
 public enum CatalogueStatusEnum {
     IN_PROGRESS(1, "进行中"),
     COMPLETED(2, "已完成"),
-    FAILED(3, "处理失败");
+    FAILED(3, "处理失败"),
+    WAITING(4, "等待子目录");
 
     @EnumValue
     private final Integer code;
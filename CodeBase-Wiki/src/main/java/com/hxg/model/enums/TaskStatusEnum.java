@@ -15,7 +15,9 @@ import lombok.RequiredArgsConstructor;
 public enum TaskStatusEnum {
     IN_PROGRESS(1, "进行中"),
     COMPLETED(2, "已完成"),
-    FAILED(3, "处理失败");
+    FAILED(3, "处理失败"),
+    QUEUED(4, "排队中"),
+    ATTACHED(5, "等待相同任务");
 
     @EnumValue
     private final int code;
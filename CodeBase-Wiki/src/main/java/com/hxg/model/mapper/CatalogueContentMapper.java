@@ -0,0 +1,44 @@
+package com.hxg.model.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hxg.model.entity.CatalogueContent;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: 目录文档内容Mapper
+ * @date 2025/8/25
+ */
+@Mapper
+public interface CatalogueContentMapper extends BaseMapper<CatalogueContent> {
+
+    @Insert("INSERT INTO catalogue_content (catalogue_id, codec, content, raw_size, update_time)"
+            + " VALUES (#{catalogueId}, #{codec}, #{content}, #{rawSize}, #{updateTime})"
+            + " ON CONFLICT(catalogue_id) DO UPDATE SET codec = excluded.codec, content = excluded.content,"
+            + " raw_size = excluded.raw_size, update_time = excluded.update_time")
+    int upsert(CatalogueContent content);
+
+    @Select("SELECT COUNT(*) FROM catalogue_content WHERE catalogue_id = #{catalogueId}")
+    long countById(@Param("catalogueId") String catalogueId);
+
+    /**
+     * 复制文档内容，不解压
+     */
+    @Insert("INSERT INTO catalogue_content (catalogue_id, codec, content, raw_size, update_time)"
+            + " SELECT #{targetId}, codec, content, raw_size, #{now} FROM catalogue_content WHERE catalogue_id = #{sourceId}"
+            + " ON CONFLICT(catalogue_id) DO NOTHING")
+    int copy(@Param("sourceId") String sourceId, @Param("targetId") String targetId, @Param("now") LocalDateTime now);
+
+    /**
+     * 删除任务全部目录的文档内容，需在删除目录之前调用
+     */
+    @Delete("DELETE FROM catalogue_content WHERE catalogue_id IN"
+            + " (SELECT catalogue_id FROM catalogue WHERE task_id = #{taskId})")
+    int deleteByTaskId(@Param("taskId") String taskId);
+}
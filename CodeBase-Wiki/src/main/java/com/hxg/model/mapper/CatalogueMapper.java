@@ -3,6 +3,12 @@ package com.hxg.model.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.hxg.model.entity.Catalogue;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * @author hxg
@@ -11,4 +17,127 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface CatalogueMapper extends BaseMapper<Catalogue> {
-}
\ No newline at end of file
+
+    /**
+     * 子目录全部结束（没有进行中或等待中的子目录）时，将等待中的父目录原子地置为进行中
+     * 多个子目录并发完成时只有一个调用者能更新成功，保证父目录只被调度一次
+     *
+     * @return 更新成功返回1
+     */
+    @Update("UPDATE catalogue SET status = #{inProgress}, update_time = #{updateTime}"
+            + " WHERE catalogue_id = #{catalogueId} AND status = #{waiting}"
+            + " AND NOT EXISTS (SELECT 1 FROM catalogue c WHERE c.parent_catalogue_id = #{catalogueId}"
+            + " AND c.status IN (#{inProgress}, #{waiting}))")
+    int markParentReady(@Param("catalogueId") String catalogueId,
+                        @Param("waiting") Integer waiting,
+                        @Param("inProgress") Integer inProgress,
+                        @Param("updateTime") LocalDateTime updateTime);
+
+    /**
+     * 投递失败时结束目录：目录仍为投递前的状态且没有节点持有租约时才更新，
+     * 期间已被消费者抢占或被恢复任务改动的目录返回0
+     */
+    @Update("UPDATE catalogue SET status = #{status}, fail_reason = #{reason}, update_time = #{now}"
+            + " WHERE catalogue_id = #{catalogueId} AND status = #{expected} AND lease_owner IS NULL")
+    int finishUndispatched(@Param("catalogueId") String catalogueId,
+                           @Param("expected") Integer expected,
+                           @Param("status") Integer status,
+                           @Param("reason") String reason,
+                           @Param("now") LocalDateTime now);
+
+    /**
+     * 统计全部任务中进行中或等待子目录的目录数，即待生成的文档积压
+     */
+    @Select("SELECT COUNT(*) FROM catalogue WHERE status IN (#{inProgress}, #{waiting})")
+    long countPending(@Param("inProgress") Integer inProgress, @Param("waiting") Integer waiting);
+
+    @Select("SELECT COUNT(*) FROM catalogue WHERE task_id = #{taskId}")
+    long countByTask(@Param("taskId") String taskId);
+
+    @Select("SELECT COUNT(*) FROM catalogue WHERE task_id = #{taskId} AND status = #{status}")
+    long countByTaskAndStatus(@Param("taskId") String taskId, @Param("status") Integer status);
+
+    /**
+     * 抢占目录的处理租约：目录仍在进行中且没有其他节点持有有效租约时才能成功，
+     * 已完成的重复消息或其他节点正在处理的目录返回0
+     */
+    @Update("UPDATE catalogue SET lease_owner = #{owner}, heartbeat_time = #{now}"
+            + " WHERE catalogue_id = #{catalogueId} AND status = #{inProgress}"
+            + " AND (lease_owner IS NULL OR heartbeat_time IS NULL OR heartbeat_time < #{staleBefore})")
+    int claimLease(@Param("catalogueId") String catalogueId,
+                   @Param("owner") String owner,
+                   @Param("inProgress") Integer inProgress,
+                   @Param("now") LocalDateTime now,
+                   @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Update("UPDATE catalogue SET heartbeat_time = #{now} WHERE catalogue_id = #{catalogueId} AND lease_owner = #{owner}")
+    int renewLease(@Param("catalogueId") String catalogueId, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now);
+
+    @Update("UPDATE catalogue SET lease_owner = NULL, heartbeat_time = NULL"
+            + " WHERE catalogue_id = #{catalogueId} AND lease_owner = #{owner}")
+    int releaseLease(@Param("catalogueId") String catalogueId, @Param("owner") String owner);
+
+    /**
+     * 节点重启后其名下遗留的租约立即过期
+     */
+    @Update("UPDATE catalogue SET heartbeat_time = #{expired} WHERE lease_owner = #{owner}")
+    int expireLeasesOf(@Param("owner") String owner, @Param("expired") LocalDateTime expired);
+
+    /**
+     * 查询中断的目录：租约超时未续约，或无人处理且长时间未更新（消息丢失）
+     */
+    @Select("SELECT * FROM catalogue WHERE status = #{inProgress}"
+            + " AND ((lease_owner IS NOT NULL AND heartbeat_time < #{staleBefore})"
+            + " OR (lease_owner IS NULL AND update_time < #{queuedBefore}))")
+    List<Catalogue> selectStale(@Param("inProgress") Integer inProgress,
+                                @Param("staleBefore") LocalDateTime staleBefore,
+                                @Param("queuedBefore") LocalDateTime queuedBefore);
+
+    /**
+     * 抢占中断目录的恢复权：清除失效租约并刷新更新时间，多个节点同时恢复时只有一个成功
+     */
+    @Update("UPDATE catalogue SET lease_owner = NULL, heartbeat_time = NULL, update_time = #{now}"
+            + " WHERE catalogue_id = #{catalogueId} AND status = #{inProgress}"
+            + " AND ((lease_owner IS NOT NULL AND heartbeat_time < #{staleBefore})"
+            + " OR (lease_owner IS NULL AND update_time < #{queuedBefore}))")
+    int resetStale(@Param("catalogueId") String catalogueId,
+                   @Param("inProgress") Integer inProgress,
+                   @Param("staleBefore") LocalDateTime staleBefore,
+                   @Param("queuedBefore") LocalDateTime queuedBefore,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * 查询子目录已全部结束却仍在等待的父目录（子目录结束后、父目录投递前中断）
+     */
+    @Select("SELECT * FROM catalogue p WHERE p.status = #{waiting} AND p.update_time < #{before}"
+            + " AND NOT EXISTS (SELECT 1 FROM catalogue c WHERE c.parent_catalogue_id = p.catalogue_id"
+            + " AND c.status IN (#{inProgress}, #{waiting}))")
+    List<Catalogue> selectReadyParents(@Param("waiting") Integer waiting,
+                                       @Param("inProgress") Integer inProgress,
+                                       @Param("before") LocalDateTime before);
+
+    /**
+     * 任务无法恢复时结束其全部未完成目录
+     */
+    @Update("UPDATE catalogue SET status = #{failed}, fail_reason = #{reason}, update_time = #{now}"
+            + " WHERE task_id = #{taskId} AND status IN (#{inProgress}, #{waiting})")
+    int failUnfinished(@Param("taskId") String taskId,
+                       @Param("failed") Integer failed,
+                       @Param("inProgress") Integer inProgress,
+                       @Param("waiting") Integer waiting,
+                       @Param("reason") String reason,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * 重放死信前将目录重新置为进行中：仅失败的目录或重新生成失败后保留原文档的目录可以重放，
+     * 已删除或已重新生成成功的目录返回0
+     */
+    @Update("UPDATE catalogue SET status = #{inProgress}, update_time = #{now} WHERE catalogue_id = #{catalogueId}"
+            + " AND (status = #{failed} OR (status = #{completed} AND fail_reason IS NOT NULL))")
+    int reopenForReplay(@Param("catalogueId") String catalogueId,
+                        @Param("inProgress") Integer inProgress,
+                        @Param("failed") Integer failed,
+                        @Param("completed") Integer completed,
+                        @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,52 @@
+package com.hxg.model.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hxg.model.entity.DeadLetter;
+import com.hxg.model.vo.DeadLetterGroupVo;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 死信记录Mapper
+ * @date 2025/8/24
+ */
+@Mapper
+public interface DeadLetterMapper extends BaseMapper<DeadLetter> {
+
+    /**
+     * 按任务与错误类型分组统计指定状态的死信
+     */
+    @Select("SELECT d.task_id AS task_id, MAX(t.project_name) AS project_name, d.error_class AS error_class,"
+            + " COUNT(*) AS count, MIN(d.create_time) AS first_time, MAX(d.create_time) AS last_time,"
+            + " MAX(d.error_message) AS sample_error"
+            + " FROM dead_letter d LEFT JOIN task t ON t.task_id = d.task_id"
+            + " WHERE d.status = #{status} AND (#{taskId} IS NULL OR d.task_id = #{taskId})"
+            + " GROUP BY d.task_id, d.error_class ORDER BY count DESC")
+    List<DeadLetterGroupVo> groupByTaskAndError(@Param("status") String status, @Param("taskId") String taskId);
+
+    /**
+     * 条件更新死信状态，并发重放同一条死信时只有一个调用者成功
+     */
+    @Update("UPDATE dead_letter SET status = #{to}, update_time = #{now} WHERE id = #{id} AND status = #{from}")
+    int transition(@Param("id") Long id, @Param("from") String from, @Param("to") String to,
+                   @Param("now") LocalDateTime now);
+
+    @Update("UPDATE dead_letter SET status = #{status}, note = #{note}, replay_count = replay_count + #{replayed},"
+            + " update_time = #{now} WHERE id = #{id}")
+    int finishReplay(@Param("id") Long id, @Param("status") String status, @Param("note") String note,
+                     @Param("replayed") int replayed, @Param("now") LocalDateTime now);
+
+    /**
+     * 将超过指定时间未更新的重放中死信退回待处理，处理重放批次的节点重启后这些死信不会再被投递
+     */
+    @Update("UPDATE dead_letter SET status = #{to}, note = #{note}, update_time = #{now}"
+            + " WHERE status = #{from} AND update_time < #{staleBefore}")
+    int revertStale(@Param("from") String from, @Param("to") String to, @Param("note") String note,
+                    @Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+}
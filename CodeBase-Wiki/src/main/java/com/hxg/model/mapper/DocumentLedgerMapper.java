@@ -0,0 +1,84 @@
+package com.hxg.model.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hxg.model.entity.DocumentLedger;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: 文档处理幂等台账Mapper，所有状态流转均为带前置条件的单条更新
+ * @date 2025/8/23
+ */
+@Mapper
+public interface DocumentLedgerMapper extends BaseMapper<DocumentLedger> {
+
+    /**
+     * 开启目录的下一个处理代次，状态为PENDING
+     */
+    @Insert("INSERT INTO document_ledger (task_id, catalogue_id, generation, attempt, status, duplicates, create_time, update_time)"
+            + " SELECT #{taskId}, #{catalogueId}, COALESCE(MAX(generation), 0) + 1, 0, 'PENDING', 0, #{now}, #{now}"
+            + " FROM document_ledger WHERE catalogue_id = #{catalogueId}")
+    int openGeneration(@Param("taskId") String taskId, @Param("catalogueId") String catalogueId,
+                       @Param("now") LocalDateTime now);
+
+    @Select("SELECT MAX(generation) FROM document_ledger WHERE catalogue_id = #{catalogueId}")
+    Integer selectLatestGeneration(@Param("catalogueId") String catalogueId);
+
+    /**
+     * 作废目录旧代次中尚未结束的记录，排队中的旧消息到达时直接跳过
+     */
+    @Update("UPDATE document_ledger SET status = 'SUPERSEDED', update_time = #{now}"
+            + " WHERE catalogue_id = #{catalogueId} AND generation < #{generation}"
+            + " AND status IN ('PENDING', 'IN_PROGRESS', 'FAILED')")
+    int supersedeBefore(@Param("catalogueId") String catalogueId, @Param("generation") Integer generation,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * 作废任务下全部未结束的记录，目录被撤销后排队中的消息到达时直接跳过
+     */
+    @Update("UPDATE document_ledger SET status = 'SUPERSEDED', update_time = #{now}"
+            + " WHERE task_id = #{taskId} AND status IN ('PENDING', 'IN_PROGRESS', 'FAILED')")
+    int supersedeByTask(@Param("taskId") String taskId, @Param("now") LocalDateTime now);
+
+    /**
+     * PENDING -> IN_PROGRESS，只有代次与尝试次数都匹配的第一条消息能更新成功
+     */
+    @Update("UPDATE document_ledger SET status = 'IN_PROGRESS', owner = #{owner}, update_time = #{now}"
+            + " WHERE catalogue_id = #{catalogueId} AND generation = #{generation}"
+            + " AND attempt = #{attempt} AND status = 'PENDING'")
+    int claim(@Param("catalogueId") String catalogueId, @Param("generation") Integer generation,
+              @Param("attempt") Integer attempt, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    /**
+     * IN_PROGRESS -> 结束状态（COMPLETED / FAILED）
+     */
+    @Update("UPDATE document_ledger SET status = #{status}, update_time = #{now}"
+            + " WHERE catalogue_id = #{catalogueId} AND generation = #{generation}"
+            + " AND attempt = #{attempt} AND status = 'IN_PROGRESS'")
+    int finish(@Param("catalogueId") String catalogueId, @Param("generation") Integer generation,
+               @Param("attempt") Integer attempt, @Param("status") String status, @Param("now") LocalDateTime now);
+
+    /**
+     * IN_PROGRESS -> PENDING，并把允许处理的尝试次数改为重试消息的次数；
+     * attempt与当前尝试相同时用于处理被中断、消息将重新投递的场景
+     */
+    @Update("UPDATE document_ledger SET status = 'PENDING', attempt = #{nextAttempt}, owner = NULL, update_time = #{now}"
+            + " WHERE catalogue_id = #{catalogueId} AND generation = #{generation}"
+            + " AND attempt = #{attempt} AND status = 'IN_PROGRESS'")
+    int reopen(@Param("catalogueId") String catalogueId, @Param("generation") Integer generation,
+               @Param("attempt") Integer attempt, @Param("nextAttempt") Integer nextAttempt,
+               @Param("now") LocalDateTime now);
+
+    @Update("UPDATE document_ledger SET duplicates = duplicates + 1"
+            + " WHERE catalogue_id = #{catalogueId} AND generation = #{generation}")
+    int incrementDuplicates(@Param("catalogueId") String catalogueId, @Param("generation") Integer generation);
+
+    @Select("SELECT COALESCE(SUM(duplicates), 0) FROM document_ledger WHERE task_id = #{taskId}")
+    long sumDuplicatesByTask(@Param("taskId") String taskId);
+}
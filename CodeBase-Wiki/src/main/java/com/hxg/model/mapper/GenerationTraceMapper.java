@@ -0,0 +1,14 @@
+package com.hxg.model.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hxg.model.entity.GenerationTrace;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * @author hxg
+ * @description: 生成过程追踪Mapper
+ * @date 2025/8/21
+ */
+@Mapper
+public interface GenerationTraceMapper extends BaseMapper<GenerationTrace> {
+}
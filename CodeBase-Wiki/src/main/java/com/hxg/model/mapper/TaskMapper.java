@@ -3,6 +3,11 @@ package com.hxg.model.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.hxg.model.entity.Task;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
 
 /**
  * @author hxg
@@ -11,4 +16,27 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface TaskMapper extends BaseMapper<Task> {
-}
\ No newline at end of file
+
+    @Select("SELECT COUNT(*) FROM task WHERE status = #{status}")
+    long countByStatus(@Param("status") int status);
+
+    /**
+     * 指定状态任务的预估token数之和
+     */
+    @Select("SELECT COALESCE(SUM(estimated_tokens), 0) FROM task WHERE status = #{status}")
+    long sumEstimatedTokens(@Param("status") int status);
+
+    /**
+     * 用户指定状态任务的预估token数之和
+     */
+    @Select("SELECT COALESCE(SUM(estimated_tokens), 0) FROM task WHERE user_name = #{userName} AND status = #{status}")
+    long sumEstimatedTokensByUser(@Param("userName") String userName, @Param("status") int status);
+
+    /**
+     * 抢占中断任务的恢复权：仅当任务仍为该状态且超时未更新时刷新更新时间
+     */
+    @Update("UPDATE task SET update_time = #{now} WHERE task_id = #{taskId} AND status = #{status}"
+            + " AND update_time < #{staleBefore}")
+    int touchIfStale(@Param("taskId") String taskId, @Param("status") int status,
+                     @Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+}
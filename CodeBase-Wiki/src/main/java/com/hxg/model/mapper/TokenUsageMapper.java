@@ -0,0 +1,62 @@
+package com.hxg.model.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hxg.model.entity.TokenUsage;
+import com.hxg.model.vo.TokenUsageStatVo;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: Token消耗记录Mapper
+ * @date 2025/8/12
+ */
+@Mapper
+public interface TokenUsageMapper extends BaseMapper<TokenUsage> {
+
+    String STAT_COLUMNS = "COUNT(*) AS calls, SUM(turns) AS turns, SUM(prompt_tokens) AS prompt_tokens, "
+            + "SUM(completion_tokens) AS completion_tokens, SUM(total_tokens) AS total_tokens, SUM(duration_ms) AS duration_ms";
+
+    @Select("SELECT task_id AS dimension, " + STAT_COLUMNS
+            + " FROM token_usage WHERE task_id = #{taskId} GROUP BY task_id")
+    TokenUsageStatVo sumByTask(@Param("taskId") String taskId);
+
+    @Select("SELECT call_type AS dimension, " + STAT_COLUMNS
+            + " FROM token_usage WHERE task_id = #{taskId} GROUP BY call_type")
+    List<TokenUsageStatVo> sumByTaskGroupByCallType(@Param("taskId") String taskId);
+
+    @Select("SELECT catalogue_id AS dimension, MAX(model) AS model, " + STAT_COLUMNS
+            + " FROM token_usage WHERE task_id = #{taskId} AND catalogue_id IS NOT NULL"
+            + " GROUP BY catalogue_id ORDER BY total_tokens DESC")
+    List<TokenUsageStatVo> sumByTaskGroupByCatalogue(@Param("taskId") String taskId);
+
+    @Select("SELECT model AS dimension, model, " + STAT_COLUMNS
+            + " FROM token_usage WHERE substr(create_time, 1, 10) BETWEEN #{startDate} AND #{endDate}"
+            + " GROUP BY model ORDER BY total_tokens DESC")
+    List<TokenUsageStatVo> sumByModel(@Param("startDate") String startDate, @Param("endDate") String endDate);
+
+    @Select("SELECT substr(create_time, 1, 10) AS dimension, model, " + STAT_COLUMNS
+            + " FROM token_usage WHERE substr(create_time, 1, 10) >= #{startDate}"
+            + " GROUP BY substr(create_time, 1, 10), model ORDER BY dimension DESC, total_tokens DESC")
+    List<TokenUsageStatVo> sumByDay(@Param("startDate") String startDate);
+
+    @Select("SELECT route_tier AS dimension, model, " + STAT_COLUMNS
+            + " FROM token_usage WHERE route_tier IS NOT NULL AND substr(create_time, 1, 10) >= #{startDate}"
+            + " GROUP BY route_tier, model ORDER BY dimension, total_tokens DESC")
+    List<TokenUsageStatVo> sumByRouteTier(@Param("startDate") String startDate);
+
+    @Select("SELECT call_type AS dimension, " + STAT_COLUMNS
+            + " FROM token_usage WHERE call_type = #{callType} AND substr(create_time, 1, 10) >= #{startDate}"
+            + " GROUP BY call_type")
+    TokenUsageStatVo sumByCallType(@Param("callType") String callType, @Param("startDate") String startDate);
+
+    @Select("SELECT COALESCE(SUM(total_tokens), 0) FROM token_usage WHERE substr(create_time, 1, 10) >= #{startDate}")
+    long sumTokensSince(@Param("startDate") String startDate);
+
+    @Select("SELECT COALESCE(SUM(u.total_tokens), 0) FROM token_usage u JOIN task t ON u.task_id = t.task_id"
+            + " WHERE t.user_name = #{userName} AND substr(u.create_time, 1, 10) >= #{startDate}")
+    long sumTokensByUserSince(@Param("userName") String userName, @Param("startDate") String startDate);
+}
@@ -0,0 +1,30 @@
+package com.hxg.model.param;
+
+import lombok.Data;
+
+/**
+ * @author hxg
+ * @description: 游标分页查询参数，按(创建时间, id)倒序，翻页耗时与页码无关
+ * @date 2025/8/25
+ */
+@Data
+public class CursorPageParams {
+
+    /**
+     * 上一页返回的nextCursor，查询第一页时为空
+     */
+    private String cursor;
+
+    private Integer pageSize = 20;
+
+    private String projectName;
+
+    private String taskId;
+
+    private String userName;
+
+    /**
+     * 是否返回总数：有筛选条件时为精确计数，无筛选条件时为定期刷新的近似总数
+     */
+    private Boolean withCount = false;
+}
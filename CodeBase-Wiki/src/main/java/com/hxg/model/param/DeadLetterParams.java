@@ -0,0 +1,37 @@
+package com.hxg.model.param;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 死信查询、重放与清理参数；ids优先，否则按taskId、errorClass筛选，
+ * 重放与清理在未指定任何条件时需要显式传all=true
+ * @date 2025/8/24
+ */
+@Data
+public class DeadLetterParams {
+
+    private Integer pageIndex = 1;
+
+    private Integer pageSize = 10;
+
+    private List<Long> ids;
+
+    private String taskId;
+
+    private String errorClass;
+
+    /**
+     * 查询的状态，为空时查询全部
+     */
+    private String status;
+
+    private boolean all;
+
+    /**
+     * 重放速率（条/秒），为空时使用配置的默认值
+     */
+    private Double ratePerSecond;
+}
@@ -0,0 +1,27 @@
+package com.hxg.model.param;
+
+import lombok.Data;
+
+/**
+ * @author hxg
+ * @description: 单个目录重新生成参数
+ * @date 2025/8/21
+ */
+@Data
+public class RegenerateCatalogueParams {
+
+    private String taskId;
+
+    private String catalogueId;
+
+    /**
+     * 是否同时重新生成其全部子目录
+     */
+    private Boolean includeSubtree = false;
+
+    /**
+     * 对新文档的补充要求，可为空
+     */
+    private String hint;
+
+}
@@ -0,0 +1,53 @@
+package com.hxg.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @author hxg
+ * @description: 游标分页结果
+ * @date 2025/8/25
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageVo<T> {
+
+    private List<T> records;
+
+    /**
+     * 下一页的游标，没有下一页时为空
+     */
+    private String nextCursor;
+
+    private Boolean hasMore;
+
+    /**
+     * 总数，未请求时为空
+     */
+    private Long total;
+
+    /**
+     * 总数是否为近似值
+     */
+    private Boolean totalApproximate;
+
+    /**
+     * 由多查询一条的结果构建分页：查到pageSize + 1条说明还有下一页，游标取本页最后一条
+     */
+    public static <T> CursorPageVo<T> of(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> records = hasMore ? rows.subList(0, pageSize) : rows;
+        return CursorPageVo.<T>builder()
+                .records(records)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? cursorOf.apply(records.get(records.size() - 1)) : null)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.hxg.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author hxg
+ * @description: 按任务与错误类型分组的死信统计
+ * @date 2025/8/24
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeadLetterGroupVo {
+    private String taskId;
+
+    private String projectName;
+
+    private String errorClass;
+
+    private Long count;
+
+    private String firstTime;
+
+    private String lastTime;
+
+    /**
+     * 该组中的一条错误信息示例
+     */
+    private String sampleError;
+}
@@ -0,0 +1,130 @@
+package com.hxg.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 文档生成队列运行状态：各主题分区的消费积压、重试与死信深度、并发占用、处理耗时分布及预计排空时间
+ * @date 2025/8/25
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueueStatsVo {
+    private String groupId;
+
+    private String snapshotTime;
+
+    /**
+     * 积压查询失败时的错误信息，此时topics为空，其余指标仍然有效
+     */
+    private String error;
+
+    private List<TopicStat> topics;
+
+    /**
+     * 主队列与重新生成队列正在处理的消息数及并发上限
+     */
+    private Integer inFlight;
+
+    private Integer maxConcurrency;
+
+    private Integer regenerationInFlight;
+
+    private Integer regenerationConcurrency;
+
+    /**
+     * 重试队列未消费的消息数
+     */
+    private Long retryDepth;
+
+    /**
+     * 死信队列未落库的消息数
+     */
+    private Long dlqDepth;
+
+    /**
+     * 已落库待处理的死信数
+     */
+    private Long pendingDeadLetters;
+
+    /**
+     * 统计窗口内每分钟处理的消息数
+     */
+    private Double throughputPerMinute;
+
+    /**
+     * 按当前吞吐排空主队列、重新生成队列与重试队列积压的预计秒数，无吞吐时为空
+     */
+    private Long estimatedDrainSeconds;
+
+    /**
+     * 按处理结果汇总的处理耗时
+     */
+    private List<ProcessingStat> processing;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TopicStat {
+        private String topic;
+
+        /**
+         * 主题用途：main / regeneration / retry / dlq
+         */
+        private String role;
+
+        private Long lag;
+
+        private List<PartitionStat> partitions;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PartitionStat {
+        private Integer partition;
+
+        private Long endOffset;
+
+        /**
+         * 消费组已提交的位点，未提交过时为空
+         */
+        private Long committedOffset;
+
+        private Long lag;
+
+        /**
+         * 本节点统计窗口内每分钟处理的消息数
+         */
+        private Double throughputPerMinute;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ProcessingStat {
+        private String outcome;
+
+        private Long count;
+
+        private Long meanMs;
+
+        private Long maxMs;
+
+        private Long p50Ms;
+
+        private Long p95Ms;
+
+        private Long p99Ms;
+    }
+}
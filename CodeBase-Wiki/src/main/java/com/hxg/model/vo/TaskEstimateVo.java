@@ -0,0 +1,96 @@
+package com.hxg.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author hxg
+ * @description: Wiki任务预估结果及准入决策
+ * @date 2025/8/19
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskEstimateVo {
+    /**
+     * 文本文件数
+     */
+    private Integer fileCount;
+
+    /**
+     * 仓库源码总token数
+     */
+    private Long sourceTokens;
+
+    private Integer fileTreeLines;
+
+    private Long fileTreeTokens;
+
+    /**
+     * 目录生成分片数，未分片为0
+     */
+    private Integer catalogueShards;
+
+    /**
+     * 目录生成的模型调用轮次
+     */
+    private Long catalogueCalls;
+
+    private Long catalogueTokens;
+
+    /**
+     * 预计生成的文档篇数
+     */
+    private Integer documentCount;
+
+    private Long documentCalls;
+
+    private Long documentTokens;
+
+    private Long totalTokens;
+
+    /**
+     * 模型调用总轮次，即占用的限流请求数
+     */
+    private Long llmCalls;
+
+    /**
+     * 预计费用（元）
+     */
+    private Double estimatedCost;
+
+    /**
+     * 当前排队待生成的文档数
+     */
+    private Long backlogDocuments;
+
+    /**
+     * 待生成文档的预计token数
+     */
+    private Long backlogTokens;
+
+    /**
+     * 排队中任务的预估token数之和
+     */
+    private Long queuedTokens;
+
+    /**
+     * 按限流速率与消费并发排空待生成文档所需的分钟数
+     */
+    private Double queueMinutes;
+
+    /**
+     * 预计完成时间（分钟），含待生成文档与排队任务的等待时间
+     */
+    private Double etaMinutes;
+
+    /**
+     * 准入决策：ADMIT / DEFER / REJECT
+     */
+    private String decision;
+
+    private String reason;
+}
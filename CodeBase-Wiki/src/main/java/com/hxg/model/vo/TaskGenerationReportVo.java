@@ -0,0 +1,112 @@
+package com.hxg.model.vo;
+
+import com.hxg.model.entity.GenerationTrace;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author hxg
+ * @description: 任务生成过程报告：各阶段耗时、文档生成耗时与消耗的分位数分布、工具调用汇总及最慢页面
+ * @date 2025/8/21
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskGenerationReportVo {
+    private String taskId;
+
+    /**
+     * 仓库拉取/解压耗时
+     */
+    private Long cloneMs;
+
+    /**
+     * 文件树扫描耗时
+     */
+    private Long scanMs;
+
+    /**
+     * 目录生成耗时（流式投递时包含投递叶子目录的时间）
+     */
+    private Long catalogueMs;
+
+    /**
+     * 目录生成消耗的token数
+     */
+    private Long catalogueTokens;
+
+    /**
+     * 有文档生成记录的目录数
+     */
+    private Integer documentCount;
+
+    /**
+     * 文档生成尝试次数与其中的重试次数
+     */
+    private Integer attempts;
+
+    private Integer retries;
+
+    /**
+     * 按最后一次尝试的结果统计的成功与失败目录数
+     */
+    private Integer completedCount;
+
+    private Integer failedCount;
+
+    private Long documentTokens;
+
+    private Long toolCalls;
+
+    private Long toolBytes;
+
+    /**
+     * 在调用LLM前被跳过的重复文档生成消息数
+     */
+    private Long duplicatesSkipped;
+
+    /**
+     * 文档生成各指标的分布，键为queueWaitMs、durationMs、llmMs、toolMs、turns、toolCalls、totalTokens
+     */
+    private Map<String, Distribution> breakdown;
+
+    /**
+     * 按工具汇总的调用统计，按总耗时降序
+     */
+    private List<ToolStat> tools;
+
+    /**
+     * 耗时最长的文档生成尝试
+     */
+    private List<GenerationTrace> slowestPages;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Distribution {
+        private Long p50;
+        private Long p95;
+        private Long max;
+        private Long avg;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ToolStat {
+        private String toolName;
+        private Long calls;
+        private Long failures;
+        private Long durationMs;
+        private Long maxMs;
+        private Long bytes;
+    }
+}
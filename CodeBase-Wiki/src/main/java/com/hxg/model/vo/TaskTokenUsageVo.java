@@ -0,0 +1,36 @@
+package com.hxg.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 任务维度的Token消耗
+ * @date 2025/8/12
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskTokenUsageVo {
+    private String taskId;
+
+    /**
+     * 任务总消耗
+     */
+    private TokenUsageStatVo total;
+
+    /**
+     * 按调用类型（目录生成/文档生成）拆分
+     */
+    private List<TokenUsageStatVo> byCallType;
+
+    /**
+     * 按目录拆分
+     */
+    private List<TokenUsageStatVo> byCatalogue;
+}
@@ -17,6 +17,7 @@ public class TaskVo {
     private String userName;
     private Integer status;
     private String failReason;
+    private String estimatedStartTime;
     private String createTime;
     private String updateTime;
 
@@ -32,6 +33,7 @@ public class TaskVo {
         vo.setUserName(task.getUserName());
         vo.setStatus(task.getStatus().getCode());
         vo.setFailReason(task.getFailReason());
+        vo.setEstimatedStartTime(task.getEstimatedStartTime() != null ? task.getEstimatedStartTime().toString() : null);
         vo.setCreateTime(task.getCreateTime() != null ? task.getCreateTime().toString() : null);
         vo.setUpdateTime(task.getUpdateTime() != null ? task.getUpdateTime().toString() : null);
         return vo;
@@ -0,0 +1,36 @@
+package com.hxg.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author hxg
+ * @description: Token消耗聚合统计
+ * @date 2025/8/12
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenUsageStatVo {
+    /**
+     * 聚合维度的取值，如catalogueId、模型名或日期
+     */
+    private String dimension;
+
+    private String model;
+
+    private Long calls;
+
+    private Long turns;
+
+    private Long promptTokens;
+
+    private Long completionTokens;
+
+    private Long totalTokens;
+
+    private Long durationMs;
+}
@@ -0,0 +1,250 @@
+package com.hxg.planner;
+
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.enums.TaskStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.model.mapper.TokenUsageMapper;
+import com.hxg.model.vo.QueueStatsVo;
+import com.hxg.model.vo.TaskEstimateVo;
+import com.hxg.queue.service.QueueMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: Wiki任务准入控制
+ * 单任务预估超过上限或超过整日预算的任务直接拒绝；
+ * 今日已消耗加进行中任务预估超出用户/全局每日预算、进行中任务过多或文档积压过长时延后执行，
+ * 避免单个超大仓库占满限流配额和消费者；
+ * 拉取仓库前先按进行中任务数与文档生成队列积压检查容量，繁忙时新任务不拉取仓库直接排队，突发提交时磁盘占用保持有界
+ * @date 2025/8/19
+ */
+@Slf4j
+@Component
+public class AdmissionPolicy {
+
+    public enum Decision {
+        ADMIT, DEFER, REJECT
+    }
+
+    private final TaskPlanner taskPlanner;
+    private final TaskMapper taskMapper;
+    private final TokenUsageMapper tokenUsageMapper;
+    private final CatalogueMapper catalogueMapper;
+    private final QueueMetricsService queueMetricsService;
+
+    @Value("${project.wiki.admission.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 单任务预估token上限，0为不限制
+     */
+    @Value("${project.wiki.admission.max-task-tokens:30000000}")
+    private long maxTaskTokens = 30_000_000;
+
+    /**
+     * 单用户每日token预算，0为不限制
+     */
+    @Value("${project.wiki.admission.user-daily-tokens:60000000}")
+    private long userDailyTokens = 60_000_000;
+
+    /**
+     * 全局每日token预算，0为不限制
+     */
+    @Value("${project.wiki.admission.global-daily-tokens:0}")
+    private long globalDailyTokens;
+
+    /**
+     * 同时生成目录的任务数上限，0为不限制
+     */
+    @Value("${project.wiki.admission.max-running-tasks:3}")
+    private long maxRunningTasks = 3;
+
+    /**
+     * 待生成文档积压的排空时间上限（分钟），0为不限制
+     */
+    @Value("${project.wiki.admission.max-queue-minutes:120}")
+    private double maxQueueMinutes = 120;
+
+    /**
+     * 待生成文档积压（文档生成队列消费延迟与未完成目录数中的较大者）上限，超过时新任务排队，0为不限制
+     */
+    @Value("${project.wiki.admission.max-backlog-documents:500}")
+    private long maxBacklogDocuments = 500;
+
+    /**
+     * 估算排队任务开始时间时单个任务占用执行槽位的分钟数
+     */
+    @Value("${project.wiki.admission.task-slot-minutes:10}")
+    private double taskSlotMinutes = 10;
+
+    public AdmissionPolicy(TaskPlanner taskPlanner, TaskMapper taskMapper, TokenUsageMapper tokenUsageMapper,
+                           CatalogueMapper catalogueMapper, QueueMetricsService queueMetricsService) {
+        this.taskPlanner = taskPlanner;
+        this.taskMapper = taskMapper;
+        this.tokenUsageMapper = tokenUsageMapper;
+        this.catalogueMapper = catalogueMapper;
+        this.queueMetricsService = queueMetricsService;
+    }
+
+    /**
+     * 拉取仓库前按当前负载检查能否立即开始：已有任务排队、进行中任务达到上限、
+     * 文档积压或排空时间超过上限时延后，并估算可以开始的时间
+     *
+     * @param queuedAhead 排在本任务之前的排队任务数
+     */
+    public CapacityCheck checkCapacity(long queuedAhead) {
+        if (!enabled) {
+            return new CapacityCheck(Decision.ADMIT, null, 0, taskSlotMinutes);
+        }
+        long running = taskMapper.countByStatus(TaskStatusEnum.IN_PROGRESS.getCode());
+        long backlog = catalogueMapper.countPending(
+                CatalogueStatusEnum.IN_PROGRESS.getCode(), CatalogueStatusEnum.WAITING.getCode());
+        double throughputPerMinute = 0;
+        QueueStatsVo snapshot = queueMetricsService.getLastSnapshot();
+        if (snapshot != null && snapshot.getError() == null && snapshot.getTopics() != null) {
+            long lag = snapshot.getTopics().stream()
+                    .filter(topic -> !QueueMetricsService.ROLE_DLQ.equals(topic.getRole()))
+                    .mapToLong(QueueStatsVo.TopicStat::getLag)
+                    .sum();
+            backlog = Math.max(backlog, lag);
+            throughputPerMinute = snapshot.getThroughputPerMinute() != null ? snapshot.getThroughputPerMinute() : 0;
+        }
+
+        String reason = null;
+        double waitMinutes = 0;
+        if (maxRunningTasks > 0 && running >= maxRunningTasks) {
+            reason = String.format("进行中任务%d个，已达上限%d", running, maxRunningTasks);
+            waitMinutes = taskSlotMinutes;
+        }
+        if (maxBacklogDocuments > 0 && backlog > maxBacklogDocuments) {
+            reason = reason != null ? reason : String.format("待生成文档%d篇，超过积压上限%d", backlog, maxBacklogDocuments);
+            waitMinutes = Math.max(waitMinutes, throughputPerMinute > 0
+                    ? (backlog - maxBacklogDocuments) / throughputPerMinute : taskSlotMinutes);
+        }
+        if (maxQueueMinutes > 0 && throughputPerMinute > 0 && backlog / throughputPerMinute > maxQueueMinutes) {
+            double drainMinutes = backlog / throughputPerMinute;
+            reason = reason != null ? reason : String.format("待生成文档%d篇，预计%.1f分钟才能排空，超过上限%.0f分钟",
+                    backlog, drainMinutes, maxQueueMinutes);
+            waitMinutes = Math.max(waitMinutes, drainMinutes - maxQueueMinutes);
+        }
+        if (reason == null && queuedAhead > 0) {
+            reason = String.format("前面还有%d个排队任务", queuedAhead);
+        }
+        double slotMinutes = taskSlotMinutes / Math.max(maxRunningTasks, 1);
+        CapacityCheck check = new CapacityCheck(reason == null ? Decision.ADMIT : Decision.DEFER, reason,
+                waitMinutes, slotMinutes);
+        if (check.decision() == Decision.DEFER) {
+            log.info("任务容量检查: running={}, backlog={}, throughputPerMinute={}, queuedAhead={}, reason={}",
+                    running, backlog, throughputPerMinute, queuedAhead, reason);
+        }
+        return check;
+    }
+
+    /**
+     * 预估仓库并给出准入决策
+     *
+     * @param userName 提交任务的用户
+     * @param localPath 已拉取到本地的仓库路径
+     * @return 包含决策与原因的预估结果
+     */
+    public TaskEstimateVo evaluate(String userName, String localPath) {
+        TaskEstimateVo estimate = taskPlanner.estimate(localPath);
+        decide(userName, estimate);
+        log.info("任务准入决策: userName={}, totalTokens={}, decision={}, reason={}",
+                userName, estimate.getTotalTokens(), estimate.getDecision(), estimate.getReason());
+        return estimate;
+    }
+
+    /**
+     * 按预算与当前负载为预估结果填充决策
+     */
+    public void decide(String userName, TaskEstimateVo estimate) {
+        if (!enabled) {
+            setDecision(estimate, Decision.ADMIT, null);
+            return;
+        }
+        long tokens = estimate.getTotalTokens();
+        if (maxTaskTokens > 0 && tokens > maxTaskTokens) {
+            setDecision(estimate, Decision.REJECT,
+                    String.format("预计消耗%d token，超过单任务上限%d", tokens, maxTaskTokens));
+            return;
+        }
+
+        String today = LocalDate.now().toString();
+        int inProgress = TaskStatusEnum.IN_PROGRESS.getCode();
+        if (userDailyTokens > 0 && userName != null) {
+            if (tokens > userDailyTokens) {
+                setDecision(estimate, Decision.REJECT,
+                        String.format("预计消耗%d token，超过用户每日预算%d", tokens, userDailyTokens));
+                return;
+            }
+            long committed = tokenUsageMapper.sumTokensByUserSince(userName, today)
+                    + taskMapper.sumEstimatedTokensByUser(userName, inProgress);
+            if (committed + tokens > userDailyTokens) {
+                setDecision(estimate, Decision.DEFER,
+                        String.format("用户今日已用及进行中任务预计%d token，加上本任务超过每日预算%d", committed, userDailyTokens));
+                return;
+            }
+        }
+        if (globalDailyTokens > 0) {
+            if (tokens > globalDailyTokens) {
+                setDecision(estimate, Decision.REJECT,
+                        String.format("预计消耗%d token，超过全局每日预算%d", tokens, globalDailyTokens));
+                return;
+            }
+            long committed = tokenUsageMapper.sumTokensSince(today) + taskMapper.sumEstimatedTokens(inProgress);
+            if (committed + tokens > globalDailyTokens) {
+                setDecision(estimate, Decision.DEFER,
+                        String.format("今日已用及进行中任务预计%d token，加上本任务超过全局每日预算%d", committed, globalDailyTokens));
+                return;
+            }
+        }
+        if (maxRunningTasks > 0) {
+            long running = taskMapper.countByStatus(inProgress);
+            if (running >= maxRunningTasks) {
+                setDecision(estimate, Decision.DEFER,
+                        String.format("进行中任务%d个，已达上限%d", running, maxRunningTasks));
+                return;
+            }
+        }
+        if (maxQueueMinutes > 0 && estimate.getQueueMinutes() > maxQueueMinutes) {
+            setDecision(estimate, Decision.DEFER,
+                    String.format("待生成文档%d篇，预计%.1f分钟才能排空，超过上限%.0f分钟",
+                            estimate.getBacklogDocuments(), estimate.getQueueMinutes(), maxQueueMinutes));
+            return;
+        }
+        setDecision(estimate, Decision.ADMIT, null);
+    }
+
+    private void setDecision(TaskEstimateVo estimate, Decision decision, String reason) {
+        estimate.setDecision(decision.name());
+        estimate.setReason(reason);
+    }
+
+    /**
+     * 容量检查结果
+     *
+     * @param waitMinutes 队首任务预计还需等待的分钟数
+     * @param slotMinutes 每个排在前面的任务使预计开始时间推迟的分钟数
+     */
+    public record CapacityCheck(Decision decision, String reason, double waitMinutes, double slotMinutes) {
+
+        public boolean isDeferred() {
+            return decision == Decision.DEFER;
+        }
+
+        /**
+         * 排在第position位（队首为0）的任务的预计开始时间
+         */
+        public LocalDateTime estimateStartTime(long position) {
+            long seconds = Math.round((waitMinutes + position * slotMinutes) * 60);
+            return LocalDateTime.now().plusSeconds(seconds);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.hxg.planner;
+
+import com.hxg.analysis.RepositoryAnalyzer;
+import com.hxg.llm.usage.TokenEstimator;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * @author hxg
+ * @description: 仓库分词统计
+ * 使用与LLM调用估算相同的TokenEstimator对仓库内文本文件逐个分词，统计源码总token数，供任务预估使用；
+ * 词表与Qwen的BPE词表的计数差异可通过tokenizer-ratio修正
+ * @date 2025/8/19
+ */
+@Slf4j
+@Component
+public class RepositoryTokenizer {
+
+    /**
+     * 判断是否为二进制文件时检查的字节数
+     */
+    private static final int BINARY_PROBE_BYTES = 8192;
+
+    /**
+     * 超过大小上限的文件不分词，按每4字节1个token估算
+     */
+    private static final int BYTES_PER_TOKEN = 4;
+
+    @Value("${project.wiki.admission.estimate.max-scan-files:20000}")
+    private int maxFiles = 20000;
+
+    @Value("${project.wiki.admission.estimate.max-file-bytes:524288}")
+    private long maxFileBytes = 524288;
+
+    /**
+     * 词表与实际模型分词器的token数比例
+     */
+    @Value("${project.wiki.admission.estimate.tokenizer-ratio:1.0}")
+    private double tokenizerRatio = 1.0;
+
+    private final TokenEstimator tokenEstimator;
+
+    public RepositoryTokenizer(TokenEstimator tokenEstimator) {
+        this.tokenEstimator = tokenEstimator;
+    }
+
+    @Data
+    public static class RepositoryScan {
+        /**
+         * 文本文件数
+         */
+        private int fileCount;
+
+        /**
+         * 跳过的二进制或读取失败的文件数
+         */
+        private int skippedFiles;
+
+        private long totalBytes;
+
+        private long sourceTokens;
+
+        /**
+         * 是否因文件数超过上限提前结束
+         */
+        private boolean truncated;
+
+        private long durationMs;
+    }
+
+    /**
+     * 统计文本的token数
+     */
+    public long countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return Math.round(tokenEstimator.countRawTokens(text) * tokenizerRatio);
+    }
+
+    /**
+     * 遍历仓库并统计文本文件的token数，跳过隐藏目录与构建产物目录
+     */
+    public RepositoryScan scan(String localPath) {
+        long startTime = System.currentTimeMillis();
+        RepositoryScan scan = new RepositoryScan();
+        Path root = Paths.get(localPath).toAbsolutePath().normalize();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                    if (!dir.equals(root) && (name.startsWith(".") || RepositoryAnalyzer.SKIPPED_DIRS.contains(name))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    countFile(file, attrs.size(), scan);
+                    if (scan.getFileCount() >= maxFiles) {
+                        scan.setTruncated(true);
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    scan.setSkippedFiles(scan.getSkippedFiles() + 1);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("仓库分词统计失败: localPath={}, error={}", localPath, e.getMessage());
+        }
+        scan.setDurationMs(System.currentTimeMillis() - startTime);
+        log.info("仓库分词统计完成: localPath={}, files={}, tokens={}, durationMs={}",
+                localPath, scan.getFileCount(), scan.getSourceTokens(), scan.getDurationMs());
+        return scan;
+    }
+
+    private void countFile(Path file, long size, RepositoryScan scan) {
+        if (size > maxFileBytes) {
+            scan.setFileCount(scan.getFileCount() + 1);
+            scan.setTotalBytes(scan.getTotalBytes() + size);
+            scan.setSourceTokens(scan.getSourceTokens() + Math.round((double) size / BYTES_PER_TOKEN * tokenizerRatio));
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            if (isBinary(bytes)) {
+                scan.setSkippedFiles(scan.getSkippedFiles() + 1);
+                return;
+            }
+            scan.setFileCount(scan.getFileCount() + 1);
+            scan.setTotalBytes(scan.getTotalBytes() + bytes.length);
+            scan.setSourceTokens(scan.getSourceTokens() + countTokens(new String(bytes, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            scan.setSkippedFiles(scan.getSkippedFiles() + 1);
+        }
+    }
+
+    private boolean isBinary(byte[] bytes) {
+        int length = Math.min(bytes.length, BINARY_PROBE_BYTES);
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
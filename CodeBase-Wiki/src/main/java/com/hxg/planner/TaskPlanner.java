@@ -0,0 +1,252 @@
+package com.hxg.planner;
+
+import com.hxg.llm.ratelimit.AdaptiveRateLimiter;
+import com.hxg.model.context.LlmCallContext;
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.enums.TaskStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.model.mapper.TokenUsageMapper;
+import com.hxg.model.vo.TaskEstimateVo;
+import com.hxg.model.vo.TokenUsageStatVo;
+import com.hxg.service.IFileService;
+import com.hxg.utils.FileTreePartitioner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: Wiki任务预估
+ * 对仓库分词后按目录生成与文档生成的调用方式估算token消耗和模型调用轮次，
+ * 平均调用轮次、单篇文档消耗与耗时优先取近期token_usage记录；
+ * 再结合待生成文档积压、排队任务、限流速率与消费并发估算完成时间
+ * @date 2025/8/19
+ */
+@Slf4j
+@Component
+public class TaskPlanner {
+
+    private final RepositoryTokenizer repositoryTokenizer;
+    private final IFileService fileService;
+    private final TokenUsageMapper tokenUsageMapper;
+    private final CatalogueMapper catalogueMapper;
+    private final TaskMapper taskMapper;
+    private final AdaptiveRateLimiter rateLimiter;
+
+    @Value("${project.wiki.catalogue.partition.enabled:true}")
+    private boolean partitionEnabled = true;
+
+    @Value("${project.wiki.catalogue.partition.threshold-lines:2000}")
+    private int partitionThresholdLines = 2000;
+
+    @Value("${project.wiki.catalogue.partition.max-shard-lines:800}")
+    private int maxShardLines = 800;
+
+    @Value("${project.wiki.kafka.consumer.max-concurrency:2}")
+    private int consumerConcurrency = 2;
+
+    /**
+     * 目录生成prompt模板（不含文件树）的token数
+     */
+    @Value("${project.wiki.admission.estimate.catalogue-prompt-tokens:3000}")
+    private long cataloguePromptTokens = 3000;
+
+    /**
+     * 单次目录生成（或单个分片）输出的token数
+     */
+    @Value("${project.wiki.admission.estimate.catalogue-output-tokens:4000}")
+    private long catalogueOutputTokens = 4000;
+
+    /**
+     * 无历史记录时目录生成的平均调用轮次
+     */
+    @Value("${project.wiki.admission.estimate.catalogue-turns:4}")
+    private double catalogueTurns = 4;
+
+    /**
+     * 每篇文档覆盖的文件数
+     */
+    @Value("${project.wiki.admission.estimate.files-per-document:8}")
+    private int filesPerDocument = 8;
+
+    @Value("${project.wiki.admission.estimate.max-documents:300}")
+    private int maxDocuments = 300;
+
+    /**
+     * 文档生成prompt模板（不含文件树与目录结构）的token数
+     */
+    @Value("${project.wiki.admission.estimate.document-prompt-tokens:2500}")
+    private long documentPromptTokens = 2500;
+
+    @Value("${project.wiki.admission.estimate.document-output-tokens:3000}")
+    private long documentOutputTokens = 3000;
+
+    /**
+     * 无历史记录时单篇文档的平均调用轮次
+     */
+    @Value("${project.wiki.admission.estimate.document-turns:8}")
+    private double documentTurns = 8;
+
+    /**
+     * 源码被工具读取后在后续轮次中重复计入上下文的倍数
+     */
+    @Value("${project.wiki.admission.estimate.source-read-factor:2.0}")
+    private double sourceReadFactor = 2.0;
+
+    /**
+     * 每百万token的综合价格（元）
+     */
+    @Value("${project.wiki.admission.estimate.price-per-million-tokens:4.0}")
+    private double pricePerMillionTokens = 4.0;
+
+    @Value("${project.wiki.admission.estimate.history-days:7}")
+    private int historyDays = 7;
+
+    /**
+     * 历史调用数达到该值才使用历史平均值
+     */
+    @Value("${project.wiki.admission.estimate.history-min-calls:20}")
+    private int historyMinCalls = 20;
+
+    public TaskPlanner(RepositoryTokenizer repositoryTokenizer, IFileService fileService,
+                       TokenUsageMapper tokenUsageMapper, CatalogueMapper catalogueMapper,
+                       TaskMapper taskMapper, AdaptiveRateLimiter rateLimiter) {
+        this.repositoryTokenizer = repositoryTokenizer;
+        this.fileService = fileService;
+        this.tokenUsageMapper = tokenUsageMapper;
+        this.catalogueMapper = catalogueMapper;
+        this.taskMapper = taskMapper;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * 预估仓库生成Wiki的消耗与完成时间
+     *
+     * @param localPath 已拉取到本地的仓库路径
+     */
+    public TaskEstimateVo estimate(String localPath) {
+        RepositoryTokenizer.RepositoryScan scan = repositoryTokenizer.scan(localPath);
+        String fileTree = fileService.getFileTree(localPath);
+        int treeLines = FileTreePartitioner.countLines(fileTree);
+        long treeTokens = repositoryTokenizer.countTokens(fileTree);
+
+        String since = LocalDate.now().minusDays(historyDays).toString();
+        TokenUsageStatVo catalogueHistory = tokenUsageMapper.sumByCallType(LlmCallContext.TYPE_CATALOGUE, since);
+        TokenUsageStatVo documentHistory = tokenUsageMapper.sumByCallType(LlmCallContext.TYPE_DOCUMENT, since);
+        double catalogueTurnsPerCall = averageTurns(catalogueHistory, catalogueTurns);
+        double documentTurnsPerCall = averageTurns(documentHistory, documentTurns);
+
+        // 目录生成：分片模式下每个分片一次调用，再加一次合并调用
+        int shards = 0;
+        long catalogueCalls;
+        long catalogueTokens;
+        if (partitionEnabled && treeLines > partitionThresholdLines) {
+            List<FileTreePartitioner.Shard> partitions = FileTreePartitioner.partition(fileTree, maxShardLines);
+            shards = partitions.size();
+            long shardInputTokens = 0;
+            for (FileTreePartitioner.Shard shard : partitions) {
+                shardInputTokens += cataloguePromptTokens + repositoryTokenizer.countTokens(shard.getTree());
+            }
+            long mergeInputTokens = cataloguePromptTokens + shards * catalogueOutputTokens;
+            catalogueCalls = Math.round(shards * catalogueTurnsPerCall) + 1;
+            catalogueTokens = Math.round(shardInputTokens * catalogueTurnsPerCall) + shards * catalogueOutputTokens
+                    + mergeInputTokens + catalogueOutputTokens;
+        } else {
+            catalogueCalls = Math.round(catalogueTurnsPerCall);
+            catalogueTokens = Math.round((cataloguePromptTokens + treeTokens) * catalogueTurnsPerCall) + catalogueOutputTokens;
+        }
+
+        // 文档生成：每轮都携带文件树与完整目录结构，工具读取的源码在后续轮次重复计入
+        int documentCount = (int) Math.min(maxDocuments,
+                Math.max(1, Math.ceil((double) scan.getFileCount() / Math.max(filesPerDocument, 1))));
+        long documentContextTokens = documentPromptTokens + treeTokens + Math.max(shards, 1) * catalogueOutputTokens;
+        long documentCalls = Math.round(documentCount * documentTurnsPerCall);
+        long documentTokens = Math.round(documentCount * documentContextTokens * documentTurnsPerCall
+                + scan.getSourceTokens() * sourceReadFactor) + documentCount * documentOutputTokens;
+
+        long totalTokens = catalogueTokens + documentTokens;
+        long llmCalls = catalogueCalls + documentCalls;
+
+        // 积压：进行中与等待子目录的目录按近期单篇平均消耗估算
+        boolean hasDocumentHistory = hasHistory(documentHistory);
+        long avgDocumentTokens = hasDocumentHistory
+                ? documentHistory.getTotalTokens() / documentHistory.getCalls()
+                : documentTokens / documentCount;
+        long backlogDocuments = catalogueMapper.countPending(
+                CatalogueStatusEnum.IN_PROGRESS.getCode(), CatalogueStatusEnum.WAITING.getCode());
+        long backlogTokens = backlogDocuments * avgDocumentTokens;
+        long backlogCalls = Math.round(backlogDocuments * documentTurnsPerCall);
+        long queuedTokens = taskMapper.sumEstimatedTokens(TaskStatusEnum.QUEUED.getCode());
+        long queuedCalls = totalTokens == 0 ? 0 : queuedTokens * llmCalls / totalTokens;
+
+        double queueMinutes = rateLimitedMinutes(backlogTokens, backlogCalls);
+        if (hasDocumentHistory && documentHistory.getDurationMs() != null) {
+            // 消费并发同样限制吞吐，取两者中较慢的
+            double avgDocumentMinutes = documentHistory.getDurationMs() / 60000.0 / documentHistory.getCalls();
+            queueMinutes = Math.max(queueMinutes, backlogDocuments * avgDocumentMinutes / Math.max(consumerConcurrency, 1));
+        }
+        double etaMinutes = queueMinutes + rateLimitedMinutes(queuedTokens, queuedCalls)
+                + rateLimitedMinutes(totalTokens, llmCalls);
+
+        TaskEstimateVo estimate = TaskEstimateVo.builder()
+                .fileCount(scan.getFileCount())
+                .sourceTokens(scan.getSourceTokens())
+                .fileTreeLines(treeLines)
+                .fileTreeTokens(treeTokens)
+                .catalogueShards(shards)
+                .catalogueCalls(catalogueCalls)
+                .catalogueTokens(catalogueTokens)
+                .documentCount(documentCount)
+                .documentCalls(documentCalls)
+                .documentTokens(documentTokens)
+                .totalTokens(totalTokens)
+                .llmCalls(llmCalls)
+                .estimatedCost(round(totalTokens / 1_000_000.0 * pricePerMillionTokens))
+                .backlogDocuments(backlogDocuments)
+                .backlogTokens(backlogTokens)
+                .queuedTokens(queuedTokens)
+                .queueMinutes(round(queueMinutes))
+                .etaMinutes(round(etaMinutes))
+                .build();
+        log.info("任务预估完成: localPath={}, files={}, documents={}, totalTokens={}, llmCalls={}, etaMinutes={}",
+                localPath, estimate.getFileCount(), documentCount, totalTokens, llmCalls, estimate.getEtaMinutes());
+        return estimate;
+    }
+
+    /**
+     * 按限流器当前生效的RPM/TPM计算所需分钟数，取两者中较慢的
+     */
+    private double rateLimitedMinutes(long tokens, long calls) {
+        double rateFactor = rateLimiter.getRateFactor();
+        double tokensPerMinute = rateLimiter.getTokensPerMinute() * rateFactor;
+        double requestsPerMinute = rateLimiter.getRequestsPerMinute() * rateFactor;
+        double minutes = 0;
+        if (tokensPerMinute > 0) {
+            minutes = Math.max(minutes, tokens / tokensPerMinute);
+        }
+        if (requestsPerMinute > 0) {
+            minutes = Math.max(minutes, calls / requestsPerMinute);
+        }
+        return minutes;
+    }
+
+    private double averageTurns(TokenUsageStatVo history, double defaultTurns) {
+        if (!hasHistory(history) || history.getTurns() == null) {
+            return defaultTurns;
+        }
+        return (double) history.getTurns() / history.getCalls();
+    }
+
+    private boolean hasHistory(TokenUsageStatVo history) {
+        return history != null && history.getCalls() != null && history.getCalls() >= Math.max(historyMinCalls, 1)
+                && history.getTotalTokens() != null;
+    }
+
+    private double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hxg.queue.backend;
+
+import com.hxg.queue.model.DocumentGenerationTask;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author hxg
+ * @description: 文档生成消息队列，由project.wiki.queue.backend选择Kafka或单节点内置队列实现
+ * @date 2025/8/25
+ */
+public interface DocumentQueue {
+
+    String BACKEND_KAFKA = "kafka";
+    String BACKEND_EMBEDDED = "embedded";
+
+    /**
+     * 发送消息到指定主题
+     *
+     * @param delayMs 最早在发送后多久投递，不支持延迟投递的实现由消费者自行等待
+     * @return 消息写入后的位点
+     */
+    CompletableFuture<Long> send(String topic, String key, DocumentGenerationTask task, long delayMs);
+
+    /**
+     * 查询各主题分区的末端位点与已提交位点，主题尚未创建时不返回
+     */
+    Map<String, List<PartitionOffsets>> offsets(Collection<String> topics) throws Exception;
+
+    /**
+     * 分区位点
+     *
+     * @param committedOffset 已提交位点，从未提交时为null
+     * @param earliestOffset  仍保留的最早位点
+     */
+    record PartitionOffsets(int partition, long endOffset, Long committedOffset, long earliestOffset) {
+    }
+}
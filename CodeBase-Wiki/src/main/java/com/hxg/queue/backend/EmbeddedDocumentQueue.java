@@ -0,0 +1,228 @@
+package com.hxg.queue.backend;
+
+import com.alibaba.fastjson2.JSON;
+import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.utils.monitor.WikiObservations;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.ReceiverContext;
+import io.micrometer.observation.transport.SenderContext;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author hxg
+ * @description: 单节点内置文档生成队列：每个主题一份内存映射的追加日志与消费游标，无需部署Kafka；
+ * 支持延迟投递（重试队列），未确认的消息延迟后再次投递，重启后从游标处继续，
+ * 与Kafka实现一样为至少一次投递，重复消息由目录租约与处理台账跳过；
+ * 链路上下文随消息的traceHeaders传递，投递与消费各产生一个span
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "project.wiki.queue.backend", havingValue = DocumentQueue.BACKEND_EMBEDDED)
+public class EmbeddedDocumentQueue implements DocumentQueue {
+
+    private final Map<String, JournalTopic> topics = new ConcurrentHashMap<>();
+    private final List<ExecutorService> workers = new CopyOnWriteArrayList<>();
+    private final List<Thread> dispatchers = new CopyOnWriteArrayList<>();
+    private final ObservationRegistry observationRegistry;
+    private volatile boolean running = true;
+
+    /**
+     * 日志目录，每个主题一个子目录
+     */
+    @Value("${project.wiki.queue.embedded.dir:./data/queue}")
+    private String dir = "./data/queue";
+
+    @Value("${project.wiki.queue.embedded.segment-bytes:67108864}")
+    private int segmentBytes = 64 * 1024 * 1024;
+
+    /**
+     * 每次写入后刷盘；关闭时进程崩溃不丢消息（映射页由系统写回），断电可能丢失最近写入的消息
+     */
+    @Value("${project.wiki.queue.embedded.fsync:false}")
+    private boolean fsync;
+
+    @Value("${project.wiki.queue.embedded.poll-timeout-ms:1000}")
+    private long pollTimeoutMs = 1000;
+
+    /**
+     * 消费者未确认的消息再次投递前的等待时间(ms)
+     */
+    @Value("${project.wiki.queue.embedded.redelivery-delay-ms:5000}")
+    private long redeliveryDelayMs = 5000;
+
+    public EmbeddedDocumentQueue(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public CompletableFuture<Long> send(String topic, String key, DocumentGenerationTask task, long delayMs) {
+        // 重试消息重新投递时替换为当前的链路上下文
+        task.setTraceHeaders(new HashMap<>());
+        SenderContext<DocumentGenerationTask> context = new SenderContext<>(
+                (carrier, name, value) -> carrier.getTraceHeaders().put(name, value));
+        context.setCarrier(task);
+        Observation observation = Observation.createNotStarted(WikiObservations.QUEUE_SEND, () -> context, observationRegistry)
+                .lowCardinalityKeyValue(WikiObservations.TOPIC, topic)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            long offset = topic(topic).append(JSON.toJSONBytes(task), System.currentTimeMillis() + Math.max(delayMs, 0));
+            return CompletableFuture.completedFuture(offset);
+        } catch (Exception e) {
+            observation.error(e);
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            observation.stop();
+        }
+    }
+
+    @Override
+    public Map<String, List<PartitionOffsets>> offsets(Collection<String> topicNames) {
+        Map<String, List<PartitionOffsets>> result = new LinkedHashMap<>();
+        for (String name : topicNames) {
+            JournalTopic journal = topics.get(name);
+            if (journal != null) {
+                result.put(name, List.of(new PartitionOffsets(0, journal.endOffset(), journal.committedOffset(),
+                        journal.earliestOffset())));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 订阅主题，按顺序投递消息，最多concurrency条消息同时处理
+     */
+    public void subscribe(String topic, int concurrency, Listener listener) {
+        JournalTopic journal = topic(topic);
+        int threads = Math.max(concurrency, 1);
+        AtomicInteger index = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "embedded-queue-" + topic + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore permits = new Semaphore(threads);
+        Thread dispatcher = new Thread(() -> dispatch(topic, journal, executor, permits, listener),
+                "embedded-queue-" + topic);
+        dispatcher.setDaemon(true);
+        workers.add(executor);
+        dispatchers.add(dispatcher);
+        dispatcher.start();
+        log.info("内置队列订阅主题: topic={}, concurrency={}", topic, threads);
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        topics.values().forEach(JournalTopic::close);
+        dispatchers.forEach(Thread::interrupt);
+        for (ExecutorService executor : workers) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void dispatch(String topic, JournalTopic journal, ExecutorService executor, Semaphore permits,
+                          Listener listener) {
+        try {
+            while (running) {
+                permits.acquire();
+                JournalTopic.JournalRecord record = journal.poll(pollTimeoutMs);
+                if (record == null) {
+                    permits.release();
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        deliver(topic, journal, record, listener);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("内置队列投递线程异常退出: topic={}, error={}", topic, e.getMessage(), e);
+        }
+    }
+
+    private void deliver(String topic, JournalTopic journal, JournalTopic.JournalRecord record, Listener listener) {
+        DocumentGenerationTask task;
+        try {
+            task = JSON.parseObject(record.payload(), DocumentGenerationTask.class);
+        } catch (Exception e) {
+            log.error("内置队列消息无法解析，跳过: topic={}, offset={}, error={}", topic, record.offset(), e.getMessage());
+            journal.ack(record.offset());
+            return;
+        }
+        AtomicBoolean acked = new AtomicBoolean();
+        ReceiverContext<DocumentGenerationTask> context = new ReceiverContext<>(
+                (carrier, name) -> carrier.getTraceHeaders() == null ? null : carrier.getTraceHeaders().get(name));
+        context.setCarrier(task);
+        Observation observation = Observation.createNotStarted(WikiObservations.QUEUE_RECEIVE, () -> context, observationRegistry)
+                .lowCardinalityKeyValue(WikiObservations.TOPIC, topic)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            listener.onMessage(task, topic, 0, record.offset(), () -> {
+                if (acked.compareAndSet(false, true)) {
+                    journal.ack(record.offset());
+                }
+            });
+        } catch (Exception e) {
+            observation.error(e);
+            log.error("内置队列消息处理异常: topic={}, offset={}, error={}", topic, record.offset(), e.getMessage(), e);
+        } finally {
+            observation.stop();
+        }
+        if (!acked.get() && running) {
+            journal.redeliver(record, redeliveryDelayMs);
+        }
+    }
+
+    private JournalTopic topic(String name) {
+        return topics.computeIfAbsent(name, key -> {
+            try {
+                return new JournalTopic(key, Path.of(dir).resolve(key), segmentBytes, fsync);
+            } catch (IOException e) {
+                throw new UncheckedIOException("打开内置队列主题失败: " + key, e);
+            }
+        });
+    }
+
+    /**
+     * 内置队列的消息监听器，参数与Kafka监听方法一致
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onMessage(DocumentGenerationTask task, String topic, int partition, long offset, Acknowledgment ack);
+    }
+}
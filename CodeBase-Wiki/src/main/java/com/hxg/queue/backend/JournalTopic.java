@@ -0,0 +1,325 @@
+package com.hxg.queue.backend;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * @author hxg
+ * @description: 内置队列单个主题的持久化日志：消息顺序追加到以起始位点命名的内存映射分段文件，
+ * 记录格式为[消息体长度][CRC32][可投递时间][消息体]，长度最后写入，进程崩溃时写了一半的记录不可见；
+ * 消费游标为最小的未确认位点，保存在cursor文件中，重启后从游标继续投递，已投递未确认的消息会再次投递，
+ * 游标之前的分段文件随确认删除
+ * @date 2025/8/25
+ */
+@Slf4j
+class JournalTopic implements Closeable {
+
+    static final int HEADER_BYTES = 16;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CURSOR_FILE = "cursor";
+
+    private final String name;
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+
+    /**
+     * 起始位点 -> 分段
+     */
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final MappedByteBuffer cursorBuffer;
+
+    private Segment writeSegment;
+    private int writePosition;
+    private long nextOffset;
+
+    private Segment readSegment;
+    private int readPosition;
+    private long readOffset;
+
+    private long committedOffset;
+
+    /**
+     * 已投递未确认的位点
+     */
+    private final TreeSet<Long> pending = new TreeSet<>();
+
+    /**
+     * 未确认、等待再次投递的消息，按可投递时间排序
+     */
+    private final PriorityQueue<JournalRecord> redeliveries = new PriorityQueue<>(
+            Comparator.comparingLong(JournalRecord::deliverAt));
+
+    private boolean closed;
+
+    JournalTopic(String name, Path dir, int segmentBytes, boolean fsync) throws IOException {
+        this.name = name;
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                String fileName = file.getFileName().toString();
+                long baseOffset = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+                segments.put(baseOffset, new Segment(baseOffset, file, map(file, Files.size(file))));
+            }
+        }
+        if (segments.isEmpty()) {
+            createSegment(0, segmentBytes);
+        }
+        cursorBuffer = map(dir.resolve(CURSOR_FILE), Long.BYTES);
+
+        // 扫描最后一个分段确定写入位置，校验失败的尾部记录视为未写完并清零
+        writeSegment = segments.lastEntry().getValue();
+        nextOffset = writeSegment.baseOffset();
+        JournalRecord record;
+        while ((record = readRecord(writeSegment, writePosition, nextOffset)) != null) {
+            writePosition += HEADER_BYTES + record.payload().length;
+            nextOffset++;
+        }
+        MappedByteBuffer buffer = writeSegment.buffer();
+        for (int i = writePosition; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                log.warn("内置队列主题{}的日志尾部存在未写完的记录，已截断: segment={}, position={}",
+                        name, writeSegment.path(), writePosition);
+                for (int j = writePosition; j < buffer.capacity(); j++) {
+                    buffer.put(j, (byte) 0);
+                }
+                break;
+            }
+        }
+
+        // 从游标处继续投递
+        committedOffset = Math.min(Math.max(cursorBuffer.getLong(0), segments.firstKey()), nextOffset);
+        readSegment = segments.floorEntry(committedOffset).getValue();
+        readOffset = readSegment.baseOffset();
+        while (readOffset < committedOffset && (record = peekNext()) != null) {
+            advance(record);
+        }
+        log.info("内置队列主题{}已打开: segments={}, committedOffset={}, endOffset={}",
+                name, segments.size(), committedOffset, nextOffset);
+    }
+
+    /**
+     * 追加消息
+     *
+     * @param deliverAt 最早可投递的时间戳(ms)
+     * @return 消息位点
+     */
+    synchronized long append(byte[] payload, long deliverAt) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("内置队列主题已关闭: " + name);
+        }
+        int size = HEADER_BYTES + payload.length;
+        if (writePosition + size > writeSegment.buffer().capacity()) {
+            // 新分段创建后旧分段不再写入，读到旧分段的空白处即切换到下一分段
+            writeSegment = createSegment(nextOffset, Math.max(segmentBytes, size));
+            writePosition = 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        MappedByteBuffer buffer = writeSegment.buffer();
+        buffer.putInt(writePosition + 4, (int) crc.getValue());
+        buffer.putLong(writePosition + 8, deliverAt);
+        buffer.put(writePosition + HEADER_BYTES, payload);
+        buffer.putInt(writePosition, payload.length);
+        if (fsync) {
+            buffer.force(writePosition, size);
+        }
+        writePosition += size;
+        notifyAll();
+        return nextOffset++;
+    }
+
+    /**
+     * 取出下一条可投递的消息：优先取到期的再次投递消息，其次按顺序取到期的新消息，
+     * 没有可投递的消息时最多等待timeoutMs
+     *
+     * @return 可投递的消息，超时或已关闭时返回null
+     */
+    synchronized JournalRecord poll(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!closed) {
+            long now = System.currentTimeMillis();
+            JournalRecord redelivery = redeliveries.peek();
+            if (redelivery != null && redelivery.deliverAt() <= now) {
+                return redeliveries.poll();
+            }
+            JournalRecord next = peekNext();
+            if (next != null && next.deliverAt() <= now) {
+                advance(next);
+                pending.add(next.offset());
+                return next;
+            }
+            if (now >= deadline) {
+                return null;
+            }
+            long wakeAt = deadline;
+            if (redelivery != null) {
+                wakeAt = Math.min(wakeAt, redelivery.deliverAt());
+            }
+            if (next != null) {
+                wakeAt = Math.min(wakeAt, next.deliverAt());
+            }
+            wait(Math.max(wakeAt - now, 1));
+        }
+        return null;
+    }
+
+    /**
+     * 确认消息，推进游标并删除已全部确认的分段
+     */
+    synchronized void ack(long offset) {
+        if (closed || !pending.remove(offset)) {
+            return;
+        }
+        long committed = pending.isEmpty() ? readOffset : pending.first();
+        if (committed <= committedOffset) {
+            return;
+        }
+        committedOffset = committed;
+        cursorBuffer.putLong(0, committed);
+        if (fsync) {
+            cursorBuffer.force();
+        }
+        deleteConsumedSegments();
+    }
+
+    /**
+     * 未确认的消息在delayMs后再次投递
+     */
+    synchronized void redeliver(JournalRecord record, long delayMs) {
+        if (closed || !pending.contains(record.offset())) {
+            return;
+        }
+        redeliveries.add(new JournalRecord(record.offset(), System.currentTimeMillis() + delayMs, record.payload()));
+        notifyAll();
+    }
+
+    synchronized long endOffset() {
+        return nextOffset;
+    }
+
+    synchronized long committedOffset() {
+        return committedOffset;
+    }
+
+    synchronized long earliestOffset() {
+        return segments.firstKey();
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * 读取位置处的下一条消息但不移动读取位置，当前分段读完且已有后续分段时切换过去
+     */
+    private JournalRecord peekNext() {
+        while (true) {
+            JournalRecord record = readRecord(readSegment, readPosition, readOffset);
+            if (record != null) {
+                return record;
+            }
+            Map.Entry<Long, Segment> next = segments.higherEntry(readSegment.baseOffset());
+            if (next == null) {
+                return null;
+            }
+            if (readOffset != next.getKey()) {
+                log.warn("内置队列主题{}的分段{}在位点{}处损坏，跳至下一分段{}", name, readSegment.path(), readOffset, next.getKey());
+            }
+            readSegment = next.getValue();
+            readPosition = 0;
+            readOffset = next.getKey();
+        }
+    }
+
+    private void advance(JournalRecord record) {
+        readPosition += HEADER_BYTES + record.payload().length;
+        readOffset++;
+    }
+
+    private void deleteConsumedSegments() {
+        Map.Entry<Long, Segment> first;
+        while ((first = segments.firstEntry()) != null) {
+            Segment segment = first.getValue();
+            Long nextBase = segments.higherKey(segment.baseOffset());
+            if (nextBase == null || nextBase > committedOffset || segment == readSegment || segment == writeSegment) {
+                return;
+            }
+            segments.pollFirstEntry();
+            try {
+                Files.deleteIfExists(segment.path());
+            } catch (IOException e) {
+                // 部分系统上映射中的文件无法删除，重启后再次清理
+                log.debug("删除已消费的分段失败: {}, error={}", segment.path(), e.getMessage());
+            }
+        }
+    }
+
+    private Segment createSegment(long baseOffset, int size) throws IOException {
+        Path path = dir.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+        Segment segment = new Segment(baseOffset, path, map(path, size));
+        segments.put(baseOffset, segment);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * 读取分段中指定位置的记录，没有记录或校验失败时返回null
+     */
+    private static JournalRecord readRecord(Segment segment, int position, long offset) {
+        MappedByteBuffer buffer = segment.buffer();
+        if (position + HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return null;
+        }
+        return new JournalRecord(offset, buffer.getLong(position + 8), payload);
+    }
+
+    private record Segment(long baseOffset, Path path, MappedByteBuffer buffer) {
+    }
+
+    /**
+     * 日志中的一条消息
+     */
+    record JournalRecord(long offset, long deliverAt, byte[] payload) {
+    }
+}
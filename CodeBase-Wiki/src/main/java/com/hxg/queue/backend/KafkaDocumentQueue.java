@@ -0,0 +1,103 @@
+package com.hxg.queue.backend;
+
+import com.hxg.queue.model.DocumentGenerationTask;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author hxg
+ * @description: 基于Kafka的文档生成队列，通过AdminClient对比消费组位点与分区末端位点计算积压；
+ * Kafka不支持延迟投递，重试消息的等待由消费者完成
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "project.wiki.queue.backend", havingValue = DocumentQueue.BACKEND_KAFKA, matchIfMissing = true)
+public class KafkaDocumentQueue implements DocumentQueue {
+
+    private final KafkaTemplate<String, DocumentGenerationTask> kafkaTemplate;
+    private final AdminClient adminClient;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    @Value("${project.wiki.kafka.metrics.request-timeout-ms:5000}")
+    private long requestTimeoutMs = 5000;
+
+    public KafkaDocumentQueue(KafkaTemplate<String, DocumentGenerationTask> kafkaTemplate, AdminClient adminClient) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.adminClient = adminClient;
+    }
+
+    @Override
+    public CompletableFuture<Long> send(String topic, String key, DocumentGenerationTask task, long delayMs) {
+        return kafkaTemplate.send(topic, key, task).thenApply(result -> result.getRecordMetadata().offset());
+    }
+
+    /**
+     * 未提交过的分区按最早位点计算积压
+     */
+    @Override
+    public Map<String, List<PartitionOffsets>> offsets(Collection<String> topics) throws Exception {
+        Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(groupId)
+                .partitionsToOffsetAndMetadata().get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+
+        Map<String, List<TopicPartition>> partitionsByTopic = new LinkedHashMap<>();
+        Map<String, KafkaFuture<TopicDescription>> descriptions = adminClient.describeTopics(topics).topicNameValues();
+        for (String topic : topics) {
+            try {
+                TopicDescription description = descriptions.get(topic).get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+                partitionsByTopic.put(topic, description.partitions().stream()
+                        .map(info -> new TopicPartition(topic, info.partition()))
+                        .sorted(Comparator.comparingInt(TopicPartition::partition))
+                        .toList());
+            } catch (Exception e) {
+                // 主题尚未创建（如从未发生重试）时跳过
+                log.debug("查询主题信息失败: topic={}, error={}", topic, e.getMessage());
+            }
+        }
+        List<TopicPartition> allPartitions = partitionsByTopic.values().stream().flatMap(List::stream).toList();
+        Map<String, List<PartitionOffsets>> result = new LinkedHashMap<>();
+        if (allPartitions.isEmpty()) {
+            return result;
+        }
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> latest = listOffsets(allPartitions, OffsetSpec.latest());
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> earliest = listOffsets(allPartitions, OffsetSpec.earliest());
+        for (Map.Entry<String, List<TopicPartition>> entry : partitionsByTopic.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().stream()
+                    .map(tp -> {
+                        OffsetAndMetadata offset = committed.get(tp);
+                        return new PartitionOffsets(tp.partition(), latest.get(tp).offset(),
+                                offset != null ? offset.offset() : null, earliest.get(tp).offset());
+                    })
+                    .toList());
+        }
+        return result;
+    }
+
+    private Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> listOffsets(List<TopicPartition> partitions,
+                                                                                     OffsetSpec spec) throws Exception {
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        partitions.forEach(tp -> request.put(tp, spec));
+        return adminClient.listOffsets(request).all().get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+}
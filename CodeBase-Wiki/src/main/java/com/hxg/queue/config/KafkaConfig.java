@@ -1,21 +1,28 @@
 package com.hxg.queue.config;
 
+import com.hxg.queue.backend.DocumentQueue;
 import com.hxg.queue.model.DocumentGenerationTask;
 import com.hxg.queue.model.MemoryIndexTask;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -39,11 +46,20 @@ public class KafkaConfig {
     @Value("${project.wiki.kafka.consumer.max-concurrency}")
     private int maxConcurrency;
     
+    @Value("${project.wiki.kafka.metrics.request-timeout-ms:5000}")
+    private int adminRequestTimeoutMs;
+
+    /**
+     * 监听方法抛出异常后重新投递同一条消息的间隔(ms)
+     */
+    @Value("${project.wiki.kafka.consumer.redelivery-delay-ms:5000}")
+    private long redeliveryDelayMs;
+    
     /**
      * 生产者工厂配置
      */
     @Bean
-    public ProducerFactory<String, DocumentGenerationTask> producerFactory() {
+    public ProducerFactory<String, DocumentGenerationTask> producerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
@@ -54,15 +70,21 @@ public class KafkaConfig {
         configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
         
         log.info("Kafka Producer configured with bootstrap servers: {}", bootstrapServers);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        DefaultKafkaProducerFactory<String, DocumentGenerationTask> factory = new DefaultKafkaProducerFactory<>(configProps);
+        // 将生产者的原生指标（发送速率、错误率等）注册到Micrometer
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
     /**
      * Kafka模板
      */
     @Bean
-    public KafkaTemplate<String, DocumentGenerationTask> kafkaTemplate() {
-        KafkaTemplate<String, DocumentGenerationTask> template = new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, DocumentGenerationTask> kafkaTemplate(
+            ProducerFactory<String, DocumentGenerationTask> producerFactory) {
+        KafkaTemplate<String, DocumentGenerationTask> template = new KafkaTemplate<>(producerFactory);
+        // 发送时创建生产者span，并把W3C traceparent写入消息头
+        template.setObservationEnabled(true);
         log.info("KafkaTemplate created for DocumentGenerationTask");
         return template;
     }
@@ -90,6 +112,7 @@ public class KafkaConfig {
     @Bean
     public KafkaTemplate<String, MemoryIndexTask> memoryIndexKafkaTemplate() {
         KafkaTemplate<String, MemoryIndexTask> template = new KafkaTemplate<>(memoryIndexProducerFactory());
+        template.setObservationEnabled(true);
         log.info("KafkaTemplate created for MemoryIndexTask");
         return template;
     }
@@ -98,7 +121,7 @@ public class KafkaConfig {
      * 消费者工厂配置
      */
     @Bean
-    public ConsumerFactory<String, DocumentGenerationTask> consumerFactory() {
+    public ConsumerFactory<String, DocumentGenerationTask> consumerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
@@ -114,8 +137,11 @@ public class KafkaConfig {
         props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
         
         log.info("Kafka Consumer configured with group-id: {}, bootstrap servers: {}", groupId, bootstrapServers);
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), 
-                new JsonDeserializer<>(DocumentGenerationTask.class));
+        DefaultKafkaConsumerFactory<String, DocumentGenerationTask> factory = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new JsonDeserializer<>(DocumentGenerationTask.class));
+        // 将消费者的原生指标（拉取速率、records-lag-max等）注册到Micrometer
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
     /**
@@ -123,14 +149,31 @@ public class KafkaConfig {
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, DocumentGenerationTask> 
-           kafkaListenerContainerFactory() {
+           kafkaListenerContainerFactory(ConsumerFactory<String, DocumentGenerationTask> consumerFactory) {
         ConcurrentKafkaListenerContainerFactory<String, DocumentGenerationTask> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
         factory.setConcurrency(maxConcurrency); // 设置并发消费者数量
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        // 监听方法抛出异常时回退位点并按间隔重试，不跳过消息；文档生成消费者自行处理失败，只有死信落库失败会抛出
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(redeliveryDelayMs, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        // 从消息头恢复生产者的链路上下文，监听方法在消费者span内执行
+        factory.getContainerProperties().setObservationEnabled(true);
         
         log.info("Kafka Listener Container Factory configured with concurrency: {}", maxConcurrency);
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Kafka管理客户端，用于查询消费组位点与主题末端位点计算积压
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "project.wiki.queue.backend", havingValue = DocumentQueue.BACKEND_KAFKA, matchIfMissing = true)
+    public AdminClient kafkaAdminClient() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, adminRequestTimeoutMs);
+        props.put(AdminClientConfig.DEFAULT_API_TIMEOUT_MS_CONFIG, adminRequestTimeoutMs);
+        return AdminClient.create(props);
+    }
+}
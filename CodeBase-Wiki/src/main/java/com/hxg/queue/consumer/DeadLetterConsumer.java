@@ -0,0 +1,45 @@
+package com.hxg.queue.consumer;
+
+import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.service.IDeadLetterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author hxg
+ * @description: 文档生成死信队列消费者，将死信落库供查看、重放与清理
+ * @date 2025/8/24
+ */
+@Component
+@Slf4j
+public class DeadLetterConsumer {
+
+    private final IDeadLetterService deadLetterService;
+
+    public DeadLetterConsumer(IDeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+
+    @KafkaListener(topics = "${project.wiki.kafka.topics.doc-dlq}", autoStartup = DocumentGenerationConsumer.KAFKA_AUTO_STARTUP)
+    public void consumeDeadLetterQueue(@Payload DocumentGenerationTask task,
+                                       @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                       @Header(KafkaHeaders.OFFSET) long offset,
+                                       Acknowledgment ack) {
+        try {
+            deadLetterService.record(task, partition, offset);
+            ack.acknowledge();
+            log.info("死信已记录: taskId={}, catalogueName={}, errorClass={}, partition={}, offset={}",
+                    task.getTaskId(), task.getCatalogueName(), task.getErrorClass(), partition, offset);
+        } catch (RuntimeException e) {
+            // 手动确认模式下不确认不会重新投递，抛出异常由容器错误处理器回退位点重试，内置队列同样重新投递未确认的消息
+            log.error("记录死信失败: taskId={}, partition={}, offset={}, error={}",
+                    task.getTaskId(), partition, offset, e.getMessage(), e);
+            throw e;
+        }
+    }
+}
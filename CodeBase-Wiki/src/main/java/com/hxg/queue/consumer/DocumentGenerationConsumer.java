@@ -1,9 +1,21 @@
 package com.hxg.queue.consumer;
 
+import com.hxg.model.context.GenerationTraceContext;
+import com.hxg.model.entity.GenerationTrace;
 import com.hxg.queue.model.DocumentGenerationTask;
 import com.hxg.queue.producer.DocumentGenerationProducer;
+import com.hxg.queue.service.CatalogueLeaseManager;
+import com.hxg.queue.service.DocumentDagScheduler;
+import com.hxg.queue.service.DocumentLedgerService;
 import com.hxg.queue.service.DocumentProcessingService;
+import com.hxg.queue.service.DocumentProcessingService.DocumentGenerationException;
+import com.hxg.queue.service.DocumentProcessingService.LeaseLostException;
 import com.hxg.queue.service.DocumentProcessingService.TaskDeletedException;
+import com.hxg.queue.service.QueueMetricsService;
+import com.hxg.service.IGenerationTraceService;
+import com.hxg.utils.monitor.WikiObservations;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,6 +26,8 @@ import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
@@ -26,9 +40,21 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class DocumentGenerationConsumer {
     
+    /**
+     * 仅在使用Kafka队列实现时启动Kafka监听，内置队列由EmbeddedQueueListenerRegistrar订阅
+     */
+    public static final String KAFKA_AUTO_STARTUP = "#{'${project.wiki.queue.backend:kafka}' == 'kafka'}";
+    
     private final DocumentProcessingService processingService;
     private final DocumentGenerationProducer producer;
+    private final DocumentDagScheduler dagScheduler;
+    private final IGenerationTraceService generationTraceService;
+    private final CatalogueLeaseManager leaseManager;
+    private final DocumentLedgerService ledgerService;
+    private final QueueMetricsService queueMetricsService;
+    private final ObservationRegistry observationRegistry;
     private final Semaphore concurrencyLimiter;
+    private final Semaphore regenerationLimiter;
     
     @Value("${project.wiki.kafka.consumer.max-concurrency}")
     private int maxConcurrency;
@@ -36,28 +62,49 @@ public class DocumentGenerationConsumer {
     @Value("${project.wiki.kafka.consumer.process-interval}")
     private long processInterval;
     
+    @Value("${project.wiki.kafka.consumer.regeneration-concurrency:1}")
+    private int regenerationConcurrency;
+    
     @Value("${project.wiki.kafka.consumer.max-retry}")
     private int maxRetry;
     
+    @Value("${project.wiki.kafka.consumer.retry-delay:30000}")
+    private long retryDelayMs = 30000;
+    
     public DocumentGenerationConsumer(DocumentProcessingService processingService,
-                                    DocumentGenerationProducer producer) {
+                                    DocumentGenerationProducer producer,
+                                    DocumentDagScheduler dagScheduler,
+                                    IGenerationTraceService generationTraceService,
+                                    CatalogueLeaseManager leaseManager,
+                                    DocumentLedgerService ledgerService,
+                                    QueueMetricsService queueMetricsService,
+                                    ObservationRegistry observationRegistry) {
         this.processingService = processingService;
         this.producer = producer;
+        this.dagScheduler = dagScheduler;
+        this.generationTraceService = generationTraceService;
+        this.leaseManager = leaseManager;
+        this.ledgerService = ledgerService;
+        this.queueMetricsService = queueMetricsService;
+        this.observationRegistry = observationRegistry;
         this.concurrencyLimiter = new Semaphore(2); // 默认2个并发
+        this.regenerationLimiter = new Semaphore(1);
     }
     
     @PostConstruct
     public void initConcurrencyLimiter() {
         concurrencyLimiter.drainPermits();
         concurrencyLimiter.release(maxConcurrency);
-        log.info("DocumentGenerationConsumer initialized with maxConcurrency={}, processInterval={}ms, maxRetry={}", 
-                maxConcurrency, processInterval, maxRetry);
+        regenerationLimiter.drainPermits();
+        regenerationLimiter.release(regenerationConcurrency);
+        log.info("DocumentGenerationConsumer initialized with maxConcurrency={}, regenerationConcurrency={}, processInterval={}ms, maxRetry={}", 
+                maxConcurrency, regenerationConcurrency, processInterval, maxRetry);
     }
     
     /**
      * 主队列消费者
      */
-    @KafkaListener(topics = "${project.wiki.kafka.topics.doc-generation}")
+    @KafkaListener(topics = "${project.wiki.kafka.topics.doc-generation}", autoStartup = KAFKA_AUTO_STARTUP)
     public void consumeMainQueue(@Payload DocumentGenerationTask task, 
                                 @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                 @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
@@ -67,13 +114,30 @@ public class DocumentGenerationConsumer {
         log.info("接收到文档生成任务: taskId={}, catalogueName={}, topic={}, partition={}, offset={}", 
                 task.getTaskId(), task.getCatalogueName(), topic, partition, offset);
         
-        processTask(task, ack, false);
+        processTask(task, ack, false, concurrencyLimiter, topic, partition, 0);
+    }
+    
+    /**
+     * 重新生成队列消费者，使用独立的并发许可，不受批量生成积压影响
+     */
+    @KafkaListener(topics = "${project.wiki.kafka.topics.doc-regeneration:doc-regeneration-topic}",
+            concurrency = "${project.wiki.kafka.consumer.regeneration-concurrency:1}", autoStartup = KAFKA_AUTO_STARTUP)
+    public void consumeRegenerationQueue(@Payload DocumentGenerationTask task,
+                                        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                        @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                        @Header(KafkaHeaders.OFFSET) long offset,
+                                        Acknowledgment ack) {
+        
+        log.info("接收到重新生成任务: taskId={}, catalogueName={}, topic={}, partition={}, offset={}", 
+                task.getTaskId(), task.getCatalogueName(), topic, partition, offset);
+        
+        processTask(task, ack, false, regenerationLimiter, topic, partition, 0);
     }
     
     /**
      * 重试队列消费者
      */
-    @KafkaListener(topics = "${project.wiki.kafka.topics.doc-retry}")
+    @KafkaListener(topics = "${project.wiki.kafka.topics.doc-retry}", autoStartup = KAFKA_AUTO_STARTUP)
     public void consumeRetryQueue(@Payload DocumentGenerationTask task,
                                  @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                  @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
@@ -83,29 +147,62 @@ public class DocumentGenerationConsumer {
         log.info("接收到重试任务: taskId={}, catalogueName={}, retryCount={}, topic={}, partition={}, offset={}", 
                 task.getTaskId(), task.getCatalogueName(), task.getRetryCount(), topic, partition, offset);
         
-        // 重试队列的任务需要延迟处理
-        try {
-            Thread.sleep(30000); // 30秒延迟
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.warn("重试任务延迟被中断: taskId={}", task.getTaskId());
-        }
-        
-        processTask(task, ack, true);
+        // 重试队列的任务需要延迟处理，支持延迟投递的队列到期才投递，这里只等待剩余的时间
+        processTask(task, ack, true, task.isRegeneration() ? regenerationLimiter : concurrencyLimiter, topic, partition,
+                retryDelayMs - queueWaitMs(task));
     }
     
     /**
      * 处理任务的通用方法
+     *
+     * @param delayMs 处理前需要等待的时间，与获取并发许可一起记为排队等待
      */
-    private void processTask(DocumentGenerationTask task, Acknowledgment ack, boolean isRetry) {
+    private void processTask(DocumentGenerationTask task, Acknowledgment ack, boolean isRetry, Semaphore limiter,
+                             String topic, int partition, long delayMs) {
+        // Kafka监听容器开启观测后当前已在消费者span内，文档生成span作为其子span
+        Observation observation = Observation.createNotStarted(WikiObservations.DOCUMENT_GENERATE, observationRegistry)
+                .lowCardinalityKeyValue(WikiObservations.TOPIC, topic)
+                .lowCardinalityKeyValue("wiki.retry", String.valueOf(isRetry));
+        WikiObservations.tag(observation, WikiObservations.TASK_ID, task.getTaskId());
+        WikiObservations.tag(observation, WikiObservations.CATALOGUE_ID, task.getCatalogueId());
+        WikiObservations.tag(observation, "wiki.retry.count", task.getRetryCount());
+        observation.start();
         boolean acquired = false;
-        try {
+        long startTime = 0;
+        String outcome = QueueMetricsService.OUTCOME_FAILED;
+        boolean leased = false;
+        boolean claimed = false;
+        GenerationTraceContext trace = null;
+        try (Observation.Scope scope = observation.openScope()) {
             // 获取并发控制许可
-            acquired = concurrencyLimiter.tryAcquire(10, TimeUnit.SECONDS);
+            acquired = awaitPermit(task, limiter, topic, delayMs);
             if (!acquired) {
                 log.warn("无法获取并发许可，跳过任务: taskId={}", task.getTaskId());
                 return; // 不ack，消息会重新投递
             }
+            startTime = System.currentTimeMillis();
+            
+            // 抢占目录租约，已完成的重复消息或其他节点正在处理的目录直接确认
+            leased = leaseManager.acquire(task.getCatalogueId());
+            if (!leased) {
+                log.info("目录已结束或正由其他节点处理，跳过任务: taskId={}, catalogueId={}", 
+                        task.getTaskId(), task.getCatalogueId());
+                ledgerService.recordDuplicate(task, DocumentLedgerService.REASON_LEASE);
+                outcome = QueueMetricsService.OUTCOME_DUPLICATE;
+                ack.acknowledge();
+                return;
+            }
+            
+            // 按处理代次与尝试次数抢占台账，已处理、已被新代次或重试消息取代的重复消息在调用LLM前跳过
+            claimed = ledgerService.claim(task);
+            if (!claimed) {
+                log.info("重复的文档生成消息，跳过任务: taskId={}, catalogueId={}, generation={}, retryCount={}", 
+                        task.getTaskId(), task.getCatalogueId(), task.getGeneration(), task.getRetryCount());
+                ledgerService.recordDuplicate(task, DocumentLedgerService.REASON_LEDGER);
+                outcome = QueueMetricsService.OUTCOME_DUPLICATE;
+                ack.acknowledge();
+                return;
+            }
             
             // 控制处理间隔
             if (processInterval > 0) {
@@ -115,24 +212,47 @@ public class DocumentGenerationConsumer {
             log.info("开始处理文档生成任务: taskId={}, catalogueName={}, retryCount={}", 
                     task.getTaskId(), task.getCatalogueName(), task.getRetryCount());
             
-            // 调用处理服务
+            // 调用处理服务，工具调用与LLM消耗累计到当前线程的追踪上下文
+            trace = GenerationTraceContext.begin(task.getTaskId(), task.getCatalogueId(), task.getCatalogueName(),
+                    task.getRetryCount() != null ? task.getRetryCount() : 0, queueWaitMs(task));
             processingService.processTask(task);
+            generationTraceService.recordDocument(trace, GenerationTrace.STATUS_COMPLETED, null);
+            ledgerService.complete(task);
+            outcome = QueueMetricsService.OUTCOME_COMPLETED;
             
             // 处理成功，手动确认消息
             ack.acknowledge();
             log.info("任务处理完成: taskId={}, catalogueName={}", 
                     task.getTaskId(), task.getCatalogueName());
             
+            // 目录状态提交后再调度父目录，保证并发完成的兄弟目录能看到彼此的状态
+            dagScheduler.onDocumentFinished(task);
+            
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("任务处理被中断: taskId={}", task.getTaskId());
+            outcome = QueueMetricsService.OUTCOME_INTERRUPTED;
+            if (claimed) {
+                // 消息未确认会被重新投递，退回台账以便再次处理
+                ledgerService.abandon(task);
+            }
+        } catch (LeaseLostException e) {
+            // 目录已由其他节点接管或已删除，本次结果未写入：按重复消息确认，不记录完成、不推进父目录
+            log.info("目录租约已失效，放弃本次结果并确认消息: taskId={}, catalogueId={}", 
+                    task.getTaskId(), task.getCatalogueId());
+            ledgerService.recordDuplicate(task, DocumentLedgerService.REASON_LEASE);
+            outcome = QueueMetricsService.OUTCOME_DUPLICATE;
+            ack.acknowledge();
         } catch (TaskDeletedException e) {
             // 任务已删除，直接确认消息，不进行重试
             log.info("任务已删除，跳过处理并确认消息: taskId={}, reason={}", task.getTaskId(), e.getMessage());
+            outcome = QueueMetricsService.OUTCOME_DELETED;
             ack.acknowledge();
         } catch (Exception e) {
+            observation.error(e);
             log.error("任务处理失败: taskId={}, catalogueName={}, error={}", 
                     task.getTaskId(), task.getCatalogueName(), e.getMessage(), e);
+            generationTraceService.recordDocument(trace, GenerationTrace.STATUS_FAILED, e.getMessage());
             
             // 处理失败的任务
             handleFailedTask(task, e, isRetry);
@@ -140,12 +260,46 @@ public class DocumentGenerationConsumer {
             // 确认消息，避免无限重试
             ack.acknowledge();
         } finally {
+            GenerationTraceContext.clear();
+            if (leased) {
+                leaseManager.release(task.getCatalogueId());
+            }
             if (acquired) {
-                concurrencyLimiter.release();
+                limiter.release();
+                queueMetricsService.recordProcessed(topic, partition, outcome, System.currentTimeMillis() - startTime);
+            }
+            observation.lowCardinalityKeyValue("wiki.outcome", acquired ? outcome : "deferred");
+            observation.stop();
+        }
+    }
+    
+    /**
+     * 等待delayMs后获取并发许可，整段等待记为排队等待span
+     */
+    private boolean awaitPermit(DocumentGenerationTask task, Semaphore limiter, String topic, long delayMs)
+            throws InterruptedException {
+        Observation queueWait = Observation.createNotStarted(WikiObservations.QUEUE_WAIT, observationRegistry)
+                .lowCardinalityKeyValue(WikiObservations.TOPIC, topic)
+                .highCardinalityKeyValue("wiki.queue.enqueued.ms", String.valueOf(queueWaitMs(task)))
+                .start();
+        try {
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
             }
+            return limiter.tryAcquire(10, TimeUnit.SECONDS);
+        } finally {
+            queueWait.stop();
         }
     }
     
+    /**
+     * 最近一次入队到开始处理的等待时间
+     */
+    private long queueWaitMs(DocumentGenerationTask task) {
+        LocalDateTime enqueueTime = task.getEnqueueTime() != null ? task.getEnqueueTime() : task.getCreateTime();
+        return enqueueTime == null ? 0 : Math.max(Duration.between(enqueueTime, LocalDateTime.now()).toMillis(), 0);
+    }
+    
     /**
      * 处理失败的任务
      */
@@ -158,9 +312,15 @@ public class DocumentGenerationConsumer {
             log.warn("任务超过最大重试次数，发送到死信队列: taskId={}, retryCount={}, maxRetry={}", 
                     task.getTaskId(), task.getRetryCount(), maxRetry);
             producer.sendToDeadLetterQueue(task, error);
+            ledgerService.fail(task);
+            processingService.markFinalFailure(task, error.getMessage(),
+                    error instanceof DocumentGenerationException generationError ? generationError.getLlmContext() : null);
+            // 最终失败同样视为结束，避免父目录一直等待
+            dagScheduler.onDocumentFinished(task);
         } else {
             log.info("任务处理失败，发送到重试队列: taskId={}, retryCount={}/{}", 
                     task.getTaskId(), task.getRetryCount(), maxRetry);
+            ledgerService.scheduleRetry(task);
             producer.sendToRetryQueue(task);
         }
     }
@@ -178,4 +338,22 @@ public class DocumentGenerationConsumer {
     public int getMaxConcurrency() {
         return maxConcurrency;
     }
+    
+    /**
+     * 主队列正在处理的消息数
+     */
+    public int getInFlight() {
+        return maxConcurrency - concurrencyLimiter.availablePermits();
+    }
+    
+    /**
+     * 重新生成队列正在处理的消息数
+     */
+    public int getRegenerationInFlight() {
+        return regenerationConcurrency - regenerationLimiter.availablePermits();
+    }
+    
+    public int getRegenerationConcurrency() {
+        return regenerationConcurrency;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.hxg.queue.consumer;
+
+import com.hxg.queue.backend.DocumentQueue;
+import com.hxg.queue.backend.EmbeddedDocumentQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author hxg
+ * @description: 使用内置队列时将文档生成与死信消费者订阅到对应主题，并发数与Kafka监听配置一致
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "project.wiki.queue.backend", havingValue = DocumentQueue.BACKEND_EMBEDDED)
+public class EmbeddedQueueListenerRegistrar {
+
+    private final EmbeddedDocumentQueue documentQueue;
+    private final DocumentGenerationConsumer consumer;
+    private final DeadLetterConsumer deadLetterConsumer;
+
+    @Value("${project.wiki.kafka.topics.doc-generation}")
+    private String docGenerationTopic;
+
+    @Value("${project.wiki.kafka.topics.doc-regeneration:doc-regeneration-topic}")
+    private String docRegenerationTopic;
+
+    @Value("${project.wiki.kafka.topics.doc-retry}")
+    private String docRetryTopic;
+
+    @Value("${project.wiki.kafka.topics.doc-dlq}")
+    private String docDlqTopic;
+
+    @Value("${project.wiki.kafka.consumer.max-concurrency}")
+    private int maxConcurrency;
+
+    @Value("${project.wiki.kafka.consumer.regeneration-concurrency:1}")
+    private int regenerationConcurrency;
+
+    public EmbeddedQueueListenerRegistrar(EmbeddedDocumentQueue documentQueue, DocumentGenerationConsumer consumer,
+                                          DeadLetterConsumer deadLetterConsumer) {
+        this.documentQueue = documentQueue;
+        this.consumer = consumer;
+        this.deadLetterConsumer = deadLetterConsumer;
+    }
+
+    /**
+     * 应用启动完成后再开始投递，避免恢复任务与消费者同时处理启动前遗留的消息
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        documentQueue.subscribe(docGenerationTopic, maxConcurrency, consumer::consumeMainQueue);
+        documentQueue.subscribe(docRegenerationTopic, regenerationConcurrency, consumer::consumeRegenerationQueue);
+        documentQueue.subscribe(docRetryTopic, maxConcurrency, consumer::consumeRetryQueue);
+        documentQueue.subscribe(docDlqTopic, 1, (task, topic, partition, offset, ack) ->
+                deadLetterConsumer.consumeDeadLetterQueue(task, partition, offset, ack));
+        log.info("内置队列消费者已启动");
+    }
+}
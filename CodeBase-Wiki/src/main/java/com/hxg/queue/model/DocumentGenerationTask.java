@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * @author hxg
@@ -44,6 +45,11 @@ public class DocumentGenerationTask {
      */
     private String localPath;
     
+    /**
+     * 仓库快照键，其他节点的消费者按键拉取仓库内容；为空时只能使用localPath
+     */
+    private String snapshotKey;
+    
     /**
      * 文件树结构
      */
@@ -59,11 +65,21 @@ public class DocumentGenerationTask {
      */
     private Integer retryCount = 0;
     
+    /**
+     * 目录的处理代次，投递时由幂等台账分配，重试消息沿用同一代次
+     */
+    private Integer generation;
+    
     /**
      * 创建时间
      */
     private LocalDateTime createTime;
     
+    /**
+     * 最近一次投递到队列的时间，用于统计排队等待耗时
+     */
+    private LocalDateTime enqueueTime;
+    
     /**
      * 任务优先级
      */
@@ -74,6 +90,31 @@ public class DocumentGenerationTask {
      */
     private String projectName;
     
+    /**
+     * 是否为单个目录的重新生成任务，重新生成失败时保留原有文档
+     */
+    private boolean regeneration;
+    
+    /**
+     * 用户对重新生成的补充要求
+     */
+    private String hint;
+    
+    /**
+     * 最终失败的异常类型（根因的类名），进入死信队列时记录
+     */
+    private String errorClass;
+    
+    /**
+     * 最终失败的错误信息，进入死信队列时记录
+     */
+    private String lastError;
+    
+    /**
+     * 内置队列传递链路上下文（W3C traceparent等）的消息头，Kafka队列使用原生消息头，不使用该字段
+     */
+    private Map<String, String> traceHeaders;
+    
     /**
      * 创建文档生成任务
      * @param catalogue 目录实体
@@ -99,6 +140,16 @@ public class DocumentGenerationTask {
         return task;
     }
     
+    /**
+     * 标记为重新生成任务，以高优先级投递
+     * @param hint 用户补充要求，可为空
+     */
+    public void markRegeneration(String hint) {
+        this.regeneration = true;
+        this.hint = hint;
+        this.priority = "HIGH";
+    }
+    
     /**
      * 增加重试次数
      */
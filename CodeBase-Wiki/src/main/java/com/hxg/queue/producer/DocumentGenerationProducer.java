@@ -1,77 +1,123 @@
 package com.hxg.queue.producer;
 
+import com.hxg.queue.backend.DocumentQueue;
 import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.queue.service.DocumentLedgerService;
+import com.hxg.snapshot.RepositorySnapshotService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.concurrent.CompletableFuture;
 
 /**
  * @author hxg
- * @description: 文档生成任务生产者
+ * @description: 文档生成任务生产者，消息经由配置的队列实现（Kafka或内置队列）投递，
+ * 投递前附上仓库快照键，任意节点的消费者都能处理
  * @date 2025/8/5
  */
 @Service
 @Slf4j
 public class DocumentGenerationProducer {
     
-    private final KafkaTemplate<String, DocumentGenerationTask> kafkaTemplate;
+    private final DocumentQueue documentQueue;
+    private final DocumentLedgerService ledgerService;
+    private final RepositorySnapshotService snapshotService;
     
     @Value("${project.wiki.kafka.topics.doc-generation}")
     private String docGenerationTopic;
     
+    @Value("${project.wiki.kafka.topics.doc-regeneration:doc-regeneration-topic}")
+    private String docRegenerationTopic;
+    
     @Value("${project.wiki.kafka.topics.doc-retry}")
     private String docRetryTopic;
     
     @Value("${project.wiki.kafka.topics.doc-dlq}")
     private String docDlqTopic;
     
-    public DocumentGenerationProducer(KafkaTemplate<String, DocumentGenerationTask> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    @Value("${project.wiki.kafka.consumer.retry-delay:30000}")
+    private long retryDelayMs = 30000;
+    
+    public DocumentGenerationProducer(DocumentQueue documentQueue, DocumentLedgerService ledgerService,
+                                      RepositorySnapshotService snapshotService) {
+        this.documentQueue = documentQueue;
+        this.ledgerService = ledgerService;
+        this.snapshotService = snapshotService;
         log.info("DocumentGenerationProducer initialized");
     }
     
     /**
-     * 发送文档生成任务到主队列
+     * 发送文档生成任务到主队列，发送前开启目录新的处理代次
      * @param task 文档生成任务
      */
     public void sendTask(DocumentGenerationTask task) {
         try {
-            CompletableFuture<SendResult<String, DocumentGenerationTask>> future = 
-                kafkaTemplate.send(docGenerationTopic, task.getTaskId(), task);
+            snapshotService.attachSnapshot(task);
+            ledgerService.open(task);
+            task.setEnqueueTime(LocalDateTime.now());
+            CompletableFuture<Long> future = 
+                documentQueue.send(docGenerationTopic, task.getTaskId(), task, 0);
                 
-            future.whenComplete((result, throwable) -> {
+            future.whenComplete((offset, throwable) -> {
                 if (throwable == null) {
                     log.info("任务发送成功: taskId={}, catalogueName={}, offset={}", 
-                        task.getTaskId(), task.getCatalogueName(), result.getRecordMetadata().offset());
+                        task.getTaskId(), task.getCatalogueName(), offset);
                 } else {
                     log.error("任务发送失败: taskId={}, catalogueName={}", 
                         task.getTaskId(), task.getCatalogueName(), throwable);
                 }
             });
         } catch (Exception e) {
-            log.error("发送任务到Kafka失败: taskId={}, catalogueName={}", 
+            log.error("发送任务到队列失败: taskId={}, catalogueName={}", 
+                task.getTaskId(), task.getCatalogueName(), e);
+            throw new RuntimeException("Failed to send task to queue", e);
+        }
+    }
+    
+    /**
+     * 发送重新生成任务到独立的高优先级队列，不排在批量生成的积压之后
+     * @param task 重新生成任务
+     */
+    public void sendRegenerationTask(DocumentGenerationTask task) {
+        try {
+            snapshotService.attachSnapshot(task);
+            ledgerService.open(task);
+            task.setEnqueueTime(LocalDateTime.now());
+            CompletableFuture<Long> future = 
+                documentQueue.send(docRegenerationTopic, task.getTaskId(), task, 0);
+                
+            future.whenComplete((offset, throwable) -> {
+                if (throwable == null) {
+                    log.info("重新生成任务发送成功: taskId={}, catalogueName={}, offset={}", 
+                        task.getTaskId(), task.getCatalogueName(), offset);
+                } else {
+                    log.error("重新生成任务发送失败: taskId={}, catalogueName={}", 
+                        task.getTaskId(), task.getCatalogueName(), throwable);
+                }
+            });
+        } catch (Exception e) {
+            log.error("发送重新生成任务到队列失败: taskId={}, catalogueName={}", 
                 task.getTaskId(), task.getCatalogueName(), e);
-            throw new RuntimeException("Failed to send task to Kafka", e);
+            throw new RuntimeException("Failed to send regeneration task to queue", e);
         }
     }
     
     /**
-     * 发送任务到重试队列
+     * 发送任务到重试队列，重试消息沿用原消息的处理代次，延迟retry-delay后处理
      * @param task 需要重试的任务
      */
     public void sendToRetryQueue(DocumentGenerationTask task) {
         try {
-            CompletableFuture<SendResult<String, DocumentGenerationTask>> future = 
-                kafkaTemplate.send(docRetryTopic, task.getTaskId(), task);
+            task.setEnqueueTime(LocalDateTime.now());
+            CompletableFuture<Long> future = 
+                documentQueue.send(docRetryTopic, task.getTaskId(), task, retryDelayMs);
                 
-            future.whenComplete((result, throwable) -> {
+            future.whenComplete((offset, throwable) -> {
                 if (throwable == null) {
                     log.info("任务发送到重试队列成功: taskId={}, retryCount={}, offset={}", 
-                        task.getTaskId(), task.getRetryCount(), result.getRecordMetadata().offset());
+                        task.getTaskId(), task.getRetryCount(), offset);
                 } else {
                     log.error("任务发送到重试队列失败: taskId={}, retryCount={}", 
                         task.getTaskId(), task.getRetryCount(), throwable);
@@ -90,16 +136,22 @@ public class DocumentGenerationProducer {
      */
     public void sendToDeadLetterQueue(DocumentGenerationTask task, Exception error) {
         try {
-            // 记录错误信息到任务中
+            // 记录错误信息到任务中，死信按错误类型分组查看与重放
             task.setPriority("FAILED");
+            Throwable root = error;
+            while (root.getCause() != null && root.getCause() != root) {
+                root = root.getCause();
+            }
+            task.setErrorClass(root.getClass().getSimpleName());
+            task.setLastError(error.getMessage());
             
-            CompletableFuture<SendResult<String, DocumentGenerationTask>> future = 
-                kafkaTemplate.send(docDlqTopic, task.getTaskId(), task);
+            CompletableFuture<Long> future = 
+                documentQueue.send(docDlqTopic, task.getTaskId(), task, 0);
                 
-            future.whenComplete((result, throwable) -> {
+            future.whenComplete((offset, throwable) -> {
                 if (throwable == null) {
                     log.warn("任务发送到死信队列: taskId={}, error={}, offset={}", 
-                        task.getTaskId(), error.getMessage(), result.getRecordMetadata().offset());
+                        task.getTaskId(), error.getMessage(), offset);
                 } else {
                     log.error("任务发送到死信队列失败: taskId={}, error={}", 
                         task.getTaskId(), error.getMessage(), throwable);
@@ -118,6 +170,10 @@ public class DocumentGenerationProducer {
         return docGenerationTopic;
     }
     
+    public String getDocRegenerationTopic() {
+        return docRegenerationTopic;
+    }
+    
     public String getDocRetryTopic() {
         return docRetryTopic;
     }
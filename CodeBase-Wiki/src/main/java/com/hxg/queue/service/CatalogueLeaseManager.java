@@ -0,0 +1,135 @@
+package com.hxg.queue.service;
+
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author hxg
+ * @description: 目录处理租约：消费者处理文档前抢占租约并定期续约，
+ * 节点崩溃后租约超时，由恢复任务重新投递；已完成目录的重复消息因抢不到租约而被跳过
+ * @date 2025/8/22
+ */
+@Slf4j
+@Component
+// 启动时按lease_owner列过期遗留租约，该列由表结构迁移添加
+@DependsOn("schemaMigrator")
+public class CatalogueLeaseManager {
+
+    private final CatalogueMapper catalogueMapper;
+
+    private final Set<String> activeLeases = ConcurrentHashMap.newKeySet();
+
+    @Value("${project.wiki.recovery.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${project.wiki.recovery.node-id:}")
+    private String nodeId = "";
+
+    @Value("${project.wiki.recovery.lease-timeout-ms:180000}")
+    private long leaseTimeoutMs = 180000;
+
+    public CatalogueLeaseManager(CatalogueMapper catalogueMapper) {
+        this.catalogueMapper = catalogueMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        // 未配置节点ID时使用主机名加进程号，同一主机上的多个进程各自持有租约
+        boolean configured = StringUtils.hasText(nodeId);
+        if (!configured) {
+            nodeId = resolveHostName() + "-" + ProcessHandle.current().pid();
+        }
+        if (!enabled) {
+            return;
+        }
+        int expired = 0;
+        if (configured) {
+            // 显式配置的节点ID在重启前后不变，重启前持有的租约对应的处理已经中断，立即过期以便恢复任务尽快重新投递；
+            // 默认节点ID每次启动都不同，遗留租约等待超时后回收
+            expired = catalogueMapper.expireLeasesOf(nodeId, staleBefore(LocalDateTime.now()).minusSeconds(1));
+        }
+        log.info("目录租约管理初始化: nodeId={}, leaseTimeoutMs={}, 过期遗留租约数={}", nodeId, leaseTimeoutMs, expired);
+    }
+
+    /**
+     * 抢占目录的处理租约
+     *
+     * @return 抢占成功返回true；目录已结束或其他节点正在处理时返回false
+     */
+    public boolean acquire(String catalogueId) {
+        if (!enabled) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int updated = catalogueMapper.claimLease(catalogueId, nodeId, CatalogueStatusEnum.IN_PROGRESS.getCode(),
+                now, staleBefore(now));
+        if (updated == 0) {
+            return false;
+        }
+        activeLeases.add(catalogueId);
+        return true;
+    }
+
+    public void release(String catalogueId) {
+        if (activeLeases.remove(catalogueId)) {
+            catalogueMapper.releaseLease(catalogueId, nodeId);
+        }
+    }
+
+    /**
+     * 为本节点正在处理的目录续约
+     */
+    @Scheduled(fixedDelayString = "${project.wiki.recovery.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        if (activeLeases.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (String catalogueId : activeLeases) {
+            try {
+                catalogueMapper.renewLease(catalogueId, nodeId, now);
+            } catch (Exception e) {
+                log.warn("目录租约续约失败: catalogueId={}, error={}", catalogueId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 早于该时间未续约的租约视为失效
+     */
+    public LocalDateTime staleBefore(LocalDateTime now) {
+        return now.minus(Duration.ofMillis(leaseTimeoutMs));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            String fallback = UUID.randomUUID().toString();
+            log.warn("无法获取主机名，使用随机节点ID: {}", fallback);
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.hxg.queue.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.hxg.model.dto.CatalogueStruct;
+import com.hxg.model.entity.Catalogue;
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.queue.producer.DocumentGenerationProducer;
+import com.hxg.service.ICatalogueContentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 按目录层级调度文档生成
+ * 叶子目录先行投递，互不依赖的子树并行生成；父目录在全部子目录结束后才投递，
+ * 生成时以子目录文档摘要代替已被子目录覆盖的源码文件
+ * @date 2025/8/15
+ */
+@Service
+@Slf4j
+public class DocumentDagScheduler {
+
+    private final CatalogueMapper catalogueMapper;
+    private final DocumentGenerationProducer documentGenerationProducer;
+    private final ICatalogueContentService catalogueContentService;
+
+    public DocumentDagScheduler(CatalogueMapper catalogueMapper,
+                                DocumentGenerationProducer documentGenerationProducer,
+                                ICatalogueContentService catalogueContentService) {
+        this.catalogueMapper = catalogueMapper;
+        this.documentGenerationProducer = documentGenerationProducer;
+        this.catalogueContentService = catalogueContentService;
+    }
+
+    /**
+     * 文档生成结束（成功或最终失败）后，尝试调度其父目录
+     *
+     * @param finishedTask 已结束的文档生成任务，其仓库路径等信息用于构建父目录任务
+     */
+    public void onDocumentFinished(DocumentGenerationTask finishedTask) {
+        try {
+            Catalogue catalogue = catalogueMapper.selectOne(
+                new LambdaQueryWrapper<Catalogue>()
+                    .eq(Catalogue::getCatalogueId, finishedTask.getCatalogueId())
+            );
+            if (catalogue == null || !StringUtils.hasText(catalogue.getParentCatalogueId())) {
+                return;
+            }
+            tryDispatchParent(catalogue.getParentCatalogueId(), finishedTask.getFileTree(),
+                    finishedTask.getLocalPath(), finishedTask.getProjectName(), finishedTask);
+        } catch (Exception e) {
+            log.error("调度父目录失败: taskId={}, catalogueId={}, error={}",
+                    finishedTask.getTaskId(), finishedTask.getCatalogueId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 调度任务下所有子目录已经结束的父目录，用于投递完叶子目录后兜底（如子目录全部投递失败）
+     */
+    public void dispatchReadyParents(String taskId, String fileTree, String localPath, String projectName) {
+        List<Catalogue> waitingParents = catalogueMapper.selectList(
+            new LambdaQueryWrapper<Catalogue>()
+                .eq(Catalogue::getTaskId, taskId)
+                .eq(Catalogue::getStatus, CatalogueStatusEnum.WAITING.getCode())
+        );
+        for (Catalogue parent : waitingParents) {
+            tryDispatchParent(parent.getCatalogueId(), fileTree, localPath, projectName, null);
+        }
+    }
+
+    /**
+     * 调度单个父目录，用于父目录晚于子目录保存的场景（如流式生成目录）
+     */
+    public void dispatchIfReady(String parentCatalogueId, String fileTree, String localPath, String projectName) {
+        tryDispatchParent(parentCatalogueId, fileTree, localPath, projectName, null);
+    }
+
+    /**
+     * 重新投递处理中断的目录，由故障恢复任务调用
+     *
+     * @return 是否投递成功
+     */
+    public boolean redispatch(Catalogue catalogue, String fileTree, String localPath, String projectName) {
+        try {
+            DocumentGenerationTask task = DocumentGenerationTask.create(catalogue, fileTree, toCatalogueStruct(catalogue), localPath);
+            task.setProjectName(projectName);
+            documentGenerationProducer.sendTask(task);
+            log.info("重新投递中断的文档生成任务: taskId={}, catalogueName={}", catalogue.getTaskId(), catalogue.getName());
+            return true;
+        } catch (Exception e) {
+            log.error("重新投递文档生成任务失败: catalogueName={}, error={}", catalogue.getName(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 投递单个目录的重新生成任务，目录状态由调用方预先标记；投递失败时恢复原有文档，
+     * 并按已结束处理以免子树中的父目录一直等待。投递失败的状态按投递前的状态条件更新，
+     * 不覆盖期间已被其他节点或恢复任务改动的目录
+     *
+     * @param hint 用户补充要求，可为空
+     * @return 是否投递成功
+     */
+    public boolean dispatchRegeneration(Catalogue catalogue, String fileTree, String localPath,
+                                        String projectName, String hint) {
+        DocumentGenerationTask task = DocumentGenerationTask.create(catalogue, fileTree, toCatalogueStruct(catalogue), localPath);
+        task.setProjectName(projectName);
+        task.markRegeneration(hint);
+        try {
+            documentGenerationProducer.sendRegenerationTask(task);
+            log.info("投递目录重新生成任务: taskId={}, catalogueName={}", catalogue.getTaskId(), catalogue.getName());
+            return true;
+        } catch (Exception e) {
+            log.error("投递目录重新生成任务失败: catalogueName={}, error={}", catalogue.getName(), e.getMessage(), e);
+            boolean hasContent = catalogueContentService.hasContent(catalogue.getCatalogueId());
+            int updated = catalogueMapper.finishUndispatched(catalogue.getCatalogueId(),
+                    CatalogueStatusEnum.IN_PROGRESS.getCode(),
+                    hasContent ? CatalogueStatusEnum.COMPLETED.getCode() : CatalogueStatusEnum.FAILED.getCode(),
+                    "发送到队列失败: " + e.getMessage(), LocalDateTime.now());
+            if (updated > 0) {
+                onDocumentFinished(task);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 抢占并投递父目录，只有把状态从等待中改为进行中的调用者会投递
+     *
+     * @param finishedTask 触发调度的子目录任务，子树重新生成时父目录沿用其重新生成标记与补充要求
+     */
+    private void tryDispatchParent(String parentCatalogueId, String fileTree, String localPath, String projectName,
+                                   DocumentGenerationTask finishedTask) {
+        int updated = catalogueMapper.markParentReady(parentCatalogueId,
+                CatalogueStatusEnum.WAITING.getCode(), CatalogueStatusEnum.IN_PROGRESS.getCode(), LocalDateTime.now());
+        if (updated == 0) {
+            return;
+        }
+        Catalogue parent = catalogueMapper.selectOne(
+            new LambdaQueryWrapper<Catalogue>()
+                .eq(Catalogue::getCatalogueId, parentCatalogueId)
+        );
+        if (parent == null) {
+            return;
+        }
+        try {
+            DocumentGenerationTask task = DocumentGenerationTask.create(parent, fileTree, toCatalogueStruct(parent), localPath);
+            task.setProjectName(projectName);
+            if (finishedTask != null && finishedTask.isRegeneration()) {
+                task.markRegeneration(finishedTask.getHint());
+                documentGenerationProducer.sendRegenerationTask(task);
+            } else {
+                documentGenerationProducer.sendTask(task);
+            }
+            log.info("子目录已全部结束，投递父目录文档生成任务: taskId={}, catalogueName={}",
+                    parent.getTaskId(), parent.getName());
+        } catch (Exception e) {
+            log.error("投递父目录文档生成任务失败: catalogueName={}, error={}", parent.getName(), e.getMessage(), e);
+            catalogueMapper.finishUndispatched(parentCatalogueId, CatalogueStatusEnum.IN_PROGRESS.getCode(),
+                    CatalogueStatusEnum.FAILED.getCode(), "发送到队列失败: " + e.getMessage(), LocalDateTime.now());
+        }
+    }
+
+    /**
+     * 由目录记录还原该目录的结构上下文
+     */
+    private CatalogueStruct toCatalogueStruct(Catalogue catalogue) {
+        CatalogueStruct.Item item = new CatalogueStruct.Item();
+        item.setName(catalogue.getName());
+        item.setTitle(catalogue.getTitle());
+        item.setPrompt(catalogue.getPrompt());
+        if (StringUtils.hasText(catalogue.getDependentFile())) {
+            item.setDependent_file(JSON.parseArray(catalogue.getDependentFile(), String.class));
+        }
+        if (StringUtils.hasText(catalogue.getChildren())) {
+            item.setChildren(JSON.parseArray(catalogue.getChildren(), CatalogueStruct.Item.class));
+        }
+        CatalogueStruct struct = new CatalogueStruct();
+        struct.setItems(List.of(item));
+        return struct;
+    }
+}
@@ -0,0 +1,146 @@
+package com.hxg.queue.service;
+
+import com.hxg.model.entity.DocumentLedger;
+import com.hxg.model.mapper.DocumentLedgerMapper;
+import com.hxg.queue.model.DocumentGenerationTask;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author hxg
+ * @description: 文档处理幂等台账：投递时为目录开启新的处理代次，消费者以(目录, 代次, 尝试次数)做PENDING→IN_PROGRESS的条件更新，
+ * Kafka至少一次投递、重平衡后的重复消息以及被重试消息取代的原消息在调用LLM前即被跳过
+ * @date 2025/8/23
+ */
+@Slf4j
+@Component
+public class DocumentLedgerService {
+
+    public static final String METRIC_DUPLICATES = "wiki.document.duplicates.skipped";
+
+    /**
+     * 重复原因：目录已结束或正由其他节点处理（租约抢占失败）
+     */
+    public static final String REASON_LEASE = "lease";
+
+    /**
+     * 重复原因：台账中该代次已被处理、已被新代次取代或尝试次数不匹配
+     */
+    public static final String REASON_LEDGER = "ledger";
+
+    private final DocumentLedgerMapper ledgerMapper;
+    private final CatalogueLeaseManager leaseManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${project.wiki.idempotency.enabled:true}")
+    private boolean enabled = true;
+
+    public DocumentLedgerService(DocumentLedgerMapper ledgerMapper, CatalogueLeaseManager leaseManager,
+                                 MeterRegistry meterRegistry) {
+        this.ledgerMapper = ledgerMapper;
+        this.leaseManager = leaseManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 为即将投递的任务开启目录的新处理代次，旧代次中未结束的消息随之作废
+     */
+    public void open(DocumentGenerationTask task) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        ledgerMapper.openGeneration(task.getTaskId(), task.getCatalogueId(), now);
+        Integer generation = ledgerMapper.selectLatestGeneration(task.getCatalogueId());
+        ledgerMapper.supersedeBefore(task.getCatalogueId(), generation, now);
+        task.setGeneration(generation);
+    }
+
+    /**
+     * 抢占消息对应代次与尝试次数的处理权；未携带代次的消息（台账启用前投递）直接放行
+     *
+     * @return 抢占成功返回true，重复消息返回false
+     */
+    public boolean claim(DocumentGenerationTask task) {
+        if (!enabled || task.getGeneration() == null) {
+            return true;
+        }
+        return ledgerMapper.claim(task.getCatalogueId(), task.getGeneration(), attemptOf(task),
+                leaseManager.getNodeId(), LocalDateTime.now()) > 0;
+    }
+
+    public void complete(DocumentGenerationTask task) {
+        finish(task, attemptOf(task), DocumentLedger.STATUS_COMPLETED);
+    }
+
+    /**
+     * 最终失败（进入死信队列），调用前重试次数已经递增
+     */
+    public void fail(DocumentGenerationTask task) {
+        finish(task, attemptOf(task) - 1, DocumentLedger.STATUS_FAILED);
+    }
+
+    /**
+     * 失败后转入重试队列，调用前重试次数已经递增，之后只有该次数的重试消息能抢占处理权
+     */
+    public void scheduleRetry(DocumentGenerationTask task) {
+        if (!enabled || task.getGeneration() == null) {
+            return;
+        }
+        int attempt = attemptOf(task);
+        ledgerMapper.reopen(task.getCatalogueId(), task.getGeneration(), attempt - 1, attempt, LocalDateTime.now());
+    }
+
+    /**
+     * 处理被中断且消息未确认，退回PENDING让重新投递的同一条消息可以再次抢占
+     */
+    public void abandon(DocumentGenerationTask task) {
+        if (!enabled || task.getGeneration() == null) {
+            return;
+        }
+        int attempt = attemptOf(task);
+        ledgerMapper.reopen(task.getCatalogueId(), task.getGeneration(), attempt, attempt, LocalDateTime.now());
+    }
+
+    /**
+     * 撤销任务已投递的文档消息，尚未处理的消息在抢占时被跳过
+     */
+    public void cancelTask(String taskId) {
+        if (!enabled) {
+            return;
+        }
+        ledgerMapper.supersedeByTask(taskId, LocalDateTime.now());
+    }
+
+    /**
+     * 记录一次被跳过的重复消息
+     *
+     * @param reason 重复原因：lease / ledger
+     */
+    public void recordDuplicate(DocumentGenerationTask task, String reason) {
+        meterRegistry.counter(METRIC_DUPLICATES, "reason", reason).increment();
+        if (!enabled || task.getGeneration() == null) {
+            return;
+        }
+        try {
+            ledgerMapper.incrementDuplicates(task.getCatalogueId(), task.getGeneration());
+        } catch (Exception e) {
+            log.warn("记录重复消息失败: catalogueId={}, error={}", task.getCatalogueId(), e.getMessage());
+        }
+    }
+
+    private void finish(DocumentGenerationTask task, int attempt, String status) {
+        if (!enabled || task.getGeneration() == null) {
+            return;
+        }
+        ledgerMapper.finish(task.getCatalogueId(), task.getGeneration(), attempt, status, LocalDateTime.now());
+    }
+
+    private int attemptOf(DocumentGenerationTask task) {
+        return task.getRetryCount() != null ? task.getRetryCount() : 0;
+    }
+}
@@ -2,23 +2,41 @@ package com.hxg.queue.service;
 
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.hxg.analysis.RepositoryAnalyzer;
+import com.hxg.config.SqliteWriteQueue;
 import com.hxg.llm.prompt.GenDocPrompt;
+import com.hxg.llm.ratelimit.LlmPriority;
+import com.hxg.llm.routing.ModelRouter;
+import com.hxg.llm.routing.RoutingDecision;
 import com.hxg.llm.service.LlmService;
 import com.hxg.llm.tool.FileSystemTool;
+import com.hxg.llm.usage.TokenEstimator;
+import com.hxg.model.context.GenerationTraceContext;
+import com.hxg.model.context.LlmCallBudget;
+import com.hxg.model.context.LlmCallContext;
 import com.hxg.model.mapper.CatalogueMapper;
 import com.hxg.model.mapper.TaskMapper;
 import com.hxg.model.entity.Catalogue;
 import com.hxg.model.entity.Task;
 import com.hxg.model.enums.CatalogueStatusEnum;
 import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.snapshot.RepositorySnapshotService;
+import com.hxg.utils.DocumentDigestUtil;
+import com.hxg.service.ICatalogueContentService;
 import com.hxg.service.IMemoryIntegrationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,29 +54,64 @@ public class DocumentProcessingService {
     private final CatalogueMapper catalogueMapper;
     private final TaskMapper taskMapper;
     private final IMemoryIntegrationService memoryIntegrationService;
+    private final TokenEstimator tokenEstimator;
+    private final ModelRouter modelRouter;
+    private final RepositoryAnalyzer repositoryAnalyzer;
+    private final RepositorySnapshotService snapshotService;
+    private final SqliteWriteQueue writeQueue;
+    private final ICatalogueContentService catalogueContentService;
+    private final CatalogueLeaseManager leaseManager;
     
     @Value("${project.wiki.prompt.doc-version}")
     private String docPromptVersion;
     
+    /**
+     * 父目录prompt中每个子目录摘要的最大字符数
+     */
+    @Value("${project.wiki.prompt.children-digest-chars:600}")
+    private int childrenDigestChars;
+    
+    @Value("${project.wiki.llm.budget.document.max-tool-calls:40}")
+    private int maxToolCalls;
+    
+    @Value("${project.wiki.llm.budget.document.max-tokens:400000}")
+    private long maxTokens;
+    
+    @Value("${project.wiki.llm.budget.document.max-wall-seconds:600}")
+    private long maxWallSeconds;
+    
     // 用于记录已经索引代码文件的任务，防止重复索引
     private static final Set<String> codeFilesIndexedTasks = ConcurrentHashMap.newKeySet();
     
     public DocumentProcessingService(LlmService llmService, 
                                    CatalogueMapper catalogueMapper,
                                    TaskMapper taskMapper,
-                                   IMemoryIntegrationService memoryIntegrationService) {
+                                   IMemoryIntegrationService memoryIntegrationService,
+                                   TokenEstimator tokenEstimator,
+                                   ModelRouter modelRouter,
+                                   RepositoryAnalyzer repositoryAnalyzer,
+                                   RepositorySnapshotService snapshotService,
+                                   SqliteWriteQueue writeQueue,
+                                   ICatalogueContentService catalogueContentService,
+                                   CatalogueLeaseManager leaseManager) {
         this.llmService = llmService;
         this.catalogueMapper = catalogueMapper;
         this.taskMapper = taskMapper;
         this.memoryIntegrationService = memoryIntegrationService;
+        this.tokenEstimator = tokenEstimator;
+        this.modelRouter = modelRouter;
+        this.repositoryAnalyzer = repositoryAnalyzer;
+        this.snapshotService = snapshotService;
+        this.writeQueue = writeQueue;
+        this.catalogueContentService = catalogueContentService;
+        this.leaseManager = leaseManager;
         log.info("DocumentProcessingService initialized with docPromptVersion: {}", docPromptVersion);
     }
     
     /**
-     * 处理文档生成任务
+     * 处理文档生成任务。不开启事务：业务库只有一个写连接，事务会在整个LLM调用期间占用它
      * @param task 文档生成任务
      */
-    @Transactional
     public void processTask(DocumentGenerationTask task) {
         String taskId = task.getTaskId();
         String catalogueName = task.getCatalogueName();
@@ -84,61 +137,93 @@ public class DocumentProcessingService {
             throw new TaskDeletedException("目录记录已被删除: " + task.getCatalogueId());
         }
         
+        LlmCallContext llmContext = null;
+        
         // 先清理可能存在的旧ThreadLocal值
         FileSystemTool.clearProjectRoot();
         
-        // 设置项目根路径到 ThreadLocal，供 FileSystemTool 使用
-        FileSystemTool.setProjectRoot(task.getLocalPath());
-        log.debug("为任务 {} 设置项目根路径: {}", taskId, task.getLocalPath());
-        
         try {
+            // 消息来自其他节点时从仓库快照拉取到本地，后续读取与重新投递的消息都使用本地目录
+            task.setLocalPath(snapshotService.resolve(task));
+            
+            // 设置项目根路径到 ThreadLocal，供 FileSystemTool 使用
+            FileSystemTool.setProjectRoot(task.getLocalPath());
+            log.debug("为任务 {} 设置项目根路径: {}", taskId, task.getLocalPath());
+            
             // 获取对应版本的prompt模板
             String prompt = getPromptByVersion(docPromptVersion);
             if (prompt == null) {
                 throw new RuntimeException("未找到对应版本的prompt模板: " + docPromptVersion);
             }
             
+            // 父目录以子目录文档摘要代替已被子目录覆盖的源码文件
+            List<Catalogue> children = getChildCatalogues(task.getCatalogueId());
+            List<String> dependentFiles = resolveDependentFiles(existingCatalogue, children);
+            String childrenDigest = buildChildrenDigest(children);
+            // 依赖文件的类型与依赖关系，来自任务级的仓库静态分析
+            String fileFacts = repositoryAnalyzer.describeFilesFor(taskId, task.getLocalPath(), dependentFiles);
+            
             // 构建完整的prompt
-            prompt = buildPrompt(prompt, task);
+            prompt = buildPrompt(prompt, task, dependentFiles, childrenDigest, fileFacts);
             
             // 记录token消耗监控信息
-            logTokenUsageInfo(prompt, task);
+            logTokenUsageInfo(prompt, task, dependentFiles, children.size());
             
             log.info("开始生成目录详情，使用prompt版本: {}, catalogueName: {}, promptLength: {}", 
                     docPromptVersion, catalogueName, prompt.length());
             
-            // 调用LLM服务生成内容
-            String result = llmService.callWithTools(prompt);
+            // 按复杂度选择模型档位
+            RoutingDecision routing = routeModel(existingCatalogue, task, prompt, dependentFiles);
+            
+            // 调用LLM服务生成内容，真实token消耗按目录记录，单篇文档受调用预算约束
+            llmContext = LlmCallContext.of(taskId, task.getCatalogueId(), LlmCallContext.TYPE_DOCUMENT);
+            llmContext.setBudget(LlmCallBudget.builder()
+                    .maxToolCalls(maxToolCalls)
+                    .maxTokens(maxTokens)
+                    .maxWallMs(maxWallSeconds * 1000)
+                    .build());
+            llmContext.setModel(routing.getModel());
+            llmContext.setRouteTier(routing.getTier());
+            llmContext.setComplexityScore(routing.getScore());
+            GenerationTraceContext trace = GenerationTraceContext.current();
+            if (trace != null) {
+                trace.setLlmContext(llmContext);
+            }
+            if (task.isRegeneration()) {
+                // 用户主动重新生成，在等待结果，优先于后台批量文档获得配额
+                llmContext.setPriority(LlmPriority.HIGH);
+            }
+            String result = llmService.callWithTools(prompt, llmContext);
             
             if (!StringUtils.hasText(result)) {
                 throw new RuntimeException("LLM生成目录详情结果为空");
             }
             
-            log.info("LLM生成完成: taskId={}, catalogueName={}, resultLength={}", 
-                    taskId, catalogueName, result.length());
+            log.info("LLM生成完成: taskId={}, catalogueName={}, model={}, resultLength={}, turns={}, toolCalls={}, totalTokens={}, budgetBreach={}", 
+                    taskId, catalogueName, llmContext.getModel(), result.length(), llmContext.getTurns(),
+                    llmContext.getToolCalls(), llmContext.getTotalTokens(), llmContext.getBudgetBreach());
             
             // 更新数据库状态为完成
-            updateCatalogueStatus(task.getCatalogueId(), result, 
-                    CatalogueStatusEnum.COMPLETED.getCode(), null);
+            if (!updateCatalogueStatus(task.getCatalogueId(), result, 
+                    CatalogueStatusEnum.COMPLETED.getCode(), null, llmContext)) {
+                throw new LeaseLostException("目录已删除或租约已被其他节点接管: " + task.getCatalogueId());
+            }
             
             // 异步索引到Mem0记忆系统
             indexToMemorySystemAsync(task, result);
             
             log.info("文档生成任务处理完成: taskId={}, catalogueName={}", taskId, catalogueName);
             
-        } catch (TaskDeletedException e) {
-            // 任务已删除异常，直接重新抛出，不需要更新状态
+        } catch (TaskDeletedException | LeaseLostException e) {
+            // 任务已删除或租约已失效，直接重新抛出，不需要更新状态
             throw e;
         } catch (Exception e) {
             log.error("处理文档生成任务失败: taskId={}, catalogueName={}, error={}", 
                     taskId, catalogueName, e.getMessage(), e);
             
-            // 更新数据库状态为失败
-            updateCatalogueStatus(task.getCatalogueId(), null, 
-                    CatalogueStatusEnum.FAILED.getCode(), e.getMessage());
-            
-            // 重新抛出异常，让消费者处理重试逻辑
-            throw new RuntimeException("文档生成失败: " + e.getMessage(), e);
+            // 目录保持进行中等待重试，超过最大重试次数后由markFinalFailure落定状态
+            // 重新抛出异常，让消费者处理重试逻辑；携带本次的调用上下文，最终失败时记录模型与超出的预算项
+            throw new DocumentGenerationException("文档生成失败: " + e.getMessage(), e, llmContext);
         } finally {
             // 确保清理 ThreadLocal，避免内存泄漏和状态污染
             try {
@@ -150,6 +235,42 @@ public class DocumentProcessingService {
         }
     }
     
+    /**
+     * 超过最大重试次数后落定目录状态。单次处理失败时不修改目录状态，目录仍为进行中，
+     * 这里落定状态，避免目录一直停留在进行中而被恢复任务反复投递
+     */
+    public void markFinalFailure(DocumentGenerationTask task, String reason) {
+        markFinalFailure(task, reason, null);
+    }
+    
+    /**
+     * 超过最大重试次数后落定目录状态，并记录最后一次尝试使用的模型与超出的预算项
+     *
+     * @param llmContext 最后一次尝试的LLM调用上下文，未调用LLM时为空
+     */
+    public void markFinalFailure(DocumentGenerationTask task, String reason, LlmCallContext llmContext) {
+        Catalogue catalogue = catalogueMapper.selectOne(
+            new LambdaQueryWrapper<Catalogue>()
+                .eq(Catalogue::getCatalogueId, task.getCatalogueId())
+        );
+        if (catalogue != null) {
+            applyFailure(catalogue, reason, llmContext);
+        }
+    }
+    
+    /**
+     * 生成失败：已有文档（重新生成）时继续提供原有文档，否则标记为失败
+     */
+    private void applyFailure(Catalogue catalogue, String reason, LlmCallContext llmContext) {
+        if (catalogueContentService.hasContent(catalogue.getCatalogueId())) {
+            updateCatalogueStatus(catalogue.getCatalogueId(), null,
+                    CatalogueStatusEnum.COMPLETED.getCode(), "重新生成失败: " + reason, null);
+        } else {
+            updateCatalogueStatus(catalogue.getCatalogueId(), null,
+                    CatalogueStatusEnum.FAILED.getCode(), reason, llmContext);
+        }
+    }
+    
     /**
      * 根据版本获取prompt模板
      */
@@ -169,66 +290,188 @@ public class DocumentProcessingService {
     /**
      * 构建完整的prompt
      */
-    private String buildPrompt(String template, DocumentGenerationTask task) {
+    private String buildPrompt(String template, DocumentGenerationTask task, List<String> dependentFiles,
+                               String childrenDigest, String fileFacts) {
+        String prompt;
         // 对于v4版本的prompt，使用dependent_files而不是完整的fileTree
         if ("v4".equals(docPromptVersion)) {
-            // 从任务中获取dependent_files信息
-            String dependentFiles = getDependentFilesString(task);
-            
-            return template
+            prompt = template
                     .replace("{{repository_location}}", task.getLocalPath())
                     .replace("{{prompt}}", task.getPrompt())
                     .replace("{{title}}", task.getCatalogueName())
-                    .replace("{{dependent_files}}", dependentFiles);
+                    .replace("{{dependent_files}}", formatDependentFiles(dependentFiles));
         } else {
             // 传统版本使用完整数据
-            return template
+            prompt = template
                     .replace("{{repository_location}}", task.getLocalPath())
                     .replace("{{prompt}}", task.getPrompt())
                     .replace("{{title}}", task.getCatalogueName())
                     .replace("{{repository_files}}", task.getFileTree() != null ? task.getFileTree() : "")
                     .replace("{{catalogue}}", JSON.toJSONString(task.getCatalogueStruct()));
         }
+        if (StringUtils.hasText(fileFacts)) {
+            prompt = prompt + GenDocPrompt.fileFactsSection.replace("{{file_facts}}", fileFacts);
+        }
+        if (StringUtils.hasText(childrenDigest)) {
+            prompt = prompt + GenDocPrompt.childrenDigestSection.replace("{{children_digest}}", childrenDigest);
+        }
+        if (StringUtils.hasText(task.getHint())) {
+            prompt = prompt + GenDocPrompt.regenerationHintSection.replace("{{hint}}", task.getHint());
+        }
+        return prompt;
+    }
+    
+    private String formatDependentFiles(List<String> dependentFiles) {
+        return dependentFiles.isEmpty() ? "无特定依赖文件" : String.join(", ", dependentFiles);
     }
     
     /**
-     * 从目录记录中获取dependent_files字符串
+     * 查询直接子目录，已完成的子目录带文档内容用于生成摘要
      */
-    private String getDependentFilesString(DocumentGenerationTask task) {
+    private List<Catalogue> getChildCatalogues(String catalogueId) {
         try {
-            // 查询当前目录记录
-            Catalogue catalogue = catalogueMapper.selectOne(
-                new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<Catalogue>()
-                    .eq(Catalogue::getCatalogueId, task.getCatalogueId())
+            List<Catalogue> children = catalogueMapper.selectList(
+                new LambdaQueryWrapper<Catalogue>()
+                    .eq(Catalogue::getParentCatalogueId, catalogueId)
+                    .orderByAsc(Catalogue::getId)
             );
-            
-            if (catalogue != null && StringUtils.hasText(catalogue.getDependentFile())) {
-                // 解析dependent_file JSON数组并格式化
-                try {
-                    List<String> files = JSON.parseArray(catalogue.getDependentFile(), String.class);
-                    return String.join(", ", files);
-                } catch (Exception e) {
-                    log.warn("解析dependent_file失败: {}", e.getMessage());
-                    return catalogue.getDependentFile();
-                }
+            catalogueContentService.fillContent(children.stream()
+                    .filter(child -> CatalogueStatusEnum.COMPLETED.getCode().equals(child.getStatus()))
+                    .toList());
+            return children;
+        } catch (Exception e) {
+            log.warn("查询子目录失败: catalogueId={}, error={}", catalogueId, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+    
+    /**
+     * 目录自身的依赖文件中去掉已生成文档的子目录覆盖的文件
+     */
+    private List<String> resolveDependentFiles(Catalogue catalogue, List<Catalogue> children) {
+        List<String> dependentFiles = parseDependentFiles(catalogue);
+        if (children.isEmpty()) {
+            return dependentFiles;
+        }
+        Set<String> coveredFiles = new LinkedHashSet<>();
+        for (Catalogue child : children) {
+            if (CatalogueStatusEnum.COMPLETED.getCode().equals(child.getStatus())) {
+                coveredFiles.addAll(parseDependentFiles(child));
             }
-            
-            return "无特定依赖文件";
-            
+        }
+        return dependentFiles.stream()
+                .filter(file -> !coveredFiles.contains(file))
+                .toList();
+    }
+    
+    /**
+     * 已完成子目录的文档摘要，生成失败的子目录列出其依赖文件供父目录自行查阅
+     */
+    private String buildChildrenDigest(List<Catalogue> children) {
+        StringBuilder digest = new StringBuilder();
+        for (Catalogue child : children) {
+            String title = StringUtils.hasText(child.getTitle()) ? child.getTitle() : child.getName();
+            digest.append("### ").append(title).append('\n');
+            if (CatalogueStatusEnum.COMPLETED.getCode().equals(child.getStatus()) && StringUtils.hasText(child.getContent())) {
+                digest.append(DocumentDigestUtil.digest(child.getContent(), childrenDigestChars));
+            } else {
+                digest.append("（该子章节文档未生成，相关文件: ")
+                        .append(formatDependentFiles(parseDependentFiles(child))).append("）");
+            }
+            digest.append("\n\n");
+        }
+        return digest.toString().trim();
+    }
+    
+    /**
+     * 收集目录的复杂度特征并路由到对应档位的模型
+     */
+    private RoutingDecision routeModel(Catalogue catalogue, DocumentGenerationTask task, String prompt,
+                                       List<String> dependentFiles) {
+        long fileBytes = sumFileBytes(task.getLocalPath(), dependentFiles);
+        int depth = getCatalogueDepth(catalogue);
+        long promptTokens = tokenEstimator.estimate(prompt);
+        int retryCount = task.getRetryCount() != null ? task.getRetryCount() : 0;
+        
+        RoutingDecision decision = modelRouter.route(dependentFiles.size(), fileBytes, depth, promptTokens, retryCount);
+        log.info("🧭 模型路由 - taskId: {}, catalogueName: {}, tier: {}, model: {}, score: {}, " +
+                        "files: {}, fileBytes: {}, depth: {}, promptTokens: {}, reason: {}",
+                task.getTaskId(), task.getCatalogueName(), decision.getTier(), decision.getModel(), decision.getScore(),
+                dependentFiles.size(), fileBytes, depth, promptTokens, decision.getReason());
+        return decision;
+    }
+    
+    private List<String> parseDependentFiles(Catalogue catalogue) {
+        if (!StringUtils.hasText(catalogue.getDependentFile())) {
+            return Collections.emptyList();
+        }
+        try {
+            return JSON.parseArray(catalogue.getDependentFile(), String.class);
         } catch (Exception e) {
-            log.error("获取dependent_files失败: {}", e.getMessage());
-            return "获取文件信息失败";
+            log.warn("解析dependent_file失败: {}", e.getMessage());
+            return Collections.emptyList();
         }
     }
     
+    /**
+     * 统计依赖文件总字节数，依赖项为目录时统计其下所有文件
+     */
+    private long sumFileBytes(String localPath, List<String> dependentFiles) {
+        if (!StringUtils.hasText(localPath)) {
+            return 0;
+        }
+        long total = 0;
+        Path root = Paths.get(localPath);
+        for (String file : dependentFiles) {
+            Path path = root.resolve(file).normalize();
+            if (!path.startsWith(root) || !Files.exists(path)) {
+                continue;
+            }
+            try {
+                if (Files.isDirectory(path)) {
+                    try (var stream = Files.walk(path)) {
+                        total += stream.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+                    }
+                } else {
+                    total += Files.size(path);
+                }
+            } catch (IOException e) {
+                log.debug("统计依赖文件大小失败: {}, error={}", path, e.getMessage());
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * 目录层级，顶层为1
+     */
+    private int getCatalogueDepth(Catalogue catalogue) {
+        int depth = 1;
+        String parentId = catalogue.getParentCatalogueId();
+        // 限制向上查找的层数，防止脏数据形成环
+        while (StringUtils.hasText(parentId) && depth < 10) {
+            Catalogue parent = catalogueMapper.selectOne(
+                new LambdaQueryWrapper<Catalogue>()
+                    .select(Catalogue::getCatalogueId, Catalogue::getParentCatalogueId)
+                    .eq(Catalogue::getCatalogueId, parentId)
+            );
+            if (parent == null) {
+                break;
+            }
+            depth++;
+            parentId = parent.getParentCatalogueId();
+        }
+        return depth;
+    }
+    
     /**
      * 记录Token使用监控信息
      */
-    private void logTokenUsageInfo(String prompt, DocumentGenerationTask task) {
+    private void logTokenUsageInfo(String prompt, DocumentGenerationTask task, List<String> dependentFiles, int childCount) {
         try {
             int promptLength = prompt.length();
-            // 估算token数量（粗略估算：4个字符≈1个token）
-            int estimatedTokens = promptLength / 4;
+            // 本地分词估算，按历史真实消耗校准；真实消耗在调用结束后记录
+            long estimatedTokens = tokenEstimator.estimate(prompt);
             
             // 统计优化情况
             boolean isOptimized = "v4".equals(docPromptVersion);
@@ -243,10 +486,9 @@ public class DocumentProcessingService {
             
             // 如果是优化版本，记录节省的估算
             if (isOptimized) {
-                String dependentFiles = getDependentFilesString(task);
-                log.info("🎯 Token优化详情 - dependentFiles: {}, " +
+                log.info("🎯 Token优化详情 - dependentFiles: {}, childDigests: {}, " +
                         "预计相比传统版本节省70-80%的token消耗", 
-                        dependentFiles);
+                        formatDependentFiles(dependentFiles), childCount);
             }
             
         } catch (Exception e) {
@@ -255,38 +497,42 @@ public class DocumentProcessingService {
     }
     
     /**
-     * 更新目录状态
+     * 更新目录状态。只写入本次处理产生的字段，并要求租约仍由本节点持有（或无人持有，如死信重放），
+     * 避免覆盖续约时间、处理代次等由其他流程维护的字段；写入失败时抛出异常，由消费者走重试流程
+     *
+     * @return 租约已被其他节点接管、目录已删除时返回false，此时不写入文档内容
      */
-    private void updateCatalogueStatus(String catalogueId, String content, Integer status, String failReason) {
-        try {
-            // 查询现有记录
-            Catalogue existingCatalogue = catalogueMapper.selectOne(
-                new LambdaQueryWrapper<Catalogue>()
-                    .eq(Catalogue::getCatalogueId, catalogueId)
-            );
-            
-            if (existingCatalogue == null) {
-                log.error("无法找到要更新的目录记录: catalogueId={}", catalogueId);
-                return;
-            }
-            
-            // 更新记录内容和状态
-            existingCatalogue.setContent(content);
-            existingCatalogue.setStatus(status);
-            existingCatalogue.setFailReason(failReason);
-            existingCatalogue.setUpdateTime(LocalDateTime.now());
-            
-            int updated = catalogueMapper.updateById(existingCatalogue);
-            if (updated > 0) {
-                log.info("目录状态更新成功: catalogueId={}, status={}", catalogueId, status);
-            } else {
-                log.warn("目录状态更新失败: catalogueId={}, status={}", catalogueId, status);
+    private boolean updateCatalogueStatus(String catalogueId, String content, Integer status, String failReason,
+                                          LlmCallContext llmContext) {
+        LambdaUpdateWrapper<Catalogue> update = new LambdaUpdateWrapper<Catalogue>()
+                .set(Catalogue::getStatus, status)
+                .set(Catalogue::getFailReason, failReason)
+                .set(Catalogue::getUpdateTime, LocalDateTime.now())
+                .eq(Catalogue::getCatalogueId, catalogueId);
+        if (llmContext != null) {
+            update.set(Catalogue::getModel, llmContext.getModel())
+                    .set(Catalogue::getComplexityScore, llmContext.getComplexityScore())
+                    .set(Catalogue::getBudgetBreach, llmContext.getBudgetBreach());
+        }
+        if (leaseManager.isEnabled()) {
+            update.and(owner -> owner.eq(Catalogue::getLeaseOwner, leaseManager.getNodeId())
+                    .or().isNull(Catalogue::getLeaseOwner));
+        }
+        
+        // 文档内容与目录状态在同一次写入中提交，内容为空时保留原有文档
+        int updated = writeQueue.execute(() -> {
+            int rows = catalogueMapper.update(null, update);
+            if (rows > 0 && content != null) {
+                catalogueContentService.saveContent(catalogueId, content);
             }
-            
-        } catch (Exception e) {
-            log.error("更新目录状态失败: catalogueId={}, status={}, error={}", 
-                    catalogueId, status, e.getMessage(), e);
+            return rows;
+        });
+        if (updated == 0) {
+            log.warn("目录已删除或租约已被其他节点接管，放弃本次状态更新: catalogueId={}, status={}", catalogueId, status);
+            return false;
         }
+        log.info("目录状态更新成功: catalogueId={}, status={}", catalogueId, status);
+        return true;
     }
     
     /**
@@ -357,6 +603,22 @@ public class DocumentProcessingService {
         }
     }
     
+    /**
+     * 文档生成失败异常，携带失败尝试的LLM调用上下文
+     */
+    public static class DocumentGenerationException extends RuntimeException {
+        private final transient LlmCallContext llmContext;
+        
+        public DocumentGenerationException(String message, Throwable cause, LlmCallContext llmContext) {
+            super(message, cause);
+            this.llmContext = llmContext;
+        }
+        
+        public LlmCallContext getLlmContext() {
+            return llmContext;
+        }
+    }
+    
     /**
      * 任务已删除异常
      */
@@ -365,4 +627,13 @@ public class DocumentProcessingService {
             super(message);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 租约已失效异常：生成期间目录被删除或租约被其他节点接管，本次结果未写入
+     */
+    public static class LeaseLostException extends RuntimeException {
+        public LeaseLostException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.hxg.queue.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.hxg.model.entity.Catalogue;
+import com.hxg.model.entity.Task;
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.service.ICatalogueService;
+import com.hxg.service.IFileService;
+import com.hxg.service.ITaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @author hxg
+ * @description: 文档生成故障恢复：周期性扫描租约超时或消息丢失的进行中目录，以及子目录已全部结束却仍在等待的父目录，
+ * 必要时重新拉取仓库后只重新投递这些未完成的目录，节点重启后无需重新生成整个任务
+ * @date 2025/8/22
+ */
+@Slf4j
+@Service
+public class DocumentRecoveryService {
+
+    private final CatalogueMapper catalogueMapper;
+    private final TaskMapper taskMapper;
+    private final ITaskService taskService;
+    private final IFileService fileService;
+    private final ICatalogueService catalogueService;
+    private final DocumentDagScheduler dagScheduler;
+    private final CatalogueLeaseManager leaseManager;
+
+    /**
+     * 没有节点处理的进行中目录超过该时长未更新视为消息丢失（正常排队的消息不会被重复投递）
+     */
+    @Value("${project.wiki.recovery.queued-timeout-minutes:360}")
+    private long queuedTimeoutMinutes = 360;
+
+    public DocumentRecoveryService(CatalogueMapper catalogueMapper, TaskMapper taskMapper, ITaskService taskService,
+                                   IFileService fileService, ICatalogueService catalogueService,
+                                   DocumentDagScheduler dagScheduler, CatalogueLeaseManager leaseManager) {
+        this.catalogueMapper = catalogueMapper;
+        this.taskMapper = taskMapper;
+        this.taskService = taskService;
+        this.fileService = fileService;
+        this.catalogueService = catalogueService;
+        this.dagScheduler = dagScheduler;
+        this.leaseManager = leaseManager;
+    }
+
+    @Scheduled(initialDelayString = "${project.wiki.recovery.initial-delay-ms:30000}",
+            fixedDelayString = "${project.wiki.recovery.sweep-interval-ms:60000}")
+    public void recover() {
+        if (!leaseManager.isEnabled()) {
+            return;
+        }
+        try {
+            int redispatched = recoverStaleCatalogues();
+            int parents = recoverReadyParents();
+            if (redispatched > 0 || parents > 0) {
+                log.info("文档生成故障恢复完成: 重新投递目录数={}, 调度等待中的父目录数={}", redispatched, parents);
+            }
+        } catch (Exception e) {
+            log.error("文档生成故障恢复失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 重新投递租约超时或消息丢失的进行中目录
+     */
+    int recoverStaleCatalogues() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = leaseManager.staleBefore(now);
+        LocalDateTime queuedBefore = now.minusMinutes(queuedTimeoutMinutes);
+        Integer inProgress = CatalogueStatusEnum.IN_PROGRESS.getCode();
+        Map<String, List<Catalogue>> byTask = groupByTask(catalogueMapper.selectStale(inProgress, staleBefore, queuedBefore));
+
+        int redispatched = 0;
+        for (Map.Entry<String, List<Catalogue>> entry : byTask.entrySet()) {
+            TaskCheckout checkout = prepare(entry.getKey());
+            if (checkout == null) {
+                continue;
+            }
+            for (Catalogue catalogue : entry.getValue()) {
+                // 抢占恢复权，其他节点已恢复或原节点刚好续约时跳过
+                if (catalogueMapper.resetStale(catalogue.getCatalogueId(), inProgress, staleBefore, queuedBefore, now) == 0) {
+                    continue;
+                }
+                if (dagScheduler.redispatch(catalogue, checkout.fileTree(), checkout.localPath(), checkout.task().getProjectName())) {
+                    redispatched++;
+                }
+            }
+        }
+        return redispatched;
+    }
+
+    /**
+     * 调度子目录已全部结束却仍在等待的父目录
+     */
+    int recoverReadyParents() {
+        LocalDateTime before = leaseManager.staleBefore(LocalDateTime.now());
+        Map<String, List<Catalogue>> byTask = groupByTask(catalogueMapper.selectReadyParents(
+                CatalogueStatusEnum.WAITING.getCode(), CatalogueStatusEnum.IN_PROGRESS.getCode(), before));
+
+        int dispatched = 0;
+        for (Map.Entry<String, List<Catalogue>> entry : byTask.entrySet()) {
+            TaskCheckout checkout = prepare(entry.getKey());
+            if (checkout == null) {
+                continue;
+            }
+            for (Catalogue parent : entry.getValue()) {
+                dagScheduler.dispatchIfReady(parent.getCatalogueId(), checkout.fileTree(), checkout.localPath(),
+                        checkout.task().getProjectName());
+                dispatched++;
+            }
+        }
+        return dispatched;
+    }
+
+    /**
+     * 准备任务的仓库目录与文件树并重建内存中的任务状态；任务已删除时返回null，
+     * 仓库无法恢复时结束该任务全部未完成的目录
+     */
+    private TaskCheckout prepare(String taskId) {
+        Task task = taskMapper.selectOne(new LambdaQueryWrapper<Task>().eq(Task::getTaskId, taskId));
+        if (task == null) {
+            return null;
+        }
+        String localPath = taskService.ensureCheckout(task);
+        if (localPath == null) {
+            int failed = catalogueMapper.failUnfinished(taskId, CatalogueStatusEnum.FAILED.getCode(),
+                    CatalogueStatusEnum.IN_PROGRESS.getCode(), CatalogueStatusEnum.WAITING.getCode(),
+                    "生成中断且仓库目录已不存在，无法恢复", LocalDateTime.now());
+            log.warn("任务{}的仓库目录无法恢复，结束未完成的目录{}个", taskId, failed);
+            return null;
+        }
+        catalogueService.cacheTaskProjectPath(taskId, localPath);
+        return new TaskCheckout(task, localPath, fileService.getFileTree(localPath));
+    }
+
+    private Map<String, List<Catalogue>> groupByTask(List<Catalogue> catalogues) {
+        return catalogues.stream().collect(Collectors.groupingBy(Catalogue::getTaskId, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    private record TaskCheckout(Task task, String localPath, String fileTree) {
+    }
+}
@@ -0,0 +1,338 @@
+package com.hxg.queue.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.hxg.model.entity.DeadLetter;
+import com.hxg.model.mapper.DeadLetterMapper;
+import com.hxg.model.vo.QueueStatsVo;
+import com.hxg.queue.backend.DocumentQueue;
+import com.hxg.queue.consumer.DocumentGenerationConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @author hxg
+ * @description: 文档生成队列监控：对比消费位点与分区末端位点计算积压（Kafka或内置队列），
+ * 统计重试与死信深度、并发占用、处理耗时分布与分区吞吐，估算排空时间，并以Micrometer指标输出用于消费者扩缩容
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+public class QueueMetricsService {
+
+    public static final String METRIC_PROCESSING = "wiki.document.processing";
+    public static final String METRIC_PROCESSED = "wiki.document.processed";
+    public static final String METRIC_PARTITION_LAG = "wiki.kafka.consumer.lag";
+    public static final String METRIC_QUEUE_DEPTH = "wiki.kafka.queue.depth";
+    public static final String METRIC_DRAIN_SECONDS = "wiki.kafka.drain.seconds";
+    public static final String METRIC_INFLIGHT = "wiki.document.inflight";
+    public static final String METRIC_DLQ_PENDING = "wiki.dlq.pending";
+
+    public static final String OUTCOME_COMPLETED = "completed";
+    public static final String OUTCOME_FAILED = "failed";
+    public static final String OUTCOME_DUPLICATE = "duplicate";
+    public static final String OUTCOME_DELETED = "deleted";
+    public static final String OUTCOME_INTERRUPTED = "interrupted";
+
+    public static final String ROLE_MAIN = "main";
+    public static final String ROLE_REGENERATION = "regeneration";
+    public static final String ROLE_RETRY = "retry";
+    public static final String ROLE_DLQ = "dlq";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DocumentQueue documentQueue;
+    private final DeadLetterMapper deadLetterMapper;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<DocumentGenerationConsumer> consumerProvider;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    @Value("${project.wiki.kafka.topics.doc-generation}")
+    private String docGenerationTopic;
+
+    @Value("${project.wiki.kafka.topics.doc-regeneration:doc-regeneration-topic}")
+    private String docRegenerationTopic;
+
+    @Value("${project.wiki.kafka.topics.doc-retry}")
+    private String docRetryTopic;
+
+    @Value("${project.wiki.kafka.topics.doc-dlq}")
+    private String docDlqTopic;
+
+    @Value("${project.wiki.kafka.metrics.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 吞吐统计窗口(秒)
+     */
+    @Value("${project.wiki.kafka.metrics.throughput-window-seconds:300}")
+    private long throughputWindowSeconds = 300;
+
+    /**
+     * 各分区（topic-partition）在统计窗口内处理完成的时间戳
+     */
+    private final Map<String, Deque<Long>> processedTimes = new ConcurrentHashMap<>();
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile QueueStatsVo lastSnapshot;
+
+    private MultiGauge partitionLagGauge;
+
+    public QueueMetricsService(DocumentQueue documentQueue, DeadLetterMapper deadLetterMapper, MeterRegistry meterRegistry,
+                               ObjectProvider<DocumentGenerationConsumer> consumerProvider) {
+        this.documentQueue = documentQueue;
+        this.deadLetterMapper = deadLetterMapper;
+        this.meterRegistry = meterRegistry;
+        this.consumerProvider = consumerProvider;
+    }
+
+    @PostConstruct
+    public void registerGauges() {
+        // 积压类指标读取定时刷新的快照，避免每次采集都请求Kafka
+        partitionLagGauge = MultiGauge.builder(METRIC_PARTITION_LAG)
+                .description("消费组在各分区上的积压消息数")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_QUEUE_DEPTH, this, service -> snapshotValue(QueueStatsVo::getRetryDepth))
+                .tag("role", ROLE_RETRY).register(meterRegistry);
+        Gauge.builder(METRIC_QUEUE_DEPTH, this, service -> snapshotValue(QueueStatsVo::getDlqDepth))
+                .tag("role", ROLE_DLQ).register(meterRegistry);
+        Gauge.builder(METRIC_DRAIN_SECONDS, this, service -> snapshotValue(QueueStatsVo::getEstimatedDrainSeconds))
+                .register(meterRegistry);
+        Gauge.builder(METRIC_DLQ_PENDING, this, service -> snapshotValue(QueueStatsVo::getPendingDeadLetters))
+                .register(meterRegistry);
+        Gauge.builder(METRIC_INFLIGHT, this, service -> consumerValue(DocumentGenerationConsumer::getInFlight))
+                .tag("queue", ROLE_MAIN).register(meterRegistry);
+        Gauge.builder(METRIC_INFLIGHT, this, service -> consumerValue(DocumentGenerationConsumer::getRegenerationInFlight))
+                .tag("queue", ROLE_REGENERATION).register(meterRegistry);
+    }
+
+    /**
+     * 记录一条消息的处理结果与耗时
+     *
+     * @param outcome 处理结果：completed / failed / duplicate / deleted / interrupted
+     */
+    public void recordProcessed(String topic, int partition, String outcome, long durationMs) {
+        Timer.builder(METRIC_PROCESSING)
+                .description("文档生成消息的处理耗时")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+        meterRegistry.counter(METRIC_PROCESSED, "topic", topic, "partition", String.valueOf(partition),
+                "outcome", outcome).increment();
+        long now = System.currentTimeMillis();
+        Deque<Long> times = processedTimes.computeIfAbsent(topic + "-" + partition, key -> new ConcurrentLinkedDeque<>());
+        times.addLast(now);
+        trim(times, now);
+    }
+
+    @Scheduled(initialDelayString = "${project.wiki.kafka.metrics.refresh-interval-ms:15000}",
+            fixedDelayString = "${project.wiki.kafka.metrics.refresh-interval-ms:15000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (Exception e) {
+            log.warn("刷新队列监控快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 最近一次定时刷新的快照，尚未刷新时为null
+     */
+    public QueueStatsVo getLastSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * 计算当前的队列运行状态并更新指标快照
+     */
+    public QueueStatsVo snapshot() {
+        Map<String, String> roles = new LinkedHashMap<>();
+        roles.put(docGenerationTopic, ROLE_MAIN);
+        roles.put(docRegenerationTopic, ROLE_REGENERATION);
+        roles.put(docRetryTopic, ROLE_RETRY);
+        roles.put(docDlqTopic, ROLE_DLQ);
+
+        long now = System.currentTimeMillis();
+        double windowMinutes = Math.max(Math.min(throughputWindowSeconds * 1000, now - startTime), 1000) / 60000.0;
+
+        List<QueueStatsVo.TopicStat> topics = new ArrayList<>();
+        String error = null;
+        try {
+            topics = topicStats(roles, windowMinutes, now);
+        } catch (Exception e) {
+            error = e.getMessage();
+            log.warn("查询消费组积压失败: groupId={}, error={}", groupId, e.getMessage());
+        }
+
+        long processed = processedTimes.values().stream().mapToLong(times -> countSince(times, now)).sum();
+        double throughputPerMinute = processed / windowMinutes;
+        Long backlog = error != null ? null : topics.stream()
+                .filter(topic -> !ROLE_DLQ.equals(topic.getRole()))
+                .mapToLong(QueueStatsVo.TopicStat::getLag)
+                .sum();
+        Long drainSeconds = backlog == null || throughputPerMinute <= 0 ? null
+                : (long) Math.ceil(backlog / throughputPerMinute * 60);
+
+        DocumentGenerationConsumer consumer = consumerProvider.getIfAvailable();
+        QueueStatsVo stats = QueueStatsVo.builder()
+                .groupId(groupId)
+                .snapshotTime(LocalDateTime.now().format(TIME_FORMATTER))
+                .error(error)
+                .topics(topics)
+                .inFlight(consumer != null ? consumer.getInFlight() : null)
+                .maxConcurrency(consumer != null ? consumer.getMaxConcurrency() : null)
+                .regenerationInFlight(consumer != null ? consumer.getRegenerationInFlight() : null)
+                .regenerationConcurrency(consumer != null ? consumer.getRegenerationConcurrency() : null)
+                .retryDepth(roleLag(topics, ROLE_RETRY, error))
+                .dlqDepth(roleLag(topics, ROLE_DLQ, error))
+                .pendingDeadLetters(deadLetterMapper.selectCount(new LambdaQueryWrapper<DeadLetter>()
+                        .eq(DeadLetter::getStatus, DeadLetter.STATUS_DEAD)))
+                .throughputPerMinute(round(throughputPerMinute))
+                .estimatedDrainSeconds(drainSeconds)
+                .processing(processingStats())
+                .build();
+
+        lastSnapshot = stats;
+        if (error == null && partitionLagGauge != null) {
+            List<MultiGauge.Row<?>> rows = new ArrayList<>();
+            for (QueueStatsVo.TopicStat topic : topics) {
+                for (QueueStatsVo.PartitionStat partition : topic.getPartitions()) {
+                    rows.add(MultiGauge.Row.of(Tags.of("topic", topic.getTopic(),
+                            "partition", String.valueOf(partition.getPartition())), partition.getLag()));
+                }
+            }
+            partitionLagGauge.register(rows, true);
+        }
+        return stats;
+    }
+
+    /**
+     * 查询各主题分区的位点，按已提交位点（未提交过时为最早位点）计算积压
+     */
+    private List<QueueStatsVo.TopicStat> topicStats(Map<String, String> roles, double windowMinutes, long now)
+            throws Exception {
+        Map<String, List<DocumentQueue.PartitionOffsets>> offsets = documentQueue.offsets(roles.keySet());
+        List<QueueStatsVo.TopicStat> topics = new ArrayList<>();
+        for (Map.Entry<String, List<DocumentQueue.PartitionOffsets>> entry : offsets.entrySet()) {
+            String topic = entry.getKey();
+            List<QueueStatsVo.PartitionStat> partitions = entry.getValue().stream()
+                    .map(offset -> {
+                        long base = offset.committedOffset() != null ? offset.committedOffset() : offset.earliestOffset();
+                        Deque<Long> times = processedTimes.get(topic + "-" + offset.partition());
+                        return QueueStatsVo.PartitionStat.builder()
+                                .partition(offset.partition())
+                                .endOffset(offset.endOffset())
+                                .committedOffset(offset.committedOffset())
+                                .lag(Math.max(offset.endOffset() - base, 0))
+                                .throughputPerMinute(round(countSince(times, now) / windowMinutes))
+                                .build();
+                    })
+                    .toList();
+            topics.add(QueueStatsVo.TopicStat.builder()
+                    .topic(topic)
+                    .role(roles.get(topic))
+                    .lag(partitions.stream().mapToLong(QueueStatsVo.PartitionStat::getLag).sum())
+                    .partitions(partitions)
+                    .build());
+        }
+        return topics;
+    }
+
+    /**
+     * 按处理结果汇总处理耗时的分位数
+     */
+    private List<QueueStatsVo.ProcessingStat> processingStats() {
+        List<QueueStatsVo.ProcessingStat> stats = new ArrayList<>();
+        for (Timer timer : meterRegistry.find(METRIC_PROCESSING).timers()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<Double, Long> percentiles = new HashMap<>();
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                percentiles.put(value.percentile(), (long) value.value(TimeUnit.MILLISECONDS));
+            }
+            stats.add(QueueStatsVo.ProcessingStat.builder()
+                    .outcome(timer.getId().getTag("outcome"))
+                    .count(snapshot.count())
+                    .meanMs((long) snapshot.mean(TimeUnit.MILLISECONDS))
+                    .maxMs((long) snapshot.max(TimeUnit.MILLISECONDS))
+                    .p50Ms(percentiles.get(0.5))
+                    .p95Ms(percentiles.get(0.95))
+                    .p99Ms(percentiles.get(0.99))
+                    .build());
+        }
+        stats.sort(Comparator.comparing(QueueStatsVo.ProcessingStat::getOutcome, Comparator.nullsLast(String::compareTo)));
+        return stats;
+    }
+
+    private Long roleLag(List<QueueStatsVo.TopicStat> topics, String role, String error) {
+        if (error != null) {
+            return null;
+        }
+        return topics.stream()
+                .filter(topic -> role.equals(topic.getRole()))
+                .mapToLong(QueueStatsVo.TopicStat::getLag)
+                .sum();
+    }
+
+    private long countSince(Deque<Long> times, long now) {
+        if (times == null) {
+            return 0;
+        }
+        trim(times, now);
+        return times.size();
+    }
+
+    private void trim(Deque<Long> times, long now) {
+        long windowStart = now - throughputWindowSeconds * 1000;
+        Long head;
+        while ((head = times.peekFirst()) != null && head < windowStart) {
+            times.pollFirst();
+        }
+    }
+
+    private double snapshotValue(Function<QueueStatsVo, Long> getter) {
+        QueueStatsVo snapshot = lastSnapshot;
+        Long value = snapshot != null ? getter.apply(snapshot) : null;
+        return value != null ? value : Double.NaN;
+    }
+
+    private double consumerValue(Function<DocumentGenerationConsumer, Integer> getter) {
+        DocumentGenerationConsumer consumer = consumerProvider.getIfAvailable();
+        return consumer != null ? getter.apply(consumer) : Double.NaN;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
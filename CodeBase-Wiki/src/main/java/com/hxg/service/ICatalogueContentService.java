@@ -0,0 +1,51 @@
+package com.hxg.service;
+
+import com.hxg.model.entity.Catalogue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author hxg
+ * @description: 目录文档内容服务接口，文档内容压缩后存于独立的表，按目录ID读写
+ * @date 2025/8/25
+ */
+public interface ICatalogueContentService {
+
+    /**
+     * 读取目录的文档内容
+     *
+     * @return 文档内容，未生成时返回null
+     */
+    String getContent(String catalogueId);
+
+    /**
+     * 批量读取文档内容
+     *
+     * @return 目录ID -> 文档内容，未生成的目录不在结果中
+     */
+    Map<String, String> getContents(Collection<String> catalogueIds);
+
+    boolean hasContent(String catalogueId);
+
+    /**
+     * 为目录实体填充文档内容
+     */
+    void fillContent(List<Catalogue> catalogues);
+
+    /**
+     * 压缩并保存文档内容，已有内容时覆盖
+     */
+    void saveContent(String catalogueId, String content);
+
+    /**
+     * 复制文档内容到新目录（结果复用）
+     */
+    void copyContent(String sourceCatalogueId, String targetCatalogueId);
+
+    /**
+     * 删除任务全部目录的文档内容，需在删除目录之前调用
+     */
+    void deleteByTaskId(String taskId);
+}
@@ -4,7 +4,9 @@ import com.hxg.model.context.ExecutionContext;
 import com.hxg.model.dto.CatalogueStruct;
 import com.hxg.model.dto.GenCatalogueDTO;
 import com.hxg.model.entity.Catalogue;
+import com.hxg.model.param.RegenerateCatalogueParams;
 import com.hxg.model.vo.CatalogueListVo;
+import com.hxg.model.vo.CursorPageVo;
 import org.springframework.scheduling.annotation.Async;
 
 import java.util.List;
@@ -17,6 +19,11 @@ import java.util.List;
 public interface ICatalogueService {
     public GenCatalogueDTO generateCatalogue(String fileTree, ExecutionContext context);
 
+    /**
+     * 生成目录并投递文档生成任务，单次生成时边流式输出边投递已完整的目录节点
+     */
+    public GenCatalogueDTO generateCatalogueAndDispatch(String fileTree, ExecutionContext context, String projectName);
+
     public CatalogueStruct processCatalogueStruct(String result);
 
     public List<Catalogue> saveCatalogueStruct(ExecutionContext context, CatalogueStruct catalogueStruct);
@@ -32,6 +39,18 @@ public interface ICatalogueService {
      */
     public List<CatalogueListVo> getCatalogueTreeByTaskId(String taskId);
 
+    /**
+     * 游标分页查询任务的目录，按创建顺序排列，不含文档内容
+     * @param withCount 是否返回目录总数
+     */
+    public CursorPageVo<Catalogue> listByCursor(String taskId, String cursor, Integer pageSize, boolean withCount);
+
+    /**
+     * 在已有仓库目录上重新生成单个目录（可含子树）的文档，新文档生成前继续提供原有内容
+     * @return 重新生成的目录数
+     */
+    public int regenerateCatalogue(RegenerateCatalogueParams params, String fileTree, String localPath, String projectName);
+
     void cacheTaskProjectPath(String taskId, String localPath);
 
     void cleanupTaskCache(String taskId);
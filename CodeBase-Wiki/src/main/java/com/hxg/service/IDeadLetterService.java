@@ -0,0 +1,45 @@
+package com.hxg.service;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.hxg.model.entity.DeadLetter;
+import com.hxg.model.param.DeadLetterParams;
+import com.hxg.model.vo.DeadLetterGroupVo;
+import com.hxg.queue.model.DocumentGenerationTask;
+
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 死信服务接口
+ * @date 2025/8/24
+ */
+public interface IDeadLetterService {
+
+    /**
+     * 记录死信队列中的一条消息，同一分区偏移量只记录一次
+     */
+    void record(DocumentGenerationTask task, int partition, long offset);
+
+    /**
+     * 按任务与错误类型分组统计待处理的死信
+     * @param taskId 任务ID，为空时统计全部任务
+     */
+    List<DeadLetterGroupVo> summary(String taskId);
+
+    /**
+     * 分页查询死信
+     */
+    Page<DeadLetter> getPageList(DeadLetterParams params);
+
+    /**
+     * 以重置的重试次数、限速重新投递选中的待处理死信到主队列
+     * @return 加入重放队列的死信数
+     */
+    int replay(DeadLetterParams params);
+
+    /**
+     * 清理选中的已重放或无需重放的死信
+     * @return 删除的死信数
+     */
+    int purge(DeadLetterParams params);
+}
@@ -32,6 +32,14 @@ public interface IFileService {
      */
     public String getRepositoryPath(String userName,String projectName);
 
+    /**
+     * 获取已有项目的路径，不清理目录
+     * @param userName 用户名
+     * @param projectName 项目名
+     * @return 项目路径
+     */
+    public String getProjectPath(String userName, String projectName);
+
     /**
      * 删除项目目录
      * @param userName 用户名
@@ -0,0 +1,30 @@
+package com.hxg.service;
+
+import com.hxg.model.context.GenerationTraceContext;
+import com.hxg.model.vo.TaskGenerationReportVo;
+
+/**
+ * @author hxg
+ * @description: 生成过程追踪服务接口
+ * @date 2025/8/21
+ */
+public interface IGenerationTraceService {
+
+    /**
+     * 记录一次文档生成尝试
+     * @param trace 追踪上下文
+     * @param status 结果：COMPLETED / FAILED
+     * @param failReason 失败原因，成功时为空
+     */
+    void recordDocument(GenerationTraceContext trace, String status, String failReason);
+
+    /**
+     * 记录任务级阶段（拉取、扫描、目录生成）的耗时
+     */
+    void recordStage(String taskId, String stage, long durationMs, String status);
+
+    /**
+     * 汇总任务的生成过程报告
+     */
+    TaskGenerationReportVo getTaskReport(String taskId);
+}
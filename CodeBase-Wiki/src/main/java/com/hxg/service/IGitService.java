@@ -16,4 +16,11 @@ public interface IGitService {
      */
     public String cloneRepository(CreateTaskParams createTaskParams, String localPath);
 
+    /**
+     * 获取本地仓库当前提交
+     * @param localPath 本地路径
+     * @return HEAD提交的SHA，非Git仓库时返回null
+     */
+    public String getHeadCommit(String localPath);
+
 }
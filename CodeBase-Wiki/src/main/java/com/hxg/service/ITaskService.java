@@ -3,7 +3,11 @@ package com.hxg.service;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hxg.model.entity.Task;
 import com.hxg.model.param.CreateTaskParams;
+import com.hxg.model.param.CursorPageParams;
 import com.hxg.model.param.ListPageParams;
+import com.hxg.model.param.RegenerateCatalogueParams;
+import com.hxg.model.vo.CursorPageVo;
+import com.hxg.model.vo.TaskEstimateVo;
 import com.hxg.model.vo.TaskVo;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -18,6 +22,11 @@ public interface ITaskService {
 
     public Page<Task> getPageList(ListPageParams params);
 
+    /**
+     * 游标分页查询任务，按创建时间倒序
+     */
+    public CursorPageVo<Task> listByCursor(CursorPageParams params);
+
     public Task getTaskByTaskId(String taskId);
 
     public Task updateTaskByTaskId(TaskVo taskVo);
@@ -28,4 +37,21 @@ public interface ITaskService {
     public TaskVo createFromGit(CreateTaskParams params);
 
     public TaskVo createFromZip(CreateTaskParams params, MultipartFile file);
+
+    /**
+     * 拉取Git仓库到临时目录预估消耗与完成时间，并给出准入决策，不创建任务
+     */
+    public TaskEstimateVo estimateFromGit(CreateTaskParams params);
+
+    /**
+     * 基于任务已拉取的仓库重新生成单个目录的文档，无需重新克隆与生成整个任务
+     * @return 重新生成的目录数
+     */
+    public int regenerateCatalogue(RegenerateCatalogueParams params);
+
+    /**
+     * 确保任务的仓库目录存在，目录已被删除时按任务记录重新拉取Git仓库
+     * @return 仓库路径，无法恢复（ZIP来源或拉取失败）时返回null
+     */
+    public String ensureCheckout(Task task);
 }
@@ -0,0 +1,46 @@
+package com.hxg.service;
+
+import com.hxg.model.context.LlmCallContext;
+import com.hxg.model.vo.TaskTokenUsageVo;
+import com.hxg.model.vo.TokenUsageStatVo;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: Token消耗统计服务接口
+ * @date 2025/8/12
+ */
+public interface ITokenUsageService {
+    /**
+     * 记录一次LLM调用的真实token消耗，并用于校准本地估算器
+     * @param context 调用上下文
+     */
+    void record(LlmCallContext context);
+
+    /**
+     * 按任务汇总token消耗（总量、按调用类型、按目录）
+     */
+    TaskTokenUsageVo getTaskUsage(String taskId);
+
+    /**
+     * 按模型汇总日期区间内的token消耗
+     */
+    List<TokenUsageStatVo> getUsageByModel(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * 按天、模型汇总最近若干天的token消耗
+     */
+    List<TokenUsageStatVo> getDailyUsage(int days);
+
+    /**
+     * 按模型路由档位汇总最近若干天的文档生成消耗，用于评估路由效果
+     */
+    List<TokenUsageStatVo> getUsageByRouteTier(int days);
+
+    /**
+     * 本地估算文本的token数
+     */
+    long estimateTokens(String text, String model);
+}
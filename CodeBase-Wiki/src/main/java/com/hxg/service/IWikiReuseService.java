@@ -0,0 +1,46 @@
+package com.hxg.service;
+
+import com.hxg.model.entity.Task;
+import com.hxg.model.param.CreateTaskParams;
+
+/**
+ * @author hxg
+ * @description: Wiki结果复用服务接口
+ * @date 2025/8/20
+ */
+public interface IWikiReuseService {
+
+    /**
+     * 计算任务结果的内容键
+     * @param params 创建任务参数
+     * @param localPath 已拉取的仓库路径
+     * @return 内容键，非Git来源、无法读取提交或未启用复用时返回null
+     */
+    public String buildContentKey(CreateTaskParams params, String localPath);
+
+    /**
+     * 查找可复用的任务：相同内容键、未失败且不是等待中的复用任务
+     * @param contentKey 内容键
+     * @return 最近创建的可复用任务，不存在时返回null
+     */
+    public Task findReusableTask(String contentKey);
+
+    /**
+     * 来源任务的目录与文档是否已全部生成成功
+     */
+    public boolean isResultReady(Task source);
+
+    /**
+     * 来源任务是否已失败或部分文档生成失败，无法再被复用
+     */
+    public boolean isResultFailed(Task source);
+
+    /**
+     * 把来源任务的目录与文档复制到目标任务，并按目标项目名索引到记忆系统
+     * @param source 来源任务
+     * @param target 目标任务
+     * @param localPath 目标任务的仓库路径
+     * @return 复制的目录数
+     */
+    public int materialize(Task source, Task target, String localPath);
+}
@@ -0,0 +1,100 @@
+package com.hxg.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hxg.model.entity.Catalogue;
+import com.hxg.model.entity.CatalogueContent;
+import com.hxg.model.mapper.CatalogueContentMapper;
+import com.hxg.service.ICatalogueContentService;
+import com.hxg.utils.ContentCodecUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @author hxg
+ * @description: 目录文档内容服务实现类
+ * @date 2025/8/25
+ */
+@Slf4j
+@Service
+public class CatalogueContentServiceImpl extends ServiceImpl<CatalogueContentMapper, CatalogueContent>
+        implements ICatalogueContentService {
+
+    /**
+     * 批量读取时每次IN查询的最大目录数，低于SQLite的参数个数上限
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public String getContent(String catalogueId) {
+        if (catalogueId == null) {
+            return null;
+        }
+        CatalogueContent content = this.getById(catalogueId);
+        return content == null ? null : decode(content);
+    }
+
+    @Override
+    public Map<String, String> getContents(Collection<String> catalogueIds) {
+        List<String> ids = catalogueIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<String, String> contents = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            this.list(new LambdaQueryWrapper<CatalogueContent>().in(CatalogueContent::getCatalogueId, batch))
+                    .forEach(content -> contents.put(content.getCatalogueId(), decode(content)));
+        }
+        return contents;
+    }
+
+    @Override
+    public boolean hasContent(String catalogueId) {
+        return catalogueId != null && this.baseMapper.countById(catalogueId) > 0;
+    }
+
+    @Override
+    public void fillContent(List<Catalogue> catalogues) {
+        if (catalogues.isEmpty()) {
+            return;
+        }
+        Map<String, String> contents = getContents(catalogues.stream().map(Catalogue::getCatalogueId).toList());
+        catalogues.forEach(catalogue -> catalogue.setContent(contents.get(catalogue.getCatalogueId())));
+    }
+
+    @Override
+    public void saveContent(String catalogueId, String content) {
+        byte[] compressed = ContentCodecUtil.compress(content);
+        this.baseMapper.upsert(CatalogueContent.builder()
+                .catalogueId(catalogueId)
+                .codec(ContentCodecUtil.CODEC_DEFLATE)
+                .content(compressed)
+                .rawSize(content.getBytes(StandardCharsets.UTF_8).length)
+                .updateTime(LocalDateTime.now())
+                .build());
+        log.debug("文档内容已保存: catalogueId={}, rawChars={}, compressedBytes={}",
+                catalogueId, content.length(), compressed.length);
+    }
+
+    @Override
+    public void copyContent(String sourceCatalogueId, String targetCatalogueId) {
+        this.baseMapper.copy(sourceCatalogueId, targetCatalogueId, LocalDateTime.now());
+    }
+
+    @Override
+    public void deleteByTaskId(String taskId) {
+        int deleted = this.baseMapper.deleteByTaskId(taskId);
+        log.debug("删除任务的文档内容: taskId={}, count={}", taskId, deleted);
+    }
+
+    private static String decode(CatalogueContent content) {
+        return ContentCodecUtil.decompress(content.getCodec(), content.getContent(),
+                content.getRawSize() == null ? 0 : content.getRawSize());
+    }
+}
@@ -1,8 +1,14 @@
 package com.hxg.service.impl;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hxg.analysis.RepositoryAnalyzer;
 import com.hxg.model.context.ExecutionContext;
+import com.hxg.model.context.LlmCallContext;
+import com.hxg.llm.parser.StreamingCatalogueParser;
 import com.hxg.llm.service.LlmService;
 import com.hxg.llm.prompt.AnalyzeCataloguePrompt;
 import com.hxg.model.mapper.CatalogueMapper;
@@ -10,23 +16,36 @@ import com.hxg.model.dto.CatalogueStruct;
 import com.hxg.model.dto.GenCatalogueDTO;
 import com.hxg.model.entity.Catalogue;
 import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.param.RegenerateCatalogueParams;
 import com.hxg.queue.model.DocumentGenerationTask;
 import com.hxg.queue.producer.DocumentGenerationProducer;
+import com.hxg.queue.service.DocumentDagScheduler;
+import com.hxg.queue.service.DocumentLedgerService;
 import com.hxg.service.ICatalogueService;
+import com.hxg.service.ICatalogueContentService;
 import com.hxg.service.IMemoryIntegrationService;
+import com.hxg.utils.FileTreePartitioner;
+import com.hxg.utils.PageCursorUtil;
 import com.hxg.utils.RegexUtil;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import com.hxg.model.vo.CatalogueListVo;
+import com.hxg.model.vo.CursorPageVo;
 import org.springframework.util.StringUtils;
 
 /**
@@ -37,23 +56,180 @@ import org.springframework.util.StringUtils;
 @Slf4j
 @Service
 public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue> implements ICatalogueService {
+    /**
+     * 分片模式下单个分片最大重试次数
+     */
+    private static final int SHARD_MAX_RETRIES = 1;
+
     @Value("${project.wiki.prompt.catalogue-version}")
     private String cataloguePromptVersion;
+
+    @Value("${project.wiki.catalogue.partition.enabled:true}")
+    private boolean partitionEnabled;
+
+    /**
+     * 文件树超过该行数时分片生成目录
+     */
+    @Value("${project.wiki.catalogue.partition.threshold-lines:2000}")
+    private int partitionThresholdLines;
+
+    @Value("${project.wiki.catalogue.partition.max-shard-lines:800}")
+    private int maxShardLines;
+
+    @Value("${project.wiki.pagination.max-page-size:100}")
+    private int maxPageSize = 100;
+
+    /**
+     * 流式解析目录输出，目录节点生成即投递文档任务
+     */
+    @Value("${project.wiki.catalogue.streaming-dispatch:true}")
+    private boolean streamingDispatchEnabled;
+
+    @Resource(name = "GenCatalogueDetailExecutor")
+    private ThreadPoolTaskExecutor genCatalogueDetailExecutor;
     
     private final LlmService llmService;
     private final IMemoryIntegrationService memoryIntegrationService;
     private final DocumentGenerationProducer documentGenerationProducer;
+    private final DocumentDagScheduler documentDagScheduler;
+    private final RepositoryAnalyzer repositoryAnalyzer;
+    private final ICatalogueContentService catalogueContentService;
+    private final DocumentLedgerService documentLedgerService;
 
     public CatalogueServiceImpl(LlmService llmService, 
                               IMemoryIntegrationService memoryIntegrationService,
-                              DocumentGenerationProducer documentGenerationProducer) {
+                              DocumentGenerationProducer documentGenerationProducer,
+                              DocumentDagScheduler documentDagScheduler,
+                              RepositoryAnalyzer repositoryAnalyzer,
+                              ICatalogueContentService catalogueContentService,
+                              DocumentLedgerService documentLedgerService) {
         this.llmService = llmService;
         this.memoryIntegrationService = memoryIntegrationService;
         this.documentGenerationProducer = documentGenerationProducer;
+        this.documentDagScheduler = documentDagScheduler;
+        this.repositoryAnalyzer = repositoryAnalyzer;
+        this.catalogueContentService = catalogueContentService;
+        this.documentLedgerService = documentLedgerService;
     }
 
     @Override
     public GenCatalogueDTO generateCatalogue(String fileTree, ExecutionContext context) {
+        int treeLines = FileTreePartitioner.countLines(fileTree);
+        CatalogueStruct catalogueStruct;
+        if (partitionEnabled && treeLines > partitionThresholdLines) {
+            log.info("文件树共{}行，超过分片阈值{}，按模块分片生成目录", treeLines, partitionThresholdLines);
+            catalogueStruct = generatePartitionedCatalogue(fileTree, context);
+        } else {
+            catalogueStruct = generateSingleCatalogue(fileTree, context);
+        }
+        List<Catalogue> catalogueList = saveCatalogueStruct(context, catalogueStruct);
+        return new GenCatalogueDTO(catalogueStruct,catalogueList);
+    }
+
+    @Override
+    public GenCatalogueDTO generateCatalogueAndDispatch(String fileTree, ExecutionContext context, String projectName) {
+        boolean partitioned = partitionEnabled && FileTreePartitioner.countLines(fileTree) > partitionThresholdLines;
+        if (!streamingDispatchEnabled || partitioned) {
+            GenCatalogueDTO catalogueDTO = generateCatalogue(fileTree, context);
+            parallelGenerateCatalogueDetail(fileTree, catalogueDTO, context.getLocalPath(), projectName);
+            return catalogueDTO;
+        }
+
+        // 流式生成目录：每个目录节点闭合即保存，叶子目录立即投递文档生成任务，父目录等待子目录结束后调度
+        List<Catalogue> catalogueList = new ArrayList<>();
+        StreamingCatalogueParser parser = new StreamingCatalogueParser(node ->
+                catalogueList.add(saveAndDispatchNode(node, fileTree, context, projectName)));
+        log.info("LLM开始流式生成项目目录，使用prompt版本: {}", cataloguePromptVersion);
+        String result;
+        try {
+            result = llmService.callWithTools(buildCataloguePrompt(fileTree, context),
+                    LlmCallContext.of(context.getTaskId(), null, LlmCallContext.TYPE_CATALOGUE),
+                    new LlmService.StreamListener() {
+                        @Override
+                        public void onTurnStart() {
+                            // 只有最后一轮输出是最终目录，新一轮开始时作废之前轮次已投递的目录
+                            if (!catalogueList.isEmpty()) {
+                                log.warn("目录输出在新一轮中重新开始，撤销已投递的{}个目录", catalogueList.size());
+                                cancelDispatchedCatalogues(context.getTaskId(), catalogueList);
+                            }
+                            parser.reset();
+                        }
+
+                        @Override
+                        public void onText(String text) {
+                            parser.feed(text);
+                        }
+                    });
+            if (parser.getNodeCount() > 0 && parser.getRootItems().isEmpty()) {
+                throw new RuntimeException("LLM生成的目录结构不完整，已投递" + catalogueList.size() + "个目录");
+            }
+        } catch (RuntimeException e) {
+            // 任务将被标记为失败，已投递的目录不能继续生成和计费
+            if (!catalogueList.isEmpty()) {
+                cancelDispatchedCatalogues(context.getTaskId(), catalogueList);
+            }
+            throw e;
+        }
+
+        if (parser.getNodeCount() == 0) {
+            // 输出不是预期的目录JSON，按整体解析的方式兜底
+            log.warn("流式解析未得到目录节点，改为整体解析");
+            CatalogueStruct catalogueStruct = processCatalogueStruct(result);
+            GenCatalogueDTO catalogueDTO = new GenCatalogueDTO(catalogueStruct, saveCatalogueStruct(context, catalogueStruct));
+            parallelGenerateCatalogueDetail(fileTree, catalogueDTO, context.getLocalPath(), projectName);
+            return catalogueDTO;
+        }
+        CatalogueStruct catalogueStruct = new CatalogueStruct();
+        catalogueStruct.setItems(parser.getRootItems());
+        log.info("LLM流式生成项目目录完成，目录节点数：{}", catalogueList.size());
+        return new GenCatalogueDTO(catalogueStruct, catalogueList);
+    }
+
+    /**
+     * 撤销流式生成中已保存并投递的目录：作废台账中未处理的消息并删除目录，
+     * 排队中的消息到达时因目录不存在而跳过，不会再调用LLM
+     */
+    private void cancelDispatchedCatalogues(String taskId, List<Catalogue> catalogueList) {
+        try {
+            documentLedgerService.cancelTask(taskId);
+            deleteCatalogueByTaskId(taskId);
+        } catch (Exception e) {
+            log.error("撤销已投递的目录失败: taskId={}, error={}", taskId, e.getMessage(), e);
+        }
+        catalogueList.clear();
+    }
+
+    /**
+     * 保存流式解析出的目录节点，叶子目录立即投递，父目录置为等待并尝试调度（子目录可能已经全部完成）
+     */
+    private Catalogue saveAndDispatchNode(StreamingCatalogueParser.CatalogueNode node, String fileTree,
+                                          ExecutionContext context, String projectName) {
+        Catalogue catalogue = toCatalogueEntity(context, node.getItem(), node.getCatalogueId(), node.getParentCatalogueId(),
+                node.isLeaf() ? CatalogueStatusEnum.IN_PROGRESS : CatalogueStatusEnum.WAITING);
+        this.save(catalogue);
+        if (node.isLeaf()) {
+            CatalogueStruct specificContext = new CatalogueStruct();
+            specificContext.setItems(List.of(node.getItem()));
+            sendDocumentTask(catalogue, specificContext, fileTree, context.getLocalPath(), projectName);
+        } else {
+            documentDagScheduler.dispatchIfReady(catalogue.getCatalogueId(), fileTree, context.getLocalPath(), projectName);
+        }
+        log.debug("流式保存目录节点: name={}, leaf={}", catalogue.getName(), node.isLeaf());
+        return catalogue;
+    }
+
+    /**
+     * 以完整文件树一次性生成目录
+     */
+    private CatalogueStruct generateSingleCatalogue(String fileTree, ExecutionContext context) {
+        log.info("LLM开始生成项目目录，使用prompt版本: {}", cataloguePromptVersion);
+        String result=llmService.callWithTools(buildCataloguePrompt(fileTree, context),
+                LlmCallContext.of(context.getTaskId(), null, LlmCallContext.TYPE_CATALOGUE));
+        log.info("LLM生成项目目录完成");
+        return processCatalogueStruct(result);
+    }
+
+    private String buildCataloguePrompt(String fileTree, ExecutionContext context) {
         String genCataloguePrompt = switch (cataloguePromptVersion) {
             case "v1" -> AnalyzeCataloguePrompt.promptV1;
             case "v2" -> AnalyzeCataloguePrompt.promptV2;
@@ -68,13 +244,154 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
         genCataloguePrompt = genCataloguePrompt
                 .replace("{{$code_files}}", fileTree)
                 .replace("{{$repository_location}}", context.getLocalPath());
-        log.info("LLM开始生成项目目录，使用prompt版本: {}", cataloguePromptVersion);
-        String result=llmService.callWithTools(genCataloguePrompt);
-        log.info("LLM生成项目目录完成");
-        
-        CatalogueStruct catalogueStruct = processCatalogueStruct(result);
-        List<Catalogue> catalogueList = saveCatalogueStruct(context, catalogueStruct);
-        return new GenCatalogueDTO(catalogueStruct,catalogueList);
+        return appendRepositoryFacts(genCataloguePrompt, context);
+    }
+
+    /**
+     * 追加仓库静态分析摘要，每个任务只分析一次
+     */
+    private String appendRepositoryFacts(String prompt, ExecutionContext context) {
+        String repositoryFacts = repositoryAnalyzer.summaryFor(context.getTaskId(), context.getLocalPath());
+        if (!StringUtils.hasText(repositoryFacts)) {
+            return prompt;
+        }
+        return prompt + AnalyzeCataloguePrompt.repositoryFactsSection.replace("{{$repository_facts}}", repositoryFacts);
+    }
+
+    /**
+     * 分片生成目录：按模块切分文件树，各分片并行生成子目录，再由一次只看章节标题的调用合并
+     * 耗时取决于最大的模块而非整个仓库，单次调用的上下文也不再随仓库规模增长
+     */
+    private CatalogueStruct generatePartitionedCatalogue(String fileTree, ExecutionContext context) {
+        List<FileTreePartitioner.Shard> shards = FileTreePartitioner.partition(fileTree, maxShardLines);
+        if (shards.size() <= 1) {
+            return generateSingleCatalogue(fileTree, context);
+        }
+        log.info("文件树切分为{}个分片: {}", shards.size(),
+                shards.stream().map(shard -> shard.getName() + "(" + shard.getLineCount() + ")").collect(Collectors.joining(", ")));
+
+        List<CompletableFuture<CatalogueStruct>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(
+                        () -> generateShardCatalogue(shard, context), genCatalogueDetailExecutor))
+                .toList();
+
+        List<CatalogueStruct> shardStructs = new ArrayList<>();
+        List<String> failedShards = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            try {
+                shardStructs.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                log.error("分片目录生成失败: shard={}, error={}", shards.get(i).getName(), e.getCause().getMessage());
+                failedShards.add(shards.get(i).getName());
+            }
+        }
+        if (!failedShards.isEmpty()) {
+            throw new RuntimeException("分片目录生成失败: " + String.join(", ", failedShards));
+        }
+        return mergeShardCatalogues(shards, shardStructs, context);
+    }
+
+    /**
+     * 为单个分片生成目录，失败时重试
+     */
+    private CatalogueStruct generateShardCatalogue(FileTreePartitioner.Shard shard, ExecutionContext context) {
+        String shardPrompt = appendRepositoryFacts(AnalyzeCataloguePrompt.shardPrompt
+                .replace("{{$shard_path}}", shard.getName())
+                .replace("{{$code_files}}", shard.getTree())
+                .replace("{{$repository_location}}", context.getLocalPath()), context);
+        RuntimeException lastError = null;
+        for (int attempt = 0; attempt <= SHARD_MAX_RETRIES; attempt++) {
+            try {
+                String result = llmService.callWithTools(shardPrompt,
+                        LlmCallContext.of(context.getTaskId(), null, LlmCallContext.TYPE_CATALOGUE));
+                CatalogueStruct shardStruct = processCatalogueStruct(result);
+                log.info("分片目录生成完成: shard={}, items={}", shard.getName(), shardStruct.getItems().size());
+                return shardStruct;
+            } catch (RuntimeException e) {
+                lastError = e;
+                log.warn("分片目录生成失败: shard={}, attempt={}, error={}", shard.getName(), attempt + 1, e.getMessage());
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * 合并各分片目录，合并调用失败时按分片顺序直接拼接
+     */
+    private CatalogueStruct mergeShardCatalogues(List<FileTreePartitioner.Shard> shards,
+                                                 List<CatalogueStruct> shardStructs, ExecutionContext context) {
+        Map<String, CatalogueStruct.Item> sections = new LinkedHashMap<>();
+        StringBuilder sectionLines = new StringBuilder();
+        for (int i = 0; i < shardStructs.size(); i++) {
+            List<CatalogueStruct.Item> items = shardStructs.get(i).getItems();
+            for (int j = 0; j < items.size(); j++) {
+                String sectionId = "S" + (i + 1) + "-" + (j + 1);
+                CatalogueStruct.Item item = items.get(j);
+                sections.put(sectionId, item);
+                sectionLines.append("- [").append(sectionId).append("] ").append(item.getName())
+                        .append(" (").append(item.getTitle()).append(") — shard: ")
+                        .append(shards.get(i).getName()).append('\n');
+            }
+        }
+
+        String reducePrompt = AnalyzeCataloguePrompt.reducePrompt
+                .replace("{{$shard_sections}}", sectionLines.toString())
+                .replace("{{$repository_location}}", context.getLocalPath());
+        try {
+            String result = llmService.callWithoutTools(reducePrompt,
+                    LlmCallContext.of(context.getTaskId(), null, LlmCallContext.TYPE_CATALOGUE));
+            CatalogueStruct merged = assembleShardCatalogues(result, sections);
+            log.info("分片目录合并完成: 分片章节={}, 顶层目录={}", sections.size(), merged.getItems().size());
+            return merged;
+        } catch (Exception e) {
+            log.warn("分片目录合并失败，按分片顺序拼接: error={}", e.getMessage());
+            CatalogueStruct merged = new CatalogueStruct();
+            merged.setItems(new ArrayList<>(sections.values()));
+            return merged;
+        }
+    }
+
+    /**
+     * 按合并结果组装目录：引用多个分片章节的条目作为父目录，只引用一个的直接替换为该章节，
+     * 合并结果遗漏的分片章节按原顺序追加到末尾
+     *
+     * @param reduceResult 合并调用的输出
+     * @param sections 分片章节，key为章节编号
+     * @return 合并后的目录结构
+     */
+    CatalogueStruct assembleShardCatalogues(String reduceResult, Map<String, CatalogueStruct.Item> sections) {
+        JSONArray reduceItems = JSON.parseObject(stripJsonFence(reduceResult)).getJSONArray("items");
+        if (reduceItems == null || reduceItems.isEmpty()) {
+            throw new RuntimeException("目录合并结果为空");
+        }
+        Map<String, CatalogueStruct.Item> remaining = new LinkedHashMap<>(sections);
+        List<CatalogueStruct.Item> items = new ArrayList<>();
+        for (int i = 0; i < reduceItems.size(); i++) {
+            JSONObject reduceItem = reduceItems.getJSONObject(i);
+            List<String> refs = reduceItem.getList("refs", String.class);
+            List<CatalogueStruct.Item> members = refs == null ? List.of() : refs.stream()
+                    .map(remaining::remove)
+                    .filter(Objects::nonNull)
+                    .toList();
+            if (refs != null && !refs.isEmpty() && members.isEmpty()) {
+                continue;
+            }
+            if (members.size() == 1) {
+                items.add(members.get(0));
+                continue;
+            }
+            CatalogueStruct.Item group = new CatalogueStruct.Item();
+            group.setTitle(reduceItem.getString("title"));
+            group.setName(reduceItem.getString("name"));
+            group.setPrompt(reduceItem.getString("prompt"));
+            group.setDependent_file(new ArrayList<>());
+            group.setChildren(members.isEmpty() ? null : new ArrayList<>(members));
+            items.add(group);
+        }
+        items.addAll(remaining.values());
+        CatalogueStruct merged = new CatalogueStruct();
+        merged.setItems(items);
+        return merged;
     }
 
     @Override
@@ -86,8 +403,8 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
             documentationStructure = RegexUtil.extractXmlTagContent(result,"<documentation_structure>","</documentation_structure>");
         }
         // 处理```json {json对象}```格式的返回
-        else if(result.startsWith("```json") && result.endsWith("```")){
-            documentationStructure = result.substring(7, result.length() - 3).trim();
+        else {
+            documentationStructure = stripJsonFence(result);
         }
         
         try{
@@ -119,6 +436,16 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
         }
     }
 
+    /**
+     * 去除```json {json对象}```格式的代码块标记
+     */
+    private String stripJsonFence(String result) {
+        if (result.startsWith("```json") && result.endsWith("```")) {
+            return result.substring(7, result.length() - 3).trim();
+        }
+        return result;
+    }
+
     @Override
     public List<Catalogue> saveCatalogueStruct(ExecutionContext context, CatalogueStruct catalogueStruct) {
         List<Catalogue> allCatalogueList = new ArrayList<>();
@@ -143,19 +470,8 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
         List<Catalogue> catalogueList = new ArrayList<>();
         
         // 创建当前目录实体
-        Catalogue catalogueEntity = new Catalogue();
-        catalogueEntity.setTaskId(context.getTask().getTaskId());
-        catalogueEntity.setCatalogueId(java.util.UUID.randomUUID().toString());
-        catalogueEntity.setParentCatalogueId(parentCatalogueId);
-        catalogueEntity.setName(item.getName());
-        catalogueEntity.setTitle(item.getTitle());
-        catalogueEntity.setPrompt(item.getPrompt());
-        catalogueEntity.setDependentFile(JSON.toJSONString(item.getDependent_file()));
-        
-        // 子目录信息也保存，但主要用于前端显示结构
-        catalogueEntity.setChildren(JSON.toJSONString(item.getChildren()));
-        catalogueEntity.setStatus(CatalogueStatusEnum.IN_PROGRESS.getCode());
-        catalogueEntity.setCreateTime(LocalDateTime.now());
+        Catalogue catalogueEntity = toCatalogueEntity(context, item,
+                java.util.UUID.randomUUID().toString(), parentCatalogueId, CatalogueStatusEnum.IN_PROGRESS);
         
         // 保存当前目录
         this.save(catalogueEntity);
@@ -174,6 +490,27 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
         return catalogueList;
     }
 
+    /**
+     * 由目录项构建目录实体
+     */
+    private Catalogue toCatalogueEntity(ExecutionContext context, CatalogueStruct.Item item,
+                                        String catalogueId, String parentCatalogueId, CatalogueStatusEnum status) {
+        Catalogue catalogueEntity = new Catalogue();
+        catalogueEntity.setTaskId(context.getTask().getTaskId());
+        catalogueEntity.setCatalogueId(catalogueId);
+        catalogueEntity.setParentCatalogueId(parentCatalogueId);
+        catalogueEntity.setName(item.getName());
+        catalogueEntity.setTitle(item.getTitle());
+        catalogueEntity.setPrompt(item.getPrompt());
+        catalogueEntity.setDependentFile(JSON.toJSONString(item.getDependent_file()));
+        
+        // 子目录信息也保存，但主要用于前端显示结构
+        catalogueEntity.setChildren(JSON.toJSONString(item.getChildren()));
+        catalogueEntity.setStatus(status.getCode());
+        catalogueEntity.setCreateTime(LocalDateTime.now());
+        return catalogueEntity;
+    }
+
     @Override
     public void parallelGenerateCatalogueDetail(String fileTree, GenCatalogueDTO genCatalogueDTO, String localPath, String projectName) {
         // 过滤出需要生成详细内容的目录
@@ -181,40 +518,69 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
                 .filter(catalogue -> catalogue != null && StringUtils.hasText(catalogue.getName()))
                 .collect(Collectors.toList());
                 
-        log.info("开始通过Kafka队列生成目录详情，总数={}, projectName={}", cataloguesToProcess.size(), projectName);
+        // 有子目录的父目录先等待，子目录全部结束后由DocumentDagScheduler基于子目录摘要调度
+        Set<String> parentIds = cataloguesToProcess.stream()
+                .map(Catalogue::getParentCatalogueId)
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toSet());
+                
+        log.info("开始通过Kafka队列生成目录详情，总数={}, 叶子目录={}, projectName={}", 
+                cataloguesToProcess.size(), cataloguesToProcess.size() - parentIds.size(), projectName);
         
         int sentCount = 0;
         for (Catalogue catalogue : cataloguesToProcess) {
-            try {
-                // 为每个目录创建专门的上下文信息
-                CatalogueStruct specificContext = createSpecificContext(catalogue, genCatalogueDTO.getCatalogueStruct());
-                
-                // 创建文档生成任务
-                DocumentGenerationTask task = DocumentGenerationTask.create(catalogue, fileTree, specificContext, localPath);
-                // 设置项目名称
-                task.setProjectName(projectName);
-                
-                // 发送任务到Kafka队列
-                documentGenerationProducer.sendTask(task);
-                sentCount++;
-                
-                log.debug("文档生成任务已发送到Kafka: taskId={}, catalogueName={}, projectName={}", 
-                        task.getTaskId(), task.getCatalogueName(), projectName);
-                
-            } catch (Exception e) {
-                log.error("发送文档生成任务到Kafka失败: catalogueName={}, error={}", 
-                        catalogue.getName(), e.getMessage(), e);
-                
-                // 更新目录状态为失败
-                catalogue.setStatus(CatalogueStatusEnum.FAILED.getCode());
-                catalogue.setFailReason("发送到队列失败: " + e.getMessage());
+            if (parentIds.contains(catalogue.getCatalogueId())) {
+                catalogue.setStatus(CatalogueStatusEnum.WAITING.getCode());
                 catalogue.setUpdateTime(LocalDateTime.now());
                 this.updateById(catalogue);
+                continue;
+            }
+            // 为每个目录创建专门的上下文信息
+            CatalogueStruct specificContext = createSpecificContext(catalogue, genCatalogueDTO.getCatalogueStruct());
+            if (sendDocumentTask(catalogue, specificContext, fileTree, localPath, projectName)) {
+                sentCount++;
             }
         }
         
-        log.info("文档生成任务发送完成: 成功发送={}/{}, 使用Kafka消息队列进行异步处理", 
-                sentCount, cataloguesToProcess.size());
+        log.info("文档生成任务发送完成: 成功发送叶子目录={}/{}, 使用Kafka消息队列进行异步处理", 
+                sentCount, cataloguesToProcess.size() - parentIds.size());
+        
+        // 子目录全部投递失败时不会有完成回调，在此兜底调度
+        if (!cataloguesToProcess.isEmpty()) {
+            documentDagScheduler.dispatchReadyParents(cataloguesToProcess.get(0).getTaskId(), fileTree, localPath, projectName);
+        }
+    }
+    
+    /**
+     * 发送单个目录的文档生成任务，发送失败时将目录标记为失败
+     *
+     * @return 是否发送成功
+     */
+    private boolean sendDocumentTask(Catalogue catalogue, CatalogueStruct specificContext,
+                                     String fileTree, String localPath, String projectName) {
+        try {
+            // 创建文档生成任务
+            DocumentGenerationTask task = DocumentGenerationTask.create(catalogue, fileTree, specificContext, localPath);
+            // 设置项目名称
+            task.setProjectName(projectName);
+            
+            // 发送任务到Kafka队列
+            documentGenerationProducer.sendTask(task);
+            
+            log.debug("文档生成任务已发送到Kafka: taskId={}, catalogueName={}, projectName={}", 
+                    task.getTaskId(), task.getCatalogueName(), projectName);
+            return true;
+        } catch (Exception e) {
+            log.error("发送文档生成任务到Kafka失败: catalogueName={}, error={}", 
+                    catalogue.getName(), e.getMessage(), e);
+            
+            // 更新目录状态为失败，目录已被消费者抢占或被恢复任务改动时不覆盖
+            catalogue.setStatus(CatalogueStatusEnum.FAILED.getCode());
+            catalogue.setFailReason("发送到队列失败: " + e.getMessage());
+            this.baseMapper.finishUndispatched(catalogue.getCatalogueId(), CatalogueStatusEnum.IN_PROGRESS.getCode(),
+                    CatalogueStatusEnum.FAILED.getCode(), catalogue.getFailReason(), LocalDateTime.now());
+            return false;
+        }
     }
     
     /**
@@ -270,8 +636,65 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
         return null;
     }
 
+    @Override
+    public int regenerateCatalogue(RegenerateCatalogueParams params, String fileTree, String localPath, String projectName) {
+        List<Catalogue> catalogues = listByTaskId(params.getTaskId());
+        Catalogue target = catalogues.stream()
+                .filter(catalogue -> Objects.equals(params.getCatalogueId(), catalogue.getCatalogueId()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("目录不存在: " + params.getCatalogueId()));
+        List<Catalogue> nodes = Boolean.TRUE.equals(params.getIncludeSubtree())
+                ? collectSubtree(target, catalogues) : List.of(target);
+        for (Catalogue node : nodes) {
+            if (CatalogueStatusEnum.IN_PROGRESS.getCode().equals(node.getStatus())
+                    || CatalogueStatusEnum.WAITING.getCode().equals(node.getStatus())) {
+                throw new RuntimeException("目录正在生成中，请稍后再试: " + node.getName());
+            }
+        }
+
+        // 子树内有子目录的节点等待子目录结束后由DAG调度，先全部标记状态再投递，原有文档保留到新文档写入
+        Set<String> parentIds = nodes.stream()
+                .map(Catalogue::getParentCatalogueId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        List<Catalogue> leaves = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Catalogue node : nodes) {
+            boolean waiting = parentIds.contains(node.getCatalogueId());
+            node.setStatus(waiting ? CatalogueStatusEnum.WAITING.getCode() : CatalogueStatusEnum.IN_PROGRESS.getCode());
+            node.setFailReason(null);
+            node.setUpdateTime(now);
+            this.updateById(node);
+            if (!waiting) {
+                leaves.add(node);
+            }
+        }
+        for (Catalogue leaf : leaves) {
+            documentDagScheduler.dispatchRegeneration(leaf, fileTree, localPath, projectName, params.getHint());
+        }
+        log.info("重新生成目录: taskId={}, catalogueName={}, 子树目录数={}, 投递叶子目录数={}",
+                params.getTaskId(), target.getName(), nodes.size(), leaves.size());
+        return nodes.size();
+    }
+
+    /**
+     * 按父子关系收集目标目录及其全部子孙目录，父目录在前
+     */
+    private List<Catalogue> collectSubtree(Catalogue root, List<Catalogue> catalogues) {
+        Map<String, List<Catalogue>> childrenByParent = catalogues.stream()
+                .filter(catalogue -> catalogue.getParentCatalogueId() != null)
+                .collect(Collectors.groupingBy(Catalogue::getParentCatalogueId));
+        List<Catalogue> subtree = new ArrayList<>();
+        subtree.add(root);
+        for (int i = 0; i < subtree.size(); i++) {
+            subtree.addAll(childrenByParent.getOrDefault(subtree.get(i).getCatalogueId(), List.of()));
+        }
+        return subtree;
+    }
+
     @Override
     public void deleteCatalogueByTaskId(String taskId) {
+        catalogueContentService.deleteByTaskId(taskId);
         this.lambdaUpdate()
                 .eq(Catalogue::getTaskId, taskId)
                 .remove();
@@ -279,6 +702,36 @@ public class CatalogueServiceImpl extends ServiceImpl<CatalogueMapper, Catalogue
 
     @Override
     public List<Catalogue> getCatalogueByTaskId(String taskId) {
+        List<Catalogue> catalogues = listByTaskId(taskId);
+        catalogueContentService.fillContent(catalogues);
+        return catalogues;
+    }
+
+    @Override
+    public CursorPageVo<Catalogue> listByCursor(String taskId, String cursor, Integer pageSize, boolean withCount) {
+        int size = Math.min(Math.max(pageSize == null ? 50 : pageSize, 1), maxPageSize);
+        LambdaQueryWrapper<Catalogue> queryWrapper = new LambdaQueryWrapper<Catalogue>()
+                .eq(Catalogue::getTaskId, taskId);
+        if (StringUtils.hasText(cursor)) {
+            PageCursorUtil.Cursor position = PageCursorUtil.decode(cursor);
+            queryWrapper.apply(PageCursorUtil.CREATE_TIME_KEY + " >= julianday({0})", position.createTime())
+                    .apply("(" + PageCursorUtil.CREATE_TIME_KEY + ", id) > (julianday({0}), {1})",
+                            position.createTime(), position.id());
+        }
+        queryWrapper.last("ORDER BY " + PageCursorUtil.CREATE_TIME_KEY + " ASC, id ASC LIMIT " + (size + 1));
+        CursorPageVo<Catalogue> page = CursorPageVo.of(this.list(queryWrapper), size,
+                catalogue -> PageCursorUtil.encode(catalogue.getCreateTime(), catalogue.getId()));
+        if (withCount) {
+            page.setTotal(this.baseMapper.countByTask(taskId));
+            page.setTotalApproximate(false);
+        }
+        return page;
+    }
+
+    /**
+     * 查询任务的全部目录，不含文档内容
+     */
+    private List<Catalogue> listByTaskId(String taskId) {
         return this.lambdaQuery()
                 .eq(Catalogue::getTaskId, taskId)
                 .list();
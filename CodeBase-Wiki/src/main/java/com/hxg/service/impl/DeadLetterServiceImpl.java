@@ -0,0 +1,308 @@
+package com.hxg.service.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hxg.model.entity.DeadLetter;
+import com.hxg.model.entity.Task;
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.DeadLetterMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.model.param.DeadLetterParams;
+import com.hxg.model.vo.DeadLetterGroupVo;
+import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.queue.producer.DocumentGenerationProducer;
+import com.hxg.queue.service.DocumentProcessingService;
+import com.hxg.service.ICatalogueService;
+import com.hxg.service.IDeadLetterService;
+import com.hxg.service.IFileService;
+import com.hxg.service.ITaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * @author hxg
+ * @description: 死信服务实现类：死信落库后按错误类型与任务查看，选中后以重置的重试次数限速重放到主队列，
+ * 只重新生成失败的目录，无需重跑整个任务
+ * @date 2025/8/24
+ */
+@Slf4j
+@Service
+public class DeadLetterServiceImpl extends ServiceImpl<DeadLetterMapper, DeadLetter> implements IDeadLetterService {
+
+    /**
+     * 错误信息最大保存长度
+     */
+    private static final int MAX_ERROR_CHARS = 1000;
+
+    private final CatalogueMapper catalogueMapper;
+    private final TaskMapper taskMapper;
+    private final ITaskService taskService;
+    private final IFileService fileService;
+    private final ICatalogueService catalogueService;
+    private final DocumentGenerationProducer producer;
+    private final DocumentProcessingService processingService;
+    private final Executor replayExecutor;
+
+    /**
+     * 本节点重放批次中尚未处理完的死信，恢复扫描时续期，避免被当作中断的重放退回
+     */
+    private final Set<Long> replayingIds = ConcurrentHashMap.newKeySet();
+
+    @Value("${project.wiki.dlq.replay-rate-per-second:2}")
+    private double replayRatePerSecond = 2;
+
+    @Value("${project.wiki.dlq.max-replay-rate-per-second:10}")
+    private double maxReplayRatePerSecond = 10;
+
+    /**
+     * 重放中的死信超过该时长未更新视为重放批次中断(分钟)，需大于恢复扫描间隔
+     */
+    @Value("${project.wiki.dlq.replaying-timeout-minutes:10}")
+    private long replayingTimeoutMinutes = 10;
+
+    public DeadLetterServiceImpl(CatalogueMapper catalogueMapper, TaskMapper taskMapper, ITaskService taskService,
+                                 IFileService fileService, ICatalogueService catalogueService,
+                                 DocumentGenerationProducer producer, DocumentProcessingService processingService,
+                                 @Qualifier("DeadLetterReplayExecutor") Executor replayExecutor) {
+        this.catalogueMapper = catalogueMapper;
+        this.taskMapper = taskMapper;
+        this.taskService = taskService;
+        this.fileService = fileService;
+        this.catalogueService = catalogueService;
+        this.producer = producer;
+        this.processingService = processingService;
+        this.replayExecutor = replayExecutor;
+    }
+
+    @Override
+    public void record(DocumentGenerationTask task, int partition, long offset) {
+        boolean exists = this.count(new LambdaQueryWrapper<DeadLetter>()
+                .eq(DeadLetter::getDlqPartition, partition)
+                .eq(DeadLetter::getDlqOffset, offset)) > 0;
+        if (exists) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        this.save(DeadLetter.builder()
+                .taskId(task.getTaskId())
+                .catalogueId(task.getCatalogueId())
+                .catalogueName(task.getCatalogueName())
+                .errorClass(StringUtils.hasText(task.getErrorClass()) ? task.getErrorClass() : "Unknown")
+                .errorMessage(truncate(task.getLastError()))
+                .regeneration(task.isRegeneration())
+                .payload(JSON.toJSONString(task))
+                .dlqPartition(partition)
+                .dlqOffset(offset)
+                .status(DeadLetter.STATUS_DEAD)
+                .replayCount(0)
+                .createTime(now)
+                .updateTime(now)
+                .build());
+    }
+
+    @Override
+    public List<DeadLetterGroupVo> summary(String taskId) {
+        return baseMapper.groupByTaskAndError(DeadLetter.STATUS_DEAD, StringUtils.hasText(taskId) ? taskId : null);
+    }
+
+    @Override
+    public Page<DeadLetter> getPageList(DeadLetterParams params) {
+        LambdaQueryWrapper<DeadLetter> queryWrapper = selection(params);
+        if (StringUtils.hasText(params.getStatus())) {
+            queryWrapper.eq(DeadLetter::getStatus, params.getStatus());
+        }
+        queryWrapper.orderByDesc(DeadLetter::getId);
+        return this.page(new Page<>(params.getPageIndex(), params.getPageSize()), queryWrapper);
+    }
+
+    @Override
+    public int replay(DeadLetterParams params) {
+        requireSelection(params);
+        List<DeadLetter> entries = this.list(selection(params).eq(DeadLetter::getStatus, DeadLetter.STATUS_DEAD));
+        // 先抢占再异步投递，重复提交同一批死信不会重放两次
+        LocalDateTime now = LocalDateTime.now();
+        List<DeadLetter> claimed = entries.stream()
+                .filter(entry -> baseMapper.transition(entry.getId(), DeadLetter.STATUS_DEAD,
+                        DeadLetter.STATUS_REPLAYING, now) > 0)
+                .toList();
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        double rate = resolveRate(params.getRatePerSecond());
+        log.info("开始重放死信: count={}, ratePerSecond={}", claimed.size(), rate);
+        claimed.forEach(entry -> replayingIds.add(entry.getId()));
+        replayExecutor.execute(() -> replayAll(claimed, rate));
+        return claimed.size();
+    }
+
+    @Override
+    public int purge(DeadLetterParams params) {
+        requireSelection(params);
+        int removed = baseMapper.delete(selection(params)
+                .in(DeadLetter::getStatus, DeadLetter.STATUS_REPLAYED, DeadLetter.STATUS_RESOLVED));
+        log.info("清理死信完成: count={}", removed);
+        return removed;
+    }
+
+    /**
+     * 恢复中断的重放：续期本节点正在重放的死信，其他超时未更新的重放中死信（节点在重放批次中途重启）退回待处理
+     */
+    @Scheduled(initialDelayString = "${project.wiki.recovery.initial-delay-ms:30000}",
+            fixedDelayString = "${project.wiki.recovery.sweep-interval-ms:60000}")
+    public void recoverInterruptedReplays() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Long id : replayingIds) {
+            baseMapper.transition(id, DeadLetter.STATUS_REPLAYING, DeadLetter.STATUS_REPLAYING, now);
+        }
+        int reverted = baseMapper.revertStale(DeadLetter.STATUS_REPLAYING, DeadLetter.STATUS_DEAD,
+                "重放中断，已退回待处理", now.minusMinutes(replayingTimeoutMinutes), now);
+        if (reverted > 0) {
+            log.warn("中断的死信重放已退回待处理: count={}", reverted);
+        }
+    }
+
+    /**
+     * 按固定间隔逐条重放，同一任务只准备一次仓库目录
+     */
+    private void replayAll(List<DeadLetter> entries, double rate) {
+        long intervalMs = (long) (1000 / rate);
+        Map<String, String> localPaths = new HashMap<>();
+        int replayed = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            DeadLetter entry = entries.get(i);
+            if (i > 0 && intervalMs > 0) {
+                try {
+                    Thread.sleep(intervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    // 未投递的死信退回待处理
+                    entries.subList(i, entries.size()).forEach(rest -> {
+                        baseMapper.finishReplay(rest.getId(), DeadLetter.STATUS_DEAD, "重放被中断", 0,
+                                LocalDateTime.now());
+                        replayingIds.remove(rest.getId());
+                    });
+                    return;
+                }
+            }
+            try {
+                if (replayOne(entry, localPaths)) {
+                    replayed++;
+                }
+            } catch (Exception e) {
+                log.error("重放死信失败: id={}, catalogueName={}, error={}", entry.getId(), entry.getCatalogueName(),
+                        e.getMessage(), e);
+                baseMapper.finishReplay(entry.getId(), DeadLetter.STATUS_DEAD, truncate("重放失败: " + e.getMessage()),
+                        0, LocalDateTime.now());
+            } finally {
+                replayingIds.remove(entry.getId());
+            }
+        }
+        log.info("死信重放完成: 重新投递={}/{}", replayed, entries.size());
+    }
+
+    /**
+     * 重放单条死信
+     *
+     * @return 是否重新投递到主队列
+     */
+    private boolean replayOne(DeadLetter entry, Map<String, String> localPaths) {
+        LocalDateTime now = LocalDateTime.now();
+        Task task = taskMapper.selectOne(new LambdaQueryWrapper<Task>().eq(Task::getTaskId, entry.getTaskId()));
+        if (task == null) {
+            baseMapper.finishReplay(entry.getId(), DeadLetter.STATUS_RESOLVED, "任务已删除", 0, now);
+            return false;
+        }
+        if (!localPaths.containsKey(task.getTaskId())) {
+            String path = taskService.ensureCheckout(task);
+            if (path != null) {
+                catalogueService.cacheTaskProjectPath(task.getTaskId(), path);
+            }
+            localPaths.put(task.getTaskId(), path);
+        }
+        String localPath = localPaths.get(task.getTaskId());
+        if (localPath == null) {
+            baseMapper.finishReplay(entry.getId(), DeadLetter.STATUS_DEAD, "仓库目录已不存在且无法重新拉取", 0, now);
+            return false;
+        }
+        if (catalogueMapper.reopenForReplay(entry.getCatalogueId(), CatalogueStatusEnum.IN_PROGRESS.getCode(),
+                CatalogueStatusEnum.FAILED.getCode(), CatalogueStatusEnum.COMPLETED.getCode(), now) == 0) {
+            baseMapper.finishReplay(entry.getId(), DeadLetter.STATUS_RESOLVED, "目录已删除或已重新生成成功", 0, now);
+            return false;
+        }
+
+        DocumentGenerationTask message = JSON.parseObject(entry.getPayload(), DocumentGenerationTask.class);
+        message.setRetryCount(0);
+        message.setGeneration(null);
+        message.setErrorClass(null);
+        message.setLastError(null);
+        message.setPriority(message.isRegeneration() ? "HIGH" : "NORMAL");
+        message.setLocalPath(localPath);
+        message.setFileTree(fileService.getFileTree(localPath));
+        message.setCreateTime(now);
+        try {
+            if (message.isRegeneration()) {
+                producer.sendRegenerationTask(message);
+            } else {
+                producer.sendTask(message);
+            }
+        } catch (Exception e) {
+            // 投递失败时恢复目录的失败状态，死信保持待处理
+            processingService.markFinalFailure(message, "重放死信失败: " + e.getMessage());
+            throw e;
+        }
+        baseMapper.finishReplay(entry.getId(), DeadLetter.STATUS_REPLAYED, null, 1, now);
+        return true;
+    }
+
+    /**
+     * 按ids或taskId、errorClass筛选死信
+     */
+    private LambdaQueryWrapper<DeadLetter> selection(DeadLetterParams params) {
+        LambdaQueryWrapper<DeadLetter> queryWrapper = new LambdaQueryWrapper<>();
+        if (!CollectionUtils.isEmpty(params.getIds())) {
+            queryWrapper.in(DeadLetter::getId, params.getIds());
+        }
+        if (StringUtils.hasText(params.getTaskId())) {
+            queryWrapper.eq(DeadLetter::getTaskId, params.getTaskId());
+        }
+        if (StringUtils.hasText(params.getErrorClass())) {
+            queryWrapper.eq(DeadLetter::getErrorClass, params.getErrorClass());
+        }
+        return queryWrapper;
+    }
+
+    private void requireSelection(DeadLetterParams params) {
+        if (CollectionUtils.isEmpty(params.getIds()) && !StringUtils.hasText(params.getTaskId())
+                && !StringUtils.hasText(params.getErrorClass()) && !params.isAll()) {
+            throw new RuntimeException("请指定死信ID、任务ID或错误类型，处理全部死信需显式传all=true");
+        }
+    }
+
+    private double resolveRate(Double ratePerSecond) {
+        double rate = ratePerSecond != null && ratePerSecond > 0 ? ratePerSecond : replayRatePerSecond;
+        return Math.min(rate, maxReplayRatePerSecond);
+    }
+
+    private String truncate(String text) {
+        if (text == null || text.length() <= MAX_ERROR_CHARS) {
+            return text;
+        }
+        return text.substring(0, MAX_ERROR_CHARS);
+    }
+}
@@ -101,7 +101,7 @@ public class FileServiceImpl implements IFileService {
     @Override
     public String getRepositoryPath(String userName, String projectName) {
         String baseDir = getAbsoluteRepositoryPath();
-        String localPath = baseDir + File.separator + userName + File.separator + projectName;
+        String localPath = getProjectPath(userName, projectName);
         File baseDirFile = new File(baseDir);
         if (!baseDirFile.exists()) {
             baseDirFile.mkdirs();
@@ -124,6 +124,11 @@ public class FileServiceImpl implements IFileService {
         return localPath;
     }
 
+    @Override
+    public String getProjectPath(String userName, String projectName) {
+        return getAbsoluteRepositoryPath() + File.separator + userName + File.separator + projectName;
+    }
+
     @Override
     public void deleteProjectDirectory(String userName, String projectName) {
         if (userName == null || projectName == null) {
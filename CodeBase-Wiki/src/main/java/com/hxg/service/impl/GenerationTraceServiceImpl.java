@@ -0,0 +1,247 @@
+package com.hxg.service.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hxg.model.context.GenerationTraceContext;
+import com.hxg.model.context.LlmCallContext;
+import com.hxg.model.entity.GenerationTrace;
+import com.hxg.model.mapper.DocumentLedgerMapper;
+import com.hxg.model.mapper.GenerationTraceMapper;
+import com.hxg.model.mapper.TokenUsageMapper;
+import com.hxg.model.vo.TaskGenerationReportVo;
+import com.hxg.model.vo.TokenUsageStatVo;
+import com.hxg.service.IGenerationTraceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * @author hxg
+ * @description: 生成过程追踪服务实现类，持久化每次文档生成的耗时分解，并按任务汇总分位数分布与最慢页面
+ * @date 2025/8/21
+ */
+@Slf4j
+@Service
+public class GenerationTraceServiceImpl extends ServiceImpl<GenerationTraceMapper, GenerationTrace>
+        implements IGenerationTraceService {
+
+    private final TokenUsageMapper tokenUsageMapper;
+    private final DocumentLedgerMapper documentLedgerMapper;
+
+    @Value("${project.wiki.trace.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${project.wiki.trace.slowest-pages:10}")
+    private int slowestPages = 10;
+
+    /**
+     * 失败原因最大保存长度
+     */
+    private static final int MAX_FAIL_REASON_CHARS = 500;
+
+    public GenerationTraceServiceImpl(TokenUsageMapper tokenUsageMapper, DocumentLedgerMapper documentLedgerMapper) {
+        this.tokenUsageMapper = tokenUsageMapper;
+        this.documentLedgerMapper = documentLedgerMapper;
+    }
+
+    @Override
+    public void recordDocument(GenerationTraceContext trace, String status, String failReason) {
+        if (!enabled || trace == null) {
+            return;
+        }
+        // 追踪失败不能影响文档生成主流程
+        try {
+            List<GenerationTraceContext.ToolCallStat> stats = new ArrayList<>(trace.getToolStats().values());
+            LlmCallContext llm = trace.getLlmContext();
+            GenerationTrace record = GenerationTrace.builder()
+                    .taskId(trace.getTaskId())
+                    .catalogueId(trace.getCatalogueId())
+                    .catalogueName(trace.getCatalogueName())
+                    .stage(GenerationTrace.STAGE_DOCUMENT)
+                    .attempt(trace.getAttempt())
+                    .status(status)
+                    .queueWaitMs(trace.getQueueWaitMs())
+                    .durationMs(System.currentTimeMillis() - trace.getStartTime())
+                    .llmMs(llm != null ? llm.getDurationMs() : 0L)
+                    .turns(llm != null ? llm.getTurns() : 0)
+                    .toolCalls(stats.stream().mapToInt(GenerationTraceContext.ToolCallStat::getCalls).sum())
+                    .toolMs(stats.stream().mapToLong(GenerationTraceContext.ToolCallStat::getDurationMs).sum())
+                    .toolBytes(stats.stream().mapToLong(GenerationTraceContext.ToolCallStat::getBytes).sum())
+                    .toolDetail(trace.getToolStats().isEmpty() ? null : JSON.toJSONString(trace.getToolStats()))
+                    .promptTokens(llm != null ? llm.getPromptTokens() : 0L)
+                    .completionTokens(llm != null ? llm.getCompletionTokens() : 0L)
+                    .totalTokens(llm != null ? llm.getTotalTokens() : 0L)
+                    .model(llm != null ? llm.getModel() : null)
+                    .failReason(truncate(failReason))
+                    .createTime(LocalDateTime.now())
+                    .build();
+            this.save(record);
+            log.info("⏱️ 文档生成追踪 - taskId: {}, catalogueName: {}, attempt: {}, status: {}, queueWait: {}ms, " +
+                            "duration: {}ms, llm: {}ms, turns: {}, toolCalls: {}, tool: {}ms, toolBytes: {}, totalTokens: {}",
+                    record.getTaskId(), record.getCatalogueName(), record.getAttempt(), status, record.getQueueWaitMs(),
+                    record.getDurationMs(), record.getLlmMs(), record.getTurns(), record.getToolCalls(),
+                    record.getToolMs(), record.getToolBytes(), record.getTotalTokens());
+        } catch (Exception e) {
+            log.warn("记录文档生成追踪失败: taskId={}, catalogueId={}, error={}",
+                    trace.getTaskId(), trace.getCatalogueId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void recordStage(String taskId, String stage, long durationMs, String status) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            this.save(GenerationTrace.builder()
+                    .taskId(taskId)
+                    .stage(stage)
+                    .attempt(0)
+                    .status(status)
+                    .durationMs(durationMs)
+                    .createTime(LocalDateTime.now())
+                    .build());
+        } catch (Exception e) {
+            log.warn("记录任务阶段追踪失败: taskId={}, stage={}, error={}", taskId, stage, e.getMessage());
+        }
+    }
+
+    @Override
+    public TaskGenerationReportVo getTaskReport(String taskId) {
+        List<GenerationTrace> traces = this.list(new LambdaQueryWrapper<GenerationTrace>()
+                .eq(GenerationTrace::getTaskId, taskId)
+                .orderByAsc(GenerationTrace::getId));
+        List<GenerationTrace> documents = traces.stream()
+                .filter(trace -> GenerationTrace.STAGE_DOCUMENT.equals(trace.getStage()))
+                .toList();
+
+        Map<String, TaskGenerationReportVo.Distribution> breakdown = new LinkedHashMap<>();
+        breakdown.put("queueWaitMs", distribution(documents, GenerationTrace::getQueueWaitMs));
+        breakdown.put("durationMs", distribution(documents, GenerationTrace::getDurationMs));
+        breakdown.put("llmMs", distribution(documents, GenerationTrace::getLlmMs));
+        breakdown.put("toolMs", distribution(documents, GenerationTrace::getToolMs));
+        breakdown.put("turns", distribution(documents, trace -> toLong(trace.getTurns())));
+        breakdown.put("toolCalls", distribution(documents, trace -> toLong(trace.getToolCalls())));
+        breakdown.put("totalTokens", distribution(documents, GenerationTrace::getTotalTokens));
+
+        // 每个目录以最后一次尝试的结果作为最终状态
+        Map<String, String> finalStatus = new LinkedHashMap<>();
+        documents.forEach(trace -> finalStatus.put(trace.getCatalogueId(), trace.getStatus()));
+        int documentCount = finalStatus.size();
+        return TaskGenerationReportVo.builder()
+                .taskId(taskId)
+                .cloneMs(sumStage(traces, GenerationTrace.STAGE_CLONE))
+                .scanMs(sumStage(traces, GenerationTrace.STAGE_SCAN))
+                .catalogueMs(sumStage(traces, GenerationTrace.STAGE_CATALOGUE))
+                .catalogueTokens(sumCatalogueTokens(taskId))
+                .documentCount(documentCount)
+                .attempts(documents.size())
+                .retries(documents.size() - documentCount)
+                .completedCount(countStatus(finalStatus, GenerationTrace.STATUS_COMPLETED))
+                .failedCount(countStatus(finalStatus, GenerationTrace.STATUS_FAILED))
+                .documentTokens(documents.stream().mapToLong(trace -> toLong(trace.getTotalTokens())).sum())
+                .toolCalls(documents.stream().mapToLong(trace -> toLong(trace.getToolCalls())).sum())
+                .toolBytes(documents.stream().mapToLong(trace -> toLong(trace.getToolBytes())).sum())
+                .duplicatesSkipped(documentLedgerMapper.sumDuplicatesByTask(taskId))
+                .breakdown(breakdown)
+                .tools(aggregateTools(documents))
+                .slowestPages(documents.stream()
+                        .sorted(Comparator.comparingLong((GenerationTrace trace) -> toLong(trace.getDurationMs())).reversed())
+                        .limit(slowestPages)
+                        .toList())
+                .build();
+    }
+
+    /**
+     * 升序样本的最近秩分位数
+     */
+    static long percentile(List<Long> sorted, double percent) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.min(Math.max(rank, 1), sorted.size()) - 1);
+    }
+
+    private TaskGenerationReportVo.Distribution distribution(List<GenerationTrace> traces,
+                                                             Function<GenerationTrace, Long> metric) {
+        List<Long> values = traces.stream().map(metric).filter(Objects::nonNull).sorted().toList();
+        return TaskGenerationReportVo.Distribution.builder()
+                .p50(percentile(values, 50))
+                .p95(percentile(values, 95))
+                .max(values.isEmpty() ? 0L : values.get(values.size() - 1))
+                .avg(values.isEmpty() ? 0L : Math.round(values.stream().mapToLong(Long::longValue).average().orElse(0)))
+                .build();
+    }
+
+    /**
+     * 合并各次文档生成中按工具汇总的统计
+     */
+    private List<TaskGenerationReportVo.ToolStat> aggregateTools(List<GenerationTrace> documents) {
+        Map<String, TaskGenerationReportVo.ToolStat> tools = new LinkedHashMap<>();
+        for (GenerationTrace trace : documents) {
+            if (!StringUtils.hasText(trace.getToolDetail())) {
+                continue;
+            }
+            Map<String, GenerationTraceContext.ToolCallStat> detail = JSON.parseObject(trace.getToolDetail(),
+                    new TypeReference<Map<String, GenerationTraceContext.ToolCallStat>>() {});
+            detail.forEach((toolName, stat) -> {
+                TaskGenerationReportVo.ToolStat total = tools.computeIfAbsent(toolName, name ->
+                        TaskGenerationReportVo.ToolStat.builder()
+                                .toolName(name).calls(0L).failures(0L).durationMs(0L).maxMs(0L).bytes(0L)
+                                .build());
+                total.setCalls(total.getCalls() + stat.getCalls());
+                total.setFailures(total.getFailures() + stat.getFailures());
+                total.setDurationMs(total.getDurationMs() + stat.getDurationMs());
+                total.setMaxMs(Math.max(total.getMaxMs(), stat.getMaxMs()));
+                total.setBytes(total.getBytes() + stat.getBytes());
+            });
+        }
+        return tools.values().stream()
+                .sorted(Comparator.comparingLong(TaskGenerationReportVo.ToolStat::getDurationMs).reversed())
+                .toList();
+    }
+
+    private long sumCatalogueTokens(String taskId) {
+        return tokenUsageMapper.sumByTaskGroupByCallType(taskId).stream()
+                .filter(stat -> LlmCallContext.TYPE_CATALOGUE.equals(stat.getDimension()))
+                .map(TokenUsageStatVo::getTotalTokens)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(0L);
+    }
+
+    private Long sumStage(List<GenerationTrace> traces, String stage) {
+        return traces.stream()
+                .filter(trace -> stage.equals(trace.getStage()))
+                .mapToLong(trace -> toLong(trace.getDurationMs()))
+                .sum();
+    }
+
+    private int countStatus(Map<String, String> finalStatus, String status) {
+        return (int) finalStatus.values().stream().filter(status::equals).count();
+    }
+
+    private static long toLong(Number value) {
+        return value == null ? 0L : value.longValue();
+    }
+
+    private static String truncate(String text) {
+        if (text == null || text.length() <= MAX_FAIL_REASON_CHARS) {
+            return text;
+        }
+        return text.substring(0, MAX_FAIL_REASON_CHARS);
+    }
+}
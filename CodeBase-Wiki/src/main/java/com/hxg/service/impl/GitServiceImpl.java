@@ -5,6 +5,8 @@ import com.hxg.service.IGitService;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.springframework.stereotype.Service;
 
@@ -36,4 +38,15 @@ public class GitServiceImpl implements IGitService {
         }
         return localPath;
     }
+
+    @Override
+    public String getHeadCommit(String localPath) {
+        try (Git git = Git.open(new File(localPath))) {
+            ObjectId head = git.getRepository().resolve(Constants.HEAD);
+            return head == null ? null : head.getName();
+        } catch (Exception e) {
+            log.warn("读取仓库HEAD提交失败: localPath={}, error={}", localPath, e.getMessage());
+            return null;
+        }
+    }
 }
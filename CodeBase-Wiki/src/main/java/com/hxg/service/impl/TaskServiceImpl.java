@@ -5,25 +5,44 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hxg.model.context.ExecutionContext;
 import com.hxg.model.mapper.TaskMapper;
-import com.hxg.model.dto.GenCatalogueDTO;
+import com.hxg.model.entity.GenerationTrace;
 import com.hxg.model.entity.Task;
 import com.hxg.model.enums.TaskStatusEnum;
 import com.hxg.model.param.CreateTaskParams;
+import com.hxg.model.param.CursorPageParams;
 import com.hxg.model.param.ListPageParams;
+import com.hxg.model.param.RegenerateCatalogueParams;
+import com.hxg.model.vo.CursorPageVo;
+import com.hxg.model.vo.TaskEstimateVo;
 import com.hxg.model.vo.TaskVo;
+import com.hxg.planner.AdmissionPolicy;
 import com.hxg.service.ICatalogueService;
 import com.hxg.service.IFileService;
+import com.hxg.service.IGenerationTraceService;
 import com.hxg.service.IGitService;
 import com.hxg.service.ITaskService;
+import com.hxg.service.IWikiReuseService;
+import com.hxg.snapshot.RepositorySnapshotService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import com.hxg.utils.PageCursorUtil;
 import com.hxg.utils.TaskIdGenerator;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author hxg
@@ -45,11 +64,59 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements IT
     @Autowired
     private ICatalogueService catalogueService;
 
+    @Autowired
+    private AdmissionPolicy admissionPolicy;
+
+    @Autowired
+    private IWikiReuseService wikiReuseService;
+
+    @Autowired
+    private IGenerationTraceService generationTraceService;
+
+    @Autowired
+    private RepositorySnapshotService snapshotService;
+
+    @Value("${project.wiki.recovery.enabled:true}")
+    private boolean recoveryEnabled = true;
+
+    @Value("${project.wiki.recovery.task-timeout-minutes:10}")
+    private long taskTimeoutMinutes = 10;
+
+    @Value("${project.wiki.pagination.max-page-size:100}")
+    private int maxPageSize = 100;
+
+    /**
+     * 无筛选条件时的任务总数缓存时间(秒)，期间返回的总数为近似值
+     */
+    @Value("${project.wiki.pagination.count-cache-seconds:30}")
+    private long countCacheSeconds = 30;
+
+    private volatile long cachedTotal = -1;
+    private volatile long cachedTotalAt;
+
+    /**
+     * 本节点正在生成目录的任务，恢复时跳过并刷新其更新时间作为心跳
+     */
+    private final Set<String> runningTaskIds = ConcurrentHashMap.newKeySet();
+
     @Override
     public Task createTask(CreateTaskParams params, MultipartFile file) {
+        //队列繁忙时Git任务先排队，不拉取仓库；ZIP文件与需要密码的仓库无法延后拉取，仍立即处理
+        if ("git".equals(params.getSourceType()) && !StringUtils.hasText(params.getPassword())) {
+            long queuedAhead = this.baseMapper.countByStatus(TaskStatusEnum.QUEUED.getCode());
+            AdmissionPolicy.CapacityCheck capacity = admissionPolicy.checkCapacity(queuedAhead);
+            if (capacity.isDeferred()) {
+                Task task = insertQueuedTask(params, capacity.reason(), capacity.estimateStartTime(queuedAhead));
+                log.info("任务{}进入排队，暂不拉取仓库：{}，预计开始时间{}", task.getTaskId(), capacity.reason(),
+                        task.getEstimatedStartTime());
+                return task;
+            }
+        }
+
         //根据项目来源处理本地目录
         String localPath = fileService.getRepositoryPath(params.getUserName(), params.getProjectName());
 
+        long cloneStart = System.currentTimeMillis();
         if ("git".equals(params.getSourceType())) {
             log.info("开始从Git仓库拉取项目");
             gitService.cloneRepository(params, localPath);
@@ -60,9 +127,267 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements IT
             fileService.unzipToProjectDir(file, params.getUserName(), params.getProjectName());
             log.info("解压ZIP文件成功");
         }
+        long cloneMs = System.currentTimeMillis() - cloneStart;
+
+        //相同仓库提交已有结果或正在生成时直接复用
+        String contentKey = wikiReuseService.buildContentKey(params, localPath);
+        Task source = wikiReuseService.findReusableTask(contentKey);
+        if (source != null) {
+            Task task = reuseTask(params, contentKey, source, localPath);
+            generationTraceService.recordStage(task.getTaskId(), GenerationTrace.STAGE_CLONE, cloneMs,
+                    GenerationTrace.STATUS_COMPLETED);
+            return task;
+        }
+
+        //预估消耗并决定是否立即执行
+        TaskEstimateVo estimate = admissionPolicy.evaluate(params.getUserName(), localPath);
+        if (AdmissionPolicy.Decision.REJECT.name().equals(estimate.getDecision())) {
+            fileService.deleteProjectDirectory(params.getUserName(), params.getProjectName());
+            throw new RuntimeException("任务超出预算，拒绝创建：" + estimate.getReason());
+        }
+
+        Task task = insertTask(params, estimate, contentKey);
+        generationTraceService.recordStage(task.getTaskId(), GenerationTrace.STAGE_CLONE, cloneMs,
+                GenerationTrace.STATUS_COMPLETED);
+        if (task.getStatus() == TaskStatusEnum.QUEUED) {
+            log.info("任务{}进入排队：{}", task.getTaskId(), estimate.getReason());
+            return task;
+        }
+        startTask(task, params, localPath);
+        return task;
+    }
+
+    /**
+     * 按提交顺序重新评估排队中的任务，队首任务仍需延后时停止，保证先到先执行；
+     * 尚未拉取仓库的任务先检查队列容量，有空闲后再拉取仓库并预估
+     */
+    @Scheduled(initialDelayString = "${project.wiki.admission.queue-check-interval-ms:60000}",
+            fixedDelayString = "${project.wiki.admission.queue-check-interval-ms:60000}")
+    public void admitQueuedTasks() {
+        List<Task> queuedTasks = this.list(new LambdaQueryWrapper<Task>()
+                .eq(Task::getStatus, TaskStatusEnum.QUEUED)
+                .orderByAsc(Task::getId));
+        for (int i = 0; i < queuedTasks.size(); i++) {
+            Task task = queuedTasks.get(i);
+            try {
+                AdmissionPolicy.CapacityCheck capacity = admissionPolicy.checkCapacity(0);
+                if (capacity.isDeferred()) {
+                    refreshQueuedTasks(queuedTasks.subList(i, queuedTasks.size()), capacity);
+                    return;
+                }
+                String localPath;
+                if (task.getEstimatedTokens() == null) {
+                    localPath = checkoutQueuedTask(task);
+                    if (localPath == null || task.getStatus() != TaskStatusEnum.QUEUED) {
+                        continue;
+                    }
+                } else {
+                    localPath = fileService.getProjectPath(task.getUserName(), task.getProjectName());
+                }
+                TaskEstimateVo estimate = admissionPolicy.evaluate(task.getUserName(), localPath);
+                if (AdmissionPolicy.Decision.DEFER.name().equals(estimate.getDecision())) {
+                    task.setFailReason(estimate.getReason());
+                    task.setEstimatedTokens(estimate.getTotalTokens());
+                    task.setUpdateTime(LocalDateTime.now());
+                    this.updateById(task);
+                    return;
+                }
+                task.setEstimatedTokens(estimate.getTotalTokens());
+                task.setEstimatedStartTime(null);
+                task.setUpdateTime(LocalDateTime.now());
+                if (AdmissionPolicy.Decision.REJECT.name().equals(estimate.getDecision())) {
+                    task.setStatus(TaskStatusEnum.FAILED);
+                    task.setFailReason("任务超出预算：" + estimate.getReason());
+                    this.updateById(task);
+                    continue;
+                }
+                task.setStatus(TaskStatusEnum.IN_PROGRESS);
+                task.setFailReason(null);
+                this.updateById(task);
+                log.info("排队任务{}开始执行", task.getTaskId());
+
+                startTask(task, toCreateParams(task), localPath);
+            } catch (Exception e) {
+                log.error("排队任务{}准入失败：{}", task.getTaskId(), e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 拉取排队时未拉取的仓库并检查能否复用已有结果；拉取失败时任务失败，可复用时改为等待来源任务
+     *
+     * @return 仓库本地路径，拉取失败时返回null
+     */
+    private String checkoutQueuedTask(Task task) {
+        String localPath = fileService.getRepositoryPath(task.getUserName(), task.getProjectName());
+        long cloneStart = System.currentTimeMillis();
+        try {
+            gitService.cloneRepository(toCreateParams(task), localPath);
+        } catch (Exception e) {
+            log.warn("排队任务{}拉取仓库失败：{}", task.getTaskId(), e.getMessage());
+            task.setStatus(TaskStatusEnum.FAILED);
+            task.setFailReason("拉取仓库失败：" + e.getMessage());
+            task.setEstimatedStartTime(null);
+            task.setUpdateTime(LocalDateTime.now());
+            this.updateById(task);
+            return null;
+        }
+        generationTraceService.recordStage(task.getTaskId(), GenerationTrace.STAGE_CLONE,
+                System.currentTimeMillis() - cloneStart, GenerationTrace.STATUS_COMPLETED);
+
+        String contentKey = wikiReuseService.buildContentKey(toCreateParams(task), localPath);
+        task.setContentKey(contentKey);
+        Task source = wikiReuseService.findReusableTask(contentKey);
+        if (source != null) {
+            log.info("排队任务{}与任务{}相同，改为复用其结果", task.getTaskId(), source.getTaskId());
+            task.setStatus(TaskStatusEnum.ATTACHED);
+            task.setSourceTaskId(source.getTaskId());
+            task.setEstimatedTokens(0L);
+            task.setFailReason(null);
+            task.setEstimatedStartTime(null);
+            task.setUpdateTime(LocalDateTime.now());
+            this.updateById(task);
+        }
+        return localPath;
+    }
+
+    /**
+     * 容量不足时刷新仍在排队的任务的延后原因与预计开始时间
+     */
+    private void refreshQueuedTasks(List<Task> queuedTasks, AdmissionPolicy.CapacityCheck capacity) {
+        for (int position = 0; position < queuedTasks.size(); position++) {
+            Task task = queuedTasks.get(position);
+            task.setFailReason(capacity.reason());
+            task.setEstimatedStartTime(capacity.estimateStartTime(position));
+            task.setUpdateTime(LocalDateTime.now());
+            this.updateById(task);
+        }
+    }
+
+    /**
+     * 处理等待相同任务的复用任务：来源任务完成后复制结果；来源任务失败或被删除时改挂到其他相同任务，没有则转入排队重新生成
+     */
+    @Scheduled(initialDelayString = "${project.wiki.reuse.attach-check-interval-ms:30000}",
+            fixedDelayString = "${project.wiki.reuse.attach-check-interval-ms:30000}")
+    public void resolveAttachedTasks() {
+        List<Task> attachedTasks = this.list(new LambdaQueryWrapper<Task>()
+                .eq(Task::getStatus, TaskStatusEnum.ATTACHED)
+                .orderByAsc(Task::getId));
+        for (Task task : attachedTasks) {
+            try {
+                Task source = getTaskByTaskId(task.getSourceTaskId());
+                if (source != null && wikiReuseService.isResultReady(source)) {
+                    String localPath = fileService.getProjectPath(task.getUserName(), task.getProjectName());
+                    wikiReuseService.materialize(source, task, localPath);
+                    task.setStatus(TaskStatusEnum.COMPLETED);
+                } else if (source == null || wikiReuseService.isResultFailed(source)) {
+                    Task next = wikiReuseService.findReusableTask(task.getContentKey());
+                    if (next != null) {
+                        log.info("复用任务{}的来源任务{}失败，改为等待任务{}", task.getTaskId(), task.getSourceTaskId(), next.getTaskId());
+                        task.setSourceTaskId(next.getTaskId());
+                    } else {
+                        log.info("复用任务{}的来源任务{}失败，转入排队重新生成", task.getTaskId(), task.getSourceTaskId());
+                        task.setSourceTaskId(null);
+                        task.setStatus(TaskStatusEnum.QUEUED);
+                        task.setFailReason("复用的任务生成失败，等待重新生成");
+                    }
+                } else {
+                    continue;
+                }
+                task.setUpdateTime(LocalDateTime.now());
+                this.updateById(task);
+            } catch (Exception e) {
+                log.error("复用任务{}处理失败：{}", task.getTaskId(), e.getMessage(), e);
+            }
+        }
+    }
 
-        Task task = insertTask(params);
+    /**
+     * 恢复中断的任务：目录生成阶段超时未更新（节点重启或崩溃）的任务清除已保存的目录，
+     * 必要时重新拉取仓库后重新生成目录；已投递的文档由目录租约恢复
+     */
+    @Scheduled(initialDelayString = "${project.wiki.recovery.initial-delay-ms:30000}",
+            fixedDelayString = "${project.wiki.recovery.sweep-interval-ms:60000}")
+    public void recoverInterruptedTasks() {
+        if (!recoveryEnabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (String taskId : runningTaskIds) {
+            this.lambdaUpdate().set(Task::getUpdateTime, now).eq(Task::getTaskId, taskId).update();
+        }
+        LocalDateTime staleBefore = now.minusMinutes(taskTimeoutMinutes);
+        List<Task> interruptedTasks = this.list(new LambdaQueryWrapper<Task>()
+                .eq(Task::getStatus, TaskStatusEnum.IN_PROGRESS)
+                .lt(Task::getUpdateTime, staleBefore)
+                .orderByAsc(Task::getId));
+        for (Task task : interruptedTasks) {
+            if (runningTaskIds.contains(task.getTaskId())
+                    || this.baseMapper.touchIfStale(task.getTaskId(), TaskStatusEnum.IN_PROGRESS.getCode(), staleBefore, now) == 0) {
+                continue;
+            }
+            try {
+                String localPath = ensureCheckout(task);
+                if (localPath == null) {
+                    task.setStatus(TaskStatusEnum.FAILED);
+                    task.setFailReason("任务中断且仓库目录已不存在，无法恢复，请重新创建任务");
+                    task.setUpdateTime(LocalDateTime.now());
+                    this.updateById(task);
+                    continue;
+                }
+                log.info("任务{}的目录生成已中断，清除已保存的目录后重新生成", task.getTaskId());
+                catalogueService.deleteCatalogueByTaskId(task.getTaskId());
+                startTask(task, toCreateParams(task), localPath);
+            } catch (Exception e) {
+                log.error("恢复任务{}失败：{}", task.getTaskId(), e.getMessage(), e);
+            }
+        }
+    }
 
+    @Override
+    public String ensureCheckout(Task task) {
+        String localPath = fileService.getProjectPath(task.getUserName(), task.getProjectName());
+        String[] entries = new File(localPath).list();
+        if (entries != null && entries.length > 0) {
+            return localPath;
+        }
+        if ("zip".equals(task.getSourceType()) || !StringUtils.hasText(task.getProjectUrl())) {
+            log.warn("任务{}的仓库目录已不存在且来源不是Git，无法重新拉取", task.getTaskId());
+            return null;
+        }
+        // 仓库密码不落库，私有仓库无法重新拉取
+        CreateTaskParams params = new CreateTaskParams();
+        params.setProjectUrl(task.getProjectUrl());
+        params.setBranch(task.getBranch());
+        try {
+            FileUtils.deleteQuietly(new File(localPath));
+            gitService.cloneRepository(params, localPath);
+            log.info("任务{}的仓库目录已不存在，重新拉取到{}", task.getTaskId(), localPath);
+            return localPath;
+        } catch (Exception e) {
+            log.warn("任务{}重新拉取仓库失败：{}", task.getTaskId(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public TaskEstimateVo estimateFromGit(CreateTaskParams params) {
+        File tempDir;
+        try {
+            tempDir = Files.createTempDirectory("wiki-estimate-").toFile();
+        } catch (IOException e) {
+            throw new RuntimeException("创建临时目录失败：" + e.getMessage(), e);
+        }
+        try {
+            gitService.cloneRepository(params, tempDir.getAbsolutePath());
+            return admissionPolicy.evaluate(params.getUserName(), tempDir.getAbsolutePath());
+        } finally {
+            FileUtils.deleteQuietly(tempDir);
+        }
+    }
+
+    private void startTask(Task task, CreateTaskParams params, String localPath) {
         ExecutionContext context = new ExecutionContext();
         context.setTask(task);
         context.setCreateParams(params);
@@ -70,6 +395,7 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements IT
         context.setLocalPath(localPath);
 
         //异步处理任务
+        runningTaskIds.add(task.getTaskId());
         createTaskExecutor.execute(() -> {
             try {
                 executeTask(context);
@@ -79,28 +405,51 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements IT
                 task.setFailReason(e.getMessage());
                 task.setUpdateTime(LocalDateTime.now());
                 this.updateById(task);
+            } finally {
+                runningTaskIds.remove(task.getTaskId());
             }
         });
-        return task;
+    }
+
+    /**
+     * 由任务记录还原创建参数，用于排队任务准入与中断任务恢复
+     */
+    private CreateTaskParams toCreateParams(Task task) {
+        CreateTaskParams params = new CreateTaskParams();
+        params.setProjectName(task.getProjectName());
+        params.setProjectUrl(task.getProjectUrl());
+        params.setUserName(task.getUserName());
+        params.setBranch(task.getBranch());
+        params.setSourceType(task.getSourceType());
+        return params;
     }
 
     private void executeTask(ExecutionContext context) {
         Task task = context.getTask();
+        long catalogueStart = 0;
         try {
             //生成项目目录
+            long scanStart = System.currentTimeMillis();
             String fileTree = fileService.getFileTree(context.getLocalPath());
-            GenCatalogueDTO catalogueDTO = catalogueService.generateCatalogue(fileTree, context);
+            generationTraceService.recordStage(task.getTaskId(), GenerationTrace.STAGE_SCAN,
+                    System.currentTimeMillis() - scanStart, GenerationTrace.STATUS_COMPLETED);
 
             // 缓存项目路径到CatalogueService，避免循环依赖
             catalogueService.cacheTaskProjectPath(context.getTaskId(), context.getLocalPath());
 
-            //生成目录详情 - 传递projectName
-            String projectName = task.getProjectName();
-            catalogueService.parallelGenerateCatalogueDetail(fileTree, catalogueDTO, context.getLocalPath(), projectName);
+            //生成目录并投递目录详情生成任务 - 传递projectName
+            catalogueStart = System.currentTimeMillis();
+            catalogueService.generateCatalogueAndDispatch(fileTree, context, task.getProjectName());
+            generationTraceService.recordStage(task.getTaskId(), GenerationTrace.STAGE_CATALOGUE,
+                    System.currentTimeMillis() - catalogueStart, GenerationTrace.STATUS_COMPLETED);
             task.setStatus(TaskStatusEnum.COMPLETED);
             task.setUpdateTime(LocalDateTime.now());
         } catch (Exception e) {
             log.error("任务执行失败", e);
+            if (catalogueStart > 0) {
+                generationTraceService.recordStage(task.getTaskId(), GenerationTrace.STAGE_CATALOGUE,
+                        System.currentTimeMillis() - catalogueStart, GenerationTrace.STATUS_FAILED);
+            }
             task.setStatus(TaskStatusEnum.FAILED);
             task.setFailReason(e.getMessage());
             task.setUpdateTime(LocalDateTime.now());
@@ -111,13 +460,68 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements IT
         }
     }
 
-    private Task insertTask(CreateTaskParams params) {
+    /**
+     * 创建复用任务，来源任务已完成时立即复制结果，否则等待来源任务完成
+     */
+    private Task reuseTask(CreateTaskParams params, String contentKey, Task source, String localPath) {
+        boolean ready = wikiReuseService.isResultReady(source);
         Task task = Task.builder()
                 .taskId(TaskIdGenerator.generate())
                 .projectName(params.getProjectName())
                 .projectUrl(params.getProjectUrl())
                 .userName(params.getUserName())
-                .status(TaskStatusEnum.IN_PROGRESS)
+                .sourceType(params.getSourceType())
+                .branch(params.getBranch())
+                .status(ready ? TaskStatusEnum.COMPLETED : TaskStatusEnum.ATTACHED)
+                .estimatedTokens(0L)
+                .contentKey(contentKey)
+                .sourceTaskId(source.getTaskId())
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        this.save(task);
+        if (ready) {
+            wikiReuseService.materialize(source, task, localPath);
+        } else {
+            log.info("任务{}与进行中的任务{}相同，等待其完成后复用结果", task.getTaskId(), source.getTaskId());
+        }
+        return task;
+    }
+
+    private Task insertTask(CreateTaskParams params, TaskEstimateVo estimate, String contentKey) {
+        boolean deferred = AdmissionPolicy.Decision.DEFER.name().equals(estimate.getDecision());
+        Task task = Task.builder()
+                .taskId(TaskIdGenerator.generate())
+                .projectName(params.getProjectName())
+                .projectUrl(params.getProjectUrl())
+                .userName(params.getUserName())
+                .sourceType(params.getSourceType())
+                .branch(params.getBranch())
+                .status(deferred ? TaskStatusEnum.QUEUED : TaskStatusEnum.IN_PROGRESS)
+                .failReason(deferred ? estimate.getReason() : null)
+                .estimatedTokens(estimate.getTotalTokens())
+                .contentKey(contentKey)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        this.save(task);
+        return task;
+    }
+
+    /**
+     * 创建尚未拉取仓库的排队任务，未预估token数（estimatedTokens为空）表示仓库待拉取
+     */
+    private Task insertQueuedTask(CreateTaskParams params, String reason, LocalDateTime estimatedStartTime) {
+        Task task = Task.builder()
+                .taskId(TaskIdGenerator.generate())
+                .projectName(params.getProjectName())
+                .projectUrl(params.getProjectUrl())
+                .userName(params.getUserName())
+                .sourceType(params.getSourceType())
+                .branch(params.getBranch())
+                .status(TaskStatusEnum.QUEUED)
+                .failReason(reason)
+                .estimatedStartTime(estimatedStartTime)
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
@@ -127,17 +531,66 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements IT
 
     @Override
     public Page<Task> getPageList(ListPageParams params) {
+        LambdaQueryWrapper<Task> queryWrapper = taskFilters(params.getTaskId(), params.getProjectName(), params.getUserName());
+        if (!queryWrapper.isEmptyOfWhere()) {
+            return this.page(new Page<>(params.getPageIndex(), params.getPageSize()), queryWrapper);
+        }
+        // 无筛选条件时不再每次COUNT全表，使用定期刷新的近似总数
+        Page<Task> page = this.page(new Page<>(params.getPageIndex(), params.getPageSize(), false), queryWrapper);
+        page.setTotal(approximateTotal());
+        return page;
+    }
+
+    @Override
+    public CursorPageVo<Task> listByCursor(CursorPageParams params) {
+        int pageSize = Math.min(Math.max(params.getPageSize() == null ? 20 : params.getPageSize(), 1), maxPageSize);
+        LambdaQueryWrapper<Task> queryWrapper = taskFilters(params.getTaskId(), params.getProjectName(), params.getUserName());
+        boolean filtered = !queryWrapper.isEmptyOfWhere();
+        if (StringUtils.hasText(params.getCursor())) {
+            PageCursorUtil.Cursor cursor = PageCursorUtil.decode(params.getCursor());
+            // 前一个条件用于索引范围查找，后一个条件在创建时间相同时按id排除已返回的行
+            queryWrapper.apply(PageCursorUtil.CREATE_TIME_KEY + " <= julianday({0})", cursor.createTime())
+                    .apply("(" + PageCursorUtil.CREATE_TIME_KEY + ", id) < (julianday({0}), {1})",
+                            cursor.createTime(), cursor.id());
+        }
+        // 多查一条判断是否还有下一页
+        queryWrapper.last("ORDER BY " + PageCursorUtil.CREATE_TIME_KEY + " DESC, id DESC LIMIT " + (pageSize + 1));
+        CursorPageVo<Task> page = CursorPageVo.of(this.list(queryWrapper), pageSize,
+                task -> PageCursorUtil.encode(task.getCreateTime(), task.getId()));
+        if (Boolean.TRUE.equals(params.getWithCount())) {
+            page.setTotal(filtered
+                    ? this.count(taskFilters(params.getTaskId(), params.getProjectName(), params.getUserName()))
+                    : approximateTotal());
+            page.setTotalApproximate(!filtered);
+        }
+        return page;
+    }
+
+    private LambdaQueryWrapper<Task> taskFilters(String taskId, String projectName, String userName) {
         LambdaQueryWrapper<Task> queryWrapper = new LambdaQueryWrapper<>();
-        if (params.getTaskId() != null && !params.getTaskId().isEmpty()) {
-            queryWrapper.eq(Task::getTaskId, params.getTaskId());
+        if (taskId != null && !taskId.isEmpty()) {
+            queryWrapper.eq(Task::getTaskId, taskId);
         }
-        if (params.getProjectName() != null && !params.getProjectName().isEmpty()) {
-            queryWrapper.eq(Task::getProjectName, params.getProjectName());
+        if (projectName != null && !projectName.isEmpty()) {
+            queryWrapper.eq(Task::getProjectName, projectName);
         }
-        if (params.getUserName() != null && !params.getUserName().isEmpty()) {
-            queryWrapper.eq(Task::getUserName, params.getUserName());
+        if (userName != null && !userName.isEmpty()) {
+            queryWrapper.eq(Task::getUserName, userName);
         }
-        return this.page(new Page<>(params.getPageIndex(), params.getPageSize()), queryWrapper);
+        return queryWrapper;
+    }
+
+    /**
+     * 无筛选条件时的任务总数：精确的COUNT(*)结果缓存countCacheSeconds秒，近似仅指缓存期内新增或删除的任务未计入。
+     * 任务表规模有限，定期计数一次的开销可以接受，避免每个列表请求都扫描全表；MAX(id)等廉价估计在删除任务后会持续偏大，不采用
+     */
+    private long approximateTotal() {
+        long now = System.currentTimeMillis();
+        if (cachedTotal < 0 || now - cachedTotalAt > countCacheSeconds * 1000) {
+            cachedTotal = this.count();
+            cachedTotalAt = now;
+        }
+        return cachedTotal;
     }
 
     @Override
@@ -176,12 +629,35 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements IT
 
             this.removeById(task.getId());
             log.info("任务{}删除成功", taskId);
+
+            //释放仓库快照，没有其他任务引用时删除
+            try {
+                snapshotService.release(task.getSnapshotKey());
+            } catch (Exception e) {
+                log.error("任务{}的仓库快照 {} 释放失败: {}", taskId, task.getSnapshotKey(), e.getMessage());
+            }
         } else {
             log.info("任务{}不存在", taskId);
         }
 
     }
 
+    @Override
+    public int regenerateCatalogue(RegenerateCatalogueParams params) {
+        Task task = getTaskByTaskId(params.getTaskId());
+        if (task == null) {
+            throw new RuntimeException("任务不存在: " + params.getTaskId());
+        }
+        String localPath = ensureCheckout(task);
+        if (localPath == null) {
+            throw new RuntimeException("任务的仓库目录已不存在且无法重新拉取，请重新创建任务");
+        }
+        String fileTree = fileService.getFileTree(localPath);
+        int count = catalogueService.regenerateCatalogue(params, fileTree, localPath, task.getProjectName());
+        log.info("任务{}重新生成目录{}，共{}个目录", task.getTaskId(), params.getCatalogueId(), count);
+        return count;
+    }
+
     @Override
     public TaskVo createFromGit(CreateTaskParams params) {
         params.setSourceType("git");
@@ -0,0 +1,105 @@
+package com.hxg.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hxg.config.SqliteWriteQueue;
+import com.hxg.llm.usage.TokenEstimator;
+import com.hxg.model.context.LlmCallContext;
+import com.hxg.model.entity.TokenUsage;
+import com.hxg.model.mapper.TokenUsageMapper;
+import com.hxg.model.vo.TaskTokenUsageVo;
+import com.hxg.model.vo.TokenUsageStatVo;
+import com.hxg.service.ITokenUsageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: Token消耗统计服务实现类
+ * @date 2025/8/12
+ */
+@Slf4j
+@Service
+public class TokenUsageServiceImpl extends ServiceImpl<TokenUsageMapper, TokenUsage> implements ITokenUsageService {
+
+    private final TokenEstimator tokenEstimator;
+    private final SqliteWriteQueue writeQueue;
+
+    public TokenUsageServiceImpl(TokenEstimator tokenEstimator, SqliteWriteQueue writeQueue) {
+        this.tokenEstimator = tokenEstimator;
+        this.writeQueue = writeQueue;
+    }
+
+    @Override
+    public void record(LlmCallContext context) {
+        if (context == null || context.getTurns() == 0) {
+            return;
+        }
+        // 统计失败不能影响文档生成主流程
+        try {
+            TokenUsage usage = TokenUsage.builder()
+                    .taskId(context.getTaskId())
+                    .catalogueId(context.getCatalogueId())
+                    .callType(context.getCallType())
+                    .model(context.getModel())
+                    .routeTier(context.getRouteTier())
+                    .complexityScore(context.getComplexityScore())
+                    .turns(context.getTurns())
+                    .promptTokens(context.getPromptTokens())
+                    .completionTokens(context.getCompletionTokens())
+                    .totalTokens(context.getTotalTokens())
+                    .estimatedTokens(context.getEstimatedTokens())
+                    .durationMs(context.getDurationMs())
+                    .createTime(LocalDateTime.now())
+                    .build();
+            // 每次LLM调用一条记录，经写入队列与其他小写入合并提交
+            writeQueue.execute(() -> this.save(usage));
+
+            tokenEstimator.calibrate(context.getModel(), context.getEstimatedTokens(), context.getFirstTurnPromptTokens());
+
+            log.info("📊 Token使用记录 - taskId: {}, catalogueId: {}, callType: {}, model: {}, turns: {}, " +
+                            "promptTokens: {}, completionTokens: {}, totalTokens: {}, estimatedTokens: {}, duration: {}ms",
+                    context.getTaskId(), context.getCatalogueId(), context.getCallType(), context.getModel(),
+                    context.getTurns(), context.getPromptTokens(), context.getCompletionTokens(),
+                    context.getTotalTokens(), context.getEstimatedTokens(), context.getDurationMs());
+        } catch (Exception e) {
+            log.warn("记录Token消耗失败: taskId={}, catalogueId={}, error={}",
+                    context.getTaskId(), context.getCatalogueId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public TaskTokenUsageVo getTaskUsage(String taskId) {
+        return TaskTokenUsageVo.builder()
+                .taskId(taskId)
+                .total(this.baseMapper.sumByTask(taskId))
+                .byCallType(this.baseMapper.sumByTaskGroupByCallType(taskId))
+                .byCatalogue(this.baseMapper.sumByTaskGroupByCatalogue(taskId))
+                .build();
+    }
+
+    @Override
+    public List<TokenUsageStatVo> getUsageByModel(LocalDate startDate, LocalDate endDate) {
+        return this.baseMapper.sumByModel(startDate.toString(), endDate.toString());
+    }
+
+    @Override
+    public List<TokenUsageStatVo> getDailyUsage(int days) {
+        LocalDate startDate = LocalDate.now().minusDays(Math.max(days, 1) - 1L);
+        return this.baseMapper.sumByDay(startDate.toString());
+    }
+
+    @Override
+    public List<TokenUsageStatVo> getUsageByRouteTier(int days) {
+        LocalDate startDate = LocalDate.now().minusDays(Math.max(days, 1) - 1L);
+        return this.baseMapper.sumByRouteTier(startDate.toString());
+    }
+
+    @Override
+    public long estimateTokens(String text, String model) {
+        return tokenEstimator.estimate(text, model);
+    }
+}
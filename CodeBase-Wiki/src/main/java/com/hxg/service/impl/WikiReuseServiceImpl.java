@@ -0,0 +1,216 @@
+package com.hxg.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.hxg.model.entity.Catalogue;
+import com.hxg.model.entity.Task;
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.enums.TaskStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.model.param.CreateTaskParams;
+import com.hxg.service.ICatalogueContentService;
+import com.hxg.service.IGitService;
+import com.hxg.service.IMemoryIntegrationService;
+import com.hxg.service.IWikiReuseService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @author hxg
+ * @description: Wiki结果复用服务实现类
+ * 以（规范化仓库地址、提交SHA、prompt版本、模型）作为内容键，相同键的已完成结果直接复制目录与文档，
+ * 仍在生成中的相同任务则由新任务挂起等待，热门仓库只生成一次
+ * @date 2025/8/20
+ */
+@Slf4j
+@Service
+public class WikiReuseServiceImpl implements IWikiReuseService {
+
+    private final TaskMapper taskMapper;
+    private final CatalogueMapper catalogueMapper;
+    private final IGitService gitService;
+    private final IMemoryIntegrationService memoryIntegrationService;
+    private final ICatalogueContentService catalogueContentService;
+
+    @Value("${project.wiki.reuse.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${project.wiki.prompt.catalogue-version:}")
+    private String cataloguePromptVersion = "";
+
+    @Value("${project.wiki.prompt.doc-version:}")
+    private String docPromptVersion = "";
+
+    @Value("${spring.ai.dashscope.chat.options.model:}")
+    private String defaultModel = "";
+
+    @Value("${project.wiki.llm.routing.enabled:true}")
+    private boolean routingEnabled = true;
+
+    @Value("${project.wiki.llm.routing.fast-model:}")
+    private String fastModel = "";
+
+    @Value("${project.wiki.llm.routing.strong-model:}")
+    private String strongModel = "";
+
+    public WikiReuseServiceImpl(TaskMapper taskMapper, CatalogueMapper catalogueMapper,
+                                IGitService gitService, IMemoryIntegrationService memoryIntegrationService,
+                                ICatalogueContentService catalogueContentService) {
+        this.taskMapper = taskMapper;
+        this.catalogueMapper = catalogueMapper;
+        this.gitService = gitService;
+        this.memoryIntegrationService = memoryIntegrationService;
+        this.catalogueContentService = catalogueContentService;
+    }
+
+    @Override
+    public String buildContentKey(CreateTaskParams params, String localPath) {
+        if (!enabled || !"git".equals(params.getSourceType()) || !StringUtils.hasText(params.getProjectUrl())) {
+            return null;
+        }
+        String commit = gitService.getHeadCommit(localPath);
+        if (commit == null) {
+            return null;
+        }
+        String models = routingEnabled ? strongModel + "," + fastModel : defaultModel;
+        String key = String.join("|", normalizeRepoUrl(params.getProjectUrl()), commit,
+                cataloguePromptVersion, docPromptVersion, models);
+        return sha256(key);
+    }
+
+    @Override
+    public Task findReusableTask(String contentKey) {
+        if (contentKey == null) {
+            return null;
+        }
+        List<Task> candidates = taskMapper.selectList(new LambdaQueryWrapper<Task>()
+                .eq(Task::getContentKey, contentKey)
+                .notIn(Task::getStatus, TaskStatusEnum.FAILED, TaskStatusEnum.ATTACHED)
+                .orderByDesc(Task::getId));
+        for (Task candidate : candidates) {
+            if (!isResultFailed(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isResultReady(Task source) {
+        if (source.getStatus() != TaskStatusEnum.COMPLETED) {
+            return false;
+        }
+        String taskId = source.getTaskId();
+        return catalogueMapper.countByTask(taskId) > 0
+                && catalogueMapper.countByTaskAndStatus(taskId, CatalogueStatusEnum.COMPLETED.getCode())
+                == catalogueMapper.countByTask(taskId);
+    }
+
+    @Override
+    public boolean isResultFailed(Task source) {
+        if (source.getStatus() == TaskStatusEnum.FAILED) {
+            return true;
+        }
+        if (source.getStatus() != TaskStatusEnum.COMPLETED) {
+            return false;
+        }
+        String taskId = source.getTaskId();
+        return catalogueMapper.countByTask(taskId) == 0
+                || catalogueMapper.countByTaskAndStatus(taskId, CatalogueStatusEnum.FAILED.getCode()) > 0;
+    }
+
+    @Override
+    @Transactional
+    public int materialize(Task source, Task target, String localPath) {
+        List<Catalogue> catalogues = catalogueMapper.selectList(new LambdaQueryWrapper<Catalogue>()
+                .eq(Catalogue::getTaskId, source.getTaskId())
+                .orderByAsc(Catalogue::getId));
+        Map<String, String> idMapping = new HashMap<>();
+        catalogues.forEach(catalogue -> idMapping.put(catalogue.getCatalogueId(), UUID.randomUUID().toString()));
+        boolean indexMemory = memoryIntegrationService.isMemoryServiceAvailable();
+        if (indexMemory) {
+            // 文档内容仅用于记忆索引，复制时在库内直接复制压缩后的内容
+            catalogueContentService.fillContent(catalogues);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Catalogue> copies = catalogues.stream().map(catalogue -> {
+            Catalogue copy = new Catalogue();
+            copy.setTaskId(target.getTaskId());
+            copy.setCatalogueId(idMapping.get(catalogue.getCatalogueId()));
+            copy.setParentCatalogueId(catalogue.getParentCatalogueId() == null
+                    ? null : idMapping.get(catalogue.getParentCatalogueId()));
+            copy.setName(catalogue.getName());
+            copy.setTitle(catalogue.getTitle());
+            copy.setPrompt(catalogue.getPrompt());
+            copy.setDependentFile(catalogue.getDependentFile());
+            copy.setChildren(catalogue.getChildren());
+            copy.setContent(catalogue.getContent());
+            copy.setStatus(catalogue.getStatus());
+            copy.setModel(catalogue.getModel());
+            copy.setComplexityScore(catalogue.getComplexityScore());
+            copy.setBudgetBreach(catalogue.getBudgetBreach());
+            copy.setCreateTime(now);
+            copy.setUpdateTime(now);
+            return copy;
+        }).toList();
+        copies.forEach(catalogueMapper::insert);
+        catalogues.forEach(catalogue -> catalogueContentService.copyContent(
+                catalogue.getCatalogueId(), idMapping.get(catalogue.getCatalogueId())));
+        log.info("复用任务{}的结果到任务{}，共复制{}个目录", source.getTaskId(), target.getTaskId(), copies.size());
+
+        if (indexMemory) {
+            memoryIntegrationService.indexProjectToMemoryAsync(target.getProjectName(), copies, localPath);
+        }
+        return copies.size();
+    }
+
+    /**
+     * 规范化仓库地址：去掉协议、认证信息、.git后缀与末尾斜杠，SSH地址转为host/path形式并统一小写
+     */
+    static String normalizeRepoUrl(String url) {
+        String normalized = url.trim().toLowerCase(Locale.ROOT);
+        int schemeEnd = normalized.indexOf("://");
+        if (schemeEnd >= 0) {
+            normalized = normalized.substring(schemeEnd + 3);
+        } else if (normalized.contains("@") && normalized.contains(":")) {
+            // git@github.com:owner/repo.git
+            normalized = normalized.replaceFirst(":", "/");
+        }
+        int at = normalized.indexOf('@');
+        int slash = normalized.indexOf('/');
+        if (at >= 0 && (slash < 0 || at < slash)) {
+            normalized = normalized.substring(at + 1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (normalized.endsWith(".git")) {
+            normalized = normalized.substring(0, normalized.length() - 4);
+        }
+        return normalized;
+    }
+
+    private String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
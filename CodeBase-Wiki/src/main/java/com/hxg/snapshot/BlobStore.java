@@ -0,0 +1,36 @@
+package com.hxg.snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * @author hxg
+ * @description: 按内容寻址的二进制对象存储，保存仓库快照供各节点的文档生成消费者拉取；
+ * 键为内容的SHA-256，相同键的内容必然相同，写入幂等。
+ * 对象按引用计数删除：任务删除后没有其他任务的snapshot_key引用该键时由RepositorySnapshotService删除。
+ * 实现需注意的限制：引用检查与删除之间不加锁，恰好有相同内容的新任务在打包时（已判断对象存在而跳过写入，
+ * 尚未记录快照键），对象会被删除，该任务的消费者拉取失败后按重试与死信处理；
+ * 实现不支持删除或删除失败时只会残留对象，不影响正确性
+ * @date 2025/8/25
+ */
+public interface BlobStore {
+
+    String BACKEND_LOCAL = "local";
+
+    boolean exists(String key);
+
+    /**
+     * 写入对象，写入完成前其他节点不可见
+     *
+     * @param source 本地文件，写入后由调用方删除
+     */
+    void put(String key, Path source) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * 删除对象，对象不存在时不做任何操作
+     */
+    void delete(String key) throws IOException;
+}
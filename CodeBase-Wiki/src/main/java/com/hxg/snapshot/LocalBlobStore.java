@@ -0,0 +1,77 @@
+package com.hxg.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * @author hxg
+ * @description: 本地目录实现的对象存储，多节点部署时目录应挂载到共享存储（如NFS），
+ * 对象先写入临时文件再原子重命名，读到的对象总是完整的
+ * @date 2025/8/25
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "project.wiki.snapshot.store", havingValue = BlobStore.BACKEND_LOCAL, matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    private static final String SUFFIX = ".zip";
+
+    @Value("${project.wiki.snapshot.local.dir:./data/snapshots}")
+    private String dir = "./data/snapshots";
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(path(key));
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = path(key);
+        if (Files.isRegularFile(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 其他节点已写入相同内容
+            log.debug("快照对象已存在: key={}", key);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(path(key));
+    }
+
+    /**
+     * 共享目录上删除后，已打开该对象的读取方在NFS等文件系统上可能读取失败，按拉取失败处理
+     */
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(path(key));
+    }
+
+    /**
+     * 按键的前两位分目录，避免单个目录下文件过多
+     */
+    private Path path(String key) {
+        if (!key.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("非法的快照键: " + key);
+        }
+        return Path.of(dir).resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,355 @@
+package com.hxg.snapshot;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.hxg.model.entity.Task;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.queue.model.DocumentGenerationTask;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @author hxg
+ * @description: 仓库快照：每个任务首次投递文档生成消息时把仓库目录打包一次（不含.git），以内容的SHA-256为键
+ * 写入共享的对象存储，消息携带快照键；任意节点的消费者按键拉取并解压到本地缓存目录后生成文档，
+ * 文档生成不再依赖任务所在节点的本地磁盘，可通过增加节点水平扩展
+ * @date 2025/8/25
+ */
+@Slf4j
+@Service
+public class RepositorySnapshotService {
+
+    /**
+     * 打包条目使用固定的修改时间，相同内容的仓库得到相同的快照键
+     */
+    private static final long ENTRY_TIME = 315532800000L;
+    private static final String TEMP_MARKER = ".tmp-";
+
+    private final BlobStore blobStore;
+    private final TaskMapper taskMapper;
+
+    /**
+     * 正在打包的任务，同一任务并发投递时只打包一次
+     */
+    private final Map<String, CompletableFuture<String>> packaging = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点打包过的快照键 -> 仓库目录，本节点消费时直接使用原目录，无需解压
+     */
+    private final Map<String, String> packagedPaths = new ConcurrentHashMap<>();
+
+    private final Map<String, Object> fetchLocks = new ConcurrentHashMap<>();
+
+    @Value("${project.wiki.snapshot.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 拉取的快照解压后的本地缓存目录
+     */
+    @Value("${project.wiki.snapshot.cache-dir:./data/snapshot-cache}")
+    private String cacheDir = "./data/snapshot-cache";
+
+    /**
+     * 本地缓存的快照数超过该值时，清理最久未使用且已闲置超过cache-idle-minutes的快照
+     */
+    @Value("${project.wiki.snapshot.max-cached:20}")
+    private int maxCached = 20;
+
+    /**
+     * 闲置时间需大于单篇文档生成的最长耗时，避免清理正在使用的快照
+     */
+    @Value("${project.wiki.snapshot.cache-idle-minutes:60}")
+    private long cacheIdleMinutes = 60;
+
+    public RepositorySnapshotService(BlobStore blobStore, TaskMapper taskMapper) {
+        this.blobStore = blobStore;
+        this.taskMapper = taskMapper;
+    }
+
+    /**
+     * 为待投递的消息设置快照键，任务尚无快照时打包仓库目录；打包失败时不设置，消息只能由本节点处理
+     */
+    public void attachSnapshot(DocumentGenerationTask task) {
+        if (!enabled || task.getSnapshotKey() != null) {
+            return;
+        }
+        task.setSnapshotKey(snapshotKeyFor(task.getTaskId(), task.getLocalPath()));
+    }
+
+    /**
+     * 获取任务的快照键，任务首次调用时打包仓库目录并记录到任务上
+     */
+    public String snapshotKeyFor(String taskId, String localPath) {
+        Task task = taskMapper.selectOne(new LambdaQueryWrapper<Task>()
+                .select(Task::getSnapshotKey)
+                .eq(Task::getTaskId, taskId));
+        if (task != null && task.getSnapshotKey() != null) {
+            return task.getSnapshotKey();
+        }
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> running = packaging.putIfAbsent(taskId, future);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            String key = pack(Path.of(localPath));
+            taskMapper.update(null, new LambdaUpdateWrapper<Task>()
+                    .eq(Task::getTaskId, taskId)
+                    .set(Task::getSnapshotKey, key));
+            log.info("任务{}的仓库快照已打包: key={}, 耗时={}ms", taskId, key, System.currentTimeMillis() - startTime);
+            future.complete(key);
+            return key;
+        } catch (Exception e) {
+            log.warn("任务{}的仓库快照打包失败，文档生成只能在本节点进行: {}", taskId, e.getMessage());
+            future.complete(null);
+            return null;
+        } finally {
+            packaging.remove(taskId);
+        }
+    }
+
+    /**
+     * 获取消息对应的本地仓库目录：本节点打包的快照使用原目录，否则从对象存储拉取到本地缓存
+     *
+     * @throws UncheckedIOException 快照拉取失败
+     */
+    public String resolve(DocumentGenerationTask task) {
+        String key = task.getSnapshotKey();
+        if (!enabled || key == null) {
+            return task.getLocalPath();
+        }
+        String origin = packagedPaths.get(key);
+        if (origin != null) {
+            if (isCheckout(Path.of(origin))) {
+                return origin;
+            }
+            packagedPaths.remove(key, origin);
+        }
+        try {
+            return fetch(key).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("拉取仓库快照失败: " + key, e);
+        }
+    }
+
+    /**
+     * 任务删除后释放其快照：没有其他任务引用该快照键时从对象存储删除，并清理本节点的解压缓存；
+     * 其他节点的解压缓存按闲置时间清理
+     */
+    public void release(String key) {
+        if (key == null) {
+            return;
+        }
+        Long references = taskMapper.selectCount(new LambdaQueryWrapper<Task>().eq(Task::getSnapshotKey, key));
+        if (references != null && references > 0) {
+            log.debug("仓库快照仍被{}个任务引用，保留: key={}", references, key);
+            return;
+        }
+        try {
+            blobStore.delete(key);
+            log.info("仓库快照已无任务引用，已删除: key={}", key);
+        } catch (IOException e) {
+            log.warn("删除仓库快照失败: key={}, error={}", key, e.getMessage());
+        }
+        packagedPaths.remove(key);
+        FileUtils.deleteQuietly(Path.of(cacheDir).resolve(key).toFile());
+    }
+
+    /**
+     * 把仓库目录打包为条目有序、时间固定的zip，写入对象存储
+     */
+    String pack(Path root) throws IOException {
+        if (!isCheckout(root)) {
+            throw new IOException("仓库目录不存在或为空: " + root);
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS))
+                    .filter(file -> !".git".equals(root.relativize(file).getName(0).toString()))
+                    .sorted(Comparator.comparing(file -> entryName(root, file)))
+                    .toList();
+        }
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile("wiki-snapshot-", ".zip");
+        try {
+            try (ZipOutputStream zip = new ZipOutputStream(new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), digest))) {
+                for (Path file : files) {
+                    ZipEntry entry = new ZipEntry(entryName(root, file));
+                    entry.setTime(ENTRY_TIME);
+                    zip.putNextEntry(entry);
+                    Files.copy(file, zip);
+                    zip.closeEntry();
+                }
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+            if (!blobStore.exists(key)) {
+                blobStore.put(key, temp);
+            }
+            packagedPaths.put(key, root.toString());
+            return key;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 拉取快照并解压到缓存目录，解压完成后原子重命名，缓存中的目录总是完整的；同时校验内容摘要
+     */
+    Path fetch(String key) throws IOException {
+        Path root = Path.of(cacheDir);
+        Path target = root.resolve(key);
+        if (touch(target)) {
+            return target;
+        }
+        Object lock = fetchLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            try {
+                if (touch(target)) {
+                    return target;
+                }
+                long startTime = System.currentTimeMillis();
+                Files.createDirectories(root);
+                Path temp = Files.createTempDirectory(root, key + TEMP_MARKER);
+                try {
+                    extract(key, temp);
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    FileUtils.deleteQuietly(temp.toFile());
+                }
+                log.info("仓库快照已拉取到本地缓存: key={}, 耗时={}ms", key, System.currentTimeMillis() - startTime);
+            } finally {
+                fetchLocks.remove(key);
+            }
+        }
+        evict(target);
+        return target;
+    }
+
+    private void extract(String key, Path dir) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream blob = blobStore.open(key);
+             DigestInputStream digestStream = new DigestInputStream(blob, digest);
+             ZipInputStream zip = new ZipInputStream(new BufferedInputStream(digestStream))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                Path file = dir.resolve(entry.getName()).normalize();
+                if (!file.startsWith(dir)) {
+                    throw new IOException("快照条目路径越界: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(file);
+                    continue;
+                }
+                Files.createDirectories(file.getParent());
+                Files.copy(zip, file);
+            }
+            // 读完中央目录，使摘要覆盖完整的对象内容
+            digestStream.transferTo(OutputStream.nullOutputStream());
+        }
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!key.equals(actual)) {
+            throw new IOException("快照内容校验失败: key=" + key + ", actual=" + actual);
+        }
+    }
+
+    /**
+     * 缓存超出上限时清理最久未使用且已闲置的快照
+     */
+    private void evict(Path keep) {
+        Path root = Path.of(cacheDir);
+        List<Path> cached;
+        try (Stream<Path> list = Files.list(root)) {
+            cached = list.filter(Files::isDirectory)
+                    .filter(path -> !path.getFileName().toString().contains(TEMP_MARKER))
+                    .sorted(Comparator.comparing(this::lastUsed))
+                    .toList();
+        } catch (IOException e) {
+            log.debug("列出快照缓存目录失败: {}", e.getMessage());
+            return;
+        }
+        Instant idleBefore = Instant.now().minusSeconds(cacheIdleMinutes * 60);
+        int excess = cached.size() - maxCached;
+        for (Path path : cached) {
+            if (excess <= 0 || !lastUsed(path).toInstant().isBefore(idleBefore)) {
+                break;
+            }
+            if (!path.equals(keep)) {
+                FileUtils.deleteQuietly(path.toFile());
+                excess--;
+                log.info("清理闲置的仓库快照缓存: {}", path.getFileName());
+            }
+        }
+    }
+
+    /**
+     * 缓存存在时刷新其最近使用时间
+     */
+    private boolean touch(Path target) {
+        if (!Files.isDirectory(target)) {
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("刷新快照缓存使用时间失败: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    private FileTime lastUsed(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static boolean isCheckout(Path root) {
+        String[] entries = root.toFile().list();
+        return entries != null && entries.length > 0;
+    }
+
+    private static String entryName(Path root, Path file) {
+        return root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
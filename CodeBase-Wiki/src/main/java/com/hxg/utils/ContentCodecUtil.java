@@ -0,0 +1,77 @@
+package com.hxg.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author hxg
+ * @description: 目录文档内容的压缩编解码，Markdown文本deflate压缩后通常只有原大小的三分之一左右
+ * @date 2025/8/25
+ */
+public class ContentCodecUtil {
+
+    public static final String CODEC_DEFLATE = "deflate";
+
+    /**
+     * 未压缩的UTF-8文本
+     */
+    public static final String CODEC_PLAIN = "plain";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public static byte[] compress(String content) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(raw.length / 3, 64));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 按编码解出文本
+     *
+     * @param rawSize 原文UTF-8字节数，用于预分配缓冲，未知时传0
+     */
+    public static String decompress(String codec, byte[] data, int rawSize) {
+        if (data == null) {
+            return null;
+        }
+        if (!CODEC_DEFLATE.equals(codec)) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(rawSize > 0 ? rawSize : data.length * 3);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("文档内容不完整");
+                }
+                output.write(buffer, 0, count);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("文档内容解压失败", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
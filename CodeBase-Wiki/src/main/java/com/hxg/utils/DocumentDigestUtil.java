@@ -0,0 +1,61 @@
+package com.hxg.utils;
+
+import org.springframework.util.ObjectUtils;
+
+/**
+ * @author hxg
+ * @description: Markdown文档摘要工具，保留章节标题及其首段，跳过代码块
+ * @date 2025/8/15
+ */
+public class DocumentDigestUtil {
+
+    /**
+     * 每段首句保留的最大字符数
+     */
+    private static final int MAX_PARAGRAPH_CHARS = 160;
+
+    /**
+     * 生成文档摘要
+     *
+     * @param markdown markdown文档
+     * @param maxChars 摘要最大字符数
+     * @return 摘要，文档为空时返回空字符串
+     */
+    public static String digest(String markdown, int maxChars) {
+        if (ObjectUtils.isEmpty(markdown)) {
+            return "";
+        }
+        StringBuilder digest = new StringBuilder();
+        boolean inCodeBlock = false;
+        boolean expectParagraph = true;
+        for (String rawLine : markdown.split("\n")) {
+            String line = rawLine.trim();
+            if (line.startsWith("```")) {
+                inCodeBlock = !inCodeBlock;
+                continue;
+            }
+            if (inCodeBlock || line.isEmpty()) {
+                continue;
+            }
+            String appended;
+            if (line.startsWith("#")) {
+                // 一级标题即文档标题，由调用方给出
+                if (line.startsWith("# ")) {
+                    continue;
+                }
+                appended = line;
+                expectParagraph = true;
+            } else if (expectParagraph && !line.startsWith("|") && !line.startsWith(">")) {
+                appended = line.length() > MAX_PARAGRAPH_CHARS ? line.substring(0, MAX_PARAGRAPH_CHARS) + "…" : line;
+                expectParagraph = false;
+            } else {
+                continue;
+            }
+            if (digest.length() + appended.length() + 1 > maxChars) {
+                break;
+            }
+            digest.append(appended).append('\n');
+        }
+        return digest.toString().trim();
+    }
+}
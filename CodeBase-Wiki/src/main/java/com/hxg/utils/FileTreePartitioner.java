@@ -0,0 +1,156 @@
+package com.hxg.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.util.ObjectUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author hxg
+ * @description: 文件树分片工具，按模块目录把FileServiceImpl生成的markdown文件树切分为多个分片
+ * 超过分片上限的目录继续按下一级目录切分，过小的目录与散落文件合并到同一分片；
+ * 分片内保留祖先目录行和原有缩进，模型仍可据此还原出相对仓库根目录的完整路径
+ * @date 2025/8/16
+ */
+public class FileTreePartitioner {
+
+    /**
+     * 小于分片上限该比例的目录不单独成片
+     */
+    private static final int MIN_SHARD_DIVISOR = 10;
+
+    /**
+     * 根目录下散落文件与小目录合并后的分片名
+     */
+    public static final String ROOT_SHARD_NAME = "(root)";
+
+    @Data
+    @AllArgsConstructor
+    public static class Shard {
+        /**
+         * 分片对应的目录路径，合并分片为其父目录路径加"/*"
+         */
+        private String name;
+
+        /**
+         * 分片文件树，包含祖先目录行
+         */
+        private String tree;
+
+        private int lineCount;
+    }
+
+    /**
+     * 统计文件树行数
+     */
+    public static int countLines(String fileTree) {
+        if (ObjectUtils.isEmpty(fileTree)) {
+            return 0;
+        }
+        return (int) fileTree.lines().filter(line -> !line.isBlank()).count();
+    }
+
+    /**
+     * 切分文件树
+     *
+     * @param fileTree markdown文件树
+     * @param maxShardLines 单个分片的最大行数
+     * @return 分片列表，文件树为空时返回空列表
+     */
+    public static List<Shard> partition(String fileTree, int maxShardLines) {
+        List<Shard> shards = new ArrayList<>();
+        if (ObjectUtils.isEmpty(fileTree)) {
+            return shards;
+        }
+        List<String> lines = fileTree.lines().filter(line -> !line.isBlank()).toList();
+        if (lines.isEmpty()) {
+            return shards;
+        }
+        partitionLevel(lines, List.of(), "", Math.max(maxShardLines, 1), shards);
+        return shards;
+    }
+
+    /**
+     * 切分同一层级的条目
+     *
+     * @param lines 该层级全部条目及其子孙行
+     * @param ancestors 祖先目录行
+     * @param path 该层级的目录路径，根目录为空串
+     */
+    private static void partitionLevel(List<String> lines, List<String> ancestors, String path,
+                                       int maxShardLines, List<Shard> shards) {
+        int minShardLines = Math.max(maxShardLines / MIN_SHARD_DIVISOR, 1);
+        int levelIndent = indentOf(lines.get(0));
+        List<String> pool = new ArrayList<>();
+
+        for (List<String> block : splitBlocks(lines, levelIndent)) {
+            String header = block.get(0);
+            boolean isDir = header.endsWith("/");
+            if (!isDir || block.size() < minShardLines) {
+                if (pool.size() + block.size() > maxShardLines - ancestors.size() && !pool.isEmpty()) {
+                    shards.add(toShard(poolName(path), ancestors, pool));
+                    pool = new ArrayList<>();
+                }
+                pool.addAll(block);
+                continue;
+            }
+            String dirPath = path + entryName(header);
+            if (block.size() + ancestors.size() <= maxShardLines || block.size() == 1) {
+                shards.add(toShard(dirPath, ancestors, block));
+                continue;
+            }
+            // 目录过大，按下一级目录继续切分
+            List<String> childAncestors = new ArrayList<>(ancestors);
+            childAncestors.add(header);
+            partitionLevel(block.subList(1, block.size()), childAncestors, dirPath + "/", maxShardLines, shards);
+        }
+        if (!pool.isEmpty()) {
+            shards.add(toShard(poolName(path), ancestors, pool));
+        }
+    }
+
+    /**
+     * 按同级条目切分，每块为一个条目行及其子孙行
+     */
+    private static List<List<String>> splitBlocks(List<String> lines, int levelIndent) {
+        List<List<String>> blocks = new ArrayList<>();
+        List<String> current = null;
+        for (String line : lines) {
+            if (current == null || indentOf(line) <= levelIndent) {
+                current = new ArrayList<>();
+                blocks.add(current);
+            }
+            current.add(line);
+        }
+        return blocks;
+    }
+
+    private static Shard toShard(String name, List<String> ancestors, List<String> body) {
+        StringBuilder tree = new StringBuilder();
+        ancestors.forEach(line -> tree.append(line).append('\n'));
+        body.forEach(line -> tree.append(line).append('\n'));
+        return new Shard(name, tree.toString(), ancestors.size() + body.size());
+    }
+
+    private static String poolName(String path) {
+        return path.isEmpty() ? ROOT_SHARD_NAME : path + "*";
+    }
+
+    private static String entryName(String line) {
+        String name = line.trim();
+        if (name.startsWith("- ")) {
+            name = name.substring(2);
+        }
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private static int indentOf(String line) {
+        int indent = 0;
+        while (indent < line.length() && line.charAt(indent) == ' ') {
+            indent++;
+        }
+        return indent;
+    }
+}
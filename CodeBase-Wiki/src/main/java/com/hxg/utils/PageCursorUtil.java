@@ -0,0 +1,45 @@
+package com.hxg.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * @author hxg
+ * @description: 游标分页的游标编解码，游标为本页最后一行的(创建时间, id)，对调用方不透明；
+ * 创建时间由插入时写入或取表默认值，不为空
+ * @date 2025/8/25
+ */
+public class PageCursorUtil {
+
+    /**
+     * 创建时间的排序键。SQLite按文本保存时间：表默认值为"yyyy-MM-dd HH:mm:ss"，按LocalDateTime写入的为
+     * "yyyy-MM-ddTHH:mm:ss"，两种格式按文本比较顺序错乱，统一换算为儒略日数值后比较；
+     * 排序、游标条件与索引都要使用同一表达式
+     */
+    public static final String CREATE_TIME_KEY = "julianday(create_time)";
+
+    private static final char SEPARATOR = '|';
+
+    public static String encode(LocalDateTime createTime, Long id) {
+        String raw = createTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+    }
+
+    public record Cursor(LocalDateTime createTime, Long id) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.hxg.utils.monitor;
+
+import com.alibaba.fastjson2.JSON;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author hxg
+ * @description: 本地文件span导出器：每个span追加一行JSON，用于没有链路追踪后端的本地排查与测试，
+ * 可按traceId过滤出一次文档生成从投递到LLM、工具调用的完整链路
+ * @date 2025/8/25
+ */
+@Slf4j
+public class FileSpanExporter implements SpanExporter {
+
+    private final Path path;
+
+    public FileSpanExporter(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        StringBuilder lines = new StringBuilder();
+        for (SpanData span : spans) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("traceId", span.getTraceId());
+            line.put("spanId", span.getSpanId());
+            line.put("parentSpanId", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+            line.put("name", span.getName());
+            line.put("kind", span.getKind().name());
+            line.put("startEpochNanos", span.getStartEpochNanos());
+            line.put("durationMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000);
+            line.put("status", span.getStatus().getStatusCode().name());
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+            line.put("attributes", attributes);
+            lines.append(JSON.toJSONString(line)).append('\n');
+        }
+        try {
+            synchronized (this) {
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.writeString(path, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("写入span文件失败: path={}, spans={}, error={}", path, spans.size(), e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+}
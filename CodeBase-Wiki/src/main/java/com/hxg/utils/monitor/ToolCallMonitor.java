@@ -1,5 +1,8 @@
 package com.hxg.utils.monitor;
 
+import com.hxg.model.context.GenerationTraceContext;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -11,6 +14,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
@@ -27,6 +31,11 @@ import java.util.concurrent.atomic.AtomicLong;
 public class ToolCallMonitor {
     
     private final AtomicLong toolCallCounter = new AtomicLong(0);
+    private final ObservationRegistry observationRegistry;
+    
+    public ToolCallMonitor(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
     
     @Pointcut("@annotation(org.springframework.ai.tool.annotation.Tool)")
     public void toolMethod() {}
@@ -44,7 +53,11 @@ public class ToolCallMonitor {
         log.info("🔧 Tool调用开始 [{}]: toolName={}, parameters={}", 
                 callId, toolName, formatParameters(args));
         
-        try {
+        // 工具在LLM调用线程上同步执行，span挂在当前的LLM调用span下
+        Observation observation = Observation.createNotStarted(WikiObservations.TOOL_CALL, observationRegistry)
+                .lowCardinalityKeyValue("wiki.tool.name", toolName)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
             Object result = joinPoint.proceed();
             long duration = System.currentTimeMillis() - startTime;
             
@@ -61,6 +74,9 @@ public class ToolCallMonitor {
             
             // 统计信息
             recordToolCallStats(toolName, duration, true);
+            int resultBytes = resultStr.getBytes(StandardCharsets.UTF_8).length;
+            GenerationTraceContext.recordToolCall(toolName, duration, resultBytes, true);
+            observation.highCardinalityKeyValue("wiki.tool.result.bytes", String.valueOf(resultBytes));
             
             return result;
         } catch (Throwable e) {
@@ -69,7 +85,11 @@ public class ToolCallMonitor {
                      callId, toolName, duration, e.getMessage(), e);
             
             recordToolCallStats(toolName, duration, false);
+            GenerationTraceContext.recordToolCall(toolName, duration, 0, false);
+            observation.error(e);
             throw e;
+        } finally {
+            observation.stop();
         }
     }
     
@@ -0,0 +1,47 @@
+package com.hxg.utils.monitor;
+
+import io.micrometer.observation.Observation;
+
+/**
+ * @author hxg
+ * @description: 文档生成链路的Observation名称与标签，开启OpenTelemetry桥接后每个Observation导出为一个span，
+ * 链路为：投递(生产者span) -> 队列消费 -> 文档生成 -> 排队等待 / LLM调用 -> 工具调用
+ * @date 2025/8/25
+ */
+public final class WikiObservations {
+
+    /**
+     * 单个目录的文档生成，从消费者收到消息到处理结束
+     */
+    public static final String DOCUMENT_GENERATE = "wiki.document.generate";
+
+    /**
+     * 消费者收到消息后的等待：重试延迟与并发许可等待，入队到收到消息的时长记在标签中
+     */
+    public static final String QUEUE_WAIT = "wiki.queue.wait";
+
+    public static final String LLM_CALL = "wiki.llm.call";
+
+    public static final String TOOL_CALL = "wiki.tool.call";
+
+    /**
+     * 内置队列的投递与消费，Kafka队列由spring-kafka创建对应的span
+     */
+    public static final String QUEUE_SEND = "wiki.queue.send";
+
+    public static final String QUEUE_RECEIVE = "wiki.queue.receive";
+
+    public static final String TOPIC = "wiki.topic";
+    public static final String TASK_ID = "wiki.task.id";
+    public static final String CATALOGUE_ID = "wiki.catalogue.id";
+
+    private WikiObservations() {
+    }
+
+    /**
+     * 添加高基数标签，值为空时跳过
+     */
+    public static Observation tag(Observation observation, String key, Object value) {
+        return value == null ? observation : observation.highCardinalityKeyValue(key, String.valueOf(value));
+    }
+}
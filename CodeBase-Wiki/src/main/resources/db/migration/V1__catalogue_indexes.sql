@@ -0,0 +1,7 @@
+-- 目录按任务、目录ID、父目录查询，按状态统计积压；任务与token消耗按任务ID查询
+CREATE INDEX IF NOT EXISTS idx_catalogue_task_status ON catalogue(task_id, status);
+CREATE INDEX IF NOT EXISTS idx_catalogue_catalogue_id ON catalogue(catalogue_id);
+CREATE INDEX IF NOT EXISTS idx_catalogue_parent_status ON catalogue(parent_catalogue_id, status);
+CREATE INDEX IF NOT EXISTS idx_catalogue_status ON catalogue(status);
+CREATE INDEX IF NOT EXISTS idx_task_task_id ON task(task_id);
+CREATE INDEX IF NOT EXISTS idx_token_usage_task ON token_usage(task_id);
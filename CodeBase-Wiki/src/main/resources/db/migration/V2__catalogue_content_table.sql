@@ -0,0 +1,8 @@
+-- 目录文档内容独立存储，内容按codec编码（deflate压缩），raw_size为原文UTF-8字节数
+CREATE TABLE IF NOT EXISTS catalogue_content (
+  catalogue_id TEXT PRIMARY KEY,
+  codec TEXT NOT NULL,
+  content BLOB NOT NULL,
+  raw_size INTEGER,
+  update_time DATETIME DEFAULT CURRENT_TIMESTAMP
+);
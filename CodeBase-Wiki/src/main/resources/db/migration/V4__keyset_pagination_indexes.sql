@@ -0,0 +1,6 @@
+-- 游标分页按(julianday(create_time), id)翻页，索引顺序与排序一致，无需排序与偏移扫描；
+-- create_time中表默认值与程序写入的时间格式不同，按文本排序会错乱，因此索引换算后的数值（见PageCursorUtil.CREATE_TIME_KEY）
+CREATE INDEX IF NOT EXISTS idx_task_create_time ON task(julianday(create_time), id);
+CREATE INDEX IF NOT EXISTS idx_task_user_create_time ON task(user_name, julianday(create_time), id);
+CREATE INDEX IF NOT EXISTS idx_task_project_create_time ON task(project_name, julianday(create_time), id);
+CREATE INDEX IF NOT EXISTS idx_catalogue_task_create_time ON catalogue(task_id, julianday(create_time), id);
@@ -26,3 +26,5 @@ CREATE TABLE IF NOT EXISTS catalogue (
   create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
   update_time DATETIME DEFAULT CURRENT_TIMESTAMP
 );
+
+-- 以上为基线表结构，之后新增的表、列与索引见 db/migration 下的版本化迁移与 LegacySchemaMigration（由SchemaMigrator执行）
@@ -0,0 +1,169 @@
+package com.hxg.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RepositoryAnalyzer 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("RepositoryAnalyzer 单元测试")
+class RepositoryAnalyzerTest {
+
+    @TempDir
+    Path repo;
+
+    private RepositoryAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() {
+        analyzer = new RepositoryAnalyzer();
+        ReflectionTestUtils.setField(analyzer, "enabled", true);
+        ReflectionTestUtils.setField(analyzer, "maxFiles", 1000);
+        ReflectionTestUtils.setField(analyzer, "maxFileBytes", 1024 * 1024L);
+        ReflectionTestUtils.setField(analyzer, "summaryChars", 4000);
+        ReflectionTestUtils.setField(analyzer, "fileFactsChars", 1500);
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = repo.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    @Test
+    @DisplayName("解析Java导入与同包引用，识别入口并按被依赖数排序")
+    void testJavaFacts() throws IOException {
+        write("app/pom.xml", "<project/>");
+        write("app/src/main/java/com/demo/App.java", """
+                package com.demo;
+                import com.demo.service.OrderService;
+                @SpringBootApplication
+                public class App {
+                    public static void main(String[] args) { new OrderService(); }
+                }
+                """);
+        write("app/src/main/java/com/demo/service/OrderService.java", """
+                package com.demo.service;
+                import com.demo.model.*;
+                public class OrderService {
+                    private OrderRepository repository;
+                    public Order find() { return Order.empty(); }
+                }
+                """);
+        write("app/src/main/java/com/demo/service/OrderRepository.java", """
+                package com.demo.service;
+                import com.demo.model.Order;
+                public interface OrderRepository { Order load(); }
+                """);
+        write("app/src/main/java/com/demo/model/Order.java", """
+                package com.demo.model;
+                public record Order(String id) { public static Order empty() { return new Order(""); } }
+                """);
+        write("app/src/main/java/com/demo/Broken.java", "public class {");
+
+        RepositoryFacts facts = analyzer.analyze(repo.toString());
+
+        String order = "app/src/main/java/com/demo/model/Order.java";
+        String service = "app/src/main/java/com/demo/service/OrderService.java";
+        assertEquals(Set.of(order, "app/src/main/java/com/demo/service/OrderRepository.java"),
+                facts.getFiles().get(service).getDependsOn());
+        assertEquals(2, facts.getFiles().get(order).getDependents().size());
+        assertEquals(List.of("app/ (maven): Java 4"), facts.getModules());
+
+        String summary = facts.summary(4000);
+        assertTrue(summary.contains("App.java: @SpringBootApplication, main方法"));
+        assertTrue(summary.indexOf("- Order (") < summary.indexOf("- OrderService ("));
+        assertTrue(summary.contains("com.demo.service -> com.demo.model (2)"));
+
+        String described = facts.describeFiles(List.of(service), 1500);
+        assertTrue(described.startsWith("- " + service + ": class OrderService"));
+        assertTrue(described.contains("被依赖: app/src/main/java/com/demo/App.java"));
+    }
+
+    @Test
+    @DisplayName("按导入语句解析TS、Python、Go的仓库内依赖")
+    void testImportBasedLanguages() throws IOException {
+        write("web/package.json", "{}");
+        write("web/src/main.ts", "import { api } from './api';\nimport Vue from 'vue';\nconst util = require('@/utils/format');");
+        write("web/src/api/index.ts", "export const api = {};");
+        write("web/src/utils/format.js", "module.exports = {};");
+        write("py/pkg/__init__.py", "");
+        write("py/pkg/core.py", "from .helpers import clean\nimport os\n");
+        write("py/pkg/helpers.py", "def clean(): pass");
+        write("py/run.py", "from pkg.core import run\nif __name__ == '__main__':\n    run()\n");
+        write("svc/go.mod", "module example.com/svc\n\ngo 1.22\n");
+        write("svc/main.go", "package main\n\nimport (\n\t\"fmt\"\n\t\"example.com/svc/store\"\n)\n\nfunc main() { fmt.Println(store.Name) }\n");
+        write("svc/store/store.go", "package store\n\nconst Name = \"s\"\n");
+
+        RepositoryFacts facts = analyzer.analyze(repo.toString());
+
+        assertEquals(Set.of("web/src/api/index.ts", "web/src/utils/format.js"),
+                facts.getFiles().get("web/src/main.ts").getDependsOn());
+        assertEquals(Set.of("py/pkg/helpers.py"), facts.getFiles().get("py/pkg/core.py").getDependsOn());
+        assertTrue(facts.getFiles().get("py/run.py").getDependsOn().contains("py/pkg/core.py"));
+        assertEquals(List.of("__main__"), facts.getFiles().get("py/run.py").getEntryReasons());
+        assertEquals(Set.of("svc/store/store.go"), facts.getFiles().get("svc/main.go").getDependsOn());
+        assertEquals(List.of("main函数"), facts.getFiles().get("svc/main.go").getEntryReasons());
+    }
+
+    @Test
+    @DisplayName("同一任务只分析一次")
+    void testFactsCachedPerTask() throws IOException {
+        write("A.java", "public class A {}");
+        RepositoryFacts first = analyzer.getFacts("task-1", repo.toString());
+        write("B.java", "public class B {}");
+
+        assertSame(first, analyzer.getFacts("task-1", repo.toString()));
+        assertEquals(2, analyzer.getFacts("task-2", repo.toString()).getFiles().size());
+    }
+
+    @Test
+    @DisplayName("并发获取同一任务的结果只分析一次")
+    void testConcurrentFactsShareAnalysis() throws Exception {
+        write("A.java", "public class A {}");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<RepositoryFacts>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> analyzer.getFacts("task-1", repo.toString())));
+            }
+            RepositoryFacts first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<RepositoryFacts> future : futures) {
+                assertSame(first, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("超过缓存任务数时淘汰最久未访问的任务")
+    void testCacheEvictsLeastRecentlyUsedTask() throws IOException {
+        ReflectionTestUtils.setField(analyzer, "cacheTasks", 2);
+        write("A.java", "public class A {}");
+        RepositoryFacts first = analyzer.getFacts("task-1", repo.toString());
+        RepositoryFacts second = analyzer.getFacts("task-2", repo.toString());
+        analyzer.getFacts("task-3", repo.toString());
+
+        assertSame(second, analyzer.getFacts("task-2", repo.toString()));
+        assertNotSame(first, analyzer.getFacts("task-1", repo.toString()));
+    }
+}
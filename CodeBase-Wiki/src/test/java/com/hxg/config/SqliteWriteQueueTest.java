@@ -0,0 +1,97 @@
+package com.hxg.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SqliteWriteQueue 单元测试，使用临时目录中的真实SQLite数据库
+ *
+ * @author hxg
+ */
+@DisplayName("SqliteWriteQueue 单元测试")
+class SqliteWriteQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private SqliteRoutingDataSource dataSource;
+    private SqliteWriteQueue writeQueue;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SqliteDataSourceConfig().createDataSource("jdbc:sqlite:" + dir.resolve("wiki.sqlite"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE catalogue (id INTEGER PRIMARY KEY, name TEXT NOT NULL)");
+        writeQueue = new SqliteWriteQueue(new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(writeQueue, "lingerMs", 20L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeQueue.close();
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("数据库为WAL模式，读连接只读，默认使用写连接")
+    void testWalModeAndReadOnlyReader() {
+        assertEquals("wal", jdbcTemplate.queryForObject("PRAGMA journal_mode", String.class));
+        jdbcTemplate.update("INSERT INTO catalogue (id, name) VALUES (1, '架构设计')");
+
+        boolean previous = SqliteRoutingDataSource.markRead();
+        try {
+            assertEquals("wal", jdbcTemplate.queryForObject("PRAGMA journal_mode", String.class));
+            assertEquals(1, jdbcTemplate.queryForObject("PRAGMA query_only", Integer.class));
+            assertEquals("架构设计", jdbcTemplate.queryForObject("SELECT name FROM catalogue WHERE id = 1", String.class));
+            assertThrows(Exception.class, () -> jdbcTemplate.update("INSERT INTO catalogue (id, name) VALUES (2, 'x')"));
+        } finally {
+            SqliteRoutingDataSource.restoreRead(previous);
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("PRAGMA query_only", Integer.class));
+    }
+
+    @Test
+    @DisplayName("并发写入合并为批次提交，单个写入失败只回滚自身")
+    void testGroupCommitIsolatesFailures() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int id = i;
+            futures.add(executor.submit(() -> writeQueue.execute(() -> id == 7
+                    // 违反非空约束，应只回滚这一条
+                    ? jdbcTemplate.update("INSERT INTO catalogue (id, name) VALUES (?, NULL)", id)
+                    : jdbcTemplate.update("INSERT INTO catalogue (id, name) VALUES (?, ?)", id, "c-" + id))));
+        }
+        int failed = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                assertEquals(1, future.get());
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, failed);
+        assertEquals(199, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalogue", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalogue WHERE id = 7", Integer.class));
+        assertEquals(200, writeQueue.getWriteCount());
+        assertTrue(writeQueue.getBatchCount() < 200, "batches=" + writeQueue.getBatchCount());
+    }
+}
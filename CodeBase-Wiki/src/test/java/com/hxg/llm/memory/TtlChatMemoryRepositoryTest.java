@@ -0,0 +1,102 @@
+package com.hxg.llm.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TtlChatMemoryRepository 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("TtlChatMemoryRepository 单元测试")
+class TtlChatMemoryRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private InMemoryChatMemoryRepository delegate;
+    private JdbcTemplate jdbcTemplate;
+    private TtlChatMemoryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("chat-memory.db"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        delegate = new InMemoryChatMemoryRepository();
+        repository = new TtlChatMemoryRepository(delegate, jdbcTemplate, Duration.ofHours(1), 100);
+    }
+
+    @Test
+    @DisplayName("初始化时数据库切换为增量vacuum模式")
+    void testIncrementalVacuumEnabled() {
+        assertEquals(2, jdbcTemplate.queryForObject("PRAGMA auto_vacuum", Integer.class));
+    }
+
+    @Test
+    @DisplayName("增量vacuum按配置页数归还空闲页")
+    void testIncrementalVacuumFreesPages() {
+        jdbcTemplate.execute("CREATE TABLE filler (data TEXT)");
+        jdbcTemplate.batchUpdate("INSERT INTO filler VALUES (hex(randomblob(500)))",
+                Collections.nCopies(2000, new Object[0]));
+        jdbcTemplate.execute("DELETE FROM filler");
+        long before = jdbcTemplate.queryForObject("PRAGMA freelist_count", Long.class);
+
+        long freed = repository.incrementalVacuum();
+
+        assertEquals(100, freed);
+        assertEquals(before - 100, jdbcTemplate.queryForObject("PRAGMA freelist_count", Long.class));
+    }
+
+    @Test
+    @DisplayName("超过TTL未访问的会话被删除，活跃会话保留")
+    void testRemoveExpiredConversations() {
+        repository.saveAll("stale", List.of(new UserMessage("旧会话")));
+        repository.saveAll("active", List.of(new UserMessage("新会话")));
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update("UPDATE chat_memory_access SET last_access_time = ? WHERE conversation_id = 'stale'",
+                now - Duration.ofHours(2).toMillis());
+
+        int removed = repository.removeExpired(now);
+
+        assertEquals(1, removed);
+        assertEquals(List.of("active"), delegate.findConversationIds());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_memory_access", Integer.class));
+    }
+
+    @Test
+    @DisplayName("没有访问记录的历史会话先登记，一个TTL后才过期")
+    void testUntrackedConversationsExpireAfterTtl() {
+        delegate.saveAll("legacy", List.of(new UserMessage("历史会话")));
+        long now = System.currentTimeMillis();
+
+        assertEquals(0, repository.removeExpired(now));
+        assertEquals(1, repository.removeExpired(now + Duration.ofHours(2).toMillis()));
+        assertTrue(delegate.findConversationIds().isEmpty());
+    }
+
+    @Test
+    @DisplayName("读取会话刷新访问时间")
+    void testReadRefreshesAccessTime() {
+        repository.saveAll("chat", List.of(new UserMessage("你好")));
+        jdbcTemplate.update("UPDATE chat_memory_access SET last_access_time = 0");
+
+        repository.findByConversationId("chat");
+
+        assertEquals(0, repository.removeExpired(System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,90 @@
+package com.hxg.llm.parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamingCatalogueParser 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("StreamingCatalogueParser 单元测试")
+class StreamingCatalogueParserTest {
+
+    private static final String OUTPUT = """
+            ```json
+            {
+                "items": [
+                    {
+                        "title": "core",
+                        "name": "核心模块",
+                        "dependent_file": ["src/Core.java"],
+                        "prompt": "说明{核心}流程，包含\\"引号\\"和]括号",
+                        "children": [
+                            {"title": "parser", "name": "解析器", "dependent_file": ["src/Parser.java"], "prompt": "解析", "children": []},
+                            {"title": "router", "name": "路由", "dependent_file": ["src/Router.java"], "prompt": "路由"}
+                        ]
+                    },
+                    {"title": "deploy", "name": "部署", "dependent_file": [], "prompt": "部署"}
+                ]
+            }
+            ```""";
+
+    @Test
+    @DisplayName("按任意切分的增量输出，叶子节点先于父节点回调并携带父目录ID")
+    void testIncrementalParse() {
+        List<StreamingCatalogueParser.CatalogueNode> nodes = new ArrayList<>();
+        StreamingCatalogueParser parser = new StreamingCatalogueParser(nodes::add);
+
+        for (int i = 0; i < OUTPUT.length(); i += 7) {
+            parser.feed(OUTPUT.substring(i, Math.min(i + 7, OUTPUT.length())));
+        }
+
+        assertEquals(List.of("parser", "router", "core", "deploy"),
+                nodes.stream().map(node -> node.getItem().getTitle()).toList());
+        StreamingCatalogueParser.CatalogueNode core = nodes.get(2);
+        assertFalse(core.isLeaf());
+        assertNull(core.getParentCatalogueId());
+        assertEquals(core.getCatalogueId(), nodes.get(0).getParentCatalogueId());
+        assertEquals(core.getCatalogueId(), nodes.get(1).getParentCatalogueId());
+        assertTrue(nodes.get(0).isLeaf());
+        assertEquals("说明{核心}流程，包含\"引号\"和]括号", core.getItem().getPrompt());
+        assertEquals(List.of("core", "deploy"), parser.getRootItems().stream().map(item -> item.getTitle()).toList());
+    }
+
+    @Test
+    @DisplayName("输出未闭合时只回调已完整的节点")
+    void testTruncatedOutput() {
+        List<StreamingCatalogueParser.CatalogueNode> nodes = new ArrayList<>();
+        StreamingCatalogueParser parser = new StreamingCatalogueParser(nodes::add);
+
+        parser.feed(OUTPUT.substring(0, OUTPUT.indexOf("\"deploy\"")));
+
+        assertEquals(3, parser.getNodeCount());
+        assertEquals(1, parser.getRootItems().size());
+    }
+
+    @Test
+    @DisplayName("新一轮输出重置后从头解析，之前轮次的内容不再产生节点")
+    void testResetForNewTurn() {
+        List<StreamingCatalogueParser.CatalogueNode> nodes = new ArrayList<>();
+        StreamingCatalogueParser parser = new StreamingCatalogueParser(nodes::add);
+
+        parser.feed("先查看文件结构。" + OUTPUT.substring(0, OUTPUT.indexOf("\"router\"")));
+        assertEquals(1, parser.getNodeCount());
+
+        nodes.clear();
+        parser.reset();
+        parser.feed(OUTPUT);
+
+        assertEquals(4, parser.getNodeCount());
+        assertEquals(List.of("parser", "router", "core", "deploy"),
+                nodes.stream().map(node -> node.getItem().getTitle()).toList());
+        assertEquals(2, parser.getRootItems().size());
+    }
+}
@@ -0,0 +1,129 @@
+package com.hxg.llm.quota;
+
+import com.hxg.llm.ratelimit.AdaptiveRateLimiter;
+import com.hxg.llm.ratelimit.LlmPriority;
+import com.hxg.quota.InMemoryQuotaStore;
+import com.hxg.quota.QuotaStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ClusterQuotaCoordinator 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("ClusterQuotaCoordinator 单元测试")
+class ClusterQuotaCoordinatorTest {
+
+    @Test
+    @DisplayName("多个实例的限流器共享集群配额，总吞吐不超过账号上限，429暂停同步给其他实例")
+    void testInstancesShareAccountQuota() throws Exception {
+        InMemoryQuotaStore store = new InMemoryQuotaStore();
+        // 账号上限600 RPM，突发1秒：桶容量10，每秒补充10；每个实例本地上限远高于账号上限
+        List<AdaptiveRateLimiter> instances = List.of(
+                createLimiter(coordinator(store, 600)), createLimiter(coordinator(store, 600)));
+
+        AtomicInteger granted = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        List<Thread> threads = new ArrayList<>();
+        for (AdaptiveRateLimiter limiter : instances) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 15; i++) {
+                    limiter.acquire(100, LlmPriority.NORMAL);
+                    granted.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // 30次调用：突发10次，其余20次按每秒10次发放
+        assertEquals(30, granted.get());
+        assertTrue(elapsed >= 1800, "elapsed=" + elapsed);
+
+        ClusterQuotaCoordinator other = coordinator(store, 600);
+        coordinator(store, 600).pause(500);
+        assertTrue(other.tryReserve(100) > 0);
+    }
+
+    @Test
+    @DisplayName("集群预留阻塞时不持有限流器的本地锁")
+    void testReserveOutsideLimiterLock() throws Exception {
+        CountDownLatch reserving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryQuotaStore delegate = new InMemoryQuotaStore();
+        QuotaStore blockingStore = new QuotaStore() {
+            @Override
+            public long reserve(String quota, QuotaLimits limits, double requests, double tokens, long nowMillis) {
+                reserving.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return delegate.reserve(quota, limits, requests, tokens, nowMillis);
+            }
+
+            @Override
+            public void adjust(String quota, QuotaLimits limits, double tokens, long nowMillis) {
+                delegate.adjust(quota, limits, tokens, nowMillis);
+            }
+
+            @Override
+            public void pause(String quota, QuotaLimits limits, long untilMillis, long nowMillis) {
+                delegate.pause(quota, limits, untilMillis, nowMillis);
+            }
+        };
+        AdaptiveRateLimiter limiter = createLimiter(coordinator(blockingStore, 600));
+
+        Thread caller = new Thread(() -> limiter.acquire(100, LlmPriority.NORMAL));
+        caller.start();
+        assertTrue(reserving.await(5, TimeUnit.SECONDS));
+
+        // 预留进行中，其他线程仍可立即获得本地锁
+        long start = System.currentTimeMillis();
+        limiter.onSuccess();
+        assertEquals(1, limiter.getQueueLength());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        release.countDown();
+        caller.join(5000);
+        assertFalse(caller.isAlive());
+        assertEquals(0, limiter.getQueueLength());
+    }
+
+    private ClusterQuotaCoordinator coordinator(QuotaStore store, double rpm) {
+        ClusterQuotaCoordinator coordinator = new ClusterQuotaCoordinator(store);
+        ReflectionTestUtils.setField(coordinator, "requestsPerMinute", rpm);
+        ReflectionTestUtils.setField(coordinator, "burstSeconds", 1.0);
+        return coordinator;
+    }
+
+    private AdaptiveRateLimiter createLimiter(ClusterQuotaCoordinator coordinator) {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(coordinator);
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "requestsPerMinute", 60_000.0);
+        ReflectionTestUtils.setField(limiter, "tokensPerMinute", 100_000_000.0);
+        ReflectionTestUtils.setField(limiter, "burstSeconds", 1.0);
+        ReflectionTestUtils.setField(limiter, "minRateFactor", 0.1);
+        ReflectionTestUtils.setField(limiter, "recoveryStep", 0.05);
+        ReflectionTestUtils.setField(limiter, "maxRetries", 5);
+        ReflectionTestUtils.setField(limiter, "backoffMs", 20L);
+        ReflectionTestUtils.setField(limiter, "maxBackoffMs", 100L);
+        limiter.init();
+        return limiter;
+    }
+}
@@ -0,0 +1,179 @@
+package com.hxg.llm.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveRateLimiter 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("AdaptiveRateLimiter 单元测试")
+class AdaptiveRateLimiterTest {
+
+    private AdaptiveRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = createLimiter(600, 1_000_000, 1);
+    }
+
+    @Test
+    @DisplayName("本地桩模型返回429时减速重试并最终成功")
+    void testRetryOnThrottledStubModel() {
+        ThrottlingChatModel stubModel = new ThrottlingChatModel(2);
+
+        ChatResponse response = rateLimiter.execute(100, LlmPriority.LOW, () -> stubModel.call(new Prompt("hello")));
+
+        assertEquals("ok", response.getResult().getOutput().getText());
+        assertEquals(3, stubModel.calls.get());
+        // 冷却期内的连续429只减速一次，随后的成功调用加性恢复
+        assertEquals(0.55, rateLimiter.getRateFactor(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("持续429超过最大重试次数后抛出原异常")
+    void testGiveUpAfterMaxRetries() {
+        ReflectionTestUtils.setField(rateLimiter, "maxRetries", 1);
+        ThrottlingChatModel stubModel = new ThrottlingChatModel(Integer.MAX_VALUE);
+
+        assertThrows(NonTransientAiException.class,
+                () -> rateLimiter.execute(100, LlmPriority.LOW, () -> stubModel.call(new Prompt("hello"))));
+        assertEquals(2, stubModel.calls.get());
+    }
+
+    @Test
+    @DisplayName("非限流异常直接抛出且不影响速率")
+    void testNonThrottleErrorPassesThrough() {
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter.execute(100, LlmPriority.LOW, () -> {
+            throw new IllegalArgumentException("bad request");
+        }));
+        assertEquals(1.0, rateLimiter.getRateFactor(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("遵守Retry-After暂停发放配额")
+    void testRetryAfterPausesAcquire() {
+        rateLimiter.onThrottled(300, 0);
+
+        long start = System.currentTimeMillis();
+        rateLimiter.acquire(1, LlmPriority.HIGH);
+
+        assertTrue(System.currentTimeMillis() - start >= 250);
+        assertEquals(0.5, rateLimiter.getRateFactor(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("配额不足时高优先级请求先获得配额")
+    void testHighPriorityServedFirst() throws Exception {
+        rateLimiter = createLimiter(120, 1_000_000, 0.5);
+        rateLimiter.acquire(1, LlmPriority.LOW);
+        List<LlmPriority> order = new CopyOnWriteArrayList<>();
+
+        Thread low = new Thread(() -> {
+            rateLimiter.acquire(1, LlmPriority.LOW);
+            order.add(LlmPriority.LOW);
+        });
+        low.start();
+        waitForQueueLength(1);
+        Thread high = new Thread(() -> {
+            rateLimiter.acquire(1, LlmPriority.HIGH);
+            order.add(LlmPriority.HIGH);
+        });
+        high.start();
+        waitForQueueLength(2);
+
+        low.join(5000);
+        high.join(5000);
+        assertEquals(List.of(LlmPriority.HIGH, LlmPriority.LOW), order);
+    }
+
+    @Test
+    @DisplayName("实际消耗超出预估时在token桶中记欠额")
+    void testReconcileChargesTokenDebt() {
+        rateLimiter = createLimiter(6000, 600, 1);
+        rateLimiter.acquire(10, LlmPriority.LOW);
+        // 桶容量10，实际消耗20，需按10 token/s补回欠额
+        rateLimiter.reconcile(10, 20);
+
+        long start = System.currentTimeMillis();
+        rateLimiter.acquire(5, LlmPriority.LOW);
+
+        assertTrue(System.currentTimeMillis() - start >= 1000);
+    }
+
+    @Test
+    @DisplayName("识别HTTP 429异常并解析Retry-After")
+    void testThrottleDetector() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "3");
+        HttpClientErrorException tooManyRequests = HttpClientErrorException.create(
+                HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, new byte[0], null);
+        RuntimeException wrapped = new RuntimeException("调用失败", tooManyRequests);
+
+        assertTrue(ThrottleDetector.isThrottled(wrapped));
+        assertEquals(3000, ThrottleDetector.retryAfterMillis(wrapped));
+        assertTrue(ThrottleDetector.isThrottled(new NonTransientAiException("429 - {\"code\":\"Throttling.RateQuota\"}")));
+        assertFalse(ThrottleDetector.isThrottled(new NonTransientAiException("400 - invalid parameter")));
+    }
+
+    private AdaptiveRateLimiter createLimiter(double rpm, double tpm, double burstSeconds) {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "requestsPerMinute", rpm);
+        ReflectionTestUtils.setField(limiter, "tokensPerMinute", tpm);
+        ReflectionTestUtils.setField(limiter, "burstSeconds", burstSeconds);
+        ReflectionTestUtils.setField(limiter, "minRateFactor", 0.1);
+        ReflectionTestUtils.setField(limiter, "recoveryStep", 0.05);
+        ReflectionTestUtils.setField(limiter, "maxRetries", 5);
+        ReflectionTestUtils.setField(limiter, "backoffMs", 20L);
+        ReflectionTestUtils.setField(limiter, "maxBackoffMs", 100L);
+        limiter.init();
+        return limiter;
+    }
+
+    private void waitForQueueLength(int expected) throws InterruptedException {
+        for (int i = 0; i < 200 && rateLimiter.getQueueLength() < expected; i++) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, rateLimiter.getQueueLength());
+    }
+
+    /**
+     * 本地桩模型：前N次调用按DashScope的方式返回429
+     */
+    private static class ThrottlingChatModel implements ChatModel {
+        private final int throttledCalls;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        ThrottlingChatModel(int throttledCalls) {
+            this.throttledCalls = throttledCalls;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            if (calls.incrementAndGet() <= throttledCalls) {
+                throw new NonTransientAiException("429 - {\"code\":\"Throttling.RateQuota\",\"message\":\"Requests rate limit exceeded\"}");
+            }
+            return new ChatResponse(Collections.singletonList(new Generation(new AssistantMessage("ok"))));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.hxg.llm.routing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ModelRouter 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("ModelRouter 单元测试")
+class ModelRouterTest {
+
+    private ModelRouter modelRouter;
+
+    @BeforeEach
+    void setUp() {
+        modelRouter = new ModelRouter();
+        ReflectionTestUtils.setField(modelRouter, "enabled", true);
+        ReflectionTestUtils.setField(modelRouter, "fastModel", "fast-model");
+        ReflectionTestUtils.setField(modelRouter, "strongModel", "strong-model");
+        ReflectionTestUtils.setField(modelRouter, "strongThreshold", 1.5);
+        ReflectionTestUtils.setField(modelRouter, "fileCountRef", 8);
+        ReflectionTestUtils.setField(modelRouter, "fileBytesRef", 204800L);
+        ReflectionTestUtils.setField(modelRouter, "promptTokensRef", 4000L);
+        ReflectionTestUtils.setField(modelRouter, "topLevelBonus", 0.5);
+        ReflectionTestUtils.setField(modelRouter, "fastContextTokens", 100000L);
+    }
+
+    @Test
+    @DisplayName("单文件的子级配置页路由到快速模型")
+    void testSimplePageUsesFastModel() {
+        RoutingDecision decision = modelRouter.route(1, 4096, 2, 800, 0);
+
+        assertTrue(decision.isFast());
+        assertEquals("fast-model", decision.getModel());
+    }
+
+    @Test
+    @DisplayName("多文件的顶层概览页路由到强模型")
+    void testFlagshipPageUsesStrongModel() {
+        RoutingDecision decision = modelRouter.route(12, 150 * 1024, 1, 1500, 0);
+
+        assertFalse(decision.isFast());
+        assertEquals("strong-model", decision.getModel());
+        assertTrue(decision.getScore() >= 1.5);
+    }
+
+    @Test
+    @DisplayName("预计上下文超出快速模型上限时使用强模型")
+    void testLongContextUsesStrongModel() {
+        RoutingDecision decision = modelRouter.route(2, 600 * 1024, 3, 500, 0);
+
+        assertEquals(RoutingDecision.TIER_STRONG, decision.getTier());
+    }
+
+    @Test
+    @DisplayName("重试时升级到强模型")
+    void testRetryEscalatesToStrongModel() {
+        assertTrue(modelRouter.route(1, 1024, 2, 500, 0).isFast());
+        assertFalse(modelRouter.route(1, 1024, 2, 500, 1).isFast());
+    }
+
+    @Test
+    @DisplayName("未配置快速模型时全部使用强模型")
+    void testNoFastModelConfigured() {
+        ReflectionTestUtils.setField(modelRouter, "fastModel", "");
+
+        assertFalse(modelRouter.route(1, 1024, 2, 500, 0).isFast());
+    }
+}
@@ -0,0 +1,116 @@
+package com.hxg.llm.service;
+
+import com.hxg.llm.memory.TtlChatMemoryRepository;
+import com.hxg.llm.ratelimit.AdaptiveRateLimiter;
+import com.hxg.llm.usage.TokenEstimator;
+import com.hxg.model.context.LlmCallBudget;
+import com.hxg.model.context.LlmCallContext;
+import io.micrometer.observation.ObservationRegistry;
+import com.hxg.service.ITokenUsageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * LlmService 调用预算单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("LlmService 调用预算单元测试")
+class LlmServiceBudgetTest {
+
+    private ChatModel chatModel;
+    private ToolCallingManager toolCallingManager;
+    private LlmService llmService;
+    private final List<Prompt> finalPrompts = new ArrayList<>();
+    private final AtomicInteger modelCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        chatModel = mock(ChatModel.class);
+        toolCallingManager = mock(ToolCallingManager.class);
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "enabled", false);
+
+        ChatClient.Builder chatClientBuilder = mock(ChatClient.Builder.class, RETURNS_SELF);
+        when(chatClientBuilder.clone()).thenReturn(chatClientBuilder);
+
+        llmService = new LlmService(chatClientBuilder, chatModel, toolCallingManager,
+                mock(TtlChatMemoryRepository.class), new ToolCallback[]{mock(ToolCallback.class)}, new TokenEstimator(),
+                mock(ITokenUsageService.class), rateLimiter, ObservationRegistry.NOOP);
+
+        // 模型在带工具时始终请求读取文件，不带工具时给出最终答案
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            Prompt prompt = invocation.getArgument(0);
+            modelCalls.incrementAndGet();
+            ToolCallingChatOptions options = (ToolCallingChatOptions) prompt.getOptions();
+            if (options.getToolCallbacks() == null || options.getToolCallbacks().isEmpty()) {
+                finalPrompts.add(prompt);
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("最终文档"))));
+            }
+            AssistantMessage toolCall = new AssistantMessage("", Map.of(), List.of(
+                    new AssistantMessage.ToolCall("call-" + modelCalls.get(), "function", "readFile", "{}")));
+            return new ChatResponse(List.of(new Generation(toolCall)));
+        });
+        when(toolCallingManager.executeToolCalls(any(Prompt.class), any(ChatResponse.class))).thenAnswer(invocation -> {
+            Prompt prompt = invocation.getArgument(0);
+            List<Message> history = new ArrayList<>(prompt.getInstructions());
+            history.add(new UserMessage("文件内容"));
+            return ToolExecutionResult.builder().conversationHistory(history).returnDirect(false).build();
+        });
+    }
+
+    @Test
+    @DisplayName("超出工具调用次数后不再执行工具并强制输出最终结果")
+    void testToolCallBudgetForcesFinalAnswer() {
+        LlmCallContext context = LlmCallContext.of("task-1", "cat-1", LlmCallContext.TYPE_DOCUMENT);
+        context.setBudget(LlmCallBudget.builder().maxToolCalls(2).build());
+
+        String result = llmService.callWithTools("生成文档", context);
+
+        assertEquals("最终文档", result);
+        assertEquals(2, context.getToolCalls());
+        assertTrue(context.getBudgetBreach().startsWith(LlmCallBudget.BREACH_TOOL_CALLS));
+        verify(toolCallingManager, times(2)).executeToolCalls(any(Prompt.class), any(ChatResponse.class));
+        // 3轮带工具请求 + 1次强制收尾
+        assertEquals(4, context.getTurns());
+        List<Message> finalMessages = finalPrompts.get(0).getInstructions();
+        assertInstanceOf(UserMessage.class, finalMessages.get(finalMessages.size() - 1));
+    }
+
+    @Test
+    @DisplayName("未设置的预算项不限制，超出耗时预算时收尾")
+    void testWallTimeBudget() {
+        LlmCallContext context = LlmCallContext.of("task-1", "cat-1", LlmCallContext.TYPE_DOCUMENT);
+        context.setBudget(LlmCallBudget.builder().maxWallMs(-1).maxTokens(-1).maxToolCalls(-1).build());
+        assertNull(context.getBudget().check(100, 1_000_000, 1_000_000));
+
+        context.setBudget(LlmCallBudget.builder().maxWallMs(1).build());
+        String result = llmService.callWithTools("生成文档", context);
+
+        assertEquals("最终文档", result);
+        assertTrue(context.getBudgetBreach().startsWith(LlmCallBudget.BREACH_WALL_TIME));
+    }
+}
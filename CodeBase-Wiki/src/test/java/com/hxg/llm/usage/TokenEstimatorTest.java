@@ -0,0 +1,87 @@
+package com.hxg.llm.usage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TokenEstimator 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("TokenEstimator 单元测试")
+class TokenEstimatorTest {
+
+    private TokenEstimator tokenEstimator;
+
+    @BeforeEach
+    void setUp() {
+        tokenEstimator = new TokenEstimator();
+    }
+
+    @Test
+    @DisplayName("按o200k_base词表分词计数")
+    void testCountRawTokens() {
+        assertEquals(0, tokenEstimator.countRawTokens(null));
+        assertEquals(3, tokenEstimator.countRawTokens("生成文档"));
+        assertEquals(2, tokenEstimator.countRawTokens("hello world"));
+        assertEquals(7, tokenEstimator.countRawTokens("int x = 12345;"));
+    }
+
+    @Test
+    @DisplayName("工具定义计入首轮prompt的估算")
+    void testEstimateWithToolDefinitions() {
+        ToolCallback tool = mock(ToolCallback.class);
+        when(tool.getToolDefinition()).thenReturn(ToolDefinition.builder()
+                .name("readFile")
+                .description("读取指定路径的文件内容")
+                .inputSchema("{\"type\":\"object\",\"properties\":{\"path\":{\"type\":\"string\"}}}")
+                .build());
+        long toolTokens = tokenEstimator.countToolTokens(new ToolCallback[]{tool, mock(ToolCallback.class)});
+        assertTrue(toolTokens > 10);
+
+        String query = "为项目生成精简技术文档";
+        assertEquals(tokenEstimator.estimate(query) + toolTokens, tokenEstimator.estimate(query, toolTokens, null));
+    }
+
+    @Test
+    @DisplayName("中文文本估算不再按字符数除以4")
+    void testChineseEstimateIsNotQuarterOfLength() {
+        String text = "为项目生成精简技术文档，包含功能概述、核心实现和使用示例";
+        assertTrue(tokenEstimator.estimate(text) > text.length() / 4);
+    }
+
+    @Test
+    @DisplayName("真实消耗校准估算系数")
+    void testCalibrate() {
+        String text = "public class Test { private String name; }";
+        long before = tokenEstimator.estimate(text, "qwen-plus");
+
+        // 多次观测到真实消耗是估算值的两倍
+        for (int i = 0; i < 50; i++) {
+            long estimated = tokenEstimator.estimate(text, "qwen-plus");
+            tokenEstimator.calibrate("qwen-plus", estimated, before * 2);
+        }
+
+        long after = tokenEstimator.estimate(text, "qwen-plus");
+        assertEquals(before * 2, after, before * 0.1);
+        // 未校准的模型回落到默认系数，同样受观测影响
+        assertTrue(tokenEstimator.getRatio("qwen-max") > 1.0);
+    }
+
+    @Test
+    @DisplayName("异常样本被限制在校准范围内")
+    void testCalibrateClamp() {
+        tokenEstimator.calibrate("qwen-plus", 10, 1_000_000);
+        assertTrue(tokenEstimator.getRatio("qwen-plus") <= 3.0);
+        tokenEstimator.calibrate("qwen-plus", 0, 100);
+        tokenEstimator.calibrate("qwen-plus", 100, 0);
+        assertTrue(tokenEstimator.getRatio("qwen-plus") >= 0.3);
+    }
+}
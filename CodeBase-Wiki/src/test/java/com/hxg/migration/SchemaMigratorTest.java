@@ -0,0 +1,137 @@
+package com.hxg.migration;
+
+import com.hxg.utils.ContentCodecUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SchemaMigrator 单元测试，使用临时目录中的真实SQLite数据库
+ *
+ * @author hxg
+ */
+@DisplayName("SchemaMigrator 单元测试")
+class SchemaMigratorTest {
+
+    @TempDir
+    Path dir;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + dir.resolve("wiki.sqlite"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // 迁移前的表结构：文档内容内联在目录表中
+        jdbcTemplate.execute("CREATE TABLE task (id INTEGER PRIMARY KEY AUTOINCREMENT, task_id TEXT, project_name TEXT,"
+                + " user_name TEXT, create_time DATETIME)");
+        jdbcTemplate.execute("CREATE TABLE token_usage (id INTEGER PRIMARY KEY AUTOINCREMENT, task_id TEXT)");
+        jdbcTemplate.execute("CREATE TABLE catalogue (id INTEGER PRIMARY KEY AUTOINCREMENT, task_id TEXT,"
+                + " catalogue_id TEXT, parent_catalogue_id TEXT, name TEXT, content TEXT, status INTEGER, create_time DATETIME)");
+        jdbcTemplate.update("INSERT INTO catalogue (task_id, catalogue_id, name, content, status) VALUES (?, ?, ?, ?, ?)",
+                "t1", "c1", "架构设计", "# 架构设计\n\n" + "系统由网关、服务与存储组成。".repeat(200), 2);
+        jdbcTemplate.update("INSERT INTO catalogue (task_id, catalogue_id, name, content, status) VALUES (?, ?, ?, ?, ?)",
+                "t1", "c2", "部署", null, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("按版本执行迁移：补齐旧库缺少的列，建立索引，文档内容压缩后移到独立表并删除原列，重复执行不再迁移")
+    void testMigratesContentAndIndexes() {
+        newMigrator().migrate();
+
+        assertEquals(List.of(0, 1, 2, 3, 4), jdbcTemplate.queryForList(
+                "SELECT version FROM schema_migration ORDER BY version", Integer.class));
+        assertFalse(SchemaMigrator.hasColumn(jdbcTemplate, "catalogue", "content"));
+        assertTrue(SchemaMigrator.hasColumn(jdbcTemplate, "catalogue", "heartbeat_time"));
+        assertTrue(SchemaMigrator.hasColumn(jdbcTemplate, "token_usage", "complexity_score"));
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'catalogue'", String.class);
+        assertTrue(indexes.containsAll(List.of("idx_catalogue_task_status", "idx_catalogue_catalogue_id",
+                "idx_catalogue_parent_status")));
+
+        Map<String, Object> stored = jdbcTemplate.queryForMap(
+                "SELECT codec, content, raw_size FROM catalogue_content WHERE catalogue_id = 'c1'");
+        byte[] compressed = (byte[]) stored.get("content");
+        int rawSize = ((Number) stored.get("raw_size")).intValue();
+        assertEquals(ContentCodecUtil.CODEC_DEFLATE, stored.get("codec"));
+        assertTrue(compressed.length < rawSize / 5, "compressed=" + compressed.length + ", raw=" + rawSize);
+        assertTrue(ContentCodecUtil.decompress(ContentCodecUtil.CODEC_DEFLATE, compressed, rawSize).startsWith("# 架构设计"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalogue_content", Integer.class));
+        // 目录查询可以使用索引，不扫描全表
+        String plan = String.join(" ", jdbcTemplate.query(
+                "EXPLAIN QUERY PLAN SELECT * FROM catalogue WHERE parent_catalogue_id = 'c1'",
+                (row, index) -> row.getString("detail")));
+        assertTrue(plan.contains("idx_catalogue_parent_status"), plan);
+
+        newMigrator().migrate();
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_migration", Integer.class));
+    }
+
+    @Test
+    @DisplayName("从schema.sql基线建库后，迁移补齐基线之后的表、列与索引")
+    void testMigratesFromBaselineSchema() {
+        SingleConnectionDataSource fresh = new SingleConnectionDataSource("jdbc:sqlite:" + dir.resolve("fresh.sqlite"), true);
+        try {
+            JdbcTemplate freshJdbc = new JdbcTemplate(fresh);
+            freshJdbc.execute((ConnectionCallback<Void>) connection -> {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+                return null;
+            });
+            assertFalse(SchemaMigrator.hasColumn(freshJdbc, "catalogue", "lease_owner"));
+
+            new SchemaMigrator(freshJdbc, new DataSourceTransactionManager(fresh),
+                    List.of(new LegacySchemaMigration(), new CatalogueContentMigration())).migrate();
+
+            assertEquals(List.of(0, 1, 2, 3, 4), freshJdbc.queryForList(
+                    "SELECT version FROM schema_migration ORDER BY version", Integer.class));
+            assertTrue(SchemaMigrator.hasColumn(freshJdbc, "catalogue", "lease_owner"));
+            assertTrue(SchemaMigrator.hasColumn(freshJdbc, "task", "snapshot_key"));
+            assertTrue(SchemaMigrator.hasColumn(freshJdbc, "token_usage", "route_tier"));
+            assertFalse(SchemaMigrator.hasColumn(freshJdbc, "catalogue", "content"));
+            assertEquals(4, freshJdbc.queryForObject("SELECT COUNT(*) FROM sqlite_master WHERE type = 'table'"
+                    + " AND name IN ('generation_trace', 'document_ledger', 'dead_letter', 'catalogue_content')", Integer.class));
+        } finally {
+            fresh.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("迁移版本号重复时中止")
+    void testRejectsDuplicateVersions() {
+        SchemaMigration duplicate = new CatalogueContentMigration() {
+            @Override
+            public int version() {
+                return 1;
+            }
+        };
+        SchemaMigrator migrator = new SchemaMigrator(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                List.of(duplicate));
+
+        assertThrows(IllegalStateException.class, migrator::migrate);
+    }
+
+    private SchemaMigrator newMigrator() {
+        return new SchemaMigrator(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                List.of(new LegacySchemaMigration(), new CatalogueContentMigration()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.hxg.planner;
+
+import com.hxg.llm.ratelimit.AdaptiveRateLimiter;
+import com.hxg.llm.usage.TokenEstimator;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.model.mapper.TokenUsageMapper;
+import com.hxg.model.vo.QueueStatsVo;
+import com.hxg.model.vo.TaskEstimateVo;
+import com.hxg.queue.service.QueueMetricsService;
+import com.hxg.service.IFileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TaskPlanner 与 AdmissionPolicy 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TaskPlanner 单元测试")
+class TaskPlannerTest {
+
+    @Mock
+    private IFileService fileService;
+
+    @Mock
+    private TokenUsageMapper tokenUsageMapper;
+
+    @Mock
+    private CatalogueMapper catalogueMapper;
+
+    @Mock
+    private TaskMapper taskMapper;
+
+    @Mock
+    private AdaptiveRateLimiter rateLimiter;
+
+    @Mock
+    private TaskPlanner mockPlanner;
+
+    @Mock
+    private QueueMetricsService queueMetricsService;
+
+    @TempDir
+    Path repo;
+
+    private TaskPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        planner = new TaskPlanner(new RepositoryTokenizer(new TokenEstimator()), fileService, tokenUsageMapper,
+                catalogueMapper, taskMapper, rateLimiter);
+    }
+
+    @Test
+    @DisplayName("按分词结果估算调用轮次、token与排队时间")
+    void testEstimate() throws IOException {
+        Files.writeString(repo.resolve("App.java"), "public class App { public static void main(String[] args) {} }");
+        Files.writeString(repo.resolve("README.md"), "# Demo\n一个示例项目");
+        Files.write(repo.resolve("logo.png"), new byte[]{(byte) 0x89, 'P', 'N', 'G', 0, 0, 1});
+        Files.createDirectories(repo.resolve("node_modules/lib"));
+        Files.writeString(repo.resolve("node_modules/lib/index.js"), "module.exports = {}");
+        when(fileService.getFileTree(anyString())).thenReturn("- App.java\n- README.md\n- logo.png\n");
+        when(catalogueMapper.countPending(any(), any())).thenReturn(10L);
+        when(taskMapper.sumEstimatedTokens(anyInt())).thenReturn(0L);
+        when(rateLimiter.getRateFactor()).thenReturn(1.0);
+        when(rateLimiter.getTokensPerMinute()).thenReturn(1_000_000.0);
+        when(rateLimiter.getRequestsPerMinute()).thenReturn(60.0);
+
+        TaskEstimateVo estimate = planner.estimate(repo.toString());
+
+        assertEquals(2, estimate.getFileCount());
+        assertTrue(estimate.getSourceTokens() > 10);
+        assertEquals(1, estimate.getDocumentCount());
+        assertEquals(0, estimate.getCatalogueShards());
+        assertEquals(4L, estimate.getCatalogueCalls());
+        assertEquals(8L, estimate.getDocumentCalls());
+        assertEquals(12L, estimate.getLlmCalls());
+        assertEquals(estimate.getCatalogueTokens() + estimate.getDocumentTokens(), estimate.getTotalTokens());
+        assertEquals(10L, estimate.getBacklogDocuments());
+        // 积压80轮调用受RPM限制，需要约1.3分钟
+        assertEquals(1.3, estimate.getQueueMinutes());
+        assertTrue(estimate.getEtaMinutes() > estimate.getQueueMinutes());
+    }
+
+    @Test
+    @DisplayName("超过单任务上限拒绝，超过用户每日预算排队，否则准入")
+    void testAdmissionDecision() {
+        AdmissionPolicy policy = new AdmissionPolicy(mockPlanner, taskMapper, tokenUsageMapper, catalogueMapper, queueMetricsService);
+        ReflectionTestUtils.setField(policy, "maxTaskTokens", 1_000_000L);
+        ReflectionTestUtils.setField(policy, "userDailyTokens", 2_000_000L);
+        when(mockPlanner.estimate("/huge")).thenReturn(TaskEstimateVo.builder().totalTokens(1_500_000L).build());
+        when(mockPlanner.estimate("/small")).thenReturn(
+                TaskEstimateVo.builder().totalTokens(600_000L).queueMinutes(5.0).backlogDocuments(3L).build());
+        when(tokenUsageMapper.sumTokensByUserSince(eq("alice"), anyString())).thenReturn(1_000_000L);
+        when(taskMapper.sumEstimatedTokensByUser(eq("alice"), anyInt())).thenReturn(500_000L);
+        when(tokenUsageMapper.sumTokensByUserSince(eq("bob"), anyString())).thenReturn(0L);
+        when(taskMapper.sumEstimatedTokensByUser(eq("bob"), anyInt())).thenReturn(0L);
+        when(taskMapper.countByStatus(anyInt())).thenReturn(1L);
+
+        assertEquals("REJECT", policy.evaluate("alice", "/huge").getDecision());
+
+        TaskEstimateVo deferred = policy.evaluate("alice", "/small");
+        assertEquals("DEFER", deferred.getDecision());
+        assertTrue(deferred.getReason().contains("每日预算"));
+
+        assertEquals("ADMIT", policy.evaluate("bob", "/small").getDecision());
+    }
+
+    @Test
+    @DisplayName("拉取仓库前按队列积压检查容量并估算开始时间")
+    void testCapacityCheck() {
+        AdmissionPolicy policy = new AdmissionPolicy(mockPlanner, taskMapper, tokenUsageMapper, catalogueMapper, queueMetricsService);
+        ReflectionTestUtils.setField(policy, "maxBacklogDocuments", 100L);
+        when(taskMapper.countByStatus(anyInt())).thenReturn(1L);
+        when(catalogueMapper.countPending(anyInt(), anyInt())).thenReturn(40L);
+        QueueStatsVo snapshot = QueueStatsVo.builder()
+                .topics(List.of(
+                        QueueStatsVo.TopicStat.builder().role(QueueMetricsService.ROLE_MAIN).lag(160L).build(),
+                        QueueStatsVo.TopicStat.builder().role(QueueMetricsService.ROLE_DLQ).lag(500L).build()))
+                .throughputPerMinute(4.0)
+                .build();
+        when(queueMetricsService.getLastSnapshot()).thenReturn(null, null, snapshot);
+
+        // 监控快照不可用时按数据库积压判断，积压未超限但已有任务排队
+        AdmissionPolicy.CapacityCheck idle = policy.checkCapacity(0);
+        assertFalse(idle.isDeferred());
+        assertTrue(policy.checkCapacity(2).isDeferred());
+
+        // 队列消费延迟160篇超过上限100，按每分钟4篇需15分钟降到上限；死信队列不计入
+        AdmissionPolicy.CapacityCheck busy = policy.checkCapacity(0);
+        assertTrue(busy.isDeferred());
+        assertTrue(busy.reason().contains("160"));
+        assertEquals(15.0, busy.waitMinutes(), 0.01);
+    }
+}
@@ -0,0 +1,180 @@
+package com.hxg.queue.backend;
+
+import com.hxg.queue.model.DocumentGenerationTask;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.ReceiverContext;
+import io.micrometer.observation.transport.SenderContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddedDocumentQueue 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("EmbeddedDocumentQueue 单元测试")
+class EmbeddedDocumentQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private EmbeddedDocumentQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    @DisplayName("重启后从最小未确认位点继续投递，已确认的分段被删除")
+    void testJournalResumesFromCursor() throws Exception {
+        JournalTopic journal = new JournalTopic("doc", dir, 128, false);
+        for (int i = 0; i < 6; i++) {
+            journal.append(("message-" + i + "-" + "x".repeat(40)).getBytes(StandardCharsets.UTF_8), 0);
+        }
+        assertTrue(journal.segmentCount() > 1);
+
+        List<JournalTopic.JournalRecord> delivered = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            delivered.add(journal.poll(100));
+        }
+        // 位点1未确认，游标停在1
+        journal.ack(0);
+        journal.ack(2);
+        journal.ack(3);
+        assertEquals(1, journal.committedOffset());
+        journal.close();
+
+        JournalTopic reopened = new JournalTopic("doc", dir, 128, false);
+        assertEquals(1, reopened.committedOffset());
+        assertEquals(6, reopened.endOffset());
+        List<JournalTopic.JournalRecord> redelivered = new ArrayList<>();
+        JournalTopic.JournalRecord record;
+        while ((record = reopened.poll(50)) != null) {
+            redelivered.add(record);
+            reopened.ack(record.offset());
+        }
+        // 至少一次投递：游标之后已确认的消息也会再次投递
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), redelivered.stream().map(JournalTopic.JournalRecord::offset).toList());
+        assertArrayEquals(delivered.get(1).payload(), redelivered.get(0).payload());
+        assertEquals(6, reopened.committedOffset());
+        assertEquals(1, reopened.segmentCount());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("延迟消息到期才投递，未确认的消息再次投递，确认后推进位点")
+    void testDelayedDeliveryAndRedelivery() throws Exception {
+        queue = newQueue(ObservationRegistry.NOOP);
+
+        Map<String, Long> receivedAt = new ConcurrentHashMap<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(2);
+        long start = System.currentTimeMillis();
+        queue.subscribe("retry", 2, (task, topic, partition, offset, ack) -> {
+            if ("flaky".equals(task.getTaskId()) && attempts.incrementAndGet() == 1) {
+                // 第一次不确认，模拟拿不到并发许可
+                return;
+            }
+            assertEquals("retry", topic);
+            assertEquals("架构设计", task.getCatalogueName());
+            assertNotNull(task.getEnqueueTime());
+            receivedAt.put(task.getTaskId(), System.currentTimeMillis() - start);
+            ack.acknowledge();
+            done.countDown();
+        });
+
+        queue.send("retry", "delayed", task("delayed"), 300).get();
+        queue.send("retry", "flaky", task("flaky"), 0).get();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(receivedAt.get("delayed") >= 300);
+        assertEquals(2, attempts.get());
+        DocumentQueue.PartitionOffsets offsets = queue.offsets(List.of("retry", "missing")).get("retry").get(0);
+        assertEquals(2, offsets.endOffset());
+        assertEquals(2L, offsets.committedOffset());
+        assertFalse(queue.offsets(List.of("missing")).containsKey("missing"));
+    }
+
+    @Test
+    @DisplayName("链路上下文随消息头传递，消费时在接收span内回调监听器")
+    void testTraceHeadersPropagated() throws Exception {
+        // 模拟追踪桥接的传播处理器：投递时写入traceparent，消费时读出
+        AtomicReference<String> extracted = new AtomicReference<>();
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStart(Observation.Context context) {
+                if (context instanceof SenderContext<?> sender) {
+                    @SuppressWarnings("unchecked")
+                    SenderContext<Object> carrierContext = (SenderContext<Object>) sender;
+                    carrierContext.getSetter().set(carrierContext.getCarrier(), "traceparent", "00-trace-span-01");
+                } else if (context instanceof ReceiverContext<?> receiver) {
+                    @SuppressWarnings("unchecked")
+                    ReceiverContext<Object> carrierContext = (ReceiverContext<Object>) receiver;
+                    extracted.set(carrierContext.getGetter().get(carrierContext.getCarrier(), "traceparent"));
+                }
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        queue = newQueue(registry);
+
+        AtomicReference<String> currentObservation = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        queue.subscribe("doc", 1, (task, topic, partition, offset, ack) -> {
+            Observation current = registry.getCurrentObservation();
+            currentObservation.set(current == null ? null : current.getContext().getName());
+            ack.acknowledge();
+            done.countDown();
+        });
+        DocumentGenerationTask task = task("traced");
+        task.setTraceHeaders(Map.of("traceparent", "00-stale-span-01"));
+        queue.send("doc", "traced", task, 0).get();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("00-trace-span-01", extracted.get());
+        assertEquals("wiki.queue.receive", currentObservation.get());
+    }
+
+    private EmbeddedDocumentQueue newQueue(ObservationRegistry registry) {
+        EmbeddedDocumentQueue embeddedQueue = new EmbeddedDocumentQueue(registry);
+        ReflectionTestUtils.setField(embeddedQueue, "dir", dir.toString());
+        ReflectionTestUtils.setField(embeddedQueue, "pollTimeoutMs", 50L);
+        ReflectionTestUtils.setField(embeddedQueue, "redeliveryDelayMs", 50L);
+        return embeddedQueue;
+    }
+
+    private DocumentGenerationTask task(String taskId) {
+        DocumentGenerationTask task = new DocumentGenerationTask();
+        task.setTaskId(taskId);
+        task.setCatalogueId("c-" + taskId);
+        task.setCatalogueName("架构设计");
+        task.setEnqueueTime(LocalDateTime.now());
+        return task;
+    }
+}
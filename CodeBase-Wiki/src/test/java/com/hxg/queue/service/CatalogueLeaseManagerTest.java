@@ -0,0 +1,56 @@
+package com.hxg.queue.service;
+
+import com.hxg.model.mapper.CatalogueMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * CatalogueLeaseManager 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CatalogueLeaseManager 单元测试")
+class CatalogueLeaseManagerTest {
+
+    @Mock
+    private CatalogueMapper catalogueMapper;
+
+    private CatalogueLeaseManager leaseManager;
+
+    @BeforeEach
+    void setUp() {
+        leaseManager = new CatalogueLeaseManager(catalogueMapper);
+    }
+
+    @Test
+    @DisplayName("未配置节点ID时使用主机名加进程号，启动时不过期任何租约")
+    void testDefaultNodeIdIsPerProcess() {
+        leaseManager.init();
+
+        assertTrue(leaseManager.getNodeId().endsWith("-" + ProcessHandle.current().pid()));
+        verify(catalogueMapper, never()).expireLeasesOf(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("显式配置节点ID时启动即过期该节点遗留的租约")
+    void testConfiguredNodeIdExpiresLeftoverLeases() {
+        ReflectionTestUtils.setField(leaseManager, "nodeId", "wiki-1");
+
+        leaseManager.init();
+
+        assertEquals("wiki-1", leaseManager.getNodeId());
+        verify(catalogueMapper).expireLeasesOf(eq("wiki-1"), any());
+    }
+}
@@ -0,0 +1,166 @@
+package com.hxg.queue.service;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.hxg.model.entity.Catalogue;
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.queue.producer.DocumentGenerationProducer;
+import com.hxg.service.ICatalogueContentService;
+import com.hxg.utils.DocumentDigestUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * DocumentDagScheduler 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DocumentDagScheduler 单元测试")
+class DocumentDagSchedulerTest {
+
+    @Mock
+    private CatalogueMapper catalogueMapper;
+
+    @Mock
+    private DocumentGenerationProducer documentGenerationProducer;
+
+    @Mock
+    private ICatalogueContentService catalogueContentService;
+
+    private DocumentDagScheduler scheduler;
+
+    private DocumentGenerationTask finishedTask;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new DocumentDagScheduler(catalogueMapper, documentGenerationProducer, catalogueContentService);
+        finishedTask = new DocumentGenerationTask();
+        finishedTask.setTaskId("task-1");
+        finishedTask.setCatalogueId("child-1");
+        finishedTask.setLocalPath("/repo/demo");
+        finishedTask.setFileTree("tree");
+        finishedTask.setProjectName("demo");
+    }
+
+    @Test
+    @DisplayName("最后一个子目录结束后投递父目录")
+    @SuppressWarnings("unchecked")
+    void testDispatchParentWhenChildrenFinished() {
+        Catalogue child = Catalogue.builder().catalogueId("child-1").parentCatalogueId("parent-1").build();
+        Catalogue parent = Catalogue.builder().taskId("task-1").catalogueId("parent-1").name("架构概览")
+                .prompt("介绍整体架构").dependentFile("[\"pom.xml\"]").children("[{\"name\":\"子章节\"}]").build();
+        when(catalogueMapper.selectOne(any(Wrapper.class))).thenReturn(child, parent);
+        when(catalogueMapper.markParentReady(eq("parent-1"), eq(CatalogueStatusEnum.WAITING.getCode()),
+                eq(CatalogueStatusEnum.IN_PROGRESS.getCode()), any(LocalDateTime.class))).thenReturn(1);
+
+        scheduler.onDocumentFinished(finishedTask);
+
+        ArgumentCaptor<DocumentGenerationTask> captor = ArgumentCaptor.forClass(DocumentGenerationTask.class);
+        verify(documentGenerationProducer).sendTask(captor.capture());
+        DocumentGenerationTask sent = captor.getValue();
+        assertEquals("parent-1", sent.getCatalogueId());
+        assertEquals("/repo/demo", sent.getLocalPath());
+        assertEquals("demo", sent.getProjectName());
+        assertEquals("pom.xml", sent.getCatalogueStruct().getItems().get(0).getDependent_file().get(0));
+    }
+
+    @Test
+    @DisplayName("重新生成的子目录结束后以重新生成任务投递父目录并沿用补充要求")
+    @SuppressWarnings("unchecked")
+    void testRegenerationPropagatesToParent() {
+        Catalogue child = Catalogue.builder().catalogueId("child-1").parentCatalogueId("parent-1").build();
+        Catalogue parent = Catalogue.builder().taskId("task-1").catalogueId("parent-1").name("架构概览")
+                .prompt("介绍整体架构").content("旧文档").build();
+        when(catalogueMapper.selectOne(any(Wrapper.class))).thenReturn(child, parent);
+        when(catalogueMapper.markParentReady(eq("parent-1"), any(), any(), any())).thenReturn(1);
+        finishedTask.markRegeneration("补充时序图");
+
+        scheduler.onDocumentFinished(finishedTask);
+
+        ArgumentCaptor<DocumentGenerationTask> captor = ArgumentCaptor.forClass(DocumentGenerationTask.class);
+        verify(documentGenerationProducer).sendRegenerationTask(captor.capture());
+        verify(documentGenerationProducer, never()).sendTask(any());
+        DocumentGenerationTask sent = captor.getValue();
+        assertTrue(sent.isRegeneration());
+        assertEquals("补充时序图", sent.getHint());
+        assertEquals("HIGH", sent.getPriority());
+    }
+
+    @Test
+    @DisplayName("仍有子目录未结束或已被其他子目录抢先调度时不重复投递")
+    @SuppressWarnings("unchecked")
+    void testSkipWhenParentNotReady() {
+        Catalogue child = Catalogue.builder().catalogueId("child-1").parentCatalogueId("parent-1").build();
+        when(catalogueMapper.selectOne(any(Wrapper.class))).thenReturn(child);
+        when(catalogueMapper.markParentReady(eq("parent-1"), any(), any(), any())).thenReturn(0);
+
+        scheduler.onDocumentFinished(finishedTask);
+
+        verify(documentGenerationProducer, never()).sendTask(any());
+    }
+
+    @Test
+    @DisplayName("父目录投递失败时按投递前状态条件更新，不整行覆盖")
+    @SuppressWarnings("unchecked")
+    void testDispatchFailureUsesConditionalUpdate() {
+        Catalogue child = Catalogue.builder().catalogueId("child-1").parentCatalogueId("parent-1").build();
+        Catalogue parent = Catalogue.builder().taskId("task-1").catalogueId("parent-1").name("架构概览").build();
+        when(catalogueMapper.selectOne(any(Wrapper.class))).thenReturn(child, parent);
+        when(catalogueMapper.markParentReady(eq("parent-1"), any(), any(), any())).thenReturn(1);
+        doThrow(new IllegalStateException("broker unavailable")).when(documentGenerationProducer).sendTask(any());
+
+        scheduler.onDocumentFinished(finishedTask);
+
+        verify(catalogueMapper).finishUndispatched(eq("parent-1"), eq(CatalogueStatusEnum.IN_PROGRESS.getCode()),
+                eq(CatalogueStatusEnum.FAILED.getCode()), eq("发送到队列失败: broker unavailable"), any(LocalDateTime.class));
+        verify(catalogueMapper, never()).updateById(any(Catalogue.class));
+    }
+
+    @Test
+    @DisplayName("顶层目录结束后无需调度")
+    @SuppressWarnings("unchecked")
+    void testRootCatalogueHasNoParent() {
+        when(catalogueMapper.selectOne(any(Wrapper.class))).thenReturn(Catalogue.builder().catalogueId("child-1").build());
+
+        scheduler.onDocumentFinished(finishedTask);
+
+        verify(catalogueMapper, never()).markParentReady(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("子目录摘要保留章节标题和首段并跳过代码块")
+    void testDocumentDigest() {
+        String markdown = """
+                # 配置管理
+
+                ## 功能概述
+                负责加载应用配置。
+                第二行不会进入摘要。
+
+                ## 核心实现
+                ```java
+                public class Config {}
+                ```
+                通过@Value注入配置项。
+                """;
+
+        String digest = DocumentDigestUtil.digest(markdown, 200);
+
+        assertEquals("## 功能概述\n负责加载应用配置。\n## 核心实现\n通过@Value注入配置项。", digest);
+        assertTrue(DocumentDigestUtil.digest(markdown, 20).length() <= 20);
+    }
+}
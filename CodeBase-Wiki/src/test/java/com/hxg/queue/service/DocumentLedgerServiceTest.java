@@ -0,0 +1,99 @@
+package com.hxg.queue.service;
+
+import com.hxg.model.entity.DocumentLedger;
+import com.hxg.model.mapper.DocumentLedgerMapper;
+import com.hxg.queue.model.DocumentGenerationTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * DocumentLedgerService 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DocumentLedgerService 单元测试")
+class DocumentLedgerServiceTest {
+
+    @Mock
+    private DocumentLedgerMapper ledgerMapper;
+
+    @Mock
+    private CatalogueLeaseManager leaseManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DocumentLedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ledgerService = new DocumentLedgerService(ledgerMapper, leaseManager, meterRegistry);
+    }
+
+    private DocumentGenerationTask task(Integer generation, int retryCount) {
+        DocumentGenerationTask task = new DocumentGenerationTask();
+        task.setTaskId("task-1");
+        task.setCatalogueId("c1");
+        task.setGeneration(generation);
+        task.setRetryCount(retryCount);
+        return task;
+    }
+
+    @Test
+    @DisplayName("投递时开启新代次并作废旧代次")
+    void testOpenAssignsGeneration() {
+        when(ledgerMapper.selectLatestGeneration("c1")).thenReturn(3);
+        DocumentGenerationTask task = task(null, 0);
+
+        ledgerService.open(task);
+
+        assertEquals(3, task.getGeneration());
+        verify(ledgerMapper).openGeneration(eq("task-1"), eq("c1"), any());
+        verify(ledgerMapper).supersedeBefore(eq("c1"), eq(3), any());
+    }
+
+    @Test
+    @DisplayName("转入重试后只有重试消息能抢占处理权，原消息的重复投递被跳过并计数")
+    void testRetryReplacesOriginalMessage() {
+        when(leaseManager.getNodeId()).thenReturn("node-1");
+        DocumentGenerationTask original = task(2, 0);
+        when(ledgerMapper.claim(eq("c1"), eq(2), eq(0), eq("node-1"), any())).thenReturn(1, 0);
+        when(ledgerMapper.claim(eq("c1"), eq(2), eq(1), eq("node-1"), any())).thenReturn(1);
+
+        assertTrue(ledgerService.claim(original));
+        original.incrementRetryCount();
+        ledgerService.scheduleRetry(original);
+        verify(ledgerMapper).reopen(eq("c1"), eq(2), eq(0), eq(1), any());
+
+        DocumentGenerationTask redelivered = task(2, 0);
+        assertFalse(ledgerService.claim(redelivered));
+        ledgerService.recordDuplicate(redelivered, DocumentLedgerService.REASON_LEDGER);
+        assertTrue(ledgerService.claim(task(2, 1)));
+
+        verify(ledgerMapper).incrementDuplicates("c1", 2);
+        assertEquals(1.0, meterRegistry.counter(DocumentLedgerService.METRIC_DUPLICATES,
+                "reason", DocumentLedgerService.REASON_LEDGER).count());
+    }
+
+    @Test
+    @DisplayName("台账启用前投递的消息不带代次时直接放行")
+    void testLegacyMessageWithoutGeneration() {
+        assertTrue(ledgerService.claim(task(null, 0)));
+        ledgerService.complete(task(null, 0));
+
+        verify(ledgerMapper, never()).claim(anyString(), any(), any(), any(), any());
+        verify(ledgerMapper, never()).finish(anyString(), any(), any(), eq(DocumentLedger.STATUS_COMPLETED), any());
+    }
+}
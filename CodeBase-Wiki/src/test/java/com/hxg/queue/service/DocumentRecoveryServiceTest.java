@@ -0,0 +1,108 @@
+package com.hxg.queue.service;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.hxg.model.entity.Catalogue;
+import com.hxg.model.entity.Task;
+import com.hxg.model.enums.CatalogueStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.service.ICatalogueService;
+import com.hxg.service.IFileService;
+import com.hxg.service.ITaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * DocumentRecoveryService 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DocumentRecoveryService 单元测试")
+class DocumentRecoveryServiceTest {
+
+    @Mock
+    private CatalogueMapper catalogueMapper;
+
+    @Mock
+    private TaskMapper taskMapper;
+
+    @Mock
+    private ITaskService taskService;
+
+    @Mock
+    private IFileService fileService;
+
+    @Mock
+    private ICatalogueService catalogueService;
+
+    @Mock
+    private DocumentDagScheduler dagScheduler;
+
+    @Mock
+    private CatalogueLeaseManager leaseManager;
+
+    private DocumentRecoveryService recoveryService;
+
+    private final Task task = Task.builder().taskId("task-1").projectName("demo").userName("alice")
+            .projectUrl("https://github.com/demo/repo.git").sourceType("git").build();
+
+    @BeforeEach
+    void setUp() {
+        recoveryService = new DocumentRecoveryService(catalogueMapper, taskMapper, taskService, fileService,
+                catalogueService, dagScheduler, leaseManager);
+        when(leaseManager.staleBefore(any())).thenAnswer(invocation ->
+                ((LocalDateTime) invocation.getArgument(0)).minusMinutes(3));
+    }
+
+    @Test
+    @DisplayName("租约超时的目录在恢复仓库目录后只重新投递未完成的目录")
+    @SuppressWarnings("unchecked")
+    void testRedispatchStaleCatalogues() {
+        Catalogue leased = Catalogue.builder().taskId("task-1").catalogueId("c1").name("模块A").build();
+        Catalogue taken = Catalogue.builder().taskId("task-1").catalogueId("c2").name("模块B").build();
+        when(catalogueMapper.selectStale(eq(CatalogueStatusEnum.IN_PROGRESS.getCode()), any(), any()))
+                .thenReturn(List.of(leased, taken));
+        when(taskMapper.selectOne(any(Wrapper.class))).thenReturn(task);
+        when(taskService.ensureCheckout(task)).thenReturn("/repo/alice/demo");
+        when(fileService.getFileTree("/repo/alice/demo")).thenReturn("tree");
+        when(catalogueMapper.resetStale(eq("c1"), any(), any(), any(), any())).thenReturn(1);
+        // c2已被其他节点恢复
+        when(catalogueMapper.resetStale(eq("c2"), any(), any(), any(), any())).thenReturn(0);
+        when(dagScheduler.redispatch(any(), any(), any(), any())).thenReturn(true);
+
+        int redispatched = recoveryService.recoverStaleCatalogues();
+
+        assertEquals(1, redispatched);
+        verify(dagScheduler).redispatch(leased, "tree", "/repo/alice/demo", "demo");
+        verify(dagScheduler, never()).redispatch(eq(taken), any(), any(), any());
+        verify(catalogueService).cacheTaskProjectPath("task-1", "/repo/alice/demo");
+    }
+
+    @Test
+    @DisplayName("仓库目录无法恢复时结束任务未完成的目录")
+    @SuppressWarnings("unchecked")
+    void testFailWhenCheckoutLost() {
+        Catalogue leased = Catalogue.builder().taskId("task-1").catalogueId("c1").build();
+        when(catalogueMapper.selectStale(any(), any(), any())).thenReturn(List.of(leased));
+        when(taskMapper.selectOne(any(Wrapper.class))).thenReturn(task);
+        when(taskService.ensureCheckout(task)).thenReturn(null);
+
+        assertEquals(0, recoveryService.recoverStaleCatalogues());
+
+        verify(catalogueMapper).failUnfinished(eq("task-1"), eq(CatalogueStatusEnum.FAILED.getCode()),
+                eq(CatalogueStatusEnum.IN_PROGRESS.getCode()), eq(CatalogueStatusEnum.WAITING.getCode()), anyString(), any());
+        verify(dagScheduler, never()).redispatch(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,161 @@
+package com.hxg.queue.service;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.hxg.model.mapper.DeadLetterMapper;
+import com.hxg.model.vo.QueueStatsVo;
+import com.hxg.queue.backend.KafkaDocumentQueue;
+import com.hxg.queue.consumer.DocumentGenerationConsumer;
+import com.hxg.queue.model.DocumentGenerationTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * QueueMetricsService 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("QueueMetricsService 单元测试")
+class QueueMetricsServiceTest {
+
+    @Mock
+    private AdminClient adminClient;
+
+    @Mock
+    private KafkaTemplate<String, DocumentGenerationTask> kafkaTemplate;
+
+    @Mock
+    private DeadLetterMapper deadLetterMapper;
+
+    @Mock
+    private ObjectProvider<DocumentGenerationConsumer> consumerProvider;
+
+    @Mock
+    private ListConsumerGroupOffsetsResult groupOffsetsResult;
+
+    @Mock
+    private DescribeTopicsResult describeTopicsResult;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private QueueMetricsService metricsService;
+
+    private final TopicPartition main0 = new TopicPartition("doc", 0);
+    private final TopicPartition main1 = new TopicPartition("doc", 1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        KafkaDocumentQueue documentQueue = new KafkaDocumentQueue(kafkaTemplate, adminClient);
+        ReflectionTestUtils.setField(documentQueue, "groupId", "group");
+        metricsService = new QueueMetricsService(documentQueue, deadLetterMapper, meterRegistry, consumerProvider);
+        ReflectionTestUtils.setField(metricsService, "groupId", "group");
+        ReflectionTestUtils.setField(metricsService, "docGenerationTopic", "doc");
+        ReflectionTestUtils.setField(metricsService, "docRegenerationTopic", "regen");
+        ReflectionTestUtils.setField(metricsService, "docRetryTopic", "retry");
+        ReflectionTestUtils.setField(metricsService, "docDlqTopic", "dlq");
+        // 服务已运行超过统计窗口，吞吐按完整的5分钟窗口计算
+        ReflectionTestUtils.setField(metricsService, "startTime", System.currentTimeMillis() - 600_000);
+        metricsService.registerGauges();
+    }
+
+    @Test
+    @DisplayName("按已提交位点计算分区积压，未提交的分区从最早位点计算，并按吞吐估算排空时间")
+    @SuppressWarnings("unchecked")
+    void testSnapshotComputesLagAndDrainTime() {
+        when(adminClient.listConsumerGroupOffsets("group")).thenReturn(groupOffsetsResult);
+        when(groupOffsetsResult.partitionsToOffsetAndMetadata())
+                .thenReturn(KafkaFuture.completedFuture(Map.of(main0, new OffsetAndMetadata(5))));
+        Map<String, KafkaFuture<TopicDescription>> descriptions = new HashMap<>();
+        descriptions.put("doc", KafkaFuture.completedFuture(new TopicDescription("doc", false, List.of(
+                new TopicPartitionInfo(0, null, List.of(), List.of()),
+                new TopicPartitionInfo(1, null, List.of(), List.of())))));
+        for (String missing : List.of("regen", "retry", "dlq")) {
+            KafkaFutureImpl<TopicDescription> future = new KafkaFutureImpl<>();
+            future.completeExceptionally(new UnknownTopicOrPartitionException(missing));
+            descriptions.put(missing, future);
+        }
+        when(adminClient.describeTopics(anyCollection())).thenReturn(describeTopicsResult);
+        when(describeTopicsResult.topicNameValues()).thenReturn(descriptions);
+        when(adminClient.listOffsets(anyMap())).thenAnswer(invocation -> {
+            Map<TopicPartition, OffsetSpec> request = invocation.getArgument(0);
+            boolean latest = request.values().iterator().next() instanceof OffsetSpec.LatestSpec;
+            return new ListOffsetsResult(Map.of(
+                    main0, KafkaFuture.completedFuture(offset(latest ? 10 : 0)),
+                    main1, KafkaFuture.completedFuture(offset(latest ? 4 : 1))));
+        });
+        when(deadLetterMapper.selectCount(any(Wrapper.class))).thenReturn(3L);
+        for (int i = 0; i < 4; i++) {
+            metricsService.recordProcessed("doc", 0, QueueMetricsService.OUTCOME_COMPLETED, 1000L * (i + 1));
+        }
+
+        QueueStatsVo stats = metricsService.snapshot();
+
+        assertNull(stats.getError());
+        assertEquals(1, stats.getTopics().size());
+        QueueStatsVo.TopicStat topic = stats.getTopics().get(0);
+        assertEquals(QueueMetricsService.ROLE_MAIN, topic.getRole());
+        assertEquals(8L, topic.getLag());
+        assertEquals(5L, topic.getPartitions().get(0).getLag());
+        assertNull(topic.getPartitions().get(1).getCommittedOffset());
+        assertEquals(3L, topic.getPartitions().get(1).getLag());
+        assertEquals(0L, stats.getRetryDepth());
+        assertEquals(3L, stats.getPendingDeadLetters());
+        // 5分钟处理4条，每分钟0.8条，8条积压需10分钟
+        assertEquals(0.8, stats.getThroughputPerMinute());
+        assertEquals(600L, stats.getEstimatedDrainSeconds());
+        assertEquals(4L, stats.getProcessing().get(0).getCount());
+
+        assertEquals(3.0, meterRegistry.get(QueueMetricsService.METRIC_PARTITION_LAG)
+                .tags("topic", "doc", "partition", "1").gauge().value());
+        assertEquals(600.0, meterRegistry.get(QueueMetricsService.METRIC_DRAIN_SECONDS).gauge().value());
+    }
+
+    @Test
+    @DisplayName("Kafka不可用时返回错误信息，本地指标仍然有效")
+    void testSnapshotWhenKafkaUnavailable() {
+        when(adminClient.listConsumerGroupOffsets("group")).thenThrow(new IllegalStateException("broker unavailable"));
+
+        QueueStatsVo stats = metricsService.snapshot();
+
+        assertEquals("broker unavailable", stats.getError());
+        assertTrue(stats.getTopics().isEmpty());
+        assertNull(stats.getEstimatedDrainSeconds());
+        assertNull(stats.getRetryDepth());
+    }
+
+    private ListOffsetsResult.ListOffsetsResultInfo offset(long offset) {
+        return new ListOffsetsResult.ListOffsetsResultInfo(offset, -1L, Optional.empty());
+    }
+}
@@ -0,0 +1,76 @@
+package com.hxg.service.impl;
+
+import com.hxg.analysis.RepositoryAnalyzer;
+import com.hxg.llm.service.LlmService;
+import com.hxg.model.dto.CatalogueStruct;
+import com.hxg.queue.producer.DocumentGenerationProducer;
+import com.hxg.queue.service.DocumentDagScheduler;
+import com.hxg.queue.service.DocumentLedgerService;
+import com.hxg.service.ICatalogueContentService;
+import com.hxg.service.IMemoryIntegrationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * CatalogueServiceImpl 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("CatalogueService 单元测试")
+class CatalogueServiceImplTest {
+
+    private CatalogueServiceImpl catalogueService;
+
+    @BeforeEach
+    void setUp() {
+        catalogueService = new CatalogueServiceImpl(mock(LlmService.class), mock(IMemoryIntegrationService.class),
+                mock(DocumentGenerationProducer.class), mock(DocumentDagScheduler.class), mock(RepositoryAnalyzer.class),
+                mock(ICatalogueContentService.class), mock(DocumentLedgerService.class));
+    }
+
+    private static CatalogueStruct.Item item(String title) {
+        CatalogueStruct.Item item = new CatalogueStruct.Item();
+        item.setTitle(title);
+        item.setName(title);
+        item.setDependent_file(List.of(title + ".java"));
+        return item;
+    }
+
+    @Test
+    @DisplayName("按合并结果组装分片目录，遗漏的分片章节追加到末尾")
+    void testAssembleShardCatalogues() {
+        Map<String, CatalogueStruct.Item> sections = new LinkedHashMap<>();
+        sections.put("S1-1", item("order-api"));
+        sections.put("S2-1", item("order-core"));
+        sections.put("S3-1", item("payment"));
+        sections.put("S4-1", item("deploy"));
+        String reduceResult = """
+                ```json
+                {"items": [
+                    {"title": "overview", "name": "项目概述", "prompt": "介绍整体架构", "refs": []},
+                    {"title": "order", "name": "订单模块", "prompt": "订单领域", "refs": ["S1-1", "S2-1"]},
+                    {"title": "payment", "name": "支付模块", "prompt": "支付领域", "refs": ["S3-1", "S1-1"]},
+                    {"title": "unknown", "name": "无效引用", "prompt": "", "refs": ["S9-9"]}
+                ]}
+                ```""";
+
+        CatalogueStruct merged = catalogueService.assembleShardCatalogues(reduceResult, sections);
+
+        List<CatalogueStruct.Item> items = merged.getItems();
+        assertEquals(List.of("overview", "order", "payment", "deploy"),
+                items.stream().map(CatalogueStruct.Item::getTitle).toList());
+        assertNull(items.get(0).getChildren());
+        assertEquals(List.of("order-api", "order-core"),
+                items.get(1).getChildren().stream().map(CatalogueStruct.Item::getTitle).toList());
+        // 只引用一个分片章节时直接使用该章节
+        assertEquals(List.of("payment.java"), items.get(2).getDependent_file());
+    }
+}
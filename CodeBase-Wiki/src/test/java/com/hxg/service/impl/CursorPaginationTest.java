@@ -0,0 +1,227 @@
+package com.hxg.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.hxg.migration.CatalogueContentMigration;
+import com.hxg.migration.LegacySchemaMigration;
+import com.hxg.migration.SchemaMigrator;
+import com.hxg.model.entity.Catalogue;
+import com.hxg.model.entity.Task;
+import com.hxg.model.enums.TaskStatusEnum;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.model.param.CursorPageParams;
+import com.hxg.model.vo.CursorPageVo;
+import com.hxg.utils.PageCursorUtil;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 任务与目录游标分页测试，使用临时目录中的真实SQLite数据库执行分页SQL
+ *
+ * @author hxg
+ */
+@DisplayName("游标分页 单元测试")
+class CursorPaginationTest {
+
+    private static final LocalDateTime SAME_TIME = LocalDateTime.of(2025, 8, 25, 10, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TaskServiceImpl taskService;
+    private CatalogueServiceImpl catalogueService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + dir.resolve("wiki.sqlite"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+            return null;
+        });
+        new SchemaMigrator(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                List.of(new LegacySchemaMigration(), new CatalogueContentMigration())).migrate();
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(configuration);
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(TaskMapper.class);
+        sqlSessionFactory.getConfiguration().addMapper(CatalogueMapper.class);
+        SqlSessionTemplate sqlSession = new SqlSessionTemplate(sqlSessionFactory);
+
+        taskService = new TaskServiceImpl();
+        ReflectionTestUtils.setField(taskService, "baseMapper", sqlSession.getMapper(TaskMapper.class));
+        ReflectionTestUtils.setField(taskService, "maxPageSize", 100);
+        ReflectionTestUtils.setField(taskService, "countCacheSeconds", 30L);
+
+        catalogueService = new CatalogueServiceImpl(null, null, null, null, null, null, null);
+        ReflectionTestUtils.setField(catalogueService, "baseMapper", sqlSession.getMapper(CatalogueMapper.class));
+        ReflectionTestUtils.setField(catalogueService, "maxPageSize", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("创建时间相同时按id决定顺序，逐页翻完不重复也不遗漏")
+    void testTaskPagesBreakTiesById() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(insertTask("task-" + i, "demo", SAME_TIME));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        for (int page = 0; page < 3; page++) {
+            CursorPageVo<Task> result = taskService.listByCursor(params(cursor, 2, null, false));
+            result.getRecords().forEach(task -> seen.add(task.getId()));
+            assertEquals(page < 2, result.getHasMore());
+            cursor = result.getNextCursor();
+        }
+
+        assertNull(cursor);
+        assertEquals(ids.reversed(), seen);
+    }
+
+    @Test
+    @DisplayName("查到超过页大小的行时返回下一页游标，游标指向本页最后一条")
+    void testTaskPageHasMoreAndNextCursor() {
+        insertTask("task-old", "demo", SAME_TIME.minusMinutes(1));
+        long middle = insertTask("task-middle", "demo", SAME_TIME);
+        insertTask("task-new", "demo", SAME_TIME.plusMinutes(1));
+
+        CursorPageVo<Task> first = taskService.listByCursor(params(null, 2, null, false));
+
+        assertEquals(List.of("task-new", "task-middle"), first.getRecords().stream().map(Task::getTaskId).toList());
+        assertTrue(first.getHasMore());
+        assertEquals(new PageCursorUtil.Cursor(SAME_TIME, middle), PageCursorUtil.decode(first.getNextCursor()));
+        assertNull(first.getTotal());
+
+        CursorPageVo<Task> last = taskService.listByCursor(params(first.getNextCursor(), 2, null, false));
+        assertEquals(List.of("task-old"), last.getRecords().stream().map(Task::getTaskId).toList());
+        assertFalse(last.getHasMore());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("有筛选条件时返回精确总数，无筛选条件时返回缓存的总数并标记为近似值")
+    void testTaskFilteredCountVersusApproximateTotal() {
+        insertTask("task-a", "demo", SAME_TIME);
+        insertTask("task-b", "demo", SAME_TIME);
+        insertTask("task-c", "other", SAME_TIME);
+
+        CursorPageVo<Task> filtered = taskService.listByCursor(params(null, 1, "demo", true));
+        assertEquals(2L, filtered.getTotal());
+        assertFalse(filtered.getTotalApproximate());
+
+        CursorPageVo<Task> all = taskService.listByCursor(params(null, 1, null, true));
+        assertEquals(3L, all.getTotal());
+        assertTrue(all.getTotalApproximate());
+
+        // 缓存期内新增的任务不计入无筛选总数，筛选总数实时统计
+        insertTask("task-d", "demo", SAME_TIME);
+        assertEquals(3L, taskService.listByCursor(params(null, 1, null, true)).getTotal());
+        assertEquals(3L, taskService.listByCursor(params(null, 1, "demo", true)).getTotal());
+    }
+
+    @Test
+    @DisplayName("数据库默认值写入的创建时间也能按游标翻页")
+    void testTaskPagesWithDefaultCreateTime() {
+        jdbcTemplate.update("INSERT INTO task (task_id, project_name, status) VALUES ('task-a', 'demo', 2)");
+        jdbcTemplate.update("INSERT INTO task (task_id, project_name, status) VALUES ('task-b', 'demo', 2)");
+        jdbcTemplate.update("UPDATE task SET create_time = (SELECT MIN(create_time) FROM task)");
+
+        CursorPageVo<Task> first = taskService.listByCursor(params(null, 1, null, false));
+        CursorPageVo<Task> second = taskService.listByCursor(params(first.getNextCursor(), 1, null, false));
+
+        assertEquals("task-b", first.getRecords().get(0).getTaskId());
+        assertEquals(List.of("task-a"), second.getRecords().stream().map(Task::getTaskId).toList());
+        assertFalse(second.getHasMore());
+    }
+
+    @Test
+    @DisplayName("目录按创建时间与id升序翻页，创建时间相同不重复不遗漏，总数按任务精确统计")
+    void testCataloguePagesBreakTiesById() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(insertCatalogue("t1", "c" + i, SAME_TIME));
+        }
+        insertCatalogue("t2", "other", SAME_TIME);
+
+        CursorPageVo<Catalogue> first = catalogueService.listByCursor("t1", null, 2, true);
+        CursorPageVo<Catalogue> second = catalogueService.listByCursor("t1", first.getNextCursor(), 2, false);
+
+        assertEquals(ids.subList(0, 2), first.getRecords().stream().map(Catalogue::getId).toList());
+        assertTrue(first.getHasMore());
+        assertEquals(3L, first.getTotal());
+        assertFalse(first.getTotalApproximate());
+        assertEquals(ids.subList(2, 3), second.getRecords().stream().map(Catalogue::getId).toList());
+        assertFalse(second.getHasMore());
+        assertNull(second.getNextCursor());
+        assertNull(second.getTotal());
+    }
+
+    @Test
+    @DisplayName("无效游标抛出IllegalArgumentException")
+    void testInvalidCursorRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> taskService.listByCursor(params("not-a-cursor", 2, null, false)));
+        assertThrows(IllegalArgumentException.class,
+                () -> catalogueService.listByCursor("t1", "not-a-cursor", 2, false));
+    }
+
+    private long insertTask(String taskId, String projectName, LocalDateTime createTime) {
+        Task task = new Task();
+        task.setTaskId(taskId);
+        task.setProjectName(projectName);
+        task.setStatus(TaskStatusEnum.COMPLETED);
+        task.setCreateTime(createTime);
+        taskService.save(task);
+        return task.getId();
+    }
+
+    private long insertCatalogue(String taskId, String catalogueId, LocalDateTime createTime) {
+        Catalogue catalogue = new Catalogue();
+        catalogue.setTaskId(taskId);
+        catalogue.setCatalogueId(catalogueId);
+        catalogue.setCreateTime(createTime);
+        catalogueService.save(catalogue);
+        return catalogue.getId();
+    }
+
+    private CursorPageParams params(String cursor, Integer pageSize, String projectName, boolean withCount) {
+        CursorPageParams params = new CursorPageParams();
+        params.setCursor(cursor);
+        params.setPageSize(pageSize);
+        params.setProjectName(projectName);
+        params.setWithCount(withCount);
+        return params;
+    }
+}
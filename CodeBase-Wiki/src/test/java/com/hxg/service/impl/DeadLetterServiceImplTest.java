@@ -0,0 +1,171 @@
+package com.hxg.service.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.hxg.model.entity.DeadLetter;
+import com.hxg.model.entity.Task;
+import com.hxg.model.mapper.CatalogueMapper;
+import com.hxg.model.mapper.DeadLetterMapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.model.param.DeadLetterParams;
+import com.hxg.queue.model.DocumentGenerationTask;
+import com.hxg.queue.producer.DocumentGenerationProducer;
+import com.hxg.queue.service.DocumentProcessingService;
+import com.hxg.service.ICatalogueService;
+import com.hxg.service.IFileService;
+import com.hxg.service.ITaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * DeadLetterServiceImpl 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DeadLetterService 单元测试")
+class DeadLetterServiceImplTest {
+
+    @Mock
+    private DeadLetterMapper deadLetterMapper;
+
+    @Mock
+    private CatalogueMapper catalogueMapper;
+
+    @Mock
+    private TaskMapper taskMapper;
+
+    @Mock
+    private ITaskService taskService;
+
+    @Mock
+    private IFileService fileService;
+
+    @Mock
+    private ICatalogueService catalogueService;
+
+    @Mock
+    private DocumentGenerationProducer producer;
+
+    @Mock
+    private DocumentProcessingService processingService;
+
+    private DeadLetterServiceImpl deadLetterService;
+
+    @BeforeEach
+    void setUp() {
+        // 同步执行重放，便于断言
+        deadLetterService = new DeadLetterServiceImpl(catalogueMapper, taskMapper, taskService, fileService,
+                catalogueService, producer, processingService, Runnable::run);
+        ReflectionTestUtils.setField(deadLetterService, "baseMapper", deadLetterMapper);
+        ReflectionTestUtils.setField(deadLetterService, "maxReplayRatePerSecond", 1000.0);
+    }
+
+    private DeadLetter deadLetter(long id, String catalogueId) {
+        DocumentGenerationTask message = new DocumentGenerationTask();
+        message.setTaskId("task-1");
+        message.setCatalogueId(catalogueId);
+        message.setCatalogueName("目录" + id);
+        message.setRetryCount(4);
+        message.setGeneration(2);
+        message.setErrorClass("SocketTimeoutException");
+        message.setLastError("Read timed out");
+        message.setPriority("FAILED");
+        message.setLocalPath("/old/path");
+        return DeadLetter.builder().id(id).taskId("task-1").catalogueId(catalogueId).catalogueName("目录" + id)
+                .errorClass("SocketTimeoutException").regeneration(false).payload(JSON.toJSONString(message))
+                .status(DeadLetter.STATUS_DEAD).build();
+    }
+
+    @Test
+    @DisplayName("重放时重置重试次数并投递到主队列，已重新生成成功的目录标记为无需重放")
+    @SuppressWarnings("unchecked")
+    void testReplayResetsRetryCounter() {
+        when(deadLetterMapper.selectList(any(Wrapper.class))).thenReturn(List.of(deadLetter(1, "c1"), deadLetter(2, "c2")));
+        when(deadLetterMapper.transition(anyLong(), eq(DeadLetter.STATUS_DEAD), eq(DeadLetter.STATUS_REPLAYING), any()))
+                .thenReturn(1);
+        Task task = Task.builder().taskId("task-1").projectName("demo").build();
+        when(taskMapper.selectOne(any(Wrapper.class))).thenReturn(task);
+        when(taskService.ensureCheckout(task)).thenReturn("/repo/demo");
+        when(fileService.getFileTree("/repo/demo")).thenReturn("tree");
+        when(catalogueMapper.reopenForReplay(eq("c1"), any(), any(), any(), any())).thenReturn(1);
+        when(catalogueMapper.reopenForReplay(eq("c2"), any(), any(), any(), any())).thenReturn(0);
+
+        DeadLetterParams params = new DeadLetterParams();
+        params.setTaskId("task-1");
+        params.setRatePerSecond(1000.0);
+        assertEquals(2, deadLetterService.replay(params));
+
+        ArgumentCaptor<DocumentGenerationTask> captor = ArgumentCaptor.forClass(DocumentGenerationTask.class);
+        verify(producer).sendTask(captor.capture());
+        DocumentGenerationTask replayed = captor.getValue();
+        assertEquals("c1", replayed.getCatalogueId());
+        assertEquals(0, replayed.getRetryCount());
+        assertNull(replayed.getGeneration());
+        assertNull(replayed.getErrorClass());
+        assertEquals("NORMAL", replayed.getPriority());
+        assertEquals("/repo/demo", replayed.getLocalPath());
+        // 同一任务只准备一次仓库目录
+        verify(taskService, times(1)).ensureCheckout(task);
+        verify(deadLetterMapper).finishReplay(eq(1L), eq(DeadLetter.STATUS_REPLAYED), isNull(), eq(1), any());
+        verify(deadLetterMapper).finishReplay(eq(2L), eq(DeadLetter.STATUS_RESOLVED), anyString(), eq(0), any());
+    }
+
+    @Test
+    @DisplayName("未指定筛选条件且未显式选择全部时拒绝重放与清理")
+    void testRequireSelection() {
+        DeadLetterParams params = new DeadLetterParams();
+        assertThrows(RuntimeException.class, () -> deadLetterService.replay(params));
+        assertThrows(RuntimeException.class, () -> deadLetterService.purge(params));
+        verifyNoInteractions(deadLetterMapper, producer);
+    }
+
+    @Test
+    @DisplayName("恢复扫描续期本节点正在重放的死信，超时未更新的重放中死信退回待处理")
+    @SuppressWarnings("unchecked")
+    void testRecoverInterruptedReplays() {
+        List<Runnable> batches = new ArrayList<>();
+        DeadLetterServiceImpl service = new DeadLetterServiceImpl(catalogueMapper, taskMapper, taskService,
+                fileService, catalogueService, producer, processingService, batches::add);
+        ReflectionTestUtils.setField(service, "baseMapper", deadLetterMapper);
+        when(deadLetterMapper.selectList(any(Wrapper.class))).thenReturn(List.of(deadLetter(1, "c1")));
+        when(deadLetterMapper.transition(anyLong(), eq(DeadLetter.STATUS_DEAD), eq(DeadLetter.STATUS_REPLAYING), any()))
+                .thenReturn(1);
+        DeadLetterParams params = new DeadLetterParams();
+        params.setIds(List.of(1L));
+        assertEquals(1, service.replay(params));
+
+        LocalDateTime before = LocalDateTime.now();
+        service.recoverInterruptedReplays();
+        LocalDateTime after = LocalDateTime.now();
+
+        verify(deadLetterMapper).transition(eq(1L), eq(DeadLetter.STATUS_REPLAYING), eq(DeadLetter.STATUS_REPLAYING), any());
+        ArgumentCaptor<LocalDateTime> staleBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(deadLetterMapper).revertStale(eq(DeadLetter.STATUS_REPLAYING), eq(DeadLetter.STATUS_DEAD), anyString(),
+                staleBefore.capture(), any());
+        assertFalse(staleBefore.getValue().isBefore(before.minusMinutes(10)));
+        assertFalse(staleBefore.getValue().isAfter(after.minusMinutes(10)));
+
+        // 批次处理完后不再续期
+        when(taskMapper.selectOne(any(Wrapper.class))).thenReturn(null);
+        batches.get(0).run();
+        clearInvocations(deadLetterMapper);
+        service.recoverInterruptedReplays();
+        verify(deadLetterMapper, never()).transition(anyLong(), eq(DeadLetter.STATUS_REPLAYING), any(), any());
+        verify(deadLetterMapper).revertStale(any(), any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,130 @@
+package com.hxg.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.hxg.model.context.GenerationTraceContext;
+import com.hxg.model.context.LlmCallContext;
+import com.hxg.model.entity.GenerationTrace;
+import com.hxg.model.mapper.DocumentLedgerMapper;
+import com.hxg.model.mapper.GenerationTraceMapper;
+import com.hxg.model.mapper.TokenUsageMapper;
+import com.hxg.model.vo.TaskGenerationReportVo;
+import com.hxg.model.vo.TokenUsageStatVo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * GenerationTraceServiceImpl 单元测试
+ *
+ * @author hxg
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GenerationTraceService 单元测试")
+class GenerationTraceServiceImplTest {
+
+    @Mock
+    private GenerationTraceMapper generationTraceMapper;
+
+    @Mock
+    private TokenUsageMapper tokenUsageMapper;
+
+    @Mock
+    private DocumentLedgerMapper documentLedgerMapper;
+
+    private GenerationTraceServiceImpl traceService;
+
+    @BeforeEach
+    void setUp() {
+        traceService = new GenerationTraceServiceImpl(tokenUsageMapper, documentLedgerMapper);
+        ReflectionTestUtils.setField(traceService, "baseMapper", generationTraceMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        GenerationTraceContext.clear();
+    }
+
+    @Test
+    @DisplayName("工具调用与LLM消耗累计到当前线程的追踪上下文并落库")
+    void testRecordDocument() {
+        GenerationTraceContext trace = GenerationTraceContext.begin("task-1", "cat-1", "架构概览", 1, 1500);
+        GenerationTraceContext.recordToolCall("readFile", 30, 2048, true);
+        GenerationTraceContext.recordToolCall("readFile", 50, 1024, true);
+        GenerationTraceContext.recordToolCall("listFiles", 10, 0, false);
+        LlmCallContext llm = LlmCallContext.of("task-1", "cat-1", LlmCallContext.TYPE_DOCUMENT);
+        llm.setTurns(4);
+        llm.setTotalTokens(12000);
+        llm.setDurationMs(9000);
+        trace.setLlmContext(llm);
+
+        traceService.recordDocument(trace, GenerationTrace.STATUS_COMPLETED, null);
+
+        ArgumentCaptor<GenerationTrace> captor = ArgumentCaptor.forClass(GenerationTrace.class);
+        verify(generationTraceMapper).insert(captor.capture());
+        GenerationTrace saved = captor.getValue();
+        assertEquals(GenerationTrace.STAGE_DOCUMENT, saved.getStage());
+        assertEquals(1, saved.getAttempt());
+        assertEquals(1500L, saved.getQueueWaitMs());
+        assertEquals(3, saved.getToolCalls());
+        assertEquals(90L, saved.getToolMs());
+        assertEquals(3072L, saved.getToolBytes());
+        assertEquals(4, saved.getTurns());
+        assertEquals(12000L, saved.getTotalTokens());
+        assertTrue(saved.getToolDetail().contains("readFile"));
+    }
+
+    @Test
+    @DisplayName("按任务汇总阶段耗时、分位数分布、重试与最慢页面")
+    @SuppressWarnings("unchecked")
+    void testTaskReport() {
+        List<GenerationTrace> traces = new ArrayList<>();
+        traces.add(GenerationTrace.builder().stage(GenerationTrace.STAGE_CLONE).durationMs(4000L).build());
+        traces.add(GenerationTrace.builder().stage(GenerationTrace.STAGE_CATALOGUE).durationMs(20000L).build());
+        for (int i = 1; i <= 20; i++) {
+            traces.add(GenerationTrace.builder().stage(GenerationTrace.STAGE_DOCUMENT).catalogueId("cat-" + i)
+                    .catalogueName("页面" + i).status(GenerationTrace.STATUS_COMPLETED)
+                    .durationMs(i * 1000L).queueWaitMs(100L).totalTokens(1000L).turns(i % 5 + 1)
+                    .toolDetail("{\"readFile\":{\"calls\":2,\"failures\":0,\"durationMs\":40,\"maxMs\":30,\"bytes\":500}}")
+                    .build());
+        }
+        // 页面20首次失败后重试成功，页面19最终失败
+        traces.add(2, GenerationTrace.builder().stage(GenerationTrace.STAGE_DOCUMENT).catalogueId("cat-20")
+                .status(GenerationTrace.STATUS_FAILED).durationMs(500L).build());
+        traces.add(GenerationTrace.builder().stage(GenerationTrace.STAGE_DOCUMENT).catalogueId("cat-19")
+                .status(GenerationTrace.STATUS_FAILED).durationMs(800L).build());
+        when(generationTraceMapper.selectList(any(Wrapper.class))).thenReturn(traces);
+        when(tokenUsageMapper.sumByTaskGroupByCallType("task-1")).thenReturn(List.of(
+                TokenUsageStatVo.builder().dimension(LlmCallContext.TYPE_CATALOGUE).totalTokens(30000L).build()));
+
+        TaskGenerationReportVo report = traceService.getTaskReport("task-1");
+
+        assertEquals(4000L, report.getCloneMs());
+        assertEquals(20000L, report.getCatalogueMs());
+        assertEquals(30000L, report.getCatalogueTokens());
+        assertEquals(20, report.getDocumentCount());
+        assertEquals(22, report.getAttempts());
+        assertEquals(2, report.getRetries());
+        assertEquals(19, report.getCompletedCount());
+        assertEquals(1, report.getFailedCount());
+        TaskGenerationReportVo.Distribution duration = report.getBreakdown().get("durationMs");
+        assertEquals(9000L, duration.getP50());
+        assertEquals(19000L, duration.getP95());
+        assertEquals(20000L, duration.getMax());
+        assertEquals(40L, report.getTools().get(0).getCalls());
+        assertEquals("页面20", report.getSlowestPages().get(0).getCatalogueName());
+        assertEquals(10, report.getSlowestPages().size());
+    }
+}
@@ -7,15 +7,21 @@ import com.hxg.model.entity.Task;
 import com.hxg.model.enums.TaskStatusEnum;
 import com.hxg.model.param.CreateTaskParams;
 import com.hxg.model.param.ListPageParams;
+import com.hxg.model.vo.TaskEstimateVo;
 import com.hxg.model.vo.TaskVo;
+import com.hxg.planner.AdmissionPolicy;
 import com.hxg.service.ICatalogueService;
 import com.hxg.service.IFileService;
+import com.hxg.service.IGenerationTraceService;
 import com.hxg.service.IGitService;
+import com.hxg.service.IWikiReuseService;
+import com.hxg.snapshot.RepositorySnapshotService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
@@ -53,6 +59,18 @@ class TaskServiceImplTest {
     @Mock
     private ThreadPoolTaskExecutor createTaskExecutor;
 
+    @Mock
+    private AdmissionPolicy admissionPolicy;
+
+    @Mock
+    private IWikiReuseService wikiReuseService;
+
+    @Mock
+    private IGenerationTraceService generationTraceService;
+
+    @Mock
+    private RepositorySnapshotService snapshotService;
+
     private TaskServiceImpl taskService;
 
     @BeforeEach
@@ -63,6 +81,17 @@ class TaskServiceImplTest {
         ReflectionTestUtils.setField(taskService, "fileService", fileService);
         ReflectionTestUtils.setField(taskService, "catalogueService", catalogueService);
         ReflectionTestUtils.setField(taskService, "createTaskExecutor", createTaskExecutor);
+        ReflectionTestUtils.setField(taskService, "admissionPolicy", admissionPolicy);
+        ReflectionTestUtils.setField(taskService, "wikiReuseService", wikiReuseService);
+        ReflectionTestUtils.setField(taskService, "generationTraceService", generationTraceService);
+        ReflectionTestUtils.setField(taskService, "snapshotService", snapshotService);
+        lenient().when(admissionPolicy.evaluate(any(), any())).thenReturn(estimate("ADMIT", null));
+        lenient().when(admissionPolicy.checkCapacity(anyLong())).thenReturn(
+                new AdmissionPolicy.CapacityCheck(AdmissionPolicy.Decision.ADMIT, null, 0, 10));
+    }
+
+    private TaskEstimateVo estimate(String decision, String reason) {
+        return TaskEstimateVo.builder().totalTokens(100000L).decision(decision).reason(reason).build();
     }
 
     @Test
@@ -249,6 +278,7 @@ class TaskServiceImplTest {
         existingTask.setTaskId(taskId);
         existingTask.setProjectName("delete-project");
         existingTask.setUserName("deleteuser");
+        existingTask.setSnapshotKey("snapshot-key");
         
         when(taskMapper.selectOne(any(LambdaQueryWrapper.class), eq(true))).thenReturn(existingTask);
         when(taskMapper.deleteById(anyLong())).thenReturn(1);
@@ -262,6 +292,10 @@ class TaskServiceImplTest {
         verify(fileService).deleteProjectDirectory("deleteuser", "delete-project");
         verify(catalogueService).deleteCatalogueByTaskId(taskId);
         verify(taskMapper).deleteById(1L);
+        // 任务记录删除后再按引用计数释放快照
+        InOrder inOrder = inOrder(taskMapper, snapshotService);
+        inOrder.verify(taskMapper).deleteById(1L);
+        inOrder.verify(snapshotService).release("snapshot-key");
     }
 
     @Test
@@ -330,4 +364,140 @@ class TaskServiceImplTest {
         
         verify(taskMapper).insert(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("预算不足时任务进入排队且不立即执行")
+    void testCreateTaskDeferred() {
+        CreateTaskParams params = new CreateTaskParams();
+        params.setProjectName("big-project");
+        params.setUserName("queueuser");
+        params.setSourceType("git");
+
+        when(fileService.getRepositoryPath(anyString(), anyString())).thenReturn("/queue/path");
+        when(admissionPolicy.evaluate("queueuser", "/queue/path")).thenReturn(estimate("DEFER", "进行中任务3个，已达上限3"));
+        when(taskMapper.insert(any(Task.class))).thenReturn(1);
+
+        Task result = taskService.createTask(params, null);
+
+        assertEquals(TaskStatusEnum.QUEUED, result.getStatus());
+        assertEquals(100000L, result.getEstimatedTokens());
+        assertEquals("进行中任务3个，已达上限3", result.getFailReason());
+        verify(createTaskExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("超过单任务上限时拒绝并清理项目目录")
+    void testCreateTaskRejected() {
+        CreateTaskParams params = new CreateTaskParams();
+        params.setProjectName("huge-project");
+        params.setUserName("rejectuser");
+        params.setSourceType("git");
+
+        when(fileService.getRepositoryPath(anyString(), anyString())).thenReturn("/reject/path");
+        when(admissionPolicy.evaluate("rejectuser", "/reject/path")).thenReturn(estimate("REJECT", "超过单任务上限"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> taskService.createTask(params, null));
+
+        assertTrue(exception.getMessage().contains("超过单任务上限"));
+        verify(fileService).deleteProjectDirectory("rejectuser", "huge-project");
+        verify(taskMapper, never()).insert(any(Task.class));
+    }
+
+    @Test
+    @DisplayName("相同仓库提交已有完成结果时复制结果且不重新生成")
+    void testCreateTaskReusesCompletedResult() {
+        CreateTaskParams params = new CreateTaskParams();
+        params.setProjectName("popular-project");
+        params.setProjectUrl("https://github.com/demo/popular.git");
+        params.setUserName("reuser");
+        params.setSourceType("git");
+        Task source = Task.builder().taskId("TASK_SOURCE").status(TaskStatusEnum.COMPLETED).build();
+
+        when(fileService.getRepositoryPath(anyString(), anyString())).thenReturn("/reuse/path");
+        when(wikiReuseService.buildContentKey(params, "/reuse/path")).thenReturn("key-1");
+        when(wikiReuseService.findReusableTask("key-1")).thenReturn(source);
+        when(wikiReuseService.isResultReady(source)).thenReturn(true);
+        when(taskMapper.insert(any(Task.class))).thenReturn(1);
+
+        Task result = taskService.createTask(params, null);
+
+        assertEquals(TaskStatusEnum.COMPLETED, result.getStatus());
+        assertEquals("TASK_SOURCE", result.getSourceTaskId());
+        assertEquals("key-1", result.getContentKey());
+        verify(wikiReuseService).materialize(source, result, "/reuse/path");
+        verify(admissionPolicy, never()).evaluate(any(), any());
+        verify(createTaskExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("相同任务仍在生成时挂起等待而不重复生成")
+    void testCreateTaskAttachesToRunningTask() {
+        CreateTaskParams params = new CreateTaskParams();
+        params.setProjectName("popular-project");
+        params.setProjectUrl("https://github.com/demo/popular.git");
+        params.setUserName("attachuser");
+        params.setSourceType("git");
+        Task source = Task.builder().taskId("TASK_RUNNING").status(TaskStatusEnum.IN_PROGRESS).build();
+
+        when(fileService.getRepositoryPath(anyString(), anyString())).thenReturn("/attach/path");
+        when(wikiReuseService.buildContentKey(params, "/attach/path")).thenReturn("key-2");
+        when(wikiReuseService.findReusableTask("key-2")).thenReturn(source);
+        when(wikiReuseService.isResultReady(source)).thenReturn(false);
+        when(taskMapper.insert(any(Task.class))).thenReturn(1);
+
+        Task result = taskService.createTask(params, null);
+
+        assertEquals(TaskStatusEnum.ATTACHED, result.getStatus());
+        assertEquals("TASK_RUNNING", result.getSourceTaskId());
+        verify(wikiReuseService, never()).materialize(any(), any(), any());
+        verify(createTaskExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("队列繁忙时Git任务直接排队且不拉取仓库")
+    void testCreateTaskQueuedBeforeClone() {
+        CreateTaskParams params = new CreateTaskParams();
+        params.setProjectName("burst-project");
+        params.setProjectUrl("https://github.com/demo/burst.git");
+        params.setUserName("burstuser");
+        params.setSourceType("git");
+
+        when(taskMapper.countByStatus(TaskStatusEnum.QUEUED.getCode())).thenReturn(2L);
+        when(admissionPolicy.checkCapacity(2L)).thenReturn(new AdmissionPolicy.CapacityCheck(
+                AdmissionPolicy.Decision.DEFER, "待生成文档800篇，超过积压上限500", 30, 5));
+        when(taskMapper.insert(any(Task.class))).thenReturn(1);
+
+        Task result = taskService.createTask(params, null);
+
+        assertEquals(TaskStatusEnum.QUEUED, result.getStatus());
+        assertNull(result.getEstimatedTokens());
+        assertTrue(result.getFailReason().contains("积压上限"));
+        // 队首等待30分钟，前面2个任务各5分钟
+        assertTrue(result.getEstimatedStartTime().isAfter(LocalDateTime.now().plusMinutes(39)));
+        verify(fileService, never()).getRepositoryPath(anyString(), anyString());
+        verify(gitService, never()).cloneRepository(any(), anyString());
+        verify(createTaskExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("容量空闲后排队任务拉取仓库并开始执行")
+    void testAdmitQueuedTaskClonesRepository() {
+        Task queued = Task.builder().id(7L).taskId("TASK_QUEUED").projectName("burst-project")
+                .projectUrl("https://github.com/demo/burst.git").userName("burstuser").sourceType("git")
+                .status(TaskStatusEnum.QUEUED).failReason("进行中任务3个，已达上限3").build();
+
+        when(taskMapper.selectList(any())).thenReturn(java.util.List.of(queued));
+        when(fileService.getRepositoryPath("burstuser", "burst-project")).thenReturn("/queued/path");
+        when(wikiReuseService.buildContentKey(any(), eq("/queued/path"))).thenReturn("key-3");
+        when(taskMapper.updateById(any(Task.class))).thenReturn(1);
+
+        taskService.admitQueuedTasks();
+
+        verify(gitService).cloneRepository(any(CreateTaskParams.class), eq("/queued/path"));
+        assertEquals(TaskStatusEnum.IN_PROGRESS, queued.getStatus());
+        assertEquals("key-3", queued.getContentKey());
+        assertEquals(100000L, queued.getEstimatedTokens());
+        assertNull(queued.getFailReason());
+        verify(createTaskExecutor).execute(any(Runnable.class));
+    }
+}
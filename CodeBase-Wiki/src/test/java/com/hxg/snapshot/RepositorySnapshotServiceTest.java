@@ -0,0 +1,128 @@
+package com.hxg.snapshot;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.hxg.model.mapper.TaskMapper;
+import com.hxg.queue.model.DocumentGenerationTask;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * RepositorySnapshotService 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("RepositorySnapshotService 单元测试")
+class RepositorySnapshotServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("相同内容的仓库得到相同快照键，其他节点按键拉取到一致的内容且不含.git")
+    void testPackAndFetchOnAnotherNode() throws Exception {
+        LocalBlobStore store = store();
+        Path repo = repository("repo-a");
+        Path copy = repository("repo-b");
+        Files.writeString(copy.resolve(".git/HEAD"), "ref: refs/heads/other");
+
+        RepositorySnapshotService origin = service(store, "cache-origin");
+        String key = origin.pack(repo);
+        assertEquals(key, origin.pack(copy));
+        assertTrue(store.exists(key));
+
+        // 本节点直接使用打包时的目录
+        DocumentGenerationTask task = new DocumentGenerationTask();
+        task.setLocalPath("/not/on/this/node");
+        task.setSnapshotKey(key);
+        assertEquals(copy.toString(), origin.resolve(task));
+
+        RepositorySnapshotService remote = service(store, "cache-remote");
+        Path fetched = Path.of(remote.resolve(task));
+        assertEquals(dir.resolve("cache-remote").resolve(key), fetched);
+        assertEquals("public class App {}", Files.readString(fetched.resolve("src/main/App.java")));
+        assertEquals("# demo", Files.readString(fetched.resolve("README.md")));
+        assertFalse(Files.exists(fetched.resolve(".git")));
+        assertEquals(fetched, remote.fetch(key));
+    }
+
+    @Test
+    @DisplayName("对象内容与快照键不一致时拉取失败且不留下缓存")
+    void testFetchRejectsCorruptedBlob() throws Exception {
+        LocalBlobStore store = store();
+        String key = service(store, "cache-origin").pack(repository("repo"));
+        Path blob = dir.resolve("blobs").resolve(key.substring(0, 2)).resolve(key + ".zip");
+        byte[] bytes = Files.readAllBytes(blob);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(blob, bytes);
+
+        DocumentGenerationTask task = new DocumentGenerationTask();
+        task.setSnapshotKey(key);
+        RepositorySnapshotService remote = service(store, "cache-remote");
+        UncheckedIOException error = assertThrows(UncheckedIOException.class, () -> remote.resolve(task));
+        assertTrue(error.getCause().getMessage().contains("校验失败"));
+        try (var files = Files.list(dir.resolve("cache-remote"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("快照仍被其他任务引用时保留，无引用时删除对象与本地缓存")
+    @SuppressWarnings("unchecked")
+    void testReleaseDeletesUnreferencedSnapshot() throws Exception {
+        LocalBlobStore store = store();
+        TaskMapper taskMapper = mock(TaskMapper.class);
+        RepositorySnapshotService origin = new RepositorySnapshotService(store, taskMapper);
+        ReflectionTestUtils.setField(origin, "cacheDir", dir.resolve("cache-origin").toString());
+        String key = origin.pack(repository("repo"));
+        Path cached = origin.fetch(key);
+
+        when(taskMapper.selectCount(any(Wrapper.class))).thenReturn(1L);
+        origin.release(key);
+        assertTrue(store.exists(key));
+        assertTrue(Files.isDirectory(cached));
+
+        when(taskMapper.selectCount(any(Wrapper.class))).thenReturn(0L);
+        origin.release(key);
+        assertFalse(store.exists(key));
+        assertFalse(Files.exists(cached));
+        // 本节点不再把该快照键解析到原仓库目录
+        DocumentGenerationTask task = new DocumentGenerationTask();
+        task.setSnapshotKey(key);
+        assertThrows(UncheckedIOException.class, () -> origin.resolve(task));
+    }
+
+    private LocalBlobStore store() {
+        LocalBlobStore store = new LocalBlobStore();
+        ReflectionTestUtils.setField(store, "dir", dir.resolve("blobs").toString());
+        return store;
+    }
+
+    private RepositorySnapshotService service(BlobStore store, String cacheDir) {
+        RepositorySnapshotService service = new RepositorySnapshotService(store, mock(TaskMapper.class));
+        ReflectionTestUtils.setField(service, "cacheDir", dir.resolve(cacheDir).toString());
+        return service;
+    }
+
+    private Path repository(String name) throws IOException {
+        Path repo = dir.resolve(name);
+        Files.createDirectories(repo.resolve("src/main"));
+        Files.createDirectories(repo.resolve(".git"));
+        Files.writeString(repo.resolve("src/main/App.java"), "public class App {}", StandardCharsets.UTF_8);
+        Files.writeString(repo.resolve("README.md"), "# demo", StandardCharsets.UTF_8);
+        Files.writeString(repo.resolve(".git/HEAD"), "ref: refs/heads/main");
+        return repo;
+    }
+}
@@ -0,0 +1,67 @@
+package com.hxg.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FileTreePartitioner 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("FileTreePartitioner 单元测试")
+class FileTreePartitionerTest {
+
+    private static String dir(String indent, String name, int files) {
+        StringBuilder tree = new StringBuilder(indent).append("- ").append(name).append("/\n");
+        for (int i = 0; i < files; i++) {
+            tree.append(indent).append("  - ").append(name).append(i).append(".java\n");
+        }
+        return tree.toString();
+    }
+
+    @Test
+    @DisplayName("按顶层模块切分，小目录与根目录文件合并")
+    void testPartitionByTopLevelModule() {
+        String fileTree = "  - README.md\n  - pom.xml\n"
+                + dir("  ", "order", 30)
+                + dir("  ", "payment", 40)
+                + dir("  ", "docs", 1);
+
+        List<FileTreePartitioner.Shard> shards = FileTreePartitioner.partition(fileTree, 50);
+
+        assertEquals(List.of("order", "payment", FileTreePartitioner.ROOT_SHARD_NAME),
+                shards.stream().map(FileTreePartitioner.Shard::getName).toList());
+        assertEquals(31, shards.get(0).getLineCount());
+        assertTrue(shards.get(2).getTree().contains("README.md"));
+        assertTrue(shards.get(2).getTree().contains("- docs/"));
+        assertEquals(FileTreePartitioner.countLines(fileTree),
+                shards.stream().mapToInt(FileTreePartitioner.Shard::getLineCount).sum());
+    }
+
+    @Test
+    @DisplayName("超出上限的目录按下一级切分并保留祖先目录行")
+    void testSplitOversizedModule() {
+        String fileTree = "  - services/\n"
+                + dir("    ", "user", 30)
+                + dir("    ", "billing", 30)
+                + "    - Main.java\n";
+
+        List<FileTreePartitioner.Shard> shards = FileTreePartitioner.partition(fileTree, 40);
+
+        assertEquals(List.of("services/user", "services/billing", "services/*"),
+                shards.stream().map(FileTreePartitioner.Shard::getName).toList());
+        assertTrue(shards.get(1).getTree().startsWith("  - services/\n    - billing/\n"));
+        assertTrue(shards.stream().allMatch(shard -> shard.getLineCount() <= 40));
+    }
+
+    @Test
+    @DisplayName("空文件树不产生分片")
+    void testEmptyTree() {
+        assertTrue(FileTreePartitioner.partition("", 100).isEmpty());
+        assertEquals(0, FileTreePartitioner.countLines(null));
+    }
+}
@@ -0,0 +1,47 @@
+package com.hxg.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PageCursorUtil 单元测试
+ *
+ * @author hxg
+ */
+@DisplayName("PageCursorUtil 单元测试")
+class PageCursorUtilTest {
+
+    @Test
+    @DisplayName("游标编码后解码还原创建时间与id，且可直接用于URL")
+    void testRoundTrip() {
+        LocalDateTime createTime = LocalDateTime.of(2025, 8, 25, 10, 30, 15, 123_000_000);
+
+        String cursor = PageCursorUtil.encode(createTime, 42L);
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+        assertEquals(new PageCursorUtil.Cursor(createTime, 42L), PageCursorUtil.decode(cursor));
+    }
+
+    @Test
+    @DisplayName("非Base64、缺少分隔符或字段无法解析的游标抛出IllegalArgumentException")
+    void testInvalidCursorRejected() {
+        String noSeparator = encodeRaw("2025-08-25T10:00");
+        String badId = encodeRaw("2025-08-25T10:00|abc");
+        String badTime = encodeRaw("yesterday|1");
+
+        for (String cursor : new String[]{"%%%", noSeparator, badId, badTime}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PageCursorUtil.decode(cursor));
+            assertTrue(e.getMessage().startsWith("无效的分页游标"), e.getMessage());
+        }
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}